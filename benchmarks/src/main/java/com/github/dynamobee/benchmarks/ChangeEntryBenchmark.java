@@ -0,0 +1,45 @@
+package com.github.dynamobee.benchmarks;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.github.dynamobee.changeset.ChangeEntry;
+import com.github.dynamobee.exception.DynamobeeChangeSetException;
+
+
+/**
+ * Creating the changelog entries of all changesets and serializing them into DynamoDB items
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ChangeEntryBenchmark {
+
+	@Benchmark
+	public void createChangeEntries(ChangeLogsState state, Blackhole blackhole) throws DynamobeeChangeSetException {
+		for (List<Method> changeSetMethods : state.changeSetMethods) {
+			for (Method changeSetMethod : changeSetMethods) {
+				blackhole.consume(state.service.createChangeEntry(changeSetMethod));
+			}
+		}
+	}
+
+	@Benchmark
+	public void buildFullDBObject(ChangeLogsState state, Blackhole blackhole) {
+		for (ChangeEntry changeEntry : state.changeEntries) {
+			blackhole.consume(changeEntry.buildFullDBObject());
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package com.github.dynamobee.benchmarks;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.github.dynamobee.changeset.ChangeEntry;
+import com.github.dynamobee.changeset.ChangeSet;
+import com.github.dynamobee.utils.ChangeService;
+
+
+/**
+ * Generated changelogs loaded once per trial, shuffled with a fixed seed
+ */
+@State(Scope.Thread)
+public class ChangeLogsState {
+	private static final long SEED = 42L;
+
+	@Param({"10", "1000", "10000"})
+	public int changeSets;
+
+	public GeneratedChangeLogs generated;
+	public ChangeService service;
+	public List<Class<?>> changeLogs;
+	public List<List<Method>> changeSetMethods;
+	public List<ChangeEntry> changeEntries;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		generated = GeneratedChangeLogs.generate(changeSets, false);
+		service = new ChangeService(GeneratedChangeLogs.PACKAGE);
+
+		Random random = new Random(SEED);
+		changeLogs = generated.loadChangeLogs();
+		changeSetMethods = new ArrayList<>();
+		changeEntries = new ArrayList<>();
+		for (Class<?> changeLog : changeLogs) {
+			List<Method> methods = new ArrayList<>();
+			for (Method method : changeLog.getDeclaredMethods()) {
+				if (method.isAnnotationPresent(ChangeSet.class)) {
+					methods.add(method);
+					changeEntries.add(service.createChangeEntry(method));
+				}
+			}
+			Collections.shuffle(methods, random);
+			changeSetMethods.add(methods);
+		}
+		Collections.shuffle(changeLogs, random);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		generated.delete();
+	}
+}
@@ -0,0 +1,77 @@
+package com.github.dynamobee.benchmarks;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.github.dynamobee.exception.DynamobeeChangeSetException;
+import com.github.dynamobee.utils.ChangeService;
+
+
+/**
+ * Finding the changelogs of a package, through the build-time index or by classpath scanning,
+ * and reading the changesets of every changelog
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DiscoveryBenchmark {
+
+	@State(Scope.Thread)
+	public static class ClasspathState {
+		@Param({"10", "1000", "10000"})
+		public int changeSets;
+
+		@Param({"true", "false"})
+		public boolean index;
+
+		public GeneratedChangeLogs generated;
+		public ChangeService service;
+		private ClassLoader previousClassLoader;
+
+		@Setup(Level.Trial)
+		public void setUp() throws IOException {
+			generated = GeneratedChangeLogs.generate(changeSets, index);
+			service = new ChangeService(GeneratedChangeLogs.PACKAGE);
+			previousClassLoader = Thread.currentThread().getContextClassLoader();
+			Thread.currentThread().setContextClassLoader(generated.getClassLoader());
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() throws IOException {
+			Thread.currentThread().setContextClassLoader(previousClassLoader);
+			generated.delete();
+		}
+	}
+
+	@Benchmark
+	public List<Class<?>> fetchChangeLogs(ClasspathState state) {
+		return state.service.fetchChangeLogs();
+	}
+
+	@Benchmark
+	public void fetchChangeSets(ChangeLogsState state, Blackhole blackhole) throws DynamobeeChangeSetException {
+		for (Class<?> changeLog : state.changeLogs) {
+			List<Method> changeSets = state.service.fetchChangeSets(changeLog);
+			blackhole.consume(changeSets);
+		}
+	}
+}
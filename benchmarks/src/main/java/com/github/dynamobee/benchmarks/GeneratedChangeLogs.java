@@ -0,0 +1,150 @@
+package com.github.dynamobee.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+
+/**
+ * Classpath of generated changelogs, compiled into a temporary directory and loaded by their own class loader.
+ * Changesets are spread over changelogs of {@link #CHANGE_SETS_PER_CHANGE_LOG} methods each, declared in reverse
+ * order so that sorting has work to do. Half of the changesets take a DynamoDbClient parameter.
+ */
+public class GeneratedChangeLogs {
+	public static final String PACKAGE = "com.github.dynamobee.benchmarks.generated";
+	public static final int CHANGE_SETS_PER_CHANGE_LOG = 10;
+
+	private final Path directory;
+	private final URLClassLoader classLoader;
+	private final int changeLogs;
+
+	private GeneratedChangeLogs(Path directory, URLClassLoader classLoader, int changeLogs) {
+		this.directory = directory;
+		this.classLoader = classLoader;
+		this.changeLogs = changeLogs;
+	}
+
+	/**
+	 * @param changeSets number of changesets to generate
+	 * @param index true to run the changelog index processor, false to leave discovery to classpath scanning
+	 * @return the compiled changelogs
+	 * @throws IOException if the sources could not be written or compiled
+	 */
+	public static GeneratedChangeLogs generate(int changeSets, boolean index) throws IOException {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		if (compiler == null) {
+			throw new IllegalStateException("Generating changelogs needs a JDK, not a JRE");
+		}
+		Path directory = Files.createTempDirectory("dynamobee-benchmarks");
+		Path sourceDirectory = Files.createDirectories(directory.resolve("src").resolve(PACKAGE.replace('.', File.separatorChar)));
+		Path classDirectory = Files.createDirectories(directory.resolve("classes"));
+
+		List<String> arguments = new ArrayList<>(Arrays.asList(
+				"-nowarn", "-encoding", "UTF-8",
+				"-classpath", System.getProperty("java.class.path"),
+				"-d", classDirectory.toString()));
+		if (index) {
+			arguments.add("-processor");
+			arguments.add("com.github.dynamobee.processor.ChangeLogIndexProcessor");
+		} else {
+			arguments.add("-proc:none");
+		}
+		int changeLogs = (changeSets + CHANGE_SETS_PER_CHANGE_LOG - 1) / CHANGE_SETS_PER_CHANGE_LOG;
+		for (int changeLog = 0; changeLog < changeLogs; changeLog++) {
+			int first = changeLog * CHANGE_SETS_PER_CHANGE_LOG;
+			int last = Math.min(changeSets, first + CHANGE_SETS_PER_CHANGE_LOG);
+			arguments.add(writeChangeLog(sourceDirectory, changeLog, first, last).toString());
+		}
+
+		if (compiler.run(null, null, null, arguments.toArray(new String[0])) != 0) {
+			throw new IOException("Could not compile the generated changelogs in " + sourceDirectory);
+		}
+		URLClassLoader classLoader = new URLClassLoader(new URL[]{classDirectory.toUri().toURL()},
+				GeneratedChangeLogs.class.getClassLoader());
+		return new GeneratedChangeLogs(directory, classLoader, changeLogs);
+	}
+
+	private static Path writeChangeLog(Path sourceDirectory, int changeLog, int first, int last) throws IOException {
+		String className = className(changeLog);
+		Path source = sourceDirectory.resolve(className + ".java");
+		try (Writer out = Files.newBufferedWriter(source, StandardCharsets.UTF_8)) {
+			out.write("package " + PACKAGE + ";\n\n");
+			out.write("import com.github.dynamobee.changeset.ChangeLog;\n");
+			out.write("import com.github.dynamobee.changeset.ChangeSet;\n");
+			out.write("import software.amazon.awssdk.services.dynamodb.DynamoDbClient;\n\n");
+			out.write("@ChangeLog(order = \"" + pad(changeLog) + "\")\n");
+			out.write("public class " + className + " {\n");
+			out.write("\tpublic static long invocations;\n\n");
+			for (int changeSet = last - 1; changeSet >= first; changeSet--) {
+				out.write("\t@ChangeSet(order = \"" + pad(changeSet) + "\", id = \"changeset-" + changeSet
+						+ "\", author = \"benchmark\")\n");
+				if (changeSet % 2 == 0) {
+					out.write("\tpublic void changeSet" + changeSet + "() {\n");
+				} else {
+					out.write("\tpublic void changeSet" + changeSet + "(DynamoDbClient client) {\n");
+				}
+				out.write("\t\tinvocations++;\n");
+				out.write("\t}\n\n");
+			}
+			out.write("}\n");
+		}
+		return source;
+	}
+
+	private static String className(int changeLog) {
+		return "ChangeLog" + pad(changeLog);
+	}
+
+	private static String pad(int number) {
+		return String.format("%06d", number);
+	}
+
+	/**
+	 * @return class loader of the generated changelogs, to be used as context class loader while discovering them
+	 */
+	public ClassLoader getClassLoader() {
+		return classLoader;
+	}
+
+	/**
+	 * @return the generated changelog classes, in declaration order
+	 * @throws ClassNotFoundException if a class is missing
+	 */
+	public List<Class<?>> loadChangeLogs() throws ClassNotFoundException {
+		List<Class<?>> classes = new ArrayList<>();
+		for (int changeLog = 0; changeLog < changeLogs; changeLog++) {
+			classes.add(Class.forName(PACKAGE + "." + className(changeLog), true, classLoader));
+		}
+		return classes;
+	}
+
+	/**
+	 * Closes the class loader and deletes the generated files
+	 */
+	public void delete() throws IOException {
+		classLoader.close();
+		List<Path> paths = new ArrayList<>();
+		try (Stream<Path> walk = Files.walk(directory)) {
+			Iterator<Path> iterator = walk.iterator();
+			while (iterator.hasNext()) {
+				paths.add(iterator.next());
+			}
+		}
+		for (int i = paths.size() - 1; i >= 0; i--) {
+			Files.deleteIfExists(paths.get(i));
+		}
+	}
+}
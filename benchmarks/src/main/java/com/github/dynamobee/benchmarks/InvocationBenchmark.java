@@ -0,0 +1,95 @@
+package com.github.dynamobee.benchmarks;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.github.dynamobee.utils.ChangeSetArguments;
+import com.github.dynamobee.utils.ChangeSetInvoker;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+
+/**
+ * Dispatching every changeset once, as a migration does: compiling and calling a {@link ChangeSetInvoker},
+ * calling invokers compiled up front, and plain reflection resolving the arguments by type as a baseline
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class InvocationBenchmark {
+
+	@State(Scope.Thread)
+	public static class InvocationState {
+		public ChangeSetArguments arguments;
+		public List<Method> methods;
+		public List<Object> instances;
+		public List<ChangeSetInvoker> invokers;
+
+		@Setup(Level.Trial)
+		public void setUp(ChangeLogsState changeLogs) throws Exception {
+			arguments = new ChangeSetArguments().declare(DynamoDbClient.class);
+			methods = new ArrayList<>();
+			instances = new ArrayList<>();
+			invokers = new ArrayList<>();
+			Map<Class<?>, Object> changeLogInstances = new HashMap<>();
+			for (List<Method> changeSetMethods : changeLogs.changeSetMethods) {
+				for (Method method : changeSetMethods) {
+					Object instance = changeLogInstances.get(method.getDeclaringClass());
+					if (instance == null) {
+						instance = method.getDeclaringClass().getConstructor().newInstance();
+						changeLogInstances.put(method.getDeclaringClass(), instance);
+					}
+					methods.add(method);
+					instances.add(instance);
+					invokers.add(ChangeSetInvoker.compile(method, arguments.types()));
+				}
+			}
+		}
+	}
+
+	@Benchmark
+	public void compileAndInvoke(InvocationState state, Blackhole blackhole) throws Exception {
+		for (int i = 0; i < state.methods.size(); i++) {
+			ChangeSetInvoker invoker = ChangeSetInvoker.compile(state.methods.get(i), state.arguments.types());
+			blackhole.consume(invoker.invoke(state.instances.get(i), state.arguments));
+		}
+	}
+
+	@Benchmark
+	public void invokeCompiled(InvocationState state, Blackhole blackhole) throws Exception {
+		for (int i = 0; i < state.invokers.size(); i++) {
+			blackhole.consume(state.invokers.get(i).invoke(state.instances.get(i), state.arguments));
+		}
+	}
+
+	@Benchmark
+	public void invokeReflectively(InvocationState state, Blackhole blackhole) throws Exception {
+		for (int i = 0; i < state.methods.size(); i++) {
+			Method method = state.methods.get(i);
+			Class<?>[] parameterTypes = method.getParameterTypes();
+			Object[] values = new Object[parameterTypes.length];
+			for (int p = 0; p < parameterTypes.length; p++) {
+				values[p] = state.arguments.get(parameterTypes[p]);
+			}
+			blackhole.consume(method.invoke(state.instances.get(i), values));
+		}
+	}
+}
@@ -0,0 +1,87 @@
+package com.github.dynamobee.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.dynamobee.Dynamobee;
+import com.github.dynamobee.changeset.ChangeEntry;
+import com.github.dynamobee.exception.DynamobeeException;
+import com.github.dynamobee.metrics.MigrationReport;
+import com.github.dynamobee.test.InMemoryDynamoDbClient;
+
+
+/**
+ * Whole runs against an in-memory DynamoDB: applying every changeset to an empty changelog table, and the
+ * common startup of a service whose changesets have all been applied already
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MigrationBenchmark {
+	private static final String CHANGELOG_TABLE_NAME = "dynamobee";
+
+	@State(Scope.Thread)
+	public static class MigrationState {
+		@Param({"10", "1000", "10000"})
+		public int changeSets;
+
+		public GeneratedChangeLogs generated;
+		public InMemoryDynamoDbClient emptyClient;
+		public InMemoryDynamoDbClient appliedClient;
+		private ClassLoader previousClassLoader;
+
+		@Setup(Level.Trial)
+		public void setUp() throws IOException, DynamobeeException {
+			generated = GeneratedChangeLogs.generate(changeSets, true);
+			previousClassLoader = Thread.currentThread().getContextClassLoader();
+			Thread.currentThread().setContextClassLoader(generated.getClassLoader());
+			appliedClient = newClient();
+			dynamobee(appliedClient).execute();
+		}
+
+		@Setup(Level.Invocation)
+		public void emptyChangelog() {
+			emptyClient = newClient();
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() throws IOException {
+			Thread.currentThread().setContextClassLoader(previousClassLoader);
+			generated.delete();
+		}
+
+		private static InMemoryDynamoDbClient newClient() {
+			return new InMemoryDynamoDbClient().withTable(CHANGELOG_TABLE_NAME, ChangeEntry.KEY_CHANGEID);
+		}
+	}
+
+	private static Dynamobee dynamobee(InMemoryDynamoDbClient client) {
+		return new Dynamobee(client, CHANGELOG_TABLE_NAME).setChangeLogsScanPackage(GeneratedChangeLogs.PACKAGE);
+	}
+
+	@Benchmark
+	public MigrationReport migrateEmptyChangelog(MigrationState state) throws DynamobeeException {
+		return dynamobee(state.emptyClient).execute();
+	}
+
+	@Benchmark
+	public MigrationReport startUpToDate(MigrationState state) throws DynamobeeException {
+		return dynamobee(state.appliedClient).execute();
+	}
+}
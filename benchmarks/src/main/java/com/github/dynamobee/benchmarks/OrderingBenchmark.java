@@ -0,0 +1,48 @@
+package com.github.dynamobee.benchmarks;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.github.dynamobee.utils.ChangeLogComparator;
+import com.github.dynamobee.utils.ChangeSetComparator;
+
+
+/**
+ * Sorting shuffled changelogs and, within every changelog, its shuffled changesets; each operation sorts a fresh copy
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class OrderingBenchmark {
+
+	@Benchmark
+	public List<Class<?>> sortChangeLogs(ChangeLogsState state) {
+		List<Class<?>> changeLogs = new ArrayList<>(state.changeLogs);
+		Collections.sort(changeLogs, new ChangeLogComparator());
+		return changeLogs;
+	}
+
+	@Benchmark
+	public void sortChangeSets(ChangeLogsState state, Blackhole blackhole) {
+		ChangeSetComparator comparator = new ChangeSetComparator();
+		for (List<Method> changeSetMethods : state.changeSetMethods) {
+			List<Method> changeSets = new ArrayList<>(changeSetMethods);
+			Collections.sort(changeSets, comparator);
+			blackhole.consume(changeSets);
+		}
+	}
+}
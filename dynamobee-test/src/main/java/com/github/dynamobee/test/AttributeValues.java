@@ -0,0 +1,378 @@
+package com.github.dynamobee.test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+
+/**
+ * Comparison, typing and sizing of attribute values the way DynamoDB does it
+ */
+final class AttributeValues {
+	static final String S = "S";
+	static final String N = "N";
+	static final String B = "B";
+	static final String BOOL = "BOOL";
+	static final String NULL = "NULL";
+	static final String M = "M";
+	static final String L = "L";
+	static final String SS = "SS";
+	static final String NS = "NS";
+	static final String BS = "BS";
+
+	private AttributeValues() {
+	}
+
+	/**
+	 * @return the DynamoDB type descriptor of the value
+	 */
+	static String type(AttributeValue value) {
+		if (value.s() != null) {
+			return S;
+		} else if (value.n() != null) {
+			return N;
+		} else if (value.b() != null) {
+			return B;
+		} else if (value.bool() != null) {
+			return BOOL;
+		} else if (value.nul() != null) {
+			return NULL;
+		} else if (value.hasM()) {
+			return M;
+		} else if (value.hasL()) {
+			return L;
+		} else if (value.hasSs()) {
+			return SS;
+		} else if (value.hasNs()) {
+			return NS;
+		} else if (value.hasBs()) {
+			return BS;
+		}
+		throw Errors.validation("Supplied AttributeValue is empty, must contain exactly one of the supported datatypes");
+	}
+
+	static boolean isScalarKeyType(String type) {
+		return S.equals(type) || N.equals(type) || B.equals(type);
+	}
+
+	static BigDecimal number(String n) {
+		try {
+			return new BigDecimal(n.trim());
+		} catch (NumberFormatException e) {
+			throw Errors.validation("The parameter cannot be converted to a numeric value: " + n);
+		}
+	}
+
+	/**
+	 * @return the number in its canonical form, so that equal numbers hash alike
+	 */
+	static String canonical(String n) {
+		BigDecimal number = number(n);
+		return number.signum() == 0 ? "0" : number.stripTrailingZeros().toPlainString();
+	}
+
+	static boolean equal(AttributeValue a, AttributeValue b) {
+		if (a == null || b == null) {
+			return a == b;
+		}
+		String type = type(a);
+		if (!type.equals(type(b))) {
+			return false;
+		}
+		switch (type) {
+			case S:
+				return a.s().equals(b.s());
+			case N:
+				return number(a.n()).compareTo(number(b.n())) == 0;
+			case B:
+				return a.b().equals(b.b());
+			case BOOL:
+				return a.bool().equals(b.bool());
+			case NULL:
+				return true;
+			case M:
+				if (a.m().size() != b.m().size()) {
+					return false;
+				}
+				for (Map.Entry<String, AttributeValue> entry : a.m().entrySet()) {
+					if (!equal(entry.getValue(), b.m().get(entry.getKey()))) {
+						return false;
+					}
+				}
+				return true;
+			case L:
+				if (a.l().size() != b.l().size()) {
+					return false;
+				}
+				for (int i = 0; i < a.l().size(); i++) {
+					if (!equal(a.l().get(i), b.l().get(i))) {
+						return false;
+					}
+				}
+				return true;
+			case SS:
+				return new HashSet<>(a.ss()).equals(new HashSet<>(b.ss()));
+			case NS:
+				return numbers(a.ns()).equals(numbers(b.ns()));
+			default:
+				return new HashSet<>(a.bs()).equals(new HashSet<>(b.bs()));
+		}
+	}
+
+	/**
+	 * @return the order of two values of the same scalar key type, null if they cannot be compared
+	 */
+	static Integer compare(AttributeValue a, AttributeValue b) {
+		if (a == null || b == null) {
+			return null;
+		}
+		String type = type(a);
+		if (!type.equals(type(b))) {
+			return null;
+		}
+		switch (type) {
+			case S:
+				return compareBytes(a.s().getBytes(StandardCharsets.UTF_8), b.s().getBytes(StandardCharsets.UTF_8));
+			case N:
+				return number(a.n()).compareTo(number(b.n()));
+			case B:
+				return compareBytes(a.b().asByteArray(), b.b().asByteArray());
+			default:
+				return null;
+		}
+	}
+
+	private static int compareBytes(byte[] a, byte[] b) {
+		for (int i = 0; i < Math.min(a.length, b.length); i++) {
+			int result = Integer.compare(a[i] & 0xff, b[i] & 0xff);
+			if (result != 0) {
+				return result;
+			}
+		}
+		return Integer.compare(a.length, b.length);
+	}
+
+	/**
+	 * @return the canonical forms of a number set
+	 */
+	static Set<String> numbers(List<String> ns) {
+		Set<String> numbers = new HashSet<>();
+		for (String n : ns) {
+			numbers.add(canonical(n));
+		}
+		return numbers;
+	}
+
+	/**
+	 * @return the result of the size() function: length of strings and binaries, element count of the others
+	 */
+	static Integer size(AttributeValue value) {
+		switch (type(value)) {
+			case S:
+				return value.s().getBytes(StandardCharsets.UTF_8).length;
+			case B:
+				return value.b().asByteArray().length;
+			case M:
+				return value.m().size();
+			case L:
+				return value.l().size();
+			case SS:
+				return value.ss().size();
+			case NS:
+				return value.ns().size();
+			case BS:
+				return value.bs().size();
+			default:
+				return null;
+		}
+	}
+
+	/**
+	 * @return whether the value is a string starting with, or a binary prefixed by, the given value
+	 */
+	static boolean beginsWith(AttributeValue value, AttributeValue prefix) {
+		if (value == null || prefix == null) {
+			return false;
+		}
+		if (value.s() != null && prefix.s() != null) {
+			return value.s().startsWith(prefix.s());
+		}
+		if (value.b() != null && prefix.b() != null) {
+			byte[] bytes = value.b().asByteArray();
+			byte[] prefixBytes = prefix.b().asByteArray();
+			if (prefixBytes.length > bytes.length) {
+				return false;
+			}
+			for (int i = 0; i < prefixBytes.length; i++) {
+				if (bytes[i] != prefixBytes[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return whether a string contains a substring, or a set or list contains an element
+	 */
+	static boolean contains(AttributeValue value, AttributeValue operand) {
+		if (value == null || operand == null) {
+			return false;
+		}
+		switch (type(value)) {
+			case S:
+				return operand.s() != null && value.s().contains(operand.s());
+			case B:
+				return operand.b() != null && new String(value.b().asByteArray(), StandardCharsets.ISO_8859_1)
+						.contains(new String(operand.b().asByteArray(), StandardCharsets.ISO_8859_1));
+			case SS:
+				return operand.s() != null && value.ss().contains(operand.s());
+			case NS:
+				return operand.n() != null && numbers(value.ns()).contains(canonical(operand.n()));
+			case BS:
+				return operand.b() != null && value.bs().contains(operand.b());
+			case L:
+				for (AttributeValue element : value.l()) {
+					if (equal(element, operand)) {
+						return true;
+					}
+				}
+				return false;
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * @return the sum or difference of two numbers
+	 */
+	static AttributeValue arithmetic(AttributeValue a, AttributeValue b, boolean subtract) {
+		if (a == null || b == null || a.n() == null || b.n() == null) {
+			throw Errors.validation("An operand in the update expression has an incorrect data type");
+		}
+		BigDecimal result = subtract ? number(a.n()).subtract(number(b.n())) : number(a.n()).add(number(b.n()));
+		return AttributeValue.builder().n(result.toPlainString()).build();
+	}
+
+	static AttributeValue listAppend(AttributeValue a, AttributeValue b) {
+		if (a == null || b == null || !a.hasL() || !b.hasL()) {
+			throw Errors.validation("An operand in the update expression has an incorrect data type");
+		}
+		List<AttributeValue> list = new ArrayList<>(a.l());
+		list.addAll(b.l());
+		return AttributeValue.builder().l(list).build();
+	}
+
+	/**
+	 * @return the union (or, removing, the difference) of two sets of the same type
+	 */
+	static AttributeValue setOperation(AttributeValue set, AttributeValue operand, boolean remove) {
+		String type = type(operand);
+		if (set != null && !type(set).equals(type)) {
+			throw Errors.validation("An operand in the update expression has an incorrect data type");
+		}
+		switch (type) {
+			case SS: {
+				Set<String> values = new LinkedHashSet<>(set != null ? set.ss() : new ArrayList<String>());
+				if (remove) {
+					values.removeAll(operand.ss());
+				} else {
+					values.addAll(operand.ss());
+				}
+				return values.isEmpty() ? null : AttributeValue.builder().ss(new ArrayList<>(values)).build();
+			}
+			case NS: {
+				Map<String, String> values = new LinkedHashMap<>();
+				if (set != null) {
+					for (String n : set.ns()) {
+						values.put(canonical(n), n);
+					}
+				}
+				for (String n : operand.ns()) {
+					if (remove) {
+						values.remove(canonical(n));
+					} else if (!values.containsKey(canonical(n))) {
+						values.put(canonical(n), n);
+					}
+				}
+				return values.isEmpty() ? null : AttributeValue.builder().ns(new ArrayList<>(values.values())).build();
+			}
+			case BS: {
+				Set<SdkBytes> values = new LinkedHashSet<>(set != null ? set.bs() : new ArrayList<SdkBytes>());
+				if (remove) {
+					values.removeAll(operand.bs());
+				} else {
+					values.addAll(operand.bs());
+				}
+				return values.isEmpty() ? null : AttributeValue.builder().bs(new ArrayList<>(values)).build();
+			}
+			default:
+				throw Errors.validation("An operand in the update expression has an incorrect data type");
+		}
+	}
+
+	/**
+	 * @return approximate stored size of an item, as used for capacity units and page limits
+	 */
+	static int itemSize(Map<String, AttributeValue> item) {
+		int size = 0;
+		for (Map.Entry<String, AttributeValue> entry : item.entrySet()) {
+			size += entry.getKey().getBytes(StandardCharsets.UTF_8).length + storedSize(entry.getValue());
+		}
+		return size;
+	}
+
+	private static int storedSize(AttributeValue value) {
+		switch (type(value)) {
+			case S:
+				return value.s().getBytes(StandardCharsets.UTF_8).length;
+			case N:
+				return (value.n().length() + 1) / 2 + 1;
+			case B:
+				return value.b().asByteArray().length;
+			case BOOL:
+			case NULL:
+				return 1;
+			case M:
+				return 3 + itemSize(value.m());
+			case L: {
+				int size = 3;
+				for (AttributeValue element : value.l()) {
+					size += 1 + storedSize(element);
+				}
+				return size;
+			}
+			case SS: {
+				int size = 0;
+				for (String s : value.ss()) {
+					size += s.getBytes(StandardCharsets.UTF_8).length;
+				}
+				return size;
+			}
+			case NS: {
+				int size = 0;
+				for (String n : value.ns()) {
+					size += (n.length() + 1) / 2 + 1;
+				}
+				return size;
+			}
+			default: {
+				int size = 0;
+				for (SdkBytes b : value.bs()) {
+					size += b.asByteArray().length;
+				}
+				return size;
+			}
+		}
+	}
+}
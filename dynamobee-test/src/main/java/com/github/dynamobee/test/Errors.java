@@ -0,0 +1,85 @@
+package com.github.dynamobee.test;
+
+import java.util.List;
+
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.services.dynamodb.model.CancellationReason;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+import software.amazon.awssdk.services.dynamodb.model.ResourceInUseException;
+import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
+import software.amazon.awssdk.services.dynamodb.model.TransactionCanceledException;
+
+
+/**
+ * Exceptions thrown by {@link InMemoryDynamoDbClient}, carrying the error codes DynamoDB would return
+ */
+final class Errors {
+	private static final String SERVICE_NAME = "DynamoDb";
+
+	private Errors() {
+	}
+
+	private static AwsErrorDetails details(String errorCode, String message) {
+		return AwsErrorDetails.builder().errorCode(errorCode).errorMessage(message).serviceName(SERVICE_NAME).build();
+	}
+
+	static DynamoDbException validation(String message) {
+		return DynamoDbException.builder()
+				.message(message)
+				.statusCode(400)
+				.awsErrorDetails(details("ValidationException", message))
+				.build();
+	}
+
+	static ConditionalCheckFailedException conditionalCheckFailed() {
+		String message = "The conditional request failed";
+		return ConditionalCheckFailedException.builder()
+				.message(message)
+				.statusCode(400)
+				.awsErrorDetails(details("ConditionalCheckFailedException", message))
+				.build();
+	}
+
+	static ResourceNotFoundException resourceNotFound(String tableName) {
+		String message = "Requested resource not found: Table: " + tableName + " not found";
+		return ResourceNotFoundException.builder()
+				.message(message)
+				.statusCode(400)
+				.awsErrorDetails(details("ResourceNotFoundException", message))
+				.build();
+	}
+
+	static ResourceInUseException resourceInUse(String tableName) {
+		String message = "Table already exists: " + tableName;
+		return ResourceInUseException.builder()
+				.message(message)
+				.statusCode(400)
+				.awsErrorDetails(details("ResourceInUseException", message))
+				.build();
+	}
+
+	static ProvisionedThroughputExceededException throttled() {
+		String message = "The level of configured provisioned throughput for the table was exceeded";
+		return ProvisionedThroughputExceededException.builder()
+				.message(message)
+				.statusCode(400)
+				.awsErrorDetails(details("ProvisionedThroughputExceededException", message))
+				.build();
+	}
+
+	static TransactionCanceledException transactionCanceled(List<CancellationReason> reasons) {
+		StringBuilder codes = new StringBuilder();
+		for (CancellationReason reason : reasons) {
+			codes.append(codes.length() == 0 ? "" : ", ").append(reason.code());
+		}
+		String message = "Transaction cancelled, please refer cancellation reasons for specific reasons [" + codes + "]";
+		return TransactionCanceledException.builder()
+				.message(message)
+				.statusCode(400)
+				.awsErrorDetails(details("TransactionCanceledException", message))
+				.cancellationReasons(reasons)
+				.build();
+	}
+}
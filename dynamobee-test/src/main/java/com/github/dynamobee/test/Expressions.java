@@ -0,0 +1,1001 @@
+package com.github.dynamobee.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+
+/**
+ * Parser of the expressions of one request. Expression attribute names and values are resolved while parsing, and
+ * {@link #verify()} rejects the ones no expression used, as DynamoDB does.
+ */
+final class Expressions {
+	private static final List<String> COMPARATORS = Arrays.asList("=", "<>", "<", "<=", ">", ">=");
+	private static final List<String> CLAUSES = Arrays.asList("SET", "REMOVE", "ADD", "DELETE");
+
+	private final Map<String, String> names;
+	private final Map<String, AttributeValue> values;
+	private final Set<String> usedNames = new HashSet<>();
+	private final Set<String> usedValues = new HashSet<>();
+
+	private List<String> tokens;
+	private int position;
+	private String kind;
+
+	Expressions(Map<String, String> names, Map<String, AttributeValue> values) {
+		this.names = names != null ? names : Collections.<String, String>emptyMap();
+		this.values = values != null ? values : Collections.<String, AttributeValue>emptyMap();
+	}
+
+	/**
+	 * Checks that every expression attribute name and value was used
+	 */
+	void verify() {
+		Set<String> unusedNames = new TreeSet<>(names.keySet());
+		unusedNames.removeAll(usedNames);
+		if (!unusedNames.isEmpty()) {
+			throw Errors.validation("Value provided in ExpressionAttributeNames unused in expressions: keys: " + unusedNames);
+		}
+		Set<String> unusedValues = new TreeSet<>(values.keySet());
+		unusedValues.removeAll(usedValues);
+		if (!unusedValues.isEmpty()) {
+			throw Errors.validation("Value provided in ExpressionAttributeValues unused in expressions: keys: " + unusedValues);
+		}
+	}
+
+	/**
+	 * @return the condition, null if there is no expression
+	 */
+	Condition condition(String expression, String kind) {
+		if (expression == null) {
+			return null;
+		}
+		start(expression, kind);
+		Condition condition = parseOr();
+		end();
+		return condition;
+	}
+
+	Update update(String expression) {
+		if (expression == null) {
+			return null;
+		}
+		start(expression, "UpdateExpression");
+		Update update = new Update();
+		Set<String> clauses = new HashSet<>();
+		while (peek() != null) {
+			String clause = next().toUpperCase();
+			if (!CLAUSES.contains(clause)) {
+				throw syntaxError(clause);
+			}
+			if (!clauses.add(clause)) {
+				throw Errors.validation("Invalid UpdateExpression: The \"" + clause + "\" section can only be used once in an update expression;");
+			}
+			do {
+				Path path = parsePath();
+				if ("SET".equals(clause)) {
+					expect("=");
+					update.actions.add(new Action(clause, path, parseSetValue()));
+				} else if ("REMOVE".equals(clause)) {
+					update.actions.add(new Action(clause, path, null));
+				} else {
+					update.actions.add(new Action(clause, path, parseValue()));
+				}
+			} while (accept(","));
+		}
+		update.verifyPaths();
+		return update;
+	}
+
+	/**
+	 * @return the projection, null if all attributes are to be returned
+	 */
+	Projection projection(String expression) {
+		if (expression == null) {
+			return null;
+		}
+		start(expression, "ProjectionExpression");
+		Projection projection = new Projection();
+		do {
+			projection.add(parsePath());
+		} while (accept(","));
+		end();
+		return projection;
+	}
+
+	/**
+	 * @return the key condition of a query on a table with the given keys
+	 */
+	KeyCondition keyCondition(String expression, String hashKey, String rangeKey) {
+		if (expression == null) {
+			throw Errors.validation("Either the KeyConditions or KeyConditionExpression parameter must be specified in the request.");
+		}
+		Condition condition = condition(expression, "KeyConditionExpression");
+		List<Condition> parts = new ArrayList<>();
+		flatten(condition, parts);
+		AttributeValue partition = null;
+		boolean rangeConditioned = false;
+		for (Condition part : parts) {
+			Path path = part instanceof Comparison ? ((Comparison) part).left.path()
+					: part instanceof Between ? ((Between) part).operand.path()
+					: part instanceof BeginsWith ? ((BeginsWith) part).path : null;
+			if (path == null || path.elements.size() != 1) {
+				throw Errors.validation("Invalid KeyConditionExpression: Query key condition not supported");
+			}
+			if (path.top().equals(hashKey) && part instanceof Comparison && "=".equals(((Comparison) part).operator)
+					&& ((Comparison) part).right instanceof ValueOperand && partition == null) {
+				partition = ((ValueOperand) ((Comparison) part).right).value;
+			} else if (path.top().equals(rangeKey) && !rangeConditioned
+					&& !(part instanceof Comparison && "<>".equals(((Comparison) part).operator))) {
+				rangeConditioned = true;
+			} else {
+				throw Errors.validation("Invalid KeyConditionExpression: Query key condition not supported");
+			}
+		}
+		if (partition == null) {
+			throw Errors.validation("Query condition missed key schema element: " + hashKey);
+		}
+		return new KeyCondition(partition, condition);
+	}
+
+	private static void flatten(Condition condition, List<Condition> parts) {
+		if (condition instanceof And) {
+			flatten(((And) condition).left, parts);
+			flatten(((And) condition).right, parts);
+		} else {
+			parts.add(condition);
+		}
+	}
+
+	// parsing
+
+	private void start(String expression, String kind) {
+		this.kind = kind;
+		this.tokens = tokenize(expression);
+		this.position = 0;
+		if (tokens.isEmpty()) {
+			throw Errors.validation("Invalid " + kind + ": The expression can not be empty;");
+		}
+	}
+
+	private void end() {
+		if (peek() != null) {
+			throw syntaxError(peek());
+		}
+	}
+
+	private List<String> tokenize(String expression) {
+		List<String> tokens = new ArrayList<>();
+		int i = 0;
+		while (i < expression.length()) {
+			char c = expression.charAt(i);
+			if (Character.isWhitespace(c)) {
+				i++;
+			} else if (c == '#' || c == ':' || Character.isLetterOrDigit(c) || c == '_') {
+				int start = i++;
+				while (i < expression.length() && (Character.isLetterOrDigit(expression.charAt(i)) || expression.charAt(i) == '_')) {
+					i++;
+				}
+				tokens.add(expression.substring(start, i));
+			} else if ((c == '<' || c == '>') && i + 1 < expression.length()
+					&& (expression.charAt(i + 1) == '=' || (c == '<' && expression.charAt(i + 1) == '>'))) {
+				tokens.add(expression.substring(i, i + 2));
+				i += 2;
+			} else if ("=<>()[],.+-".indexOf(c) >= 0) {
+				tokens.add(String.valueOf(c));
+				i++;
+			} else {
+				throw Errors.validation("Invalid " + kind + ": Syntax error; token: \"" + c + "\", near: \"" + expression + "\"");
+			}
+		}
+		return tokens;
+	}
+
+	private String peek() {
+		return position < tokens.size() ? tokens.get(position) : null;
+	}
+
+	private String peek(int offset) {
+		return position + offset < tokens.size() ? tokens.get(position + offset) : null;
+	}
+
+	private String next() {
+		if (position >= tokens.size()) {
+			throw Errors.validation("Invalid " + kind + ": Syntax error; token: <EOF>");
+		}
+		return tokens.get(position++);
+	}
+
+	private boolean accept(String token) {
+		if (token.equalsIgnoreCase(peek())) {
+			position++;
+			return true;
+		}
+		return false;
+	}
+
+	private void expect(String token) {
+		String next = next();
+		if (!token.equalsIgnoreCase(next)) {
+			throw syntaxError(next);
+		}
+	}
+
+	private RuntimeException syntaxError(String token) {
+		return Errors.validation("Invalid " + kind + ": Syntax error; token: \"" + token + "\"");
+	}
+
+	private boolean isFunction(String name) {
+		return peek() != null && peek().equalsIgnoreCase(name) && "(".equals(peek(1));
+	}
+
+	private Condition parseOr() {
+		Condition condition = parseAnd();
+		while (accept("OR")) {
+			condition = new Or(condition, parseAnd());
+		}
+		return condition;
+	}
+
+	private Condition parseAnd() {
+		Condition condition = parseNot();
+		while (accept("AND")) {
+			condition = new And(condition, parseNot());
+		}
+		return condition;
+	}
+
+	private Condition parseNot() {
+		if (accept("NOT")) {
+			return new Not(parseNot());
+		}
+		return parsePrimary();
+	}
+
+	private Condition parsePrimary() {
+		if (accept("(")) {
+			Condition condition = parseOr();
+			expect(")");
+			return condition;
+		}
+		if (isFunction("attribute_exists") || isFunction("attribute_not_exists")) {
+			boolean exists = next().equalsIgnoreCase("attribute_exists");
+			expect("(");
+			Path path = parsePath();
+			expect(")");
+			return new Exists(path, exists);
+		}
+		if (isFunction("attribute_type")) {
+			next();
+			expect("(");
+			Path path = parsePath();
+			expect(",");
+			ValueOperand type = parseValue();
+			expect(")");
+			return new AttributeType(path, type);
+		}
+		if (isFunction("begins_with")) {
+			next();
+			expect("(");
+			Path path = parsePath();
+			expect(",");
+			Operand prefix = parseOperand();
+			expect(")");
+			return new BeginsWith(path, prefix);
+		}
+		if (isFunction("contains")) {
+			next();
+			expect("(");
+			Path path = parsePath();
+			expect(",");
+			Operand operand = parseOperand();
+			expect(")");
+			return new Contains(path, operand);
+		}
+		Operand operand = parseOperand();
+		if (accept("BETWEEN")) {
+			Operand lower = parseOperand();
+			expect("AND");
+			return new Between(operand, lower, parseOperand());
+		}
+		if (accept("IN")) {
+			expect("(");
+			List<Operand> candidates = new ArrayList<>();
+			do {
+				candidates.add(parseOperand());
+			} while (accept(","));
+			expect(")");
+			return new In(operand, candidates);
+		}
+		String operator = next();
+		if (!COMPARATORS.contains(operator)) {
+			throw syntaxError(operator);
+		}
+		return new Comparison(operand, operator, parseOperand());
+	}
+
+	private Operand parseOperand() {
+		if (isFunction("size")) {
+			next();
+			expect("(");
+			Path path = parsePath();
+			expect(")");
+			return new Size(path);
+		}
+		if (peek() != null && peek().startsWith(":")) {
+			return parseValue();
+		}
+		return new PathOperand(parsePath());
+	}
+
+	private Operand parseSetValue() {
+		Operand operand = parseSetTerm();
+		if (accept("+")) {
+			return new Arithmetic(operand, parseSetTerm(), false);
+		} else if (accept("-")) {
+			return new Arithmetic(operand, parseSetTerm(), true);
+		}
+		return operand;
+	}
+
+	private Operand parseSetTerm() {
+		if (isFunction("if_not_exists")) {
+			next();
+			expect("(");
+			Path path = parsePath();
+			expect(",");
+			Operand fallback = parseSetTerm();
+			expect(")");
+			return new IfNotExists(path, fallback);
+		}
+		if (isFunction("list_append")) {
+			next();
+			expect("(");
+			Operand first = parseSetTerm();
+			expect(",");
+			Operand second = parseSetTerm();
+			expect(")");
+			return new ListAppend(first, second);
+		}
+		Operand operand = parseOperand();
+		if (operand instanceof Size) {
+			throw Errors.validation("Invalid UpdateExpression: The function is not allowed in an update expression; function: size");
+		}
+		return operand;
+	}
+
+	private ValueOperand parseValue() {
+		String token = next();
+		if (!token.startsWith(":")) {
+			throw syntaxError(token);
+		}
+		AttributeValue value = values.get(token);
+		if (value == null) {
+			throw Errors.validation("Invalid " + kind
+					+ ": An expression attribute value used in expression is not defined; attribute value: " + token);
+		}
+		usedValues.add(token);
+		return new ValueOperand(value);
+	}
+
+	private Path parsePath() {
+		List<Object> elements = new ArrayList<>();
+		elements.add(parseName());
+		while (true) {
+			if (accept(".")) {
+				elements.add(parseName());
+			} else if (accept("[")) {
+				String index = next();
+				try {
+					elements.add(Integer.valueOf(index));
+				} catch (NumberFormatException e) {
+					throw syntaxError(index);
+				}
+				expect("]");
+			} else {
+				return new Path(elements);
+			}
+		}
+	}
+
+	private String parseName() {
+		String token = next();
+		if (token.startsWith("#")) {
+			String name = names.get(token);
+			if (name == null) {
+				throw Errors.validation("Invalid " + kind
+						+ ": An expression attribute name used in the document path is not defined; attribute name: " + token);
+			}
+			usedNames.add(token);
+			return name;
+		}
+		if (token.startsWith(":") || !(Character.isLetter(token.charAt(0)) || token.charAt(0) == '_')) {
+			throw syntaxError(token);
+		}
+		return token;
+	}
+
+	// expression trees
+
+	/**
+	 * Document path of an attribute, made of attribute names and list indexes
+	 */
+	static final class Path {
+		final List<Object> elements;
+
+		Path(List<Object> elements) {
+			this.elements = elements;
+		}
+
+		String top() {
+			return (String) elements.get(0);
+		}
+
+		AttributeValue get(Map<String, AttributeValue> item) {
+			AttributeValue value = item.get(top());
+			for (int i = 1; i < elements.size() && value != null; i++) {
+				Object element = elements.get(i);
+				if (element instanceof String) {
+					value = value.hasM() ? value.m().get(element) : null;
+				} else {
+					int index = (Integer) element;
+					value = value.hasL() && index < value.l().size() ? value.l().get(index) : null;
+				}
+			}
+			return value;
+		}
+
+		boolean overlaps(Path other) {
+			for (int i = 0; i < Math.min(elements.size(), other.elements.size()); i++) {
+				if (!elements.get(i).equals(other.elements.get(i))) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder path = new StringBuilder();
+			for (Object element : elements) {
+				path.append(element instanceof String ? (path.length() == 0 ? "" : ".") + element : "[" + element + "]");
+			}
+			return path.toString();
+		}
+	}
+
+	interface Operand {
+		/**
+		 * @return the value, null if the attribute does not exist
+		 */
+		AttributeValue evaluate(Map<String, AttributeValue> item);
+
+		/**
+		 * @return the path if this operand is an attribute, null otherwise
+		 */
+		Path path();
+	}
+
+	static final class PathOperand implements Operand {
+		private final Path path;
+
+		PathOperand(Path path) {
+			this.path = path;
+		}
+
+		@Override
+		public AttributeValue evaluate(Map<String, AttributeValue> item) {
+			return path.get(item);
+		}
+
+		@Override
+		public Path path() {
+			return path;
+		}
+	}
+
+	static final class ValueOperand implements Operand {
+		private final AttributeValue value;
+
+		ValueOperand(AttributeValue value) {
+			this.value = value;
+		}
+
+		@Override
+		public AttributeValue evaluate(Map<String, AttributeValue> item) {
+			return value;
+		}
+
+		@Override
+		public Path path() {
+			return null;
+		}
+	}
+
+	static final class Size implements Operand {
+		private final Path path;
+
+		Size(Path path) {
+			this.path = path;
+		}
+
+		@Override
+		public AttributeValue evaluate(Map<String, AttributeValue> item) {
+			AttributeValue value = path.get(item);
+			Integer size = value != null ? AttributeValues.size(value) : null;
+			return size != null ? AttributeValue.builder().n(size.toString()).build() : null;
+		}
+
+		@Override
+		public Path path() {
+			return null;
+		}
+	}
+
+	static final class IfNotExists implements Operand {
+		private final Path path;
+		private final Operand fallback;
+
+		IfNotExists(Path path, Operand fallback) {
+			this.path = path;
+			this.fallback = fallback;
+		}
+
+		@Override
+		public AttributeValue evaluate(Map<String, AttributeValue> item) {
+			AttributeValue value = path.get(item);
+			return value != null ? value : fallback.evaluate(item);
+		}
+
+		@Override
+		public Path path() {
+			return null;
+		}
+	}
+
+	static final class ListAppend implements Operand {
+		private final Operand first;
+		private final Operand second;
+
+		ListAppend(Operand first, Operand second) {
+			this.first = first;
+			this.second = second;
+		}
+
+		@Override
+		public AttributeValue evaluate(Map<String, AttributeValue> item) {
+			return AttributeValues.listAppend(first.evaluate(item), second.evaluate(item));
+		}
+
+		@Override
+		public Path path() {
+			return null;
+		}
+	}
+
+	static final class Arithmetic implements Operand {
+		private final Operand left;
+		private final Operand right;
+		private final boolean subtract;
+
+		Arithmetic(Operand left, Operand right, boolean subtract) {
+			this.left = left;
+			this.right = right;
+			this.subtract = subtract;
+		}
+
+		@Override
+		public AttributeValue evaluate(Map<String, AttributeValue> item) {
+			return AttributeValues.arithmetic(left.evaluate(item), right.evaluate(item), subtract);
+		}
+
+		@Override
+		public Path path() {
+			return null;
+		}
+	}
+
+	interface Condition {
+		boolean test(Map<String, AttributeValue> item);
+	}
+
+	static final class And implements Condition {
+		private final Condition left;
+		private final Condition right;
+
+		And(Condition left, Condition right) {
+			this.left = left;
+			this.right = right;
+		}
+
+		@Override
+		public boolean test(Map<String, AttributeValue> item) {
+			return left.test(item) && right.test(item);
+		}
+	}
+
+	static final class Or implements Condition {
+		private final Condition left;
+		private final Condition right;
+
+		Or(Condition left, Condition right) {
+			this.left = left;
+			this.right = right;
+		}
+
+		@Override
+		public boolean test(Map<String, AttributeValue> item) {
+			return left.test(item) || right.test(item);
+		}
+	}
+
+	static final class Not implements Condition {
+		private final Condition condition;
+
+		Not(Condition condition) {
+			this.condition = condition;
+		}
+
+		@Override
+		public boolean test(Map<String, AttributeValue> item) {
+			return !condition.test(item);
+		}
+	}
+
+	static final class Comparison implements Condition {
+		private final Operand left;
+		private final String operator;
+		private final Operand right;
+
+		Comparison(Operand left, String operator, Operand right) {
+			this.left = left;
+			this.operator = operator;
+			this.right = right;
+		}
+
+		@Override
+		public boolean test(Map<String, AttributeValue> item) {
+			AttributeValue a = left.evaluate(item);
+			AttributeValue b = right.evaluate(item);
+			if ("=".equals(operator)) {
+				return a != null && AttributeValues.equal(a, b);
+			} else if ("<>".equals(operator)) {
+				return a == null || b == null || !AttributeValues.equal(a, b);
+			}
+			Integer order = AttributeValues.compare(a, b);
+			if (order == null) {
+				return false;
+			}
+			switch (operator) {
+				case "<":
+					return order < 0;
+				case "<=":
+					return order <= 0;
+				case ">":
+					return order > 0;
+				default:
+					return order >= 0;
+			}
+		}
+	}
+
+	static final class Between implements Condition {
+		private final Operand operand;
+		private final Operand lower;
+		private final Operand upper;
+
+		Between(Operand operand, Operand lower, Operand upper) {
+			this.operand = operand;
+			this.lower = lower;
+			this.upper = upper;
+		}
+
+		@Override
+		public boolean test(Map<String, AttributeValue> item) {
+			AttributeValue value = operand.evaluate(item);
+			Integer fromLower = AttributeValues.compare(value, lower.evaluate(item));
+			Integer toUpper = AttributeValues.compare(value, upper.evaluate(item));
+			return fromLower != null && toUpper != null && fromLower >= 0 && toUpper <= 0;
+		}
+	}
+
+	static final class In implements Condition {
+		private final Operand operand;
+		private final List<Operand> candidates;
+
+		In(Operand operand, List<Operand> candidates) {
+			this.operand = operand;
+			this.candidates = candidates;
+		}
+
+		@Override
+		public boolean test(Map<String, AttributeValue> item) {
+			AttributeValue value = operand.evaluate(item);
+			if (value == null) {
+				return false;
+			}
+			for (Operand candidate : candidates) {
+				if (AttributeValues.equal(value, candidate.evaluate(item))) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	static final class Exists implements Condition {
+		private final Path path;
+		private final boolean exists;
+
+		Exists(Path path, boolean exists) {
+			this.path = path;
+			this.exists = exists;
+		}
+
+		@Override
+		public boolean test(Map<String, AttributeValue> item) {
+			return (path.get(item) != null) == exists;
+		}
+	}
+
+	static final class AttributeType implements Condition {
+		private final Path path;
+		private final ValueOperand type;
+
+		AttributeType(Path path, ValueOperand type) {
+			this.path = path;
+			this.type = type;
+		}
+
+		@Override
+		public boolean test(Map<String, AttributeValue> item) {
+			AttributeValue value = path.get(item);
+			return value != null && AttributeValues.type(value).equals(type.value.s());
+		}
+	}
+
+	static final class BeginsWith implements Condition {
+		private final Path path;
+		private final Operand prefix;
+
+		BeginsWith(Path path, Operand prefix) {
+			this.path = path;
+			this.prefix = prefix;
+		}
+
+		@Override
+		public boolean test(Map<String, AttributeValue> item) {
+			return AttributeValues.beginsWith(path.get(item), prefix.evaluate(item));
+		}
+	}
+
+	static final class Contains implements Condition {
+		private final Path path;
+		private final Operand operand;
+
+		Contains(Path path, Operand operand) {
+			this.path = path;
+			this.operand = operand;
+		}
+
+		@Override
+		public boolean test(Map<String, AttributeValue> item) {
+			return AttributeValues.contains(path.get(item), operand.evaluate(item));
+		}
+	}
+
+	/**
+	 * Partition addressed by a query, and the condition its items have to meet
+	 */
+	static final class KeyCondition {
+		final AttributeValue partition;
+		final Condition condition;
+
+		KeyCondition(AttributeValue partition, Condition condition) {
+			this.partition = partition;
+			this.condition = condition;
+		}
+	}
+
+	static final class Action {
+		final String clause;
+		final Path path;
+		final Operand operand;
+
+		Action(String clause, Path path, Operand operand) {
+			this.clause = clause;
+			this.path = path;
+			this.operand = operand;
+		}
+	}
+
+	/**
+	 * Update expression; all operands are evaluated on the item as it was before the update
+	 */
+	static final class Update {
+		final List<Action> actions = new ArrayList<>();
+
+		private void verifyPaths() {
+			for (int i = 0; i < actions.size(); i++) {
+				for (int j = i + 1; j < actions.size(); j++) {
+					if (actions.get(i).path.overlaps(actions.get(j).path)) {
+						throw Errors.validation("Invalid UpdateExpression: Two document paths overlap with each other; "
+								+ "must remove or rewrite one of these paths; path one: [" + actions.get(i).path
+								+ "], path two: [" + actions.get(j).path + "]");
+					}
+				}
+			}
+		}
+
+		Map<String, AttributeValue> apply(Map<String, AttributeValue> item) {
+			List<AttributeValue> results = new ArrayList<>();
+			for (Action action : actions) {
+				AttributeValue current = action.path.get(item);
+				switch (action.clause) {
+					case "SET":
+						results.add(action.operand.evaluate(item));
+						break;
+					case "REMOVE":
+						results.add(null);
+						break;
+					case "ADD": {
+						AttributeValue operand = action.operand.evaluate(item);
+						if (operand.n() != null) {
+							results.add(current == null ? operand : AttributeValues.arithmetic(current, operand, false));
+						} else {
+							results.add(AttributeValues.setOperation(current, operand, false));
+						}
+						break;
+					}
+					default:
+						results.add(current == null ? null : AttributeValues.setOperation(current, action.operand.evaluate(item), true));
+				}
+			}
+			Map<String, AttributeValue> updated = new LinkedHashMap<>(item);
+			for (int i = 0; i < actions.size(); i++) {
+				Path path = actions.get(i).path;
+				AttributeValue value = results.get(i);
+				if (path.elements.size() == 1) {
+					if (value != null) {
+						updated.put(path.top(), value);
+					} else {
+						updated.remove(path.top());
+					}
+				} else {
+					AttributeValue top = updated.get(path.top());
+					if (top == null) {
+						throw invalidPath();
+					}
+					updated.put(path.top(), apply(top, path.elements, 1, value));
+				}
+			}
+			return updated;
+		}
+
+		private static AttributeValue apply(AttributeValue container, List<Object> elements, int i, AttributeValue value) {
+			Object element = elements.get(i);
+			boolean last = i == elements.size() - 1;
+			if (element instanceof String) {
+				if (!container.hasM()) {
+					throw invalidPath();
+				}
+				Map<String, AttributeValue> map = new LinkedHashMap<>(container.m());
+				if (!last) {
+					AttributeValue child = map.get(element);
+					if (child == null) {
+						throw invalidPath();
+					}
+					map.put((String) element, apply(child, elements, i + 1, value));
+				} else if (value != null) {
+					map.put((String) element, value);
+				} else {
+					map.remove(element);
+				}
+				return AttributeValue.builder().m(map).build();
+			}
+			if (!container.hasL()) {
+				throw invalidPath();
+			}
+			int index = (Integer) element;
+			List<AttributeValue> list = new ArrayList<>(container.l());
+			if (!last) {
+				if (index >= list.size()) {
+					throw invalidPath();
+				}
+				list.set(index, apply(list.get(index), elements, i + 1, value));
+			} else if (value == null) {
+				if (index < list.size()) {
+					list.remove(index);
+				}
+			} else if (index >= list.size()) {
+				list.add(value);
+			} else {
+				list.set(index, value);
+			}
+			return AttributeValue.builder().l(list).build();
+		}
+
+		private static RuntimeException invalidPath() {
+			return Errors.validation("The document path provided in the update expression is invalid for update");
+		}
+	}
+
+	/**
+	 * Projection expression, as a tree of the projected document paths
+	 */
+	static final class Projection {
+		private final Map<Object, Projection> children = new HashMap<>();
+		private boolean whole;
+
+		private void add(Path path) {
+			Projection node = this;
+			for (Object element : path.elements) {
+				Projection child = node.children.get(element);
+				if (child == null) {
+					child = new Projection();
+					node.children.put(element, child);
+				}
+				node = child;
+			}
+			node.whole = true;
+		}
+
+		Map<String, AttributeValue> apply(Map<String, AttributeValue> item) {
+			Map<String, AttributeValue> projected = new LinkedHashMap<>();
+			for (Map.Entry<Object, Projection> child : children.entrySet()) {
+				AttributeValue value = child.getValue().project(item.get(child.getKey()));
+				if (value != null) {
+					projected.put((String) child.getKey(), value);
+				}
+			}
+			return projected;
+		}
+
+		private AttributeValue project(AttributeValue value) {
+			if (value == null || whole) {
+				return value;
+			}
+			if (value.hasM()) {
+				Map<String, AttributeValue> map = new LinkedHashMap<>();
+				for (Map.Entry<Object, Projection> child : children.entrySet()) {
+					if (child.getKey() instanceof String) {
+						AttributeValue projected = child.getValue().project(value.m().get(child.getKey()));
+						if (projected != null) {
+							map.put((String) child.getKey(), projected);
+						}
+					}
+				}
+				return map.isEmpty() ? null : AttributeValue.builder().m(map).build();
+			}
+			if (value.hasL()) {
+				TreeMap<Integer, Projection> indexes = new TreeMap<>();
+				for (Map.Entry<Object, Projection> child : children.entrySet()) {
+					if (child.getKey() instanceof Integer) {
+						indexes.put((Integer) child.getKey(), child.getValue());
+					}
+				}
+				List<AttributeValue> list = new ArrayList<>();
+				for (Map.Entry<Integer, Projection> index : indexes.entrySet()) {
+					if (index.getKey() < value.l().size()) {
+						AttributeValue projected = index.getValue().project(value.l().get(index.getKey()));
+						if (projected != null) {
+							list.add(projected);
+						}
+					}
+				}
+				return list.isEmpty() ? null : AttributeValue.builder().l(list).build();
+			}
+			return null;
+		}
+	}
+}
@@ -0,0 +1,935 @@
+package com.github.dynamobee.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.Set;
+
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeDefinition;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.BillingMode;
+import software.amazon.awssdk.services.dynamodb.model.CancellationReason;
+import software.amazon.awssdk.services.dynamodb.model.ConditionCheck;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.CreateTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.CreateTableResponse;
+import software.amazon.awssdk.services.dynamodb.model.Delete;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.DeleteTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.DeleteTableResponse;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableResponse;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+import software.amazon.awssdk.services.dynamodb.model.Put;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
+import software.amazon.awssdk.services.dynamodb.model.ScalarAttributeType;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.model.Select;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItem;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsRequest;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsResponse;
+import software.amazon.awssdk.services.dynamodb.model.Update;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+
+/**
+ * Thread-safe in-memory DynamoDbClient for tests, covering the operations dynamobee and its helpers use:
+ * table management, single item reads and writes with condition, update and projection expressions,
+ * queries, segmented scans, batch reads and writes and transactional writes.
+ * <pre>
+ * InMemoryDynamoDbClient client = new InMemoryDynamoDbClient().withTable("dynamobee", "changeId");
+ * new Dynamobee(client, "dynamobee").setChangeLogsScanPackage("com.example.changelogs").execute();
+ * </pre>
+ * Latency and throttling can be injected to exercise retries and backoff. Validation follows DynamoDB closely
+ * enough to catch malformed requests, such as unused expression attribute names or values; secondary indexes
+ * are not supported.
+ */
+public class InMemoryDynamoDbClient implements DynamoDbClient {
+	private static final int DEFAULT_PAGE_SIZE_LIMIT = 1024 * 1024;
+	private static final int MAX_ITEM_SIZE = 400 * 1024;
+	private static final int MAX_BATCH_WRITE_REQUESTS = 25;
+	private static final int MAX_BATCH_GET_KEYS = 100;
+	private static final int MAX_TRANSACT_ITEMS = 25;
+	private static final int READ_UNIT_SIZE = 4 * 1024;
+	private static final int WRITE_UNIT_SIZE = 1024;
+
+	private final Map<String, InMemoryTable> tables = new HashMap<>();
+	private final Random random = new Random();
+
+	private volatile long minLatency;
+	private volatile long maxLatency;
+	private volatile double throttleProbability;
+	private volatile int pageSizeLimit = DEFAULT_PAGE_SIZE_LIMIT;
+
+	/**
+	 * Creates an on-demand table keyed by string attributes
+	 *
+	 * @param tableName name of the table
+	 * @param partitionKey name of the partition key
+	 * @return this client
+	 */
+	public InMemoryDynamoDbClient withTable(String tableName, String partitionKey) {
+		return withTable(tableName, partitionKey, null);
+	}
+
+	/**
+	 * Creates an on-demand table keyed by string attributes
+	 *
+	 * @param tableName name of the table
+	 * @param partitionKey name of the partition key
+	 * @param sortKey name of the sort key, null for none
+	 * @return this client
+	 */
+	public InMemoryDynamoDbClient withTable(String tableName, String partitionKey, String sortKey) {
+		List<KeySchemaElement> keySchema = new ArrayList<>();
+		List<AttributeDefinition> attributeDefinitions = new ArrayList<>();
+		keySchema.add(KeySchemaElement.builder().attributeName(partitionKey).keyType(KeyType.HASH).build());
+		attributeDefinitions.add(AttributeDefinition.builder().attributeName(partitionKey).attributeType(ScalarAttributeType.S).build());
+		if (sortKey != null) {
+			keySchema.add(KeySchemaElement.builder().attributeName(sortKey).keyType(KeyType.RANGE).build());
+			attributeDefinitions.add(AttributeDefinition.builder().attributeName(sortKey).attributeType(ScalarAttributeType.S).build());
+		}
+		createTable(CreateTableRequest.builder()
+				.tableName(tableName)
+				.keySchema(keySchema)
+				.attributeDefinitions(attributeDefinitions)
+				.billingMode(BillingMode.PAY_PER_REQUEST)
+				.build());
+		return this;
+	}
+
+	/**
+	 * Delays every request by a random duration within the given bounds
+	 *
+	 * @param minLatency minimum delay in milliseconds
+	 * @param maxLatency maximum delay in milliseconds, 0 for no delay
+	 * @return this client
+	 */
+	public InMemoryDynamoDbClient setLatency(long minLatency, long maxLatency) {
+		if (minLatency < 0 || maxLatency < minLatency) {
+			throw new IllegalArgumentException("Latency bounds must satisfy 0 <= minLatency <= maxLatency");
+		}
+		this.minLatency = minLatency;
+		this.maxLatency = maxLatency;
+		return this;
+	}
+
+	/**
+	 * Throttles requests with the given probability: single item requests fail with
+	 * ProvisionedThroughputExceededException, batch requests return the throttled items as unprocessed and
+	 * transactions are cancelled with a ThrottlingError
+	 *
+	 * @param throttleProbability probability between 0 and 1
+	 * @return this client
+	 */
+	public InMemoryDynamoDbClient setThrottleProbability(double throttleProbability) {
+		if (throttleProbability < 0 || throttleProbability > 1) {
+			throw new IllegalArgumentException("Throttle probability must be between 0 and 1");
+		}
+		this.throttleProbability = throttleProbability;
+		return this;
+	}
+
+	/**
+	 * Seeds the random source of injected latency and throttling, for reproducible tests
+	 *
+	 * @param seed seed
+	 * @return this client
+	 */
+	public InMemoryDynamoDbClient setRandomSeed(long seed) {
+		random.setSeed(seed);
+		return this;
+	}
+
+	/**
+	 * Overwrites the 1 MB of item data after which a query or scan page ends, to exercise pagination with few items
+	 *
+	 * @param pageSizeLimit page size in bytes
+	 * @return this client
+	 */
+	public InMemoryDynamoDbClient setPageSizeLimit(int pageSizeLimit) {
+		if (pageSizeLimit <= 0) {
+			throw new IllegalArgumentException("Page size limit must be positive");
+		}
+		this.pageSizeLimit = pageSizeLimit;
+		return this;
+	}
+
+	@Override
+	public String serviceName() {
+		return SERVICE_NAME;
+	}
+
+	@Override
+	public void close() {
+	}
+
+	@Override
+	public CreateTableResponse createTable(CreateTableRequest request) {
+		delay();
+		validateTableName(request.tableName());
+		BillingMode billingMode = request.billingMode() == BillingMode.PAY_PER_REQUEST
+				? BillingMode.PAY_PER_REQUEST : BillingMode.PROVISIONED;
+		if (billingMode == BillingMode.PROVISIONED && request.provisionedThroughput() == null) {
+			throw Errors.validation("One or more parameter values were invalid: ReadCapacityUnits and WriteCapacityUnits "
+					+ "must both be specified when BillingMode is PROVISIONED");
+		}
+		InMemoryTable table = new InMemoryTable(request.tableName(), request.keySchema(), request.attributeDefinitions(),
+				billingMode == BillingMode.PROVISIONED ? request.provisionedThroughput() : null, billingMode);
+		synchronized (tables) {
+			if (tables.containsKey(request.tableName())) {
+				throw Errors.resourceInUse(request.tableName());
+			}
+			tables.put(request.tableName(), table);
+			return CreateTableResponse.builder().tableDescription(table.describe()).build();
+		}
+	}
+
+	@Override
+	public DeleteTableResponse deleteTable(DeleteTableRequest request) {
+		delay();
+		synchronized (tables) {
+			InMemoryTable table = table(request.tableName());
+			tables.remove(request.tableName());
+			return DeleteTableResponse.builder().tableDescription(table.describe()).build();
+		}
+	}
+
+	@Override
+	public DescribeTableResponse describeTable(DescribeTableRequest request) {
+		delay();
+		synchronized (tables) {
+			return DescribeTableResponse.builder().table(table(request.tableName()).describe()).build();
+		}
+	}
+
+	@Override
+	public GetItemResponse getItem(GetItemRequest request) {
+		delay();
+		Expressions expressions = new Expressions(request.hasExpressionAttributeNames() ? request.expressionAttributeNames() : null, null);
+		Expressions.Projection projection = expressions.projection(request.projectionExpression());
+		expressions.verify();
+		throttle();
+		synchronized (tables) {
+			InMemoryTable table = table(request.tableName());
+			Map<String, AttributeValue> item = table.get(table.key(request.key(), true));
+			GetItemResponse.Builder response = GetItemResponse.builder();
+			if (item != null) {
+				response.item(projection != null ? projection.apply(item) : new LinkedHashMap<>(item));
+			}
+			if (returnsConsumedCapacity(request.returnConsumedCapacity())) {
+				response.consumedCapacity(readCapacity(table, item != null ? AttributeValues.itemSize(item) : 0,
+						Boolean.TRUE.equals(request.consistentRead())));
+			}
+			return response.build();
+		}
+	}
+
+	@Override
+	public PutItemResponse putItem(PutItemRequest request) {
+		delay();
+		validateReturnValues(request.returnValues(), ReturnValue.NONE, ReturnValue.ALL_OLD);
+		Expressions expressions = new Expressions(request.hasExpressionAttributeNames() ? request.expressionAttributeNames() : null,
+				request.hasExpressionAttributeValues() ? request.expressionAttributeValues() : null);
+		Expressions.Condition condition = expressions.condition(request.conditionExpression(), "ConditionExpression");
+		expressions.verify();
+		throttle();
+		synchronized (tables) {
+			InMemoryTable table = table(request.tableName());
+			Map<String, AttributeValue> item = validateItem(request.item());
+			InMemoryTable.Key key = table.key(item, false);
+			Map<String, AttributeValue> existing = table.get(key);
+			check(condition, existing);
+			table.put(key, item);
+			PutItemResponse.Builder response = PutItemResponse.builder();
+			if (request.returnValues() == ReturnValue.ALL_OLD && existing != null) {
+				response.attributes(existing);
+			}
+			if (returnsConsumedCapacity(request.returnConsumedCapacity())) {
+				response.consumedCapacity(writeCapacity(table, existing, item, 1));
+			}
+			return response.build();
+		}
+	}
+
+	@Override
+	public UpdateItemResponse updateItem(UpdateItemRequest request) {
+		delay();
+		validateReturnValues(request.returnValues(), ReturnValue.NONE, ReturnValue.ALL_OLD, ReturnValue.UPDATED_OLD,
+				ReturnValue.ALL_NEW, ReturnValue.UPDATED_NEW);
+		Expressions expressions = new Expressions(request.hasExpressionAttributeNames() ? request.expressionAttributeNames() : null,
+				request.hasExpressionAttributeValues() ? request.expressionAttributeValues() : null);
+		Expressions.Update update = expressions.update(request.updateExpression());
+		Expressions.Condition condition = expressions.condition(request.conditionExpression(), "ConditionExpression");
+		expressions.verify();
+		throttle();
+		synchronized (tables) {
+			InMemoryTable table = table(request.tableName());
+			InMemoryTable.Key key = table.key(request.key(), true);
+			Map<String, AttributeValue> existing = table.get(key);
+			check(condition, existing);
+			Map<String, AttributeValue> updated = update(table, request.key(), existing, update);
+			table.put(key, updated);
+			UpdateItemResponse.Builder response = UpdateItemResponse.builder();
+			Map<String, AttributeValue> attributes = returnValues(request.returnValues(), update, existing, updated);
+			if (attributes != null) {
+				response.attributes(attributes);
+			}
+			if (returnsConsumedCapacity(request.returnConsumedCapacity())) {
+				response.consumedCapacity(writeCapacity(table, existing, updated, 1));
+			}
+			return response.build();
+		}
+	}
+
+	@Override
+	public DeleteItemResponse deleteItem(DeleteItemRequest request) {
+		delay();
+		validateReturnValues(request.returnValues(), ReturnValue.NONE, ReturnValue.ALL_OLD);
+		Expressions expressions = new Expressions(request.hasExpressionAttributeNames() ? request.expressionAttributeNames() : null,
+				request.hasExpressionAttributeValues() ? request.expressionAttributeValues() : null);
+		Expressions.Condition condition = expressions.condition(request.conditionExpression(), "ConditionExpression");
+		expressions.verify();
+		throttle();
+		synchronized (tables) {
+			InMemoryTable table = table(request.tableName());
+			InMemoryTable.Key key = table.key(request.key(), true);
+			Map<String, AttributeValue> existing = table.get(key);
+			check(condition, existing);
+			table.delete(key);
+			DeleteItemResponse.Builder response = DeleteItemResponse.builder();
+			if (request.returnValues() == ReturnValue.ALL_OLD && existing != null) {
+				response.attributes(existing);
+			}
+			if (returnsConsumedCapacity(request.returnConsumedCapacity())) {
+				response.consumedCapacity(writeCapacity(table, existing, null, 1));
+			}
+			return response.build();
+		}
+	}
+
+	@Override
+	public QueryResponse query(QueryRequest request) {
+		delay();
+		if (request.indexName() != null) {
+			throw Errors.validation("The table does not have the specified index: " + request.indexName());
+		}
+		Expressions expressions = new Expressions(request.hasExpressionAttributeNames() ? request.expressionAttributeNames() : null,
+				request.hasExpressionAttributeValues() ? request.expressionAttributeValues() : null);
+		synchronized (tables) {
+			InMemoryTable table = table(request.tableName());
+			Expressions.KeyCondition keyCondition = expressions.keyCondition(request.keyConditionExpression(),
+					table.getHashKey(), table.getRangeKey());
+			Expressions.Condition filter = expressions.condition(request.filterExpression(), "FilterExpression");
+			Expressions.Projection projection = expressions.projection(request.projectionExpression());
+			expressions.verify();
+			throttle();
+			Page page = page(table, table.query(keyCondition.partition, startKey(request.hasExclusiveStartKey(), request.exclusiveStartKey()),
+					!Boolean.FALSE.equals(request.scanIndexForward())), keyCondition.condition, filter, projection,
+					request.limit(), request.select(), -1, 0);
+			QueryResponse.Builder response = QueryResponse.builder()
+					.count(page.count)
+					.scannedCount(page.scannedCount);
+			if (request.select() != Select.COUNT) {
+				response.items(page.items);
+			}
+			if (page.lastEvaluatedKey != null) {
+				response.lastEvaluatedKey(page.lastEvaluatedKey);
+			}
+			if (returnsConsumedCapacity(request.returnConsumedCapacity())) {
+				response.consumedCapacity(readCapacity(table, page.scannedBytes, Boolean.TRUE.equals(request.consistentRead())));
+			}
+			return response.build();
+		}
+	}
+
+	@Override
+	public ScanResponse scan(ScanRequest request) {
+		delay();
+		if (request.indexName() != null) {
+			throw Errors.validation("The table does not have the specified index: " + request.indexName());
+		}
+		int segment = -1;
+		int totalSegments = 0;
+		if (request.segment() != null || request.totalSegments() != null) {
+			if (request.segment() == null || request.totalSegments() == null) {
+				throw Errors.validation("The Segment parameter is required but was not present in the request when parameter "
+						+ "TotalSegments is present");
+			}
+			segment = request.segment();
+			totalSegments = request.totalSegments();
+			if (totalSegments < 1 || totalSegments > 1000000 || segment < 0 || segment >= totalSegments) {
+				throw Errors.validation("The Segment parameter is zero-based and must be less than parameter TotalSegments: "
+						+ "Segment: " + segment + " is not less than TotalSegments: " + totalSegments);
+			}
+		}
+		Expressions expressions = new Expressions(request.hasExpressionAttributeNames() ? request.expressionAttributeNames() : null,
+				request.hasExpressionAttributeValues() ? request.expressionAttributeValues() : null);
+		Expressions.Condition filter = expressions.condition(request.filterExpression(), "FilterExpression");
+		Expressions.Projection projection = expressions.projection(request.projectionExpression());
+		expressions.verify();
+		throttle();
+		synchronized (tables) {
+			InMemoryTable table = table(request.tableName());
+			Page page = page(table, table.scan(startKey(request.hasExclusiveStartKey(), request.exclusiveStartKey())), null,
+					filter, projection, request.limit(), request.select(), segment, totalSegments);
+			ScanResponse.Builder response = ScanResponse.builder()
+					.count(page.count)
+					.scannedCount(page.scannedCount);
+			if (request.select() != Select.COUNT) {
+				response.items(page.items);
+			}
+			if (page.lastEvaluatedKey != null) {
+				response.lastEvaluatedKey(page.lastEvaluatedKey);
+			}
+			if (returnsConsumedCapacity(request.returnConsumedCapacity())) {
+				response.consumedCapacity(readCapacity(table, page.scannedBytes, Boolean.TRUE.equals(request.consistentRead())));
+			}
+			return response.build();
+		}
+	}
+
+	@Override
+	public BatchGetItemResponse batchGetItem(BatchGetItemRequest request) {
+		delay();
+		if (!request.hasRequestItems() || request.requestItems().isEmpty()) {
+			throw Errors.validation("The requestItems parameter is required for BatchGetItem");
+		}
+		int keys = 0;
+		Map<String, Expressions.Projection> projections = new HashMap<>();
+		for (Map.Entry<String, KeysAndAttributes> entry : request.requestItems().entrySet()) {
+			KeysAndAttributes keysAndAttributes = entry.getValue();
+			if (!keysAndAttributes.hasKeys() || keysAndAttributes.keys().isEmpty()) {
+				throw Errors.validation("1 validation error detected: Value at 'requestItems." + entry.getKey()
+						+ ".member.keys' failed to satisfy constraint: Member must have length greater than or equal to 1");
+			}
+			keys += keysAndAttributes.keys().size();
+			Expressions expressions = new Expressions(
+					keysAndAttributes.hasExpressionAttributeNames() ? keysAndAttributes.expressionAttributeNames() : null, null);
+			projections.put(entry.getKey(), expressions.projection(keysAndAttributes.projectionExpression()));
+			expressions.verify();
+		}
+		if (keys > MAX_BATCH_GET_KEYS) {
+			throw Errors.validation("Too many items requested for the BatchGetItem call");
+		}
+		synchronized (tables) {
+			Map<String, List<Map<String, AttributeValue>>> responses = new LinkedHashMap<>();
+			Map<String, KeysAndAttributes> unprocessedKeys = new LinkedHashMap<>();
+			List<ConsumedCapacity> consumedCapacity = new ArrayList<>();
+			for (Map.Entry<String, KeysAndAttributes> entry : request.requestItems().entrySet()) {
+				InMemoryTable table = table(entry.getKey());
+				KeysAndAttributes keysAndAttributes = entry.getValue();
+				Set<InMemoryTable.Key> requested = new HashSet<>();
+				List<Map<String, AttributeValue>> items = new ArrayList<>();
+				List<Map<String, AttributeValue>> unprocessed = new ArrayList<>();
+				int bytes = 0;
+				for (Map<String, AttributeValue> key : keysAndAttributes.keys()) {
+					InMemoryTable.Key tableKey = table.key(key, true);
+					if (!requested.add(tableKey)) {
+						throw Errors.validation("Provided list of item keys contains duplicates");
+					}
+				}
+				for (Map<String, AttributeValue> key : keysAndAttributes.keys()) {
+					if (throttled()) {
+						unprocessed.add(key);
+						continue;
+					}
+					Map<String, AttributeValue> item = table.get(table.key(key, true));
+					if (item != null) {
+						bytes += AttributeValues.itemSize(item);
+						Expressions.Projection projection = projections.get(entry.getKey());
+						items.add(projection != null ? projection.apply(item) : new LinkedHashMap<>(item));
+					}
+				}
+				responses.put(entry.getKey(), items);
+				if (!unprocessed.isEmpty()) {
+					unprocessedKeys.put(entry.getKey(), keysAndAttributes.toBuilder().keys(unprocessed).build());
+				}
+				consumedCapacity.add(readCapacity(table, bytes, Boolean.TRUE.equals(keysAndAttributes.consistentRead())));
+			}
+			BatchGetItemResponse.Builder response = BatchGetItemResponse.builder()
+					.responses(responses)
+					.unprocessedKeys(unprocessedKeys);
+			if (returnsConsumedCapacity(request.returnConsumedCapacity())) {
+				response.consumedCapacity(consumedCapacity);
+			}
+			return response.build();
+		}
+	}
+
+	@Override
+	public BatchWriteItemResponse batchWriteItem(BatchWriteItemRequest request) {
+		delay();
+		if (!request.hasRequestItems() || request.requestItems().isEmpty()) {
+			throw Errors.validation("The requestItems parameter is required for BatchWriteItem");
+		}
+		int requests = 0;
+		for (List<WriteRequest> writeRequests : request.requestItems().values()) {
+			requests += writeRequests.size();
+			for (WriteRequest writeRequest : writeRequests) {
+				if ((writeRequest.putRequest() == null) == (writeRequest.deleteRequest() == null)) {
+					throw Errors.validation("A WriteRequest must contain exactly one of PutRequest or DeleteRequest");
+				}
+			}
+		}
+		if (requests == 0 || requests > MAX_BATCH_WRITE_REQUESTS) {
+			throw Errors.validation("1 validation error detected: Value at 'requestItems' failed to satisfy constraint: "
+					+ "Map value must satisfy constraint: [Member must have length less than or equal to 25, "
+					+ "Member must have length greater than or equal to 1]");
+		}
+		synchronized (tables) {
+			Map<String, List<WriteRequest>> unprocessedItems = new LinkedHashMap<>();
+			List<ConsumedCapacity> consumedCapacity = new ArrayList<>();
+			Map<String, List<InMemoryTable.Key>> keys = new LinkedHashMap<>();
+			for (Map.Entry<String, List<WriteRequest>> entry : request.requestItems().entrySet()) {
+				InMemoryTable table = table(entry.getKey());
+				Set<InMemoryTable.Key> written = new HashSet<>();
+				List<InMemoryTable.Key> tableKeys = new ArrayList<>();
+				for (WriteRequest writeRequest : entry.getValue()) {
+					InMemoryTable.Key key = writeRequest.putRequest() != null
+							? table.key(validateItem(writeRequest.putRequest().item()), false)
+							: table.key(writeRequest.deleteRequest().key(), true);
+					if (!written.add(key)) {
+						throw Errors.validation("Provided list of item keys contains duplicates");
+					}
+					tableKeys.add(key);
+				}
+				keys.put(entry.getKey(), tableKeys);
+			}
+			int processed = 0;
+			for (Map.Entry<String, List<WriteRequest>> entry : request.requestItems().entrySet()) {
+				InMemoryTable table = table(entry.getKey());
+				List<InMemoryTable.Key> tableKeys = keys.get(entry.getKey());
+				List<WriteRequest> unprocessed = new ArrayList<>();
+				double units = 0;
+				for (int i = 0; i < entry.getValue().size(); i++) {
+					WriteRequest writeRequest = entry.getValue().get(i);
+					if (throttled()) {
+						unprocessed.add(writeRequest);
+						continue;
+					}
+					InMemoryTable.Key key = tableKeys.get(i);
+					Map<String, AttributeValue> existing = table.get(key);
+					Map<String, AttributeValue> item = null;
+					if (writeRequest.putRequest() != null) {
+						item = new LinkedHashMap<>(writeRequest.putRequest().item());
+						table.put(key, item);
+					} else {
+						table.delete(key);
+					}
+					units += writeUnits(existing, item);
+					processed++;
+				}
+				if (!unprocessed.isEmpty()) {
+					unprocessedItems.put(entry.getKey(), unprocessed);
+				}
+				consumedCapacity.add(ConsumedCapacity.builder().tableName(table.getName())
+						.capacityUnits(units).writeCapacityUnits(units).build());
+			}
+			if (processed == 0) {
+				throw Errors.throttled();
+			}
+			BatchWriteItemResponse.Builder response = BatchWriteItemResponse.builder().unprocessedItems(unprocessedItems);
+			if (returnsConsumedCapacity(request.returnConsumedCapacity())) {
+				response.consumedCapacity(consumedCapacity);
+			}
+			return response.build();
+		}
+	}
+
+	@Override
+	public TransactWriteItemsResponse transactWriteItems(TransactWriteItemsRequest request) {
+		delay();
+		if (!request.hasTransactItems() || request.transactItems().isEmpty() || request.transactItems().size() > MAX_TRANSACT_ITEMS) {
+			throw Errors.validation("1 validation error detected: Value at 'transactItems' failed to satisfy constraint: "
+					+ "Member must have length less than or equal to " + MAX_TRANSACT_ITEMS
+					+ ", Member must have length greater than or equal to 1");
+		}
+		List<Transacted> transacted = new ArrayList<>();
+		for (TransactWriteItem transactItem : request.transactItems()) {
+			transacted.add(new Transacted(transactItem));
+		}
+		synchronized (tables) {
+			Map<String, Set<InMemoryTable.Key>> itemKeys = new HashMap<>();
+			for (Transacted item : transacted) {
+				item.resolve();
+				Set<InMemoryTable.Key> tableKeys = itemKeys.get(item.table.getName());
+				if (tableKeys == null) {
+					tableKeys = new HashSet<>();
+					itemKeys.put(item.table.getName(), tableKeys);
+				}
+				if (!tableKeys.add(item.key)) {
+					throw Errors.validation("Transaction request cannot include multiple operations on one item");
+				}
+			}
+			List<CancellationReason> reasons = new ArrayList<>();
+			boolean cancelled = false;
+			for (Transacted item : transacted) {
+				Map<String, AttributeValue> existing = item.table.get(item.key);
+				if (throttled()) {
+					reasons.add(CancellationReason.builder().code("ThrottlingError")
+							.message("Throughput exceeds the current capacity of your table or index.").build());
+					cancelled = true;
+				} else if (item.condition != null && !item.condition.test(existing != null ? existing
+						: Collections.<String, AttributeValue>emptyMap())) {
+					reasons.add(CancellationReason.builder().code("ConditionalCheckFailed")
+							.message("The conditional request failed").build());
+					cancelled = true;
+				} else {
+					reasons.add(CancellationReason.builder().code("None").build());
+				}
+			}
+			if (cancelled) {
+				throw Errors.transactionCanceled(reasons);
+			}
+			Map<String, Double> units = new LinkedHashMap<>();
+			for (Transacted item : transacted) {
+				if (item.check) {
+					continue;
+				}
+				Map<String, AttributeValue> existing = item.table.get(item.key);
+				Map<String, AttributeValue> written = item.apply(existing);
+				Double tableUnits = units.get(item.table.getName());
+				units.put(item.table.getName(), (tableUnits != null ? tableUnits : 0) + 2 * writeUnits(existing, written));
+			}
+			TransactWriteItemsResponse.Builder response = TransactWriteItemsResponse.builder();
+			if (returnsConsumedCapacity(request.returnConsumedCapacity())) {
+				List<ConsumedCapacity> consumedCapacity = new ArrayList<>();
+				for (Map.Entry<String, Double> entry : units.entrySet()) {
+					consumedCapacity.add(ConsumedCapacity.builder().tableName(entry.getKey())
+							.capacityUnits(entry.getValue()).writeCapacityUnits(entry.getValue()).build());
+				}
+				response.consumedCapacity(consumedCapacity);
+			}
+			return response.build();
+		}
+	}
+
+	/**
+	 * Action of a transaction, parsed before the transaction takes the lock
+	 */
+	private final class Transacted {
+		private final String tableName;
+		private final Map<String, AttributeValue> keyOrItem;
+		private final Expressions.Condition condition;
+		private final Expressions.Update update;
+		private final boolean put;
+		private final boolean delete;
+		private final boolean check;
+		private InMemoryTable table;
+		private InMemoryTable.Key key;
+
+		Transacted(TransactWriteItem transactItem) {
+			int actions = (transactItem.put() != null ? 1 : 0) + (transactItem.update() != null ? 1 : 0)
+					+ (transactItem.delete() != null ? 1 : 0) + (transactItem.conditionCheck() != null ? 1 : 0);
+			if (actions != 1) {
+				throw Errors.validation("TransactItems can only contain one of Check, Put, Update or Delete");
+			}
+			Expressions expressions;
+			String conditionExpression;
+			Expressions.Update update = null;
+			if (transactItem.put() != null) {
+				Put action = transactItem.put();
+				tableName = action.tableName();
+				keyOrItem = validateItem(action.item());
+				expressions = new Expressions(action.hasExpressionAttributeNames() ? action.expressionAttributeNames() : null,
+						action.hasExpressionAttributeValues() ? action.expressionAttributeValues() : null);
+				conditionExpression = action.conditionExpression();
+			} else if (transactItem.update() != null) {
+				Update action = transactItem.update();
+				tableName = action.tableName();
+				keyOrItem = action.key();
+				expressions = new Expressions(action.hasExpressionAttributeNames() ? action.expressionAttributeNames() : null,
+						action.hasExpressionAttributeValues() ? action.expressionAttributeValues() : null);
+				if (action.updateExpression() == null) {
+					throw Errors.validation("The updateExpression parameter is required for Update");
+				}
+				update = expressions.update(action.updateExpression());
+				conditionExpression = action.conditionExpression();
+			} else if (transactItem.delete() != null) {
+				Delete action = transactItem.delete();
+				tableName = action.tableName();
+				keyOrItem = action.key();
+				expressions = new Expressions(action.hasExpressionAttributeNames() ? action.expressionAttributeNames() : null,
+						action.hasExpressionAttributeValues() ? action.expressionAttributeValues() : null);
+				conditionExpression = action.conditionExpression();
+			} else {
+				ConditionCheck action = transactItem.conditionCheck();
+				tableName = action.tableName();
+				keyOrItem = action.key();
+				expressions = new Expressions(action.hasExpressionAttributeNames() ? action.expressionAttributeNames() : null,
+						action.hasExpressionAttributeValues() ? action.expressionAttributeValues() : null);
+				conditionExpression = action.conditionExpression();
+				if (conditionExpression == null) {
+					throw Errors.validation("The conditionExpression parameter is required for ConditionCheck");
+				}
+			}
+			this.condition = expressions.condition(conditionExpression, "ConditionExpression");
+			this.update = update;
+			this.put = transactItem.put() != null;
+			this.delete = transactItem.delete() != null;
+			this.check = transactItem.conditionCheck() != null;
+			expressions.verify();
+		}
+
+		void resolve() {
+			table = table(tableName);
+			key = table.key(keyOrItem, !put);
+		}
+
+		Map<String, AttributeValue> apply(Map<String, AttributeValue> existing) {
+			if (put) {
+				Map<String, AttributeValue> item = new LinkedHashMap<>(keyOrItem);
+				table.put(key, item);
+				return item;
+			} else if (delete) {
+				table.delete(key);
+				return null;
+			}
+			Map<String, AttributeValue> updated = InMemoryDynamoDbClient.this.update(table, keyOrItem, existing, update);
+			table.put(key, updated);
+			return updated;
+		}
+	}
+
+	// request handling
+
+	private static Map<String, AttributeValue> startKey(boolean present, Map<String, AttributeValue> exclusiveStartKey) {
+		return present ? exclusiveStartKey : null;
+	}
+
+	private InMemoryTable table(String tableName) {
+		validateTableName(tableName);
+		InMemoryTable table = tables.get(tableName);
+		if (table == null) {
+			throw Errors.resourceNotFound(tableName);
+		}
+		return table;
+	}
+
+	private static void validateTableName(String tableName) {
+		if (tableName == null || !tableName.matches("[a-zA-Z0-9_.-]{3,255}")) {
+			throw Errors.validation("1 validation error detected: Value '" + tableName + "' at 'tableName' failed to satisfy "
+					+ "constraint: Member must satisfy regular expression pattern: [a-zA-Z0-9_.-]+");
+		}
+	}
+
+	private static void validateReturnValues(ReturnValue returnValue, ReturnValue... allowed) {
+		if (returnValue != null && !Arrays.asList(allowed).contains(returnValue)) {
+			throw Errors.validation("Return values set to invalid value");
+		}
+	}
+
+	private static Map<String, AttributeValue> validateItem(Map<String, AttributeValue> item) {
+		if (item == null || item.isEmpty()) {
+			throw Errors.validation("One or more parameter values were invalid: Missing the key in the item");
+		}
+		for (AttributeValue value : item.values()) {
+			validateValue(value);
+		}
+		if (AttributeValues.itemSize(item) > MAX_ITEM_SIZE) {
+			throw Errors.validation("Item size has exceeded the maximum allowed size");
+		}
+		return new LinkedHashMap<>(item);
+	}
+
+	private static void validateValue(AttributeValue value) {
+		String type = AttributeValues.type(value);
+		if ((AttributeValues.SS.equals(type) && value.ss().isEmpty()) || (AttributeValues.NS.equals(type) && value.ns().isEmpty())
+				|| (AttributeValues.BS.equals(type) && value.bs().isEmpty())) {
+			throw Errors.validation("One or more parameter values were invalid: An " + type + " set may not be empty");
+		}
+		if (value.hasM()) {
+			for (AttributeValue element : value.m().values()) {
+				validateValue(element);
+			}
+		} else if (value.hasL()) {
+			for (AttributeValue element : value.l()) {
+				validateValue(element);
+			}
+		}
+	}
+
+	private static void check(Expressions.Condition condition, Map<String, AttributeValue> existing) {
+		if (condition != null && !condition.test(existing != null ? existing : Collections.<String, AttributeValue>emptyMap())) {
+			throw Errors.conditionalCheckFailed();
+		}
+	}
+
+	/**
+	 * @return the item after the update, created from its key if it did not exist
+	 */
+	private Map<String, AttributeValue> update(InMemoryTable table, Map<String, AttributeValue> key,
+			Map<String, AttributeValue> existing, Expressions.Update update) {
+		Map<String, AttributeValue> item = existing != null ? existing : new LinkedHashMap<>(key);
+		if (update == null) {
+			return new LinkedHashMap<>(item);
+		}
+		for (Expressions.Action action : update.actions) {
+			if (table.keyAttributes().contains(action.path.top())) {
+				throw Errors.validation("One or more parameter values were invalid: Cannot update attribute "
+						+ action.path.top() + ". This attribute is part of the key");
+			}
+		}
+		Map<String, AttributeValue> updated = update.apply(item);
+		for (AttributeValue value : updated.values()) {
+			validateValue(value);
+		}
+		if (AttributeValues.itemSize(updated) > MAX_ITEM_SIZE) {
+			throw Errors.validation("Item size to update has exceeded the maximum allowed size");
+		}
+		return updated;
+	}
+
+	private static Map<String, AttributeValue> returnValues(ReturnValue returnValue, Expressions.Update update,
+			Map<String, AttributeValue> existing, Map<String, AttributeValue> updated) {
+		if (returnValue == ReturnValue.ALL_OLD) {
+			return existing;
+		} else if (returnValue == ReturnValue.ALL_NEW) {
+			return updated;
+		} else if (returnValue != ReturnValue.UPDATED_OLD && returnValue != ReturnValue.UPDATED_NEW) {
+			return null;
+		}
+		Map<String, AttributeValue> source = returnValue == ReturnValue.UPDATED_OLD ? existing : updated;
+		if (source == null || update == null) {
+			return null;
+		}
+		Map<String, AttributeValue> attributes = new LinkedHashMap<>();
+		for (Expressions.Action action : update.actions) {
+			AttributeValue value = source.get(action.path.top());
+			if (value != null) {
+				attributes.put(action.path.top(), value);
+			}
+		}
+		return attributes.isEmpty() ? null : attributes;
+	}
+
+	/**
+	 * Result page of a query or scan
+	 */
+	private static final class Page {
+		private final List<Map<String, AttributeValue>> items = new ArrayList<>();
+		private Map<String, AttributeValue> lastEvaluatedKey;
+		private int count;
+		private int scannedCount;
+		private int scannedBytes;
+	}
+
+	/**
+	 * Reads items until the limit or the page size is reached
+	 *
+	 * @param segment segment of a parallel scan, -1 for the whole table
+	 */
+	private Page page(InMemoryTable table, NavigableMap<InMemoryTable.Key, Map<String, AttributeValue>> items,
+			Expressions.Condition keyCondition, Expressions.Condition filter, Expressions.Projection projection,
+			Integer limit, Select select, int segment, int totalSegments) {
+		if (limit != null && limit < 1) {
+			throw Errors.validation("1 validation error detected: Value '" + limit + "' at 'limit' failed to satisfy "
+					+ "constraint: Member must have value greater than or equal to 1");
+		}
+		Page page = new Page();
+		Map<String, AttributeValue> lastItem = null;
+		for (Map.Entry<InMemoryTable.Key, Map<String, AttributeValue>> entry : items.entrySet()) {
+			if (segment >= 0 && !entry.getKey().inSegment(segment, totalSegments)) {
+				continue;
+			}
+			Map<String, AttributeValue> item = entry.getValue();
+			if (keyCondition != null && !keyCondition.test(item)) {
+				continue;
+			}
+			if ((limit != null && page.scannedCount >= limit) || page.scannedBytes >= pageSizeLimit) {
+				page.lastEvaluatedKey = table.keyOf(lastItem);
+				break;
+			}
+			page.scannedCount++;
+			page.scannedBytes += AttributeValues.itemSize(item);
+			lastItem = item;
+			if (filter == null || filter.test(item)) {
+				page.count++;
+				if (select != Select.COUNT) {
+					page.items.add(projection != null ? projection.apply(item) : new LinkedHashMap<>(item));
+				}
+			}
+		}
+		return page;
+	}
+
+	// capacity
+
+	private static boolean returnsConsumedCapacity(ReturnConsumedCapacity returnConsumedCapacity) {
+		return returnConsumedCapacity == ReturnConsumedCapacity.TOTAL || returnConsumedCapacity == ReturnConsumedCapacity.INDEXES;
+	}
+
+	private static ConsumedCapacity readCapacity(InMemoryTable table, int bytes, boolean consistentRead) {
+		double units = Math.max(1, (bytes + READ_UNIT_SIZE - 1) / READ_UNIT_SIZE);
+		if (!consistentRead) {
+			units /= 2;
+		}
+		return ConsumedCapacity.builder().tableName(table.getName()).capacityUnits(units).readCapacityUnits(units).build();
+	}
+
+	private static ConsumedCapacity writeCapacity(InMemoryTable table, Map<String, AttributeValue> existing,
+			Map<String, AttributeValue> item, int multiplier) {
+		double units = multiplier * writeUnits(existing, item);
+		return ConsumedCapacity.builder().tableName(table.getName()).capacityUnits(units).writeCapacityUnits(units).build();
+	}
+
+	private static double writeUnits(Map<String, AttributeValue> existing, Map<String, AttributeValue> item) {
+		int bytes = Math.max(existing != null ? AttributeValues.itemSize(existing) : 0, item != null ? AttributeValues.itemSize(item) : 0);
+		return Math.max(1, (bytes + WRITE_UNIT_SIZE - 1) / WRITE_UNIT_SIZE);
+	}
+
+	// fault injection
+
+	private void delay() {
+		long min = minLatency;
+		long max = maxLatency;
+		if (max <= 0) {
+			return;
+		}
+		long latency = min + (max > min ? (long) (random.nextDouble() * (max - min + 1)) : 0);
+		try {
+			Thread.sleep(latency);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw SdkClientException.create("Thread was interrupted", e);
+		}
+	}
+
+	private boolean throttled() {
+		double probability = throttleProbability;
+		return probability > 0 && random.nextDouble() < probability;
+	}
+
+	private void throttle() {
+		if (throttled()) {
+			throw Errors.throttled();
+		}
+	}
+}
@@ -0,0 +1,253 @@
+package com.github.dynamobee.test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeDefinition;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BillingMode;
+import software.amazon.awssdk.services.dynamodb.model.BillingModeSummary;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughput;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputDescription;
+import software.amazon.awssdk.services.dynamodb.model.TableDescription;
+import software.amazon.awssdk.services.dynamodb.model.TableStatus;
+
+
+/**
+ * Items of one table, ordered the way a scan returns them: by a hash of the partition key, which also assigns the
+ * items to scan segments, then by partition key and sort key
+ */
+final class InMemoryTable {
+	private final String name;
+	private final List<KeySchemaElement> keySchema;
+	private final List<AttributeDefinition> attributeDefinitions;
+	private final ProvisionedThroughput provisionedThroughput;
+	private final BillingMode billingMode;
+	private final String hashKey;
+	private final String rangeKey;
+	private final Map<String, String> keyTypes = new LinkedHashMap<>();
+	private final TreeMap<Key, Map<String, AttributeValue>> items = new TreeMap<>();
+
+	InMemoryTable(String name, List<KeySchemaElement> keySchema, List<AttributeDefinition> attributeDefinitions,
+			ProvisionedThroughput provisionedThroughput, BillingMode billingMode) {
+		this.name = name;
+		this.keySchema = keySchema;
+		this.attributeDefinitions = attributeDefinitions;
+		this.provisionedThroughput = provisionedThroughput;
+		this.billingMode = billingMode;
+		String hashKey = null;
+		String rangeKey = null;
+		for (KeySchemaElement element : keySchema) {
+			if (element.keyType() == KeyType.HASH && hashKey == null) {
+				hashKey = element.attributeName();
+			} else if (element.keyType() == KeyType.RANGE && rangeKey == null) {
+				rangeKey = element.attributeName();
+			} else {
+				throw Errors.validation("Invalid KeySchema: Some index key schema element is not valid");
+			}
+		}
+		if (hashKey == null) {
+			throw Errors.validation("Invalid KeySchema: The first KeySchemaElement is not a HASH key type");
+		}
+		this.hashKey = hashKey;
+		this.rangeKey = rangeKey;
+		for (AttributeDefinition definition : attributeDefinitions) {
+			keyTypes.put(definition.attributeName(), definition.attributeTypeAsString());
+		}
+		for (String keyAttribute : keyAttributes()) {
+			if (!AttributeValues.isScalarKeyType(keyTypes.get(keyAttribute))) {
+				throw Errors.validation("One or more parameter values were invalid: Some index key attributes are not defined in "
+						+ "AttributeDefinitions. Keys: " + keyAttributes());
+			}
+		}
+		if (keyTypes.size() != keyAttributes().size()) {
+			throw Errors.validation("One or more parameter values were invalid: Number of attributes in KeySchema does not "
+					+ "exactly match number of attributes defined in AttributeDefinitions");
+		}
+	}
+
+	String getName() {
+		return name;
+	}
+
+	String getHashKey() {
+		return hashKey;
+	}
+
+	String getRangeKey() {
+		return rangeKey;
+	}
+
+	List<String> keyAttributes() {
+		return rangeKey != null ? Arrays.asList(hashKey, rangeKey) : Arrays.asList(hashKey);
+	}
+
+	TableDescription describe() {
+		long size = 0;
+		for (Map<String, AttributeValue> item : items.values()) {
+			size += AttributeValues.itemSize(item);
+		}
+		TableDescription.Builder description = TableDescription.builder()
+				.tableName(name)
+				.keySchema(keySchema)
+				.attributeDefinitions(attributeDefinitions)
+				.tableStatus(TableStatus.ACTIVE)
+				.itemCount((long) items.size())
+				.tableSizeBytes(size)
+				.billingModeSummary(BillingModeSummary.builder().billingMode(billingMode).build());
+		if (provisionedThroughput != null) {
+			description.provisionedThroughput(ProvisionedThroughputDescription.builder()
+					.readCapacityUnits(provisionedThroughput.readCapacityUnits())
+					.writeCapacityUnits(provisionedThroughput.writeCapacityUnits())
+					.build());
+		}
+		return description.build();
+	}
+
+	/**
+	 * @param key primary key, or an item to take it from
+	 * @param exact whether key has to hold the key attributes only
+	 * @return the key of the item
+	 */
+	Key key(Map<String, AttributeValue> key, boolean exact) {
+		if (key == null || (exact && key.size() != keyAttributes().size())) {
+			throw Errors.validation("The provided key element does not match the schema");
+		}
+		return new Key(keyValue(key, hashKey), rangeKey != null ? keyValue(key, rangeKey) : null, 0);
+	}
+
+	private AttributeValue keyValue(Map<String, AttributeValue> key, String attribute) {
+		AttributeValue value = key.get(attribute);
+		if (value == null || !AttributeValues.type(value).equals(keyTypes.get(attribute))) {
+			throw Errors.validation("One or more parameter values were invalid: Missing the key " + attribute
+					+ " in the item, or its type does not match the schema");
+		}
+		if ((value.s() != null && value.s().isEmpty()) || (value.b() != null && value.b().asByteArray().length == 0)) {
+			throw Errors.validation("One or more parameter values are not valid. The AttributeValue for a key attribute cannot "
+					+ "contain an empty string value. Key: " + attribute);
+		}
+		return value;
+	}
+
+	/**
+	 * @return the primary key attributes of an item
+	 */
+	Map<String, AttributeValue> keyOf(Map<String, AttributeValue> item) {
+		Map<String, AttributeValue> key = new LinkedHashMap<>();
+		for (String keyAttribute : keyAttributes()) {
+			key.put(keyAttribute, item.get(keyAttribute));
+		}
+		return key;
+	}
+
+	Map<String, AttributeValue> get(Key key) {
+		return items.get(key);
+	}
+
+	void put(Key key, Map<String, AttributeValue> item) {
+		items.put(key, item);
+	}
+
+	void delete(Key key) {
+		items.remove(key);
+	}
+
+	/**
+	 * @param exclusiveStartKey key to continue after, null to start from the beginning
+	 * @return the items in scan order
+	 */
+	NavigableMap<Key, Map<String, AttributeValue>> scan(Map<String, AttributeValue> exclusiveStartKey) {
+		return exclusiveStartKey == null ? items : items.tailMap(key(exclusiveStartKey, false), false);
+	}
+
+	/**
+	 * @param exclusiveStartKey key to continue after, null to start from the beginning
+	 * @return the items of a partition, in sort key order
+	 */
+	NavigableMap<Key, Map<String, AttributeValue>> query(AttributeValue partition, Map<String, AttributeValue> exclusiveStartKey,
+			boolean forward) {
+		if (!AttributeValues.type(partition).equals(keyTypes.get(hashKey))) {
+			throw Errors.validation("One or more parameter values were invalid: Condition parameter type does not match schema type");
+		}
+		NavigableMap<Key, Map<String, AttributeValue>> partitionItems = items.subMap(new Key(partition, null, -1), true,
+				new Key(partition, null, 1), true);
+		if (!forward) {
+			partitionItems = partitionItems.descendingMap();
+		}
+		if (exclusiveStartKey != null) {
+			partitionItems = partitionItems.tailMap(key(exclusiveStartKey, false), false);
+		}
+		return partitionItems;
+	}
+
+	/**
+	 * Primary key of an item
+	 */
+	static final class Key implements Comparable<Key> {
+		private final AttributeValue partition;
+		private final AttributeValue sort;
+		private final int bound;
+		private final int hash;
+
+		/**
+		 * @param bound -1 or 1 for a key before or after all the items of the partition, 0 for an item's key
+		 */
+		Key(AttributeValue partition, AttributeValue sort, int bound) {
+			this.partition = partition;
+			this.sort = sort;
+			this.bound = bound;
+			this.hash = hash(partition);
+		}
+
+		private static int hash(AttributeValue partition) {
+			String canonical = partition.n() != null ? AttributeValues.canonical(partition.n())
+					: partition.s() != null ? partition.s()
+					: new String(partition.b().asByteArray(), StandardCharsets.ISO_8859_1);
+			int hash = 0x811c9dc5;
+			for (byte b : canonical.getBytes(StandardCharsets.UTF_8)) {
+				hash = (hash ^ (b & 0xff)) * 0x01000193;
+			}
+			return hash & Integer.MAX_VALUE;
+		}
+
+		/**
+		 * @return whether the item belongs to the given segment of a parallel scan
+		 */
+		boolean inSegment(int segment, int totalSegments) {
+			return hash % totalSegments == segment;
+		}
+
+		@Override
+		public int compareTo(Key other) {
+			int result = Integer.compare(hash, other.hash);
+			if (result == 0) {
+				result = AttributeValues.compare(partition, other.partition);
+			}
+			if (result == 0) {
+				if (bound != 0 || other.bound != 0) {
+					result = Integer.compare(bound, other.bound);
+				} else if (sort != null) {
+					result = AttributeValues.compare(sort, other.sort);
+				}
+			}
+			return result;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof Key && compareTo((Key) other) == 0;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+}
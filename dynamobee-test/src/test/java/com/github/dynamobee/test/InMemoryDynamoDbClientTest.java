@@ -0,0 +1,409 @@
+package com.github.dynamobee.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+import software.amazon.awssdk.services.dynamodb.model.Put;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.model.Select;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItem;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsRequest;
+import software.amazon.awssdk.services.dynamodb.model.TransactionCanceledException;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+
+public class InMemoryDynamoDbClientTest {
+	private InMemoryDynamoDbClient client;
+
+	@Before
+	public void setUp() {
+		client = new InMemoryDynamoDbClient()
+				.withTable("items", "id")
+				.withTable("events", "stream", "seq");
+	}
+
+	@Test
+	public void shouldFailConditionalPutOnExistingItem() {
+		PutItemRequest put = PutItemRequest.builder()
+				.tableName("items")
+				.item(item("a", "n", n(1)))
+				.conditionExpression("attribute_not_exists(id)")
+				.build();
+		client.putItem(put);
+
+		try {
+			client.putItem(put);
+			fail("Expected the condition to fail");
+		} catch (ConditionalCheckFailedException e) {
+			// expected
+		}
+		assertEquals("1", get("items", "a").get("n").n());
+	}
+
+	@Test
+	public void shouldEvaluateComparisonsAndLogicalOperators() {
+		client.putItem(PutItemRequest.builder().tableName("items").item(item("a", "n", n(5), "s", s("draft"))).build());
+
+		assertTrue(conditionHolds("#n BETWEEN :low AND :high AND begins_with(#s, :prefix)",
+				values(":low", n(1), ":high", n(10), ":prefix", s("dr"))));
+		assertTrue(conditionHolds("#n > :high OR #s IN (:a, :b)",
+				values(":high", n(10), ":a", s("published"), ":b", s("draft"))));
+		assertFalse(conditionHolds("NOT (#n <> :five) AND size(#s) < :len",
+				values(":five", n(5), ":len", n(3))));
+		assertTrue(conditionHolds("#n = :five AND attribute_type(#s, :type)",
+				values(":five", n(5), ":type", s("S"))));
+	}
+
+	@Test
+	public void shouldCompareNumbersNumerically() {
+		client.putItem(PutItemRequest.builder().tableName("items").item(item("a", "n", n(10))).build());
+
+		assertTrue(conditionHolds("#n > :nine", values(":nine", n(9))));
+		assertFalse(conditionHolds("#n < :nine", values(":nine", n(9))));
+	}
+
+	@Test
+	public void shouldRejectUnusedExpressionAttributeValues() {
+		try {
+			client.putItem(PutItemRequest.builder()
+					.tableName("items")
+					.item(item("a"))
+					.conditionExpression("attribute_not_exists(id)")
+					.expressionAttributeValues(values(":unused", n(1)))
+					.build());
+			fail("Expected a validation error");
+		} catch (DynamoDbException e) {
+			assertEquals("ValidationException", e.awsErrorDetails().errorCode());
+		}
+	}
+
+	@Test
+	public void shouldApplyUpdateExpressions() {
+		client.putItem(PutItemRequest.builder().tableName("items")
+				.item(item("a", "count", n(1), "tags", l(s("x")), "obsolete", s("yes"))).build());
+
+		Map<String, String> names = new HashMap<>();
+		names.put("#count", "count");
+		names.put("#tags", "tags");
+		names.put("#obsolete", "obsolete");
+		names.put("#created", "created");
+		names.put("#visits", "visits");
+		UpdateItemResponse response = client.updateItem(UpdateItemRequest.builder()
+				.tableName("items")
+				.key(item("a"))
+				.updateExpression("SET #count = #count + :one, #tags = list_append(#tags, :more), "
+						+ "#created = if_not_exists(#created, :now) REMOVE #obsolete ADD #visits :one")
+				.expressionAttributeNames(names)
+				.expressionAttributeValues(values(":one", n(1), ":more", l(s("y")), ":now", n(100)))
+				.returnValues(ReturnValue.ALL_NEW)
+				.build());
+
+		Map<String, AttributeValue> updated = response.attributes();
+		assertEquals("2", updated.get("count").n());
+		assertEquals(2, updated.get("tags").l().size());
+		assertEquals("y", updated.get("tags").l().get(1).s());
+		assertEquals("100", updated.get("created").n());
+		assertEquals("1", updated.get("visits").n());
+		assertNull(updated.get("obsolete"));
+		assertEquals(updated, get("items", "a"));
+	}
+
+	@Test
+	public void shouldCreateItemOnUpdateOfMissingKey() {
+		client.updateItem(UpdateItemRequest.builder()
+				.tableName("items")
+				.key(item("b"))
+				.updateExpression("ADD #visits :one")
+				.expressionAttributeNames(Collections.singletonMap("#visits", "visits"))
+				.expressionAttributeValues(values(":one", n(1)))
+				.build());
+
+		assertEquals("1", get("items", "b").get("visits").n());
+	}
+
+	@Test
+	public void shouldPaginateScansWithLimit() {
+		for (int i = 0; i < 25; i++) {
+			client.putItem(PutItemRequest.builder().tableName("items").item(item("item" + i)).build());
+		}
+
+		Set<String> ids = new HashSet<>();
+		Map<String, AttributeValue> startKey = null;
+		int pages = 0;
+		do {
+			ScanResponse page = client.scan(ScanRequest.builder()
+					.tableName("items")
+					.limit(10)
+					.exclusiveStartKey(startKey)
+					.build());
+			for (Map<String, AttributeValue> item : page.items()) {
+				assertTrue(ids.add(item.get("id").s()));
+			}
+			startKey = page.hasLastEvaluatedKey() && !page.lastEvaluatedKey().isEmpty() ? page.lastEvaluatedKey() : null;
+			pages++;
+		} while (startKey != null);
+
+		assertEquals(25, ids.size());
+		assertEquals(3, pages);
+	}
+
+	@Test
+	public void shouldSplitScanIntoDisjointSegments() {
+		for (int i = 0; i < 50; i++) {
+			client.putItem(PutItemRequest.builder().tableName("items").item(item("item" + i)).build());
+		}
+
+		Set<String> ids = new HashSet<>();
+		for (int segment = 0; segment < 4; segment++) {
+			for (Map<String, AttributeValue> item : client.scan(ScanRequest.builder()
+					.tableName("items").segment(segment).totalSegments(4).build()).items()) {
+				assertTrue(ids.add(item.get("id").s()));
+			}
+		}
+		assertEquals(50, ids.size());
+	}
+
+	@Test
+	public void shouldQueryInSortKeyOrderAndCountWithFilter() {
+		for (int i = 0; i < 5; i++) {
+			Map<String, AttributeValue> event = new HashMap<>();
+			event.put("stream", s("s1"));
+			event.put("seq", s("00" + i));
+			event.put("even", AttributeValue.builder().bool(i % 2 == 0).build());
+			client.putItem(PutItemRequest.builder().tableName("events").item(event).build());
+		}
+
+		QueryResponse descending = client.query(QueryRequest.builder()
+				.tableName("events")
+				.keyConditionExpression("#stream = :stream AND #seq > :after")
+				.expressionAttributeNames(names("#stream", "stream", "#seq", "seq"))
+				.expressionAttributeValues(values(":stream", s("s1"), ":after", s("000")))
+				.scanIndexForward(false)
+				.build());
+		assertEquals(4, descending.items().size());
+		assertEquals("004", descending.items().get(0).get("seq").s());
+
+		QueryResponse count = client.query(QueryRequest.builder()
+				.tableName("events")
+				.keyConditionExpression("#stream = :stream")
+				.filterExpression("#even = :yes")
+				.expressionAttributeNames(names("#stream", "stream", "#even", "even"))
+				.expressionAttributeValues(values(":stream", s("s1"), ":yes", AttributeValue.builder().bool(true).build()))
+				.select(Select.COUNT)
+				.build());
+		assertEquals(Integer.valueOf(3), count.count());
+		assertEquals(Integer.valueOf(5), count.scannedCount());
+	}
+
+	@Test
+	public void shouldEndPagesAfterOneMegabyte() {
+		char[] payload = new char[100 * 1024];
+		Arrays.fill(payload, 'x');
+		for (int i = 0; i < 15; i++) {
+			client.putItem(PutItemRequest.builder().tableName("items")
+					.item(item("item" + i, "payload", s(new String(payload)))).build());
+		}
+
+		ScanResponse first = client.scan(ScanRequest.builder().tableName("items").build());
+		assertTrue(first.items().size() < 15);
+		assertNotNull(first.lastEvaluatedKey());
+		assertFalse(first.lastEvaluatedKey().isEmpty());
+
+		ScanResponse second = client.scan(ScanRequest.builder().tableName("items")
+				.exclusiveStartKey(first.lastEvaluatedKey()).build());
+		assertEquals(15, first.items().size() + second.items().size());
+	}
+
+	@Test
+	public void shouldHonourPageSizeLimitOverride() {
+		client.setPageSizeLimit(1);
+		for (int i = 0; i < 3; i++) {
+			client.putItem(PutItemRequest.builder().tableName("items").item(item("item" + i)).build());
+		}
+
+		ScanResponse page = client.scan(ScanRequest.builder().tableName("items").build());
+		assertEquals(1, page.items().size());
+		assertFalse(page.lastEvaluatedKey().isEmpty());
+	}
+
+	@Test
+	public void shouldThrottleSingleItemRequests() {
+		client.setThrottleProbability(1);
+		try {
+			client.putItem(PutItemRequest.builder().tableName("items").item(item("a")).build());
+			fail("Expected the request to be throttled");
+		} catch (ProvisionedThroughputExceededException e) {
+			// expected
+		}
+
+		client.setThrottleProbability(0);
+		assertFalse(client.getItem(GetItemRequest.builder().tableName("items").key(item("a")).build()).hasItem());
+	}
+
+	@Test
+	public void shouldReturnThrottledBatchWritesAsUnprocessed() {
+		client.setThrottleProbability(0.5).setRandomSeed(42);
+		List<WriteRequest> writes = new ArrayList<>();
+		for (int i = 0; i < 25; i++) {
+			writes.add(WriteRequest.builder().putRequest(PutRequest.builder().item(item("item" + i)).build()).build());
+		}
+
+		Map<String, List<WriteRequest>> remaining = Collections.singletonMap("items", writes);
+		int attempts = 0;
+		while (remaining != null && !remaining.isEmpty()) {
+			attempts++;
+			try {
+				BatchWriteItemResponse response = client.batchWriteItem(BatchWriteItemRequest.builder()
+						.requestItems(remaining).build());
+				remaining = response.unprocessedItems();
+			} catch (ProvisionedThroughputExceededException e) {
+				// nothing processed, retry the same writes
+			}
+		}
+
+		assertTrue(attempts > 1);
+		client.setThrottleProbability(0);
+		assertEquals(25, client.scan(ScanRequest.builder().tableName("items").build()).items().size());
+	}
+
+	@Test
+	public void shouldRejectDuplicateKeysInBatchWrite() {
+		WriteRequest write = WriteRequest.builder().putRequest(PutRequest.builder().item(item("a")).build()).build();
+		try {
+			client.batchWriteItem(BatchWriteItemRequest.builder()
+					.requestItems(Collections.singletonMap("items", Arrays.asList(write, write))).build());
+			fail("Expected a validation error");
+		} catch (DynamoDbException e) {
+			assertEquals("ValidationException", e.awsErrorDetails().errorCode());
+		}
+	}
+
+	@Test
+	public void shouldCancelThrottledTransactions() {
+		client.setThrottleProbability(1);
+		try {
+			client.transactWriteItems(TransactWriteItemsRequest.builder().transactItems(
+					TransactWriteItem.builder().put(Put.builder().tableName("items").item(item("a")).build()).build()).build());
+			fail("Expected the transaction to be cancelled");
+		} catch (TransactionCanceledException e) {
+			assertEquals("ThrottlingError", e.cancellationReasons().get(0).code());
+		}
+	}
+
+	@Test
+	public void shouldCancelTransactionWhenOneConditionFails() {
+		client.putItem(PutItemRequest.builder().tableName("items").item(item("taken")).build());
+
+		try {
+			client.transactWriteItems(TransactWriteItemsRequest.builder().transactItems(
+					TransactWriteItem.builder().put(Put.builder().tableName("items").item(item("fresh")).build()).build(),
+					TransactWriteItem.builder().put(Put.builder().tableName("items").item(item("taken"))
+							.conditionExpression("attribute_not_exists(id)").build()).build()).build());
+			fail("Expected the transaction to be cancelled");
+		} catch (TransactionCanceledException e) {
+			assertEquals("None", e.cancellationReasons().get(0).code());
+			assertEquals("ConditionalCheckFailed", e.cancellationReasons().get(1).code());
+		}
+		assertFalse(client.getItem(GetItemRequest.builder().tableName("items").key(item("fresh")).build()).hasItem());
+	}
+
+	private boolean conditionHolds(String condition, Map<String, AttributeValue> values) {
+		Map<String, String> names = names("#checked", "checked");
+		for (String name : new String[]{"n", "s"}) {
+			if (condition.contains("#" + name)) {
+				names.put("#" + name, name);
+			}
+		}
+		try {
+			client.updateItem(UpdateItemRequest.builder()
+					.tableName("items")
+					.key(item("a"))
+					.updateExpression("SET #checked = :true")
+					.conditionExpression(condition)
+					.expressionAttributeNames(names)
+					.expressionAttributeValues(with(values, ":true", AttributeValue.builder().bool(true).build()))
+					.build());
+			return true;
+		} catch (ConditionalCheckFailedException e) {
+			return false;
+		}
+	}
+
+	private Map<String, AttributeValue> get(String tableName, String id) {
+		return client.getItem(GetItemRequest.builder().tableName(tableName).key(item(id)).build()).item();
+	}
+
+	private static Map<String, AttributeValue> item(String id, Object... attributes) {
+		Map<String, AttributeValue> item = new HashMap<>();
+		item.put("id", s(id));
+		for (int i = 0; i < attributes.length; i += 2) {
+			item.put((String) attributes[i], (AttributeValue) attributes[i + 1]);
+		}
+		return item;
+	}
+
+	private static Map<String, String> names(String... names) {
+		Map<String, String> map = new HashMap<>();
+		for (int i = 0; i < names.length; i += 2) {
+			map.put(names[i], names[i + 1]);
+		}
+		return map;
+	}
+
+	private static Map<String, AttributeValue> values(Object... values) {
+		Map<String, AttributeValue> map = new HashMap<>();
+		for (int i = 0; i < values.length; i += 2) {
+			map.put((String) values[i], (AttributeValue) values[i + 1]);
+		}
+		return map;
+	}
+
+	private static Map<String, AttributeValue> with(Map<String, AttributeValue> values, String name, AttributeValue value) {
+		Map<String, AttributeValue> map = new HashMap<>(values);
+		map.put(name, value);
+		return map;
+	}
+
+	private static AttributeValue s(String value) {
+		return AttributeValue.builder().s(value).build();
+	}
+
+	private static AttributeValue n(long value) {
+		return AttributeValue.builder().n(Long.toString(value)).build();
+	}
+
+	private static AttributeValue l(AttributeValue... values) {
+		return AttributeValue.builder().l(values).build();
+	}
+}
@@ -1,22 +1,53 @@
 package com.github.dynamobee;
 
 import com.github.dynamobee.changeset.ChangeEntry;
+import com.github.dynamobee.changeset.ChangeManifest;
+import com.github.dynamobee.changeset.ChangeSet;
+import com.github.dynamobee.dao.DynamobeeAsyncDao;
 import com.github.dynamobee.dao.DynamobeeDao;
 import com.github.dynamobee.exception.DynamobeeChangeSetException;
 import com.github.dynamobee.exception.DynamobeeConfigurationException;
 import com.github.dynamobee.exception.DynamobeeConnectionException;
 import com.github.dynamobee.exception.DynamobeeException;
+import com.github.dynamobee.exception.DynamobeeLockException;
+import com.github.dynamobee.helpers.BatchWriter;
+import com.github.dynamobee.helpers.CapacityLimiter;
+import com.github.dynamobee.helpers.ChangeSetTransaction;
+import com.github.dynamobee.helpers.Checkpoint;
+import com.github.dynamobee.helpers.JsonLoader;
+import com.github.dynamobee.helpers.SegmentLeases;
+import com.github.dynamobee.helpers.TableScanner;
+import com.github.dynamobee.jfr.EventScope;
+import com.github.dynamobee.jfr.MigrationEvents;
+import com.github.dynamobee.metrics.ChangeSetReport;
+import com.github.dynamobee.metrics.MigrationMetrics;
+import com.github.dynamobee.metrics.MigrationReport;
 import com.github.dynamobee.utils.ChangeService;
+import com.github.dynamobee.utils.ChangeSetArguments;
+import com.github.dynamobee.utils.ChangeSetGraph;
+import com.github.dynamobee.utils.ChangeSetInvoker;
+import com.github.dynamobee.utils.PendingChangeSet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.socialsignin.spring.data.dynamodb.core.DynamoDBTemplate;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.core.env.Environment;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
 
 
 /**
@@ -29,13 +60,24 @@ public class Dynamobee implements InitializingBean {
   private static final long DEFAULT_CHANGE_LOG_LOCK_WAIT_TIME = 5L;
   private static final long DEFAULT_CHANGE_LOG_LOCK_POLL_RATE = 10L;
   private static final boolean DEFAULT_THROW_EXCEPTION_IF_CANNOT_OBTAIN_LOCK = false;
+  private static final int DEFAULT_PARALLELISM = 1;
+  private static final int DEFAULT_BATCH_WRITES_IN_FLIGHT = 4;
 
   private DynamobeeDao dao;
 
   private boolean enabled = true;
   private String changeLogsScanPackage;
   private DynamoDbClient dynamoDBClient;
+  private DynamoDbAsyncClient dynamoDBAsyncClient;
   private Environment springEnvironment;
+  private int parallelism = DEFAULT_PARALLELISM;
+  private double migrationCapacityFraction = CapacityLimiter.DEFAULT_CAPACITY_FRACTION;
+  private boolean cooperative = false;
+  private boolean lockless = false;
+  private MigrationMetrics migrationMetrics;
+  private boolean asyncStartup = false;
+  private final CompletableFuture<Void> readiness = new CompletableFuture<>();
+  private final Map<Method, ChangeSetInvoker> changeSetInvokers = new ConcurrentHashMap<>();
 
 
   /**
@@ -60,6 +102,15 @@ public class Dynamobee implements InitializingBean {
     this.setChangelogTableName(changelogTableName);
   }
 
+  /**
+   * Runner sharing its changelog table with other services. The table has to be keyed by a {@code namespace}
+   * partition key and a {@code changeId} sort key; history, lock and manifest of the runner live in the partition
+   * of its namespace, and history is read with a single query.
+   *
+   * @param dynamoDBClient     database connection client
+   * @param changelogTableName name of the shared changelog table
+   * @param partitionKey       namespace of the service, e.g. its name
+   */
   public Dynamobee(DynamoDbClient dynamoDBClient, String changelogTableName, String partitionKey) {
     this.dynamoDBClient = dynamoDBClient;
     this.dao = new DynamobeeDao(
@@ -72,40 +123,182 @@ public class Dynamobee implements InitializingBean {
 
     this.setChangelogTableName(changelogTableName);
   }
+
+  /**
+   * Runner reading history through an asynchronous client: history reads are pipelined with changeset preparation.
+   * Lock handling, saves and changesets declaring a {@link DynamoDbClient} parameter use the blocking client, and
+   * changesets may declare a {@link DynamoDbAsyncClient} parameter as well.
+   *
+   * @param dynamoDBClient      blocking database connection client
+   * @param dynamoDBAsyncClient asynchronous database connection client
+   * @param changelogTableName  name of the changelog table
+   */
+  public Dynamobee(DynamoDbClient dynamoDBClient, DynamoDbAsyncClient dynamoDBAsyncClient, String changelogTableName) {
+    this(dynamoDBClient, dynamoDBAsyncClient, changelogTableName, null);
+  }
+
+  public Dynamobee(DynamoDbClient dynamoDBClient, DynamoDbAsyncClient dynamoDBAsyncClient, String changelogTableName,
+                   String partitionKey) {
+    this.dao = new DynamobeeAsyncDao(
+        dynamoDBAsyncClient,
+        changelogTableName,
+        DEFAULT_WAIT_FOR_LOCK,
+        DEFAULT_CHANGE_LOG_LOCK_WAIT_TIME,
+        DEFAULT_CHANGE_LOG_LOCK_POLL_RATE,
+        DEFAULT_THROW_EXCEPTION_IF_CANNOT_OBTAIN_LOCK,
+        partitionKey);
+    this.dynamoDBClient = dynamoDBClient;
+    this.dynamoDBAsyncClient = dynamoDBAsyncClient;
+
+    this.setChangelogTableName(changelogTableName);
+  }
+
   /**
-   * For Spring users: executing dynamobee after bean is created in the Spring context
+   * For Spring users: executing dynamobee after bean is created in the Spring context,
+   * on a background thread if async startup is set
    *
    * @throws Exception exception
    */
   @Override
   public void afterPropertiesSet() throws Exception {
-    execute();
+    if (!asyncStartup) {
+      execute();
+      return;
+    }
+    executeAsync().whenComplete(new BiConsumer<MigrationReport, Throwable>() {
+      @Override
+      public void accept(MigrationReport report, Throwable failure) {
+        if (failure != null) {
+          logger.error("Dynamobee background migration failed", failure);
+        }
+      }
+    });
+  }
+
+  /**
+   * Executing migration on a background thread of its own, see {@link #executeAsync(Executor)}
+   *
+   * @return future completing with the report once the migration has finished
+   */
+  public CompletableFuture<MigrationReport> executeAsync() {
+    return executeAsync(new Executor() {
+      @Override
+      public void execute(Runnable command) {
+        Thread migration = new Thread(command, "dynamobee-migration");
+        migration.setDaemon(true);
+        migration.start();
+      }
+    });
+  }
+
+  /**
+   * Executing migration on the given executor, so that the caller is not blocked. The migration itself is not
+   * non-blocking: it occupies a thread of the executor until it has finished, so do not pass a pool meant for
+   * short tasks such as the common fork-join pool.
+   *
+   * @param executor executor the migration is offloaded to
+   * @return future completing with the report once the migration has finished
+   */
+  public CompletableFuture<MigrationReport> executeAsync(Executor executor) {
+    final CompletableFuture<MigrationReport> result = new CompletableFuture<>();
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          result.complete(execute());
+        } catch (Throwable e) {
+          result.completeExceptionally(e);
+        }
+      }
+    });
+    return result;
   }
 
   /**
    * Executing migration
    *
+   * @return report of the run, also passed to the {@link MigrationMetrics} if set
    * @throws DynamobeeException exception
    */
-  public void execute() throws DynamobeeException {
+  public MigrationReport execute() throws DynamobeeException {
+    MigrationReport report = new MigrationReport();
+    MigrationReport.Status status = MigrationReport.Status.FAILED;
+    dao.getCallStats().reset();
+    try {
+      status = migrate(report);
+      ready(report);
+      return report;
+    } catch (Throwable e) {
+      readiness.completeExceptionally(e);
+      throw e;
+    } finally {
+      report.complete(status, dao.getCallStats());
+      logger.info("Dynamobee run: " + report);
+      if (migrationMetrics != null) {
+        migrationMetrics.migrationCompleted(report);
+      }
+    }
+  }
+
+  private MigrationReport.Status migrate(MigrationReport report) throws DynamobeeException {
     if (!isEnabled()) {
       logger.info("Dynamobee is disabled. Exiting.");
-      return;
+      return MigrationReport.Status.DISABLED;
     }
 
     validateConfig();
 
+    ChangeService service = new ChangeService(changeLogsScanPackage, springEnvironment);
+    List<Class<?>> changeLogs = service.fetchChangeLogs();
+    ChangeManifest manifest = service.createManifest(changeLogs);
+    validateCooperativeChangeSets(service, changeLogs);
+
+    dao.setDynamoDbClient(this.dynamoDBClient);
+    if (!manifest.hasRunAlwaysChangeSets() && dao.isManifestCurrent(manifest.getDigest())) {
+      logger.info("Dynamobee found all changesets already applied. Exiting.");
+      return MigrationReport.Status.UP_TO_DATE;
+    }
+
     dao.connectDynamoDB(this.dynamoDBClient);
 
-    if (!dao.acquireProcessLock()) {
+    if (lockless) {
+      logger.info("Dynamobee is claiming changesets one by one, starting the data migration sequence..");
+      boolean complete;
+      try {
+        complete = executeMigration(service, changeLogs, report);
+        if (complete) {
+          dao.saveManifest(manifest.getDigest());
+        }
+      } catch (Exception e) {
+        logger.error("Dynamobee migration failed", e);
+        throw e;
+      } finally {
+        dao.stopClaimHeartbeat();
+      }
+      logger.info("Dynamobee has finished his job.");
+      return complete ? MigrationReport.Status.COMPLETED : MigrationReport.Status.INCOMPLETE;
+    }
+
+    if (cooperative && dao.isProccessLockHeld()) {
+      joinCooperativeChangeSets(service, changeLogs);
+    }
+
+    long lockRequestedAt = System.currentTimeMillis();
+    boolean lockAcquired = dao.acquireProcessLock(manifest.getDigest());
+    report.setLockWaitMillis(System.currentTimeMillis() - lockRequestedAt);
+    if (!lockAcquired) {
       logger.info("Dynamobee did not acquire process lock. Exiting.");
-      return;
+      return MigrationReport.Status.LOCK_NOT_ACQUIRED;
     }
 
     logger.info("Dynamobee acquired process lock, starting the data migration sequence..");
 
+    boolean complete;
     try {
-      executeMigration();
+      complete = executeMigration(service, changeLogs, report);
+      if (complete) {
+        dao.saveManifest(manifest.getDigest());
+      }
     } catch (Exception e) {
       logger.error("Dynamobee migration failed", e);
       throw e;
@@ -115,37 +308,431 @@ public class Dynamobee implements InitializingBean {
     }
 
     logger.info("Dynamobee has finished his job.");
+    return complete ? MigrationReport.Status.COMPLETED : MigrationReport.Status.INCOMPLETE;
   }
 
-  private void executeMigration() throws DynamobeeConnectionException, DynamobeeException {
-
-    ChangeService service = new ChangeService(changeLogsScanPackage, springEnvironment);
+  private ChangeSetArguments createChangeSetArguments() {
+    CapacityLimiter capacityLimiter = new CapacityLimiter(
+        this.dynamoDBClient, migrationCapacityFraction, CapacityLimiter.DEFAULT_MAX_CONCURRENCY);
+    ChangeSetArguments arguments = new ChangeSetArguments()
+        .bind(DynamoDbClient.class, this.dynamoDBClient)
+        .bind(CapacityLimiter.class, capacityLimiter)
+        .bind(TableScanner.class, new TableScanner(this.dynamoDBClient, capacityLimiter))
+        .declare(BatchWriter.class)
+        .declare(Checkpoint.class)
+        .declare(ChangeSetTransaction.class)
+        .declare(JsonLoader.class);
+    if (this.dynamoDBAsyncClient != null) {
+      arguments.bind(DynamoDbAsyncClient.class, this.dynamoDBAsyncClient);
+    }
+    return arguments;
+  }
 
-    for (Class<?> changelogClass : service.fetchChangeLogs()) {
+  /**
+   * Helps the lock holder with its cooperative changesets until it releases the lock
+   */
+  private void joinCooperativeChangeSets(ChangeService service, List<Class<?>> changeLogs)
+      throws DynamobeeException {
+    Map<String, Method> cooperativeChangeSets = new HashMap<>();
+    for (Class<?> changelogClass : changeLogs) {
+      for (Method changesetMethod : service.fetchChangeSets(changelogClass)) {
+        ChangeSet changeSet = changesetMethod.getAnnotation(ChangeSet.class);
+        if (changeSet.cooperative()) {
+          cooperativeChangeSets.put(changeSet.id(), changesetMethod);
+        }
+      }
+    }
+    if (cooperativeChangeSets.isEmpty()) {
+      return;
+    }
 
-      Object changelogInstance = null;
+    logger.info("Dynamobee is joining the cooperative changesets of the lock holder.");
+    ChangeSetArguments arguments = createChangeSetArguments();
+    Map<Class<?>, Object> changelogInstances = new HashMap<>();
+    Set<String> joinedRuns = new HashSet<>();
+    DynamobeeDao.CooperativeRun run;
+    while ((run = dao.awaitCooperativeRun(joinedRuns)) != null) {
+      joinedRuns.add(run.getRunId());
+      if (!cooperativeChangeSets.containsKey(run.getChangeId())) {
+        continue;
+      }
       try {
-        changelogInstance = changelogClass.getConstructor().newInstance();
-        List<Method> changesetMethods = service.fetchChangeSets(changelogInstance.getClass());
-
-        for (Method changesetMethod : changesetMethods) {
-          ChangeEntry changeEntry = service.createChangeEntry(changesetMethod);
-
-          try {
-            if (dao.isNewChange(changeEntry)) {
-              executeChangeSetMethod(changesetMethod, changelogInstance, this.dynamoDBClient);
-              dao.save(changeEntry);
-              logger.info(changeEntry + " applied");
-            } else if (service.isRunAlwaysChangeSet(changesetMethod)) {
-              executeChangeSetMethod(changesetMethod, changelogInstance, this.dynamoDBClient);
-              logger.info(changeEntry + " reapplied");
-            } else {
-              logger.info(changeEntry + " passed over");
-            }
-          } catch (DynamobeeChangeSetException e) {
-            logger.error(e.getMessage());
+        joinCooperativeRun(cooperativeChangeSets.get(run.getChangeId()), run, changelogInstances, arguments);
+        logger.info("Dynamobee finished its share of " + run.getChangeId());
+      } catch (DynamobeeException e) {
+        // segments leased to this process are taken over once their lease expired
+        logger.warn("Dynamobee failed its share of " + run.getChangeId(), e);
+      }
+    }
+  }
+
+  /**
+   * Joining processes only get a leased {@link TableScanner}, a {@link BatchWriter} and a {@link CapacityLimiter},
+   * so cooperative changesets may not declare other parameters
+   */
+  private void validateCooperativeChangeSets(ChangeService service, List<Class<?>> changeLogs)
+      throws DynamobeeChangeSetException {
+    for (Class<?> changelogClass : changeLogs) {
+      for (Method changesetMethod : service.fetchChangeSets(changelogClass)) {
+        ChangeSet changeSet = changesetMethod.getAnnotation(ChangeSet.class);
+        if (!changeSet.cooperative()) {
+          continue;
+        }
+        for (Class<?> parameterType : changesetMethod.getParameterTypes()) {
+          if (parameterType != TableScanner.class && parameterType != BatchWriter.class
+              && parameterType != CapacityLimiter.class) {
+            throw new DynamobeeChangeSetException(String.format(
+                "ChangeSet '%s' is cooperative and may only take TableScanner, BatchWriter and CapacityLimiter "
+                    + "parameters, not %s", changeSet.id(), parameterType.getSimpleName()));
           }
         }
+      }
+    }
+  }
+
+  private void joinCooperativeRun(Method changesetMethod, DynamobeeDao.CooperativeRun run,
+                                  Map<Class<?>, Object> changelogInstances, ChangeSetArguments arguments)
+      throws DynamobeeException {
+    try {
+      Object changelogInstance = getChangelogInstance(changesetMethod.getDeclaringClass(), changelogInstances);
+      ChangeSetInvoker invoker = getChangeSetInvoker(changesetMethod, arguments);
+      BatchWriter batchWriter = invoker.accepts(BatchWriter.class)
+          ? new BatchWriter(this.dynamoDBClient,
+              (CapacityLimiter) arguments.get(CapacityLimiter.class), DEFAULT_BATCH_WRITES_IN_FLIGHT)
+          : null;
+      SegmentLeases segmentLeases = new SegmentLeases(dao, run, batchWriter, false);
+      try {
+        // progress of the segments is kept on their leases, joining processes get no checkpoint
+        invoker.invoke(changelogInstance, arguments.copy()
+            .bind(TableScanner.class, new TableScanner(this.dynamoDBClient,
+                (CapacityLimiter) arguments.get(CapacityLimiter.class), segmentLeases))
+            .bind(BatchWriter.class, batchWriter));
+        if (batchWriter != null) {
+          batchWriter.flush();
+        }
+      } finally {
+        segmentLeases.stop();
+        if (batchWriter != null) {
+          batchWriter.close();
+        }
+      }
+    } catch (DynamobeeChangeSetException e) {
+      throw e;
+    } catch (IllegalAccessException e) {
+      throw new DynamobeeException(e.getMessage(), e);
+    } catch (InvocationTargetException e) {
+      Throwable targetException = e.getTargetException();
+      throw new DynamobeeException(targetException.getMessage(), e);
+    }
+  }
+
+  /**
+   * @return true if every changeset has been applied, false if some were skipped because of errors
+   */
+  private boolean executeMigration(ChangeService service, List<Class<?>> changeLogs,
+                                   final MigrationReport report) throws DynamobeeConnectionException, DynamobeeException {
+
+    final ChangeSetArguments arguments = createChangeSetArguments();
+
+    CompletableFuture<Void> historySnapshot = dao.isHistorySnapshot()
+        ? dao.loadHistorySnapshotAsync()
+        : CompletableFuture.<Void>completedFuture(null);
+
+    // prepare changesets while the history is read
+    List<Method> changesetMethods = new ArrayList<>();
+    List<ChangeEntry> changeEntries = new ArrayList<>();
+    for (Class<?> changelogClass : changeLogs) {
+      for (Method changesetMethod : service.fetchChangeSets(changelogClass)) {
+        changesetMethods.add(changesetMethod);
+        changeEntries.add(service.createChangeEntry(changesetMethod));
+      }
+    }
+    await(historySnapshot);
+
+    List<CompletableFuture<Boolean>> newChanges = new ArrayList<>();
+    for (ChangeEntry changeEntry : changeEntries) {
+      newChanges.add(dao.isNewChangeAsync(changeEntry));
+    }
+
+    // decide what is pending before paying for any changelog constructor
+    List<PendingChangeSet> pendingChangeSets = new ArrayList<>();
+    Set<String> knownChangeIds = new HashSet<>();
+    for (int i = 0; i < changesetMethods.size(); i++) {
+      Method changesetMethod = changesetMethods.get(i);
+      ChangeEntry changeEntry = changeEntries.get(i);
+      knownChangeIds.add(changeEntry.getChangeId());
+
+      Duration runEvery = service.getRunEvery(changesetMethod);
+      if (await(newChanges.get(i))) {
+        pendingChangeSets.add(new PendingChangeSet(changesetMethod, changeEntry, true));
+      } else if (runEvery != null && dao.isRunDue(changeEntry, runEvery.toMillis())) {
+        logger.info(changeEntry + " is due to run again");
+        pendingChangeSets.add(new PendingChangeSet(changesetMethod, changeEntry, false, runEvery));
+      } else if (runEvery == null && service.isRunAlwaysChangeSet(changesetMethod)) {
+        pendingChangeSets.add(new PendingChangeSet(changesetMethod, changeEntry, false));
+      } else if (changeEntry.getChecksum() != null && dao.isChangedChange(changeEntry)) {
+        logger.info(changeEntry + " changed since it was applied");
+        pendingChangeSets.add(new PendingChangeSet(changesetMethod, changeEntry, false));
+      } else {
+        logger.info(changeEntry + " passed over");
+        changeSetCompleted(report, changeEntry, ChangeSetReport.Outcome.SKIPPED, 0L, EventScope.NONE);
+      }
+    }
+
+    ChangeSetGraph graph = ChangeSetGraph.build(pendingChangeSets, knownChangeIds);
+    Map<Class<?>, Object> changelogInstances = new HashMap<>();
+    List<PendingChangeSet> beforeReady = graph.getBeforeReady();
+    if (beforeReady.size() == pendingChangeSets.size()) {
+      return applyChangeSets(graph, changelogInstances, arguments, report);
+    }
+
+    // changesets needed before readiness and their dependencies first, the others once the runner is ready
+    List<PendingChangeSet> afterReady = new ArrayList<>(pendingChangeSets);
+    afterReady.removeAll(beforeReady);
+    boolean complete = applyChangeSets(ChangeSetGraph.build(beforeReady, knownChangeIds), changelogInstances,
+        arguments, report);
+    logger.info("Dynamobee is ready, " + afterReady.size() + " changesets left to apply");
+    ready(report);
+    complete &= applyChangeSets(ChangeSetGraph.build(afterReady, knownChangeIds), changelogInstances, arguments,
+        report);
+    return complete;
+  }
+
+  /**
+   * @return true if every changeset of the graph has been applied, false if some were skipped because of errors
+   */
+  private boolean applyChangeSets(ChangeSetGraph graph, final Map<Class<?>, Object> changelogInstances,
+                                  final ChangeSetArguments arguments, final MigrationReport report)
+      throws DynamobeeException {
+    if (parallelism > 1) {
+      return graph.execute(parallelism, new ChangeSetGraph.ChangeSetTask() {
+        @Override
+        public boolean apply(PendingChangeSet changeSet) throws DynamobeeException {
+          return applyChangeSet(changeSet, changelogInstances, arguments, report);
+        }
+      });
+    }
+
+    boolean complete = true;
+    for (PendingChangeSet changeSet : graph.getChangeSets()) {
+      complete &= applyChangeSet(changeSet, changelogInstances, arguments, report);
+    }
+    return complete;
+  }
+
+  /**
+   * Opens the readiness gate, once every changeset needed before readiness has been applied
+   */
+  private void ready(MigrationReport report) {
+    report.ready();
+    readiness.complete(null);
+  }
+
+  /**
+   * @return true if the changeset has been applied, false if it has been skipped because of errors
+   */
+  private boolean applyChangeSet(PendingChangeSet changeSet, Map<Class<?>, Object> changelogInstances,
+                                 ChangeSetArguments arguments, MigrationReport report) throws DynamobeeException {
+    ChangeEntry changeEntry = changeSet.getChangeEntry();
+    long startedAt = System.currentTimeMillis();
+    EventScope event = MigrationEvents.changeSetExecution(changeEntry);
+    boolean claimed = false;
+    boolean reapplicationClaimed = false;
+    boolean completed = false;
+    long runClaimedAt = 0L;
+    if (!lockless) {
+      dao.ensureProcessLockHeld();
+    }
+    if (changeSet.getRunEvery() != null) {
+      runClaimedAt = System.currentTimeMillis();
+      if (!dao.claimRun(changeEntry, runClaimedAt, changeSet.getRunEvery().toMillis())) {
+        logger.info(changeEntry + " run by another process");
+        changeSetCompleted(report, changeEntry, ChangeSetReport.Outcome.APPLIED_ELSEWHERE,
+            System.currentTimeMillis() - startedAt, event);
+        return true;
+      }
+    } else if (lockless && changeSet.isNewChange()) {
+      if (!claimChangeSet(changeEntry, event)) {
+        logger.info(changeEntry + " applied by another process");
+        changeSetCompleted(report, changeEntry, ChangeSetReport.Outcome.APPLIED_ELSEWHERE,
+            System.currentTimeMillis() - startedAt, event);
+        return true;
+      }
+      claimed = true;
+    } else if (lockless && changeEntry.getChecksum() != null && !changeSet.getAnnotation().runAlways()) {
+      if (!claimReapplication(changeEntry, event)) {
+        logger.info(changeEntry + " reapplied by another process");
+        changeSetCompleted(report, changeEntry, ChangeSetReport.Outcome.APPLIED_ELSEWHERE,
+            System.currentTimeMillis() - startedAt, event);
+        return true;
+      }
+      reapplicationClaimed = true;
+    }
+
+    try {
+      Object changelogInstance = getChangelogInstance(changeSet.getChangeLogClass(), changelogInstances);
+      ChangeSetInvoker invoker = getChangeSetInvoker(changeSet.getMethod(), arguments);
+      BatchWriter batchWriter = invoker.accepts(BatchWriter.class) || invoker.accepts(Checkpoint.class)
+          || invoker.accepts(JsonLoader.class)
+          ? new BatchWriter(this.dynamoDBClient,
+              (CapacityLimiter) arguments.get(CapacityLimiter.class), DEFAULT_BATCH_WRITES_IN_FLIGHT)
+          : null;
+      Checkpoint checkpoint = invoker.accepts(Checkpoint.class)
+          ? new Checkpoint(dao, changeEntry.getChangeId(), batchWriter, Checkpoint.DEFAULT_PERSIST_INTERVAL)
+          : null;
+      ChangeSetTransaction transaction = invoker.accepts(ChangeSetTransaction.class) ? new ChangeSetTransaction() : null;
+      ChangeSetArguments changeSetArguments = arguments.copy()
+          .bind(BatchWriter.class, batchWriter)
+          .bind(Checkpoint.class, checkpoint)
+          .bind(ChangeSetTransaction.class, transaction)
+          .bind(JsonLoader.class, invoker.accepts(JsonLoader.class) ? new JsonLoader(batchWriter) : null);
+      DynamobeeDao.CooperativeRun cooperativeRun = null;
+      SegmentLeases segmentLeases = null;
+      if (changeSet.getAnnotation().cooperative()) {
+        cooperativeRun = dao.startCooperativeRun(changeEntry.getChangeId());
+        segmentLeases = new SegmentLeases(dao, cooperativeRun, batchWriter, true);
+        changeSetArguments.bind(TableScanner.class, new TableScanner(this.dynamoDBClient,
+            (CapacityLimiter) arguments.get(CapacityLimiter.class), segmentLeases));
+      }
+      try {
+        invoker.invoke(changelogInstance, changeSetArguments);
+        if (batchWriter != null) {
+          batchWriter.flush();
+        }
+      } finally {
+        if (segmentLeases != null) {
+          segmentLeases.stop();
+        }
+        if (batchWriter != null) {
+          batchWriter.close();
+        }
+      }
+      ChangeSetReport.Outcome outcome = ChangeSetReport.Outcome.APPLIED;
+      if (claimed || reapplicationClaimed) {
+        dao.ensureChangeSetClaimHeld(changeEntry);
+      }
+      if (claimed) {
+        record(changeEntry, transaction, DynamobeeDao.EntryWrite.COMPLETE);
+        logger.info(changeEntry + " applied");
+      } else if (reapplicationClaimed) {
+        record(changeEntry, transaction, DynamobeeDao.EntryWrite.COMPLETE_REAPPLICATION);
+        outcome = ChangeSetReport.Outcome.REAPPLIED;
+        logger.info(changeEntry + " reapplied");
+      } else if (changeSet.isNewChange()) {
+        record(changeEntry, transaction, DynamobeeDao.EntryWrite.SAVE);
+        logger.info(changeEntry + " applied");
+      } else {
+        record(changeEntry, transaction, changeEntry.getChecksum() != null
+            ? DynamobeeDao.EntryWrite.CHECKSUM : DynamobeeDao.EntryWrite.NONE);
+        outcome = ChangeSetReport.Outcome.REAPPLIED;
+        logger.info(changeEntry + " reapplied");
+      }
+      if (checkpoint != null) {
+        dao.deleteCheckpoint(changeEntry.getChangeId());
+      }
+      if (cooperativeRun != null) {
+        dao.finishCooperativeRun(cooperativeRun);
+        segmentLeases.clear();
+      }
+      completed = true;
+      changeSetCompleted(report, changeEntry, outcome, System.currentTimeMillis() - startedAt, event);
+      return true;
+    } catch (DynamobeeChangeSetException e) {
+      logger.error(e.getMessage());
+      return false;
+    } catch (IllegalAccessException e) {
+      throw new DynamobeeException(e.getMessage(), e);
+    } catch (InvocationTargetException e) {
+      Throwable targetException = e.getTargetException();
+      throw new DynamobeeException(targetException.getMessage(), e);
+    } finally {
+      if (!completed) {
+        changeSetCompleted(report, changeEntry, ChangeSetReport.Outcome.FAILED, System.currentTimeMillis() - startedAt,
+            event);
+      }
+      if (claimed && !completed) {
+        dao.releaseChangeSet(changeEntry);
+      }
+      if (reapplicationClaimed && !completed) {
+        dao.releaseReapplication(changeEntry);
+      }
+      if (runClaimedAt > 0 && !completed) {
+        dao.releaseRun(changeEntry, runClaimedAt);
+      }
+    }
+  }
+
+  /**
+   * Records an applied changeset, in one transaction with the writes it collected if any
+   */
+  private void record(ChangeEntry changeEntry, ChangeSetTransaction transaction, DynamobeeDao.EntryWrite entryWrite)
+      throws DynamobeeException {
+    if (transaction != null && !transaction.isEmpty()) {
+      dao.commitChangeSet(changeEntry, transaction.getWrites(), entryWrite);
+    } else if (entryWrite == DynamobeeDao.EntryWrite.COMPLETE) {
+      dao.completeChangeSet(changeEntry);
+    } else if (entryWrite == DynamobeeDao.EntryWrite.COMPLETE_REAPPLICATION) {
+      dao.completeReapplication(changeEntry);
+    } else if (entryWrite == DynamobeeDao.EntryWrite.SAVE) {
+      dao.save(changeEntry);
+    } else if (entryWrite == DynamobeeDao.EntryWrite.CHECKSUM) {
+      dao.saveChecksum(changeEntry);
+    }
+  }
+
+  private void changeSetCompleted(MigrationReport report, ChangeEntry changeEntry, ChangeSetReport.Outcome outcome,
+                                  long durationMillis, EventScope event) {
+    event.result(outcome.name()).commit();
+    ChangeSetReport changeSetReport = new ChangeSetReport(changeEntry.getChangeId(), outcome, durationMillis);
+    report.addChangeSet(changeSetReport);
+    if (migrationMetrics != null) {
+      migrationMetrics.changeSetCompleted(changeSetReport);
+    }
+  }
+
+  /**
+   * Claims a changeset, waiting while another process applies it
+   *
+   * @return true if the changeset has been claimed, false if another process has applied it
+   */
+  private boolean claimChangeSet(ChangeEntry changeEntry, EventScope event) throws DynamobeeLockException {
+    while (true) {
+      event.attempt();
+      if (dao.claimChangeSet(changeEntry)) {
+        return true;
+      }
+      if (dao.awaitChangeSet(changeEntry)) {
+        return false;
+      }
+    }
+  }
+
+  /**
+   * Claims the re-execution of a changed runOnChange changeset, waiting while another process re-executes it
+   *
+   * @return true if the re-execution has been claimed, false if another process has applied the same checksum
+   */
+  private boolean claimReapplication(ChangeEntry changeEntry, EventScope event) throws DynamobeeLockException {
+    while (true) {
+      event.attempt();
+      if (dao.claimReapplication(changeEntry)) {
+        return true;
+      }
+      if (dao.awaitChangeSet(changeEntry, true)) {
+        return false;
+      }
+    }
+  }
+
+  private Object getChangelogInstance(Class<?> changelogClass, Map<Class<?>, Object> changelogInstances)
+      throws DynamobeeException {
+    synchronized (changelogInstances) {
+      Object changelogInstance = changelogInstances.get(changelogClass);
+      if (changelogInstance != null) {
+        return changelogInstance;
+      }
+      try {
+        changelogInstance = changelogClass.getConstructor().newInstance();
       } catch (NoSuchMethodException e) {
         throw new DynamobeeException(e.getMessage(), e);
       } catch (IllegalAccessException e) {
@@ -156,33 +743,36 @@ public class Dynamobee implements InitializingBean {
       } catch (InstantiationException e) {
         throw new DynamobeeException(e.getMessage(), e);
       }
-
+      changelogInstances.put(changelogClass, changelogInstance);
+      return changelogInstance;
     }
   }
 
-  private Object executeChangeSetMethod(Method changeSetMethod, Object changeLogInstance, DynamoDbClient db)
-      throws IllegalAccessException, InvocationTargetException, DynamobeeChangeSetException {
-    if (changeSetMethod.getParameterTypes().length == 1
-        && changeSetMethod.getParameterTypes()[0].equals(DynamoDbClient.class)) {
-      logger.debug("method with DynamoDB argument");
-
-      return changeSetMethod.invoke(changeLogInstance, db);
-
-    } else if (changeSetMethod.getParameterTypes().length == 1
-        && changeSetMethod.getParameterTypes()[0].equals(DynamoDbClient.class)) {
-      logger.debug("method with AmazonDynamoDB argument");
-
-      return changeSetMethod.invoke(changeLogInstance, dynamoDBClient);
-
-    } else if (changeSetMethod.getParameterTypes().length == 0) {
-      logger.debug("method with no params");
-
-      return changeSetMethod.invoke(changeLogInstance);
+  private static <T> T await(CompletableFuture<T> future) throws DynamobeeException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new DynamobeeException("Interrupted while waiting for DynamoDB", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof DynamobeeException) {
+        throw (DynamobeeException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new DynamobeeException(cause.getMessage(), cause);
+    }
+  }
 
-    } else {
-      throw new DynamobeeChangeSetException("ChangeSet method " + changeSetMethod.getName() +
-          " has wrong arguments list. Please see docs for more info!");
+  private ChangeSetInvoker getChangeSetInvoker(Method changeSetMethod, ChangeSetArguments arguments)
+      throws IllegalAccessException, DynamobeeChangeSetException {
+    ChangeSetInvoker invoker = changeSetInvokers.get(changeSetMethod);
+    if (invoker == null) {
+      invoker = ChangeSetInvoker.compile(changeSetMethod, arguments.types());
+      changeSetInvokers.put(changeSetMethod, invoker);
     }
+    return invoker;
   }
 
   private void validateConfig() throws DynamobeeConfigurationException {
@@ -191,6 +781,24 @@ public class Dynamobee implements InitializingBean {
     }
   }
 
+  /**
+   * Readiness gate for health checks. It completes once the first run has applied the changesets not marked
+   * {@link ChangeSet#afterReady()}, or has ended without applying any. It completes exceptionally if the run
+   * failed before.
+   *
+   * @return future completing when the application may serve
+   */
+  public CompletableFuture<Void> getReadiness() {
+    return readiness;
+  }
+
+  /**
+   * @return true once the readiness gate is open
+   */
+  public boolean isReady() {
+    return readiness.isDone() && !readiness.isCompletedExceptionally();
+  }
+
   /**
    * @return true if an execution is in progress, in any process.
    * @throws DynamobeeConnectionException exception
@@ -199,6 +807,19 @@ public class Dynamobee implements InitializingBean {
     return dao.isProccessLockHeld();
   }
 
+  /**
+   * Feature which makes {@link #afterPropertiesSet()} start the migration on a background thread and return
+   * immediately, so that a long migration does not hold back the Spring context. Health checks observe
+   * {@link #getReadiness()} instead.
+   *
+   * @param asyncStartup true to migrate in the background
+   * @return Dynamobee object for fluent interface
+   */
+  public Dynamobee setAsyncStartup(boolean asyncStartup) {
+    this.asyncStartup = asyncStartup;
+    return this;
+  }
+
   /**
    * Package name where @ChangeLog-annotated classes are kept.
    *
@@ -239,6 +860,19 @@ public class Dynamobee implements InitializingBean {
     return this;
   }
 
+  /**
+   * Feature which enables/disables waiting for the lock holder to complete instead of waiting for the lock.
+   * Processes that lose the lock watch the lock item and, once it is released, return without taking the lock if
+   * the holder has stored the manifest of the same changesets.
+   *
+   * @param waitForCompletion Dynamobee will wait for another process to complete the migration if this option is set to true
+   * @return Dynamobee object for fluent interface
+   */
+  public Dynamobee setWaitForCompletion(boolean waitForCompletion) {
+    this.dao.setWaitForCompletion(waitForCompletion);
+    return this;
+  }
+
   /**
    * Waiting time for acquiring lock if waitForLock is true
    *
@@ -261,6 +895,18 @@ public class Dynamobee implements InitializingBean {
     return this;
   }
 
+  /**
+   * Lease duration of the process lock. The lease is renewed while the migration runs;
+   * other processes may take the lock over once it has expired, e.g. after a crash.
+   *
+   * @param lockLeaseDuration Lease duration in seconds
+   * @return Dynamobee object for fluent interface
+   */
+  public Dynamobee setLockLeaseDuration(long lockLeaseDuration) {
+    this.dao.setLockLeaseDuration(lockLeaseDuration);
+    return this;
+  }
+
   /**
    * Feature which enables/disables throwing DynamobeeLockException if Dynamobee can not obtain lock
    *
@@ -272,6 +918,78 @@ public class Dynamobee implements InitializingBean {
     return this;
   }
 
+  /**
+   * Maximum number of changesets applied at the same time. Changesets are only applied in parallel
+   * if they declare the tables they touch or the changesets they depend on, see {@link com.github.dynamobee.changeset.ChangeSet#tables()}.
+   *
+   * @param parallelism number of changesets applied concurrently, 1 applies them one after another
+   * @return Dynamobee object for fluent interface
+   */
+  public Dynamobee setParallelism(int parallelism) {
+    this.parallelism = parallelism;
+    return this;
+  }
+
+  /**
+   * Share of a table's provisioned capacity that TableScanner, BatchWriter and CapacityLimiter may use
+   *
+   * @param migrationCapacityFraction fraction between 0 and 1, 0 only limits concurrency on throttling
+   * @return Dynamobee object for fluent interface
+   */
+  public Dynamobee setMigrationCapacityFraction(double migrationCapacityFraction) {
+    this.migrationCapacityFraction = migrationCapacityFraction;
+    return this;
+  }
+
+  /**
+   * Feature which replaces the process lock with claims of single changesets
+   *
+   * @param lockless Dynamobee will claim each changeset by writing its entry with a RUNNING status,
+   *                 so that processes sharing the changelog table apply different changesets at the same time,
+   *                 if this option is set to true. A process reaching a changeset claimed by another one waits
+   *                 until it has been applied, so the declared order still holds.
+   * @return Dynamobee object for fluent interface
+   */
+  public Dynamobee setLockless(boolean lockless) {
+    this.lockless = lockless;
+    return this;
+  }
+
+  /**
+   * Feature which lets processes that did not get the lock help with cooperative changesets
+   *
+   * @param cooperative Dynamobee will scan segments of the lock holder's cooperative changesets
+   *                    until the lock is released if this option is set to true
+   * @return Dynamobee object for fluent interface
+   */
+  public Dynamobee setCooperative(boolean cooperative) {
+    this.cooperative = cooperative;
+    return this;
+  }
+
+  /**
+   * Receiver of the outcome of every changeset and the report of every run
+   *
+   * @param migrationMetrics e.g. a {@link com.github.dynamobee.metrics.MicrometerMigrationMetrics}, null to publish nothing
+   * @return Dynamobee object for fluent interface
+   */
+  public Dynamobee setMigrationMetrics(MigrationMetrics migrationMetrics) {
+    this.migrationMetrics = migrationMetrics;
+    return this;
+  }
+
+  /**
+   * Feature which enables/disables reading the whole changelog history up front
+   *
+   * @param historySnapshot Dynamobee will load all applied changeset ids with a single paginated scan
+   *                        instead of looking each changeset up separately if this option is set to true
+   * @return Dynamobee object for fluent interface
+   */
+  public Dynamobee setHistorySnapshot(boolean historySnapshot) {
+    this.dao.setHistorySnapshot(historySnapshot);
+    return this;
+  }
+
   /**
    * Set Environment object for Spring Profiles (@Profile) integration
    *
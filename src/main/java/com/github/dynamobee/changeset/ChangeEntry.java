@@ -19,19 +19,30 @@ public class ChangeEntry {
 	public static final String KEY_TIMESTAMP = "timestamp";
 	public static final String KEY_CHANGELOGCLASS = "changeLogClass";
 	public static final String KEY_CHANGESETMETHOD = "changeSetMethod";
+	public static final String KEY_CHECKSUM = "checksum";
 
 	private String changeId;
 	private String author;
 	private Date timestamp;
 	private String changeLogClass;
 	private String changeSetMethodName;
+	private String checksum;
 
 	public ChangeEntry(String changeId, String author, Date timestamp, String changeLogClass, String changeSetMethodName) {
+		this(changeId, author, timestamp, changeLogClass, changeSetMethodName, null);
+	}
+
+	/**
+	 * @param checksum checksum of a runOnChange changeset, null for other changesets
+	 */
+	public ChangeEntry(String changeId, String author, Date timestamp, String changeLogClass, String changeSetMethodName,
+			String checksum) {
 		this.changeId = changeId;
 		this.author = author;
 		this.timestamp = new Date(timestamp.getTime());
 		this.changeLogClass = changeLogClass;
 		this.changeSetMethodName = changeSetMethodName;
+		this.checksum = checksum;
 	}
 
 	public HashMap<String, AttributeValue> buildFullDBObject() {
@@ -41,6 +52,9 @@ public class ChangeEntry {
     item.put(KEY_TIMESTAMP, AttributeValue.builder().s(Long.toString(this.timestamp.getTime())).build());
     item.put(KEY_CHANGELOGCLASS, AttributeValue.builder().s(this.changeLogClass).build());
 		item.put(KEY_CHANGESETMETHOD, AttributeValue.builder().s(this.changeSetMethodName).build());
+		if (this.checksum != null) {
+			item.put(KEY_CHECKSUM, AttributeValue.builder().s(this.checksum).build());
+		}
 		return item;
 	}
 
@@ -79,4 +93,8 @@ public class ChangeEntry {
 		return this.changeSetMethodName;
 	}
 
+	public String getChecksum() {
+		return this.checksum;
+	}
+
 }
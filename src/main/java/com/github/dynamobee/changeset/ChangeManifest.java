@@ -0,0 +1,33 @@
+package com.github.dynamobee.changeset;
+
+/**
+ * Digest over the ordered ids of all changesets known to a runner, stored in the changelog table after
+ * every successful migration so that an unchanged set of changesets can be recognised with a single read.
+ * Type: value class.
+ */
+public class ChangeManifest {
+	private final String digest;
+	private final boolean runAlways;
+
+	public ChangeManifest(String digest, boolean runAlways) {
+		this.digest = digest;
+		this.runAlways = runAlways;
+	}
+
+	public String getDigest() {
+		return this.digest;
+	}
+
+	/**
+	 * @return true if at least one of the changesets has to be considered on every execution: runAlways and runEvery
+	 * changesets
+	 */
+	public boolean hasRunAlwaysChangeSets() {
+		return this.runAlways;
+	}
+
+	@Override
+	public String toString() {
+		return "[ChangeManifest: digest=" + this.digest + ", runAlways=" + this.runAlways + "]";
+	}
+}
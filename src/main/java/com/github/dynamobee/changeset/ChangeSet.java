@@ -44,10 +44,73 @@ public @interface ChangeSet {
 	 * @return should run always?
 	 */
 	public boolean runAlways() default false;
-//
-//  /**
-//   * Executes the change the first time it is seen and each time the change set has been changed. <br/>
-//   * Optional (default is false)
-//   */
-//  public boolean runOnChange() default false;
+
+	/**
+	 * Executes the change set again once this interval has elapsed since its last run, given as an ISO-8601
+	 * duration such as "PT6H". Only one process performs each due run. Takes precedence over {@link #runAlways()}.
+	 * Optional (default is none)
+	 *
+	 * @return interval between runs
+	 */
+	public String runEvery() default "";
+
+	/**
+	 * Ids of changesets that have to be applied before this one. They must be ordered before this changeset.
+	 * Optional
+	 *
+	 * @return ids of changesets this one depends on
+	 */
+	public String[] dependsOn() default {};
+
+	/**
+	 * Tables touched by the changeset.
+	 * A changeset declaring tables or dependencies only waits for its dependencies and for earlier changesets
+	 * sharing one of its tables, so the runner may apply it in parallel with others. A changeset declaring neither
+	 * waits for every changeset before it, and every changeset after it waits for it.
+	 * Optional
+	 *
+	 * @return names of the tables touched by the changeset
+	 */
+	public String[] tables() default {};
+
+	/**
+	 * Lets processes that did not get the lock help with the changeset: the segments of its
+	 * {@link com.github.dynamobee.helpers.TableScanner} scans are leased to every process running it.
+	 * The changeset is invoked on each of them, so it should only do scan work, and it may only take
+	 * {@code TableScanner}, {@code BatchWriter} and {@code CapacityLimiter} parameters.
+	 * Optional (default is false)
+	 *
+	 * @return may other processes share the changeset's scans?
+	 */
+	public boolean cooperative() default false;
+
+	/**
+	 * Lets the runner report readiness before the changeset has been applied: it runs after the other changesets,
+	 * unless one of them depends on it. Declare its tables or dependencies, or order it last, so that it does not
+	 * hold back the changesets after it.
+	 * Optional (default is false)
+	 *
+	 * @return may the changeset run after the runner is ready?
+	 */
+	public boolean afterReady() default false;
+
+	/**
+	 * Executes the change the first time it is seen and each time the change set has been changed, as told by a
+	 * checksum of the method's bytecode and of its {@link #checksumResources()}.
+	 * Recompiling the changelog with a different compiler can change the bytecode of an unchanged method, the
+	 * changeset then runs once more.
+	 * Optional (default is false)
+	 *
+	 * @return should run on change?
+	 */
+	public boolean runOnChange() default false;
+
+	/**
+	 * Classpath resources read by a {@link #runOnChange()} changeset, such as reference data files.
+	 * Changing one of them re-executes the changeset.
+	 * Optional
+	 *
+	 * @return resource names, resolved by the class loader of the changelog
+	 */
+	public String[] checksumResources() default {};
 }
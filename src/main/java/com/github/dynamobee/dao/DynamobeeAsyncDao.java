@@ -0,0 +1,138 @@
+package com.github.dynamobee.dao;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import com.github.dynamobee.changeset.ChangeEntry;
+import com.github.dynamobee.jfr.EventScope;
+import com.github.dynamobee.jfr.MigrationEvents;
+import com.github.dynamobee.metrics.MigrationPhase;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbResponse;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+
+
+/**
+ * {@link DynamobeeDao} reading history through a {@link DynamoDbAsyncClient}. History reads are issued without blocking
+ * a thread, so they can be pipelined with changeset preparation; lock handling and saves go through the blocking client
+ * set with {@link #setDynamoDbClient(software.amazon.awssdk.services.dynamodb.DynamoDbClient)}.
+ */
+public class DynamobeeAsyncDao extends DynamobeeDao {
+	private final DynamoDbAsyncClient asyncClient;
+
+	public DynamobeeAsyncDao(DynamoDbAsyncClient asyncClient, String dynamobeeTableName, boolean waitForLock,
+			long changeLogLockWaitTime, long changeLogLockPollRate, boolean throwExceptionIfCannotObtainLock) {
+		this(asyncClient, dynamobeeTableName, waitForLock, changeLogLockWaitTime, changeLogLockPollRate,
+				throwExceptionIfCannotObtainLock, null);
+	}
+
+	public DynamobeeAsyncDao(DynamoDbAsyncClient asyncClient, String dynamobeeTableName, boolean waitForLock,
+			long changeLogLockWaitTime, long changeLogLockPollRate, boolean throwExceptionIfCannotObtainLock,
+			String partitionKey) {
+		super(dynamobeeTableName, waitForLock, changeLogLockWaitTime, changeLogLockPollRate,
+				throwExceptionIfCannotObtainLock, partitionKey);
+		this.asyncClient = asyncClient;
+	}
+
+	public DynamoDbAsyncClient getAsyncClient() {
+		return asyncClient;
+	}
+
+	@Override
+	public CompletableFuture<Void> loadHistorySnapshotAsync() {
+		final Set<String> changeIds = ConcurrentHashMap.newKeySet();
+		final Map<String, String> checksums = new ConcurrentHashMap<>();
+		final EventScope event = MigrationEvents.historyLookup(getChangelogTableName(), null);
+		return readHistory(null, changeIds, checksums, event).whenComplete(new BiConsumer<Void, Throwable>() {
+			@Override
+			public void accept(Void ignored, Throwable failure) {
+				event.count(changeIds.size()).result(failure == null ? "snapshot" : "failed").commit();
+			}
+		}).thenAccept(new Consumer<Void>() {
+			@Override
+			public void accept(Void ignored) {
+				installHistorySnapshot(changeIds, checksums);
+			}
+		});
+	}
+
+	private CompletableFuture<Void> readHistory(Map<String, AttributeValue> exclusiveStartKey, final Set<String> changeIds,
+			final Map<String, String> checksums, final EventScope event) {
+		if (isNamespaced()) {
+			getCallStats().called(MigrationPhase.HISTORY);
+			return asyncClient.query(historyQueryRequest(exclusiveStartKey).toBuilder()
+					.returnConsumedCapacity(ReturnConsumedCapacity.TOTAL).build())
+					.thenCompose(new Function<QueryResponse, CompletableFuture<Void>>() {
+						@Override
+						public CompletableFuture<Void> apply(QueryResponse response) {
+							getCallStats().consumed(MigrationPhase.HISTORY, response.consumedCapacity());
+							requestId(event, response);
+							return nextHistoryPage(response.items(), response.lastEvaluatedKey(), changeIds, checksums, event);
+						}
+					});
+		}
+		getCallStats().called(MigrationPhase.HISTORY);
+		return asyncClient.scan(historySnapshotRequest(exclusiveStartKey).toBuilder()
+				.returnConsumedCapacity(ReturnConsumedCapacity.TOTAL).build())
+				.thenCompose(new Function<ScanResponse, CompletableFuture<Void>>() {
+					@Override
+					public CompletableFuture<Void> apply(ScanResponse response) {
+						getCallStats().consumed(MigrationPhase.HISTORY, response.consumedCapacity());
+						requestId(event, response);
+						return nextHistoryPage(response.items(), response.lastEvaluatedKey(), changeIds, checksums, event);
+					}
+				});
+	}
+
+	private CompletableFuture<Void> nextHistoryPage(List<Map<String, AttributeValue>> items,
+			Map<String, AttributeValue> lastEvaluatedKey, Set<String> changeIds, Map<String, String> checksums,
+			EventScope event) {
+		collectAppliedChangeIds(items, changeIds, checksums);
+		if (lastEvaluatedKey == null || lastEvaluatedKey.isEmpty()) {
+			return CompletableFuture.completedFuture(null);
+		}
+		return readHistory(lastEvaluatedKey, changeIds, checksums, event);
+	}
+
+	private static void requestId(EventScope event, DynamoDbResponse response) {
+		if (event.isRecording() && response.responseMetadata() != null) {
+			event.requestId(response.responseMetadata().requestId());
+		}
+	}
+
+	@Override
+	public CompletableFuture<Boolean> isNewChangeAsync(ChangeEntry changeEntry) {
+		Set<String> snapshot = getHistorySnapshot();
+		if (snapshot != null) {
+			return CompletableFuture.completedFuture(!snapshot.contains(changeEntry.getChangeId()));
+		}
+		final EventScope event = MigrationEvents.historyLookup(getChangelogTableName(), changeEntry.getChangeId());
+		getCallStats().called(MigrationPhase.HISTORY);
+		return asyncClient.getItem(changeEntryRequest(changeEntry).toBuilder()
+				.returnConsumedCapacity(ReturnConsumedCapacity.TOTAL).build())
+				.thenApply(new Function<GetItemResponse, Boolean>() {
+					@Override
+					public Boolean apply(GetItemResponse response) {
+						getCallStats().consumed(MigrationPhase.HISTORY, response.consumedCapacity());
+						requestId(event, response);
+						return !response.hasItem() || !isApplied(response.item());
+					}
+				})
+				.whenComplete(new BiConsumer<Boolean, Throwable>() {
+					@Override
+					public void accept(Boolean newChange, Throwable failure) {
+						event.result(failure != null ? "failed" : newChange ? "new" : "applied").commit();
+					}
+				});
+	}
+}
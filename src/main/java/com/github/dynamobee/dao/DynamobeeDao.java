@@ -3,6 +3,13 @@ package com.github.dynamobee.dao;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 import com.github.dynamobee.exception.DynamobeeException;
 import org.slf4j.Logger;
@@ -12,6 +19,10 @@ import com.github.dynamobee.changeset.ChangeEntry;
 import com.github.dynamobee.exception.DynamobeeConfigurationException;
 import com.github.dynamobee.exception.DynamobeeConnectionException;
 import com.github.dynamobee.exception.DynamobeeLockException;
+import com.github.dynamobee.jfr.EventScope;
+import com.github.dynamobee.jfr.MigrationEvents;
+import com.github.dynamobee.metrics.DynamoDbCallStats;
+import com.github.dynamobee.metrics.MigrationPhase;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.*;
 
@@ -20,15 +31,47 @@ public class DynamobeeDao {
 	private static final Logger logger = LoggerFactory.getLogger("Dynamobee dao");
 
 	private static final String VALUE_LOCK = "LOCK";
+	private static final String VALUE_MANIFEST = "MANIFEST";
+	private static final String PREFIX_CHECKPOINT = "CHECKPOINT#";
+	private static final String KEY_PROGRESS = "progress";
+	private static final String VALUE_COOPERATIVE = "COOPERATIVE";
+	private static final String PREFIX_SEGMENT = "SEGMENT#";
+	private static final String KEY_CHANGE_SET_ID = "changeSetId";
+	private static final String KEY_RUN = "run";
+	private static final String KEY_STATUS = "status";
+	private static final String KEY_POSITION = "position";
+	private static final String STATUS_RUNNING = "running";
+	private static final String STATUS_DONE = "done";
+	private static final String STATUS_CHANGE_SET_RUNNING = "RUNNING";
+	private static final String STATUS_CHANGE_SET_APPLIED = "APPLIED";
+	private static final String KEY_DIGEST = "digest";
+	private static final String KEY_OWNER = "owner";
+	private static final String KEY_LEASE_EXPIRY = "leaseExpiry";
+	private static final String KEY_LAST_RUN = "lastRun";
+	public static final String KEY_NAMESPACE = "namespace";
+	private static final long DEFAULT_LOCK_LEASE_DURATION = 60L;
+	private static final long MIN_COMPLETION_BACKOFF = 100L;
 
 	private DynamoDbClient dynamoDbClient;
 	private String dynamobeeTableName;
 	private TableDescription dynamobeeTable;
 	private boolean waitForLock;
+	private boolean waitForCompletion;
 	private long changeLogLockWaitTime;
 	private long changeLogLockPollRate;
 	private boolean throwExceptionIfCannotObtainLock;
 	private String partitionKey;
+	private boolean historySnapshot;
+	private Set<String> appliedChangeIds;
+	private Map<String, String> appliedChecksums;
+	private long lockLeaseDuration = DEFAULT_LOCK_LEASE_DURATION;
+	private final String lockOwner = getHostName() + "/" + UUID.randomUUID();
+	private ScheduledExecutorService lockHeartbeat;
+	private volatile boolean lockLost;
+	private final Set<String> claimedChangeIds = ConcurrentHashMap.newKeySet();
+	private final Set<String> lostChangeIds = ConcurrentHashMap.newKeySet();
+	private ScheduledExecutorService claimHeartbeat;
+	private final DynamoDbCallStats callStats = new DynamoDbCallStats();
 
 	public DynamobeeDao(String dynamobeeTableName, boolean waitForLock, long changeLogLockWaitTime,
 			long changeLogLockPollRate, boolean throwExceptionIfCannotObtainLock) {
@@ -49,6 +92,35 @@ public class DynamobeeDao {
     this.partitionKey = partitionKey;
   }
 
+	/**
+	 * @param phase phase the calls are counted in
+	 * @return client counting its calls and the capacity they consume
+	 */
+	protected DynamoDbClient client(MigrationPhase phase) {
+		return client(phase, EventScope.NONE);
+	}
+
+	/**
+	 * @param phase phase the calls are counted in
+	 * @param event flight recorder event the request ids are added to
+	 * @return client counting its calls and the capacity they consume
+	 */
+	protected DynamoDbClient client(MigrationPhase phase, EventScope event) {
+		return new MeteredDynamoDbClient(dynamoDbClient, phase, callStats, event);
+	}
+
+	public DynamoDbCallStats getCallStats() {
+		return callStats;
+	}
+
+	public void setDynamoDbClient(DynamoDbClient dynamoDB) {
+		this.dynamoDbClient = dynamoDB;
+	}
+
+	public DynamoDbClient getDynamoDbClient() {
+		return dynamoDbClient;
+	}
+
 	public void connectDynamoDB(DynamoDbClient dynamoDB) throws DynamobeeException {
 		this.dynamoDbClient = dynamoDB;
 		this.dynamobeeTable = findDynamoBeeTable();
@@ -57,8 +129,9 @@ public class DynamobeeDao {
 	private TableDescription findDynamoBeeTable() throws DynamobeeException {
 		logger.info("Searching for an existing DynamoBee table; please wait...");
 		try {
-			TableDescription tableDescription = dynamoDbClient.describeTable(DescribeTableRequest.builder().tableName(dynamobeeTableName).build()).table();
+			TableDescription tableDescription = client(MigrationPhase.DESCRIBE).describeTable(DescribeTableRequest.builder().tableName(dynamobeeTableName).build()).table();
 			logger.info("DynamoBee table found");
+			validateKeySchema(tableDescription);
 			return tableDescription;
 
 		} catch (ResourceNotFoundException e) {
@@ -66,6 +139,31 @@ public class DynamobeeDao {
 		}
 	}
 
+	/**
+	 * Checks that the table is keyed the way this runner addresses its items
+	 *
+	 * @throws DynamobeeConfigurationException if the key schema does not match
+	 */
+	private void validateKeySchema(TableDescription tableDescription) throws DynamobeeConfigurationException {
+		String hashKey = null;
+		String rangeKey = null;
+		for (KeySchemaElement element : tableDescription.keySchema()) {
+			if (element.keyType() == KeyType.HASH) {
+				hashKey = element.attributeName();
+			} else if (element.keyType() == KeyType.RANGE) {
+				rangeKey = element.attributeName();
+			}
+		}
+		if (isNamespaced() && !(KEY_NAMESPACE.equals(hashKey) && ChangeEntry.KEY_CHANGEID.equals(rangeKey))) {
+			throw new DynamobeeConfigurationException("Migrations table " + dynamobeeTableName + " must have '" + KEY_NAMESPACE
+					+ "' as partition key and '" + ChangeEntry.KEY_CHANGEID + "' as sort key to be shared");
+		}
+		if (!isNamespaced() && !(ChangeEntry.KEY_CHANGEID.equals(hashKey) && rangeKey == null)) {
+			throw new DynamobeeConfigurationException("Migrations table " + dynamobeeTableName + " must have '"
+					+ ChangeEntry.KEY_CHANGEID + "' as its only key, or a partitionKey has to be set");
+		}
+	}
+
 	/**
 	 * Try to acquire process lock
 	 *
@@ -74,12 +172,43 @@ public class DynamobeeDao {
 	 * @throws DynamobeeLockException exception
 	 */
 	public boolean acquireProcessLock() throws DynamobeeConnectionException, DynamobeeLockException {
-		boolean acquired = this.acquireLock();
+		return acquireProcessLock(null);
+	}
+
+	/**
+	 * Try to acquire process lock. If waitForCompletion is set, a process that loses the lock watches the manifest
+	 * instead of polling the lock and gives up as soon as the lock holder has completed the given manifest.
+	 *
+	 * @param manifestDigest digest of the changesets known to this process, may be null
+	 * @return true if successfully acquired, false otherwise
+	 * @throws DynamobeeConnectionException exception
+	 * @throws DynamobeeLockException exception
+	 */
+	public boolean acquireProcessLock(String manifestDigest) throws DynamobeeConnectionException, DynamobeeLockException {
+		EventScope event = MigrationEvents.lockAcquisition(dynamobeeTableName);
+		try {
+			boolean acquired = acquireProcessLock(manifestDigest, event);
+			event.result(acquired ? "acquired" : "not acquired");
+			return acquired;
+		} finally {
+			event.commit();
+		}
+	}
+
+	private boolean acquireProcessLock(String manifestDigest, EventScope event)
+			throws DynamobeeConnectionException, DynamobeeLockException {
+		boolean acquired = this.acquireLock(event);
 
-		if (!acquired && waitForLock) {
+		if (!acquired && waitForCompletion && manifestDigest != null) {
+			if (awaitCompletion(manifestDigest, event)) {
+				logger.info("Dynamobee migration has been completed by another process.");
+				return false;
+			}
+			acquired = isLockAcquired();
+		} else if (!acquired && waitForLock) {
 			long timeToGiveUp = new Date().getTime() + (changeLogLockWaitTime * 1000 * 60);
 			while (!acquired && new Date().getTime() < timeToGiveUp) {
-				acquired = this.acquireLock();
+				acquired = this.acquireLock(event);
 				if (!acquired) {
 					logger.info("Waiting for changelog lock....");
 					try {
@@ -99,30 +228,156 @@ public class DynamobeeDao {
 		return acquired;
 	}
 
+	/**
+	 * Watches the lock item with consistent reads and exponential backoff plus jitter until the lock holder has
+	 * released it or changeLogLockWaitTime has passed. The manifest is only read once the lock is free, and the lock
+	 * is acquired if the holder has not completed the given manifest.
+	 *
+	 * @return true if the manifest has been completed by another process
+	 */
+	private boolean awaitCompletion(String manifestDigest, EventScope event) throws DynamobeeConnectionException {
+		long timeToGiveUp = System.currentTimeMillis() + (changeLogLockWaitTime * 1000 * 60);
+		long maxBackoff = Math.max(MIN_COMPLETION_BACKOFF, changeLogLockPollRate * 1000);
+		long backoff = MIN_COMPLETION_BACKOFF;
+
+		while (System.currentTimeMillis() < timeToGiveUp) {
+			try {
+				Thread.sleep(backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+			if (!isProccessLockHeld()) {
+				if (isManifestCurrent(manifestDigest)) {
+					return true;
+				}
+				if (acquireLock(event)) {
+					return false;
+				}
+			}
+			logger.debug("Waiting for the changelog lock holder to complete....");
+			backoff = Math.min(backoff * 2, maxBackoff);
+		}
+		return false;
+	}
+
+	/**
+	 * Try to acquire the process lock lease: either no lock is held or the lease of the current holder has expired.
+	 * Once acquired, the lease is renewed in the background until {@link #releaseProcessLock()} is called.
+	 *
+	 * @return true if successfully acquired, false otherwise
+	 */
 	public boolean acquireLock() {
-		// acquire lock by attempting to insert the same value in the collection - if it already exists (i.e. lock held)
-		// there will be an exception
+		return acquireLock(EventScope.NONE);
+	}
+
+	private boolean acquireLock(EventScope event) {
+		event.attempt();
+		long now = System.currentTimeMillis();
 		try {
-			HashMap<String, AttributeValue> item = new HashMap();
-			item.put(ChangeEntry.KEY_CHANGEID, AttributeValue.builder().s(VALUE_LOCK).build());
-			item.put(ChangeEntry.KEY_TIMESTAMP, AttributeValue.builder().n(Long.toString(new Date().getTime())).build());
+			Map<String, AttributeValue> item = itemKey(VALUE_LOCK);
+			item.put(ChangeEntry.KEY_TIMESTAMP, AttributeValue.builder().n(Long.toString(now)).build());
 			item.put(ChangeEntry.KEY_AUTHOR, AttributeValue.builder().s(getHostName()).build());
+			item.put(KEY_OWNER, AttributeValue.builder().s(lockOwner).build());
+			item.put(KEY_LEASE_EXPIRY, AttributeValue.builder().n(Long.toString(now + lockLeaseDuration * 1000)).build());
+
+			Map<String, String> names = new HashMap<>();
+			names.put("#changeId", ChangeEntry.KEY_CHANGEID);
+			names.put("#leaseExpiry", KEY_LEASE_EXPIRY);
 
 			PutItemRequest request = PutItemRequest
           .builder()
           .item(item)
-          .conditionExpression("attribute_not_exists(" + ChangeEntry.KEY_CHANGEID + ")")
+          .conditionExpression("attribute_not_exists(#changeId) OR #leaseExpiry < :now")
+          .expressionAttributeNames(names)
+          .expressionAttributeValues(Collections.singletonMap(":now",
+              AttributeValue.builder().n(Long.toString(now)).build()))
           .tableName(dynamobeeTableName)
           .build();
 
-			this.dynamoDbClient.putItem(request);
+			client(MigrationPhase.LOCK, event).putItem(request);
 		} catch (ConditionalCheckFailedException ex) {
 			logger.warn("The lock has been already acquired.");
 			return false;
 		}
+		startLockHeartbeat();
 		return true;
 	}
 
+	private synchronized void startLockHeartbeat() {
+		stopLockHeartbeat();
+		this.lockLost = false;
+		this.lockHeartbeat = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "dynamobee-lock-heartbeat");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		long period = Math.max(1000L, lockLeaseDuration * 1000 / 3);
+		this.lockHeartbeat.scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				renewLock();
+			}
+		}, period, period, TimeUnit.MILLISECONDS);
+	}
+
+	private synchronized boolean isLockAcquired() {
+		return lockHeartbeat != null && !lockLost;
+	}
+
+	private synchronized void stopLockHeartbeat() {
+		if (lockHeartbeat != null) {
+			lockHeartbeat.shutdownNow();
+			lockHeartbeat = null;
+		}
+	}
+
+	private void renewLock() {
+		Map<String, AttributeValue> key = itemKey(VALUE_LOCK);
+
+		Map<String, AttributeValue> values = new HashMap<>();
+		values.put(":owner", AttributeValue.builder().s(lockOwner).build());
+		values.put(":expiry", AttributeValue.builder()
+				.n(Long.toString(System.currentTimeMillis() + lockLeaseDuration * 1000)).build());
+
+		Map<String, String> names = new HashMap<>();
+		names.put("#owner", KEY_OWNER);
+		names.put("#leaseExpiry", KEY_LEASE_EXPIRY);
+
+		try {
+			client(MigrationPhase.LOCK).updateItem(
+					UpdateItemRequest
+							.builder()
+							.tableName(dynamobeeTableName)
+							.key(key)
+							.updateExpression("SET #leaseExpiry = :expiry")
+							.conditionExpression("#owner = :owner")
+							.expressionAttributeNames(names)
+							.expressionAttributeValues(values)
+							.build());
+		} catch (ConditionalCheckFailedException e) {
+			logger.error("Dynamobee lost its process lock lease to another process.");
+			this.lockLost = true;
+			stopLockHeartbeat();
+		} catch (RuntimeException e) {
+			logger.warn("Dynamobee could not renew its process lock lease, retrying.", e);
+		}
+	}
+
+	/**
+	 * Fails if the lease of the process lock held by this process has been taken over by another process
+	 *
+	 * @throws DynamobeeLockException exception
+	 */
+	public void ensureProcessLockHeld() throws DynamobeeLockException {
+		if (lockLost) {
+			throw new DynamobeeLockException("Process lock lease has been lost");
+		}
+	}
+
 	private String getHostName() {
 		try {
 			return InetAddress.getLocalHost().getHostName();
@@ -132,53 +387,1203 @@ public class DynamobeeDao {
 	}
 
 	public void releaseProcessLock() throws DynamobeeConnectionException {
-	  Map<String, AttributeValue> deleteKey = new HashMap();
-	  deleteKey.put(ChangeEntry.KEY_CHANGEID, AttributeValue.builder().s(VALUE_LOCK).build());
+		stopLockHeartbeat();
+		// the snapshot is only trustworthy while the lock is held
+		this.appliedChangeIds = null;
+		this.appliedChecksums = null;
 
-		this.dynamoDbClient.deleteItem(
-		    DeleteItemRequest
-            .builder()
-            .tableName(dynamobeeTableName)
-            .key(deleteKey)
-            .build());
+	  Map<String, AttributeValue> deleteKey = itemKey(VALUE_LOCK);
+
+		try {
+			client(MigrationPhase.LOCK).deleteItem(
+			    DeleteItemRequest
+	            .builder()
+	            .tableName(dynamobeeTableName)
+	            .key(deleteKey)
+	            .conditionExpression("#owner = :owner")
+	            .expressionAttributeNames(Collections.singletonMap("#owner", KEY_OWNER))
+	            .expressionAttributeValues(Collections.singletonMap(":owner",
+	                AttributeValue.builder().s(lockOwner).build()))
+	            .build());
+		} catch (ConditionalCheckFailedException e) {
+			logger.warn("The lock is held by another process, leaving it in place.");
+		}
 	}
 
 	public boolean isProccessLockHeld() throws DynamobeeConnectionException {
-    Map<String, AttributeValue> getKey = new HashMap();
-    getKey.put(ChangeEntry.KEY_CHANGEID, AttributeValue.builder().s(VALUE_LOCK).build());
+    Map<String, AttributeValue> getKey = itemKey(VALUE_LOCK);
 
-		return this.dynamoDbClient.getItem(
+		GetItemResponse response = client(MigrationPhase.LOCK).getItem(
 		    GetItemRequest
             .builder()
             .tableName(dynamobeeTableName)
             .key(getKey)
             .consistentRead(true)
-            .build()
-    ).hasItem();
+            .build());
+		if (!response.hasItem()) {
+			return false;
+		}
+		AttributeValue leaseExpiry = response.item().get(KEY_LEASE_EXPIRY);
+		return leaseExpiry == null || Long.parseLong(leaseExpiry.n()) >= System.currentTimeMillis();
+	}
+
+	/**
+	 * Reads the ids of all applied changesets with a paginated, strongly consistent scan and keeps them in memory,
+	 * so that {@link #isNewChange(ChangeEntry)} is answered without a round-trip per changeset.
+	 * Should be called while holding the process lock.
+	 *
+	 * @throws DynamobeeConnectionException exception
+	 */
+	public void loadHistorySnapshot() throws DynamobeeConnectionException {
+		Set<String> changeIds = ConcurrentHashMap.newKeySet();
+		Map<String, String> checksums = new ConcurrentHashMap<>();
+		Map<String, AttributeValue> lastEvaluatedKey = null;
+		EventScope event = MigrationEvents.historyLookup(dynamobeeTableName, null);
+		try {
+			do {
+				if (isNamespaced()) {
+					QueryResponse response = client(MigrationPhase.HISTORY, event).query(historyQueryRequest(lastEvaluatedKey));
+					collectAppliedChangeIds(response.items(), changeIds, checksums);
+					lastEvaluatedKey = response.lastEvaluatedKey();
+				} else {
+					ScanResponse response = client(MigrationPhase.HISTORY, event).scan(historySnapshotRequest(lastEvaluatedKey));
+					collectAppliedChangeIds(response.items(), changeIds, checksums);
+					lastEvaluatedKey = response.lastEvaluatedKey();
+				}
+			} while (lastEvaluatedKey != null && !lastEvaluatedKey.isEmpty());
+			event.count(changeIds.size()).result("snapshot");
+		} finally {
+			event.commit();
+		}
+
+		installHistorySnapshot(changeIds, checksums);
+	}
+
+	/**
+	 * Same as {@link #loadHistorySnapshot()}, completing once the snapshot is installed
+	 *
+	 * @return future of the snapshot load
+	 */
+	public CompletableFuture<Void> loadHistorySnapshotAsync() {
+		CompletableFuture<Void> result = new CompletableFuture<>();
+		try {
+			loadHistorySnapshot();
+			result.complete(null);
+		} catch (Exception e) {
+			result.completeExceptionally(e);
+		}
+		return result;
+	}
+
+	protected ScanRequest historySnapshotRequest(Map<String, AttributeValue> exclusiveStartKey) {
+		return ScanRequest
+				.builder()
+				.tableName(dynamobeeTableName)
+				.projectionExpression("#changeId, #status, #checksum")
+				.expressionAttributeNames(historyAttributeNames())
+				.consistentRead(true)
+				.exclusiveStartKey(exclusiveStartKey)
+				.build();
+	}
+
+	/**
+	 * History of a namespaced runner is read from its own partition only
+	 */
+	protected QueryRequest historyQueryRequest(Map<String, AttributeValue> exclusiveStartKey) {
+		Map<String, String> names = historyAttributeNames();
+		names.put("#namespace", KEY_NAMESPACE);
+		return QueryRequest
+				.builder()
+				.tableName(dynamobeeTableName)
+				.keyConditionExpression("#namespace = :namespace")
+				.projectionExpression("#changeId, #status, #checksum")
+				.expressionAttributeNames(names)
+				.expressionAttributeValues(Collections.singletonMap(":namespace",
+						AttributeValue.builder().s(partitionKey).build()))
+				.consistentRead(true)
+				.exclusiveStartKey(exclusiveStartKey)
+				.build();
+	}
+
+	private static Map<String, String> historyAttributeNames() {
+		Map<String, String> names = new HashMap<>();
+		names.put("#changeId", ChangeEntry.KEY_CHANGEID);
+		names.put("#status", KEY_STATUS);
+		names.put("#checksum", ChangeEntry.KEY_CHECKSUM);
+		return names;
+	}
+
+	protected void collectAppliedChangeIds(List<Map<String, AttributeValue>> items, Set<String> changeIds,
+			Map<String, String> checksums) {
+		for (Map<String, AttributeValue> item : items) {
+			String changeId = item.get(ChangeEntry.KEY_CHANGEID).s();
+			if (!isReservedChangeId(changeId) && isApplied(item)) {
+				changeIds.add(changeId);
+				if (item.containsKey(ChangeEntry.KEY_CHECKSUM)) {
+					checksums.put(changeId, item.get(ChangeEntry.KEY_CHECKSUM).s());
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param item changelog item, may be empty
+	 * @return true for entries of applied changesets; entries of changesets still being applied by a process
+	 * in claim mode do not count
+	 */
+	protected static boolean isApplied(Map<String, AttributeValue> item) {
+		if (item == null || item.isEmpty()) {
+			return false;
+		}
+		AttributeValue status = item.get(KEY_STATUS);
+		return status == null || !STATUS_CHANGE_SET_RUNNING.equals(status.s());
+	}
+
+	protected void installHistorySnapshot(Set<String> changeIds, Map<String, String> checksums) {
+		logger.info("Loaded history snapshot of {} applied changesets", changeIds.size());
+		this.appliedChecksums = checksums;
+		this.appliedChangeIds = changeIds;
+	}
+
+	protected Set<String> getHistorySnapshot() {
+		return appliedChangeIds;
 	}
 
 	public boolean isNewChange(ChangeEntry changeEntry) throws DynamobeeConnectionException {
-    Map<String, AttributeValue> getKey = new HashMap();
-    getKey.put(ChangeEntry.KEY_CHANGEID, AttributeValue.builder().s(changeEntry.getChangeId()).build());
+		if (appliedChangeIds != null) {
+			return !appliedChangeIds.contains(changeEntry.getChangeId());
+		}
 
-    return !this.dynamoDbClient.getItem(
-        GetItemRequest
-            .builder()
-            .tableName(dynamobeeTableName)
-            .key(getKey)
-            .consistentRead(true)
-            .build()
-    ).hasItem();
+		EventScope event = MigrationEvents.historyLookup(dynamobeeTableName, changeEntry.getChangeId());
+		try {
+			GetItemResponse response = client(MigrationPhase.HISTORY, event).getItem(changeEntryRequest(changeEntry));
+			boolean newChange = !response.hasItem() || !isApplied(response.item());
+			event.result(newChange ? "new" : "applied");
+			return newChange;
+		} finally {
+			event.commit();
+		}
+	}
+
+	/**
+	 * @param changeEntry entry of an applied runOnChange changeset
+	 * @return true if the checksum stored with the changeset differs from the one of the entry, or none is stored
+	 * @throws DynamobeeConnectionException exception
+	 */
+	public boolean isChangedChange(ChangeEntry changeEntry) throws DynamobeeConnectionException {
+		if (appliedChecksums != null) {
+			return !changeEntry.getChecksum().equals(appliedChecksums.get(changeEntry.getChangeId()));
+		}
+
+		EventScope event = MigrationEvents.historyLookup(dynamobeeTableName, changeEntry.getChangeId());
+		try {
+			GetItemResponse response = client(MigrationPhase.HISTORY, event).getItem(changeEntryRequest(changeEntry));
+			AttributeValue checksum = response.hasItem() ? response.item().get(ChangeEntry.KEY_CHECKSUM) : null;
+			boolean changed = checksum == null || !changeEntry.getChecksum().equals(checksum.s());
+			event.result(changed ? "changed" : "unchanged");
+			return changed;
+		} finally {
+			event.commit();
+		}
+	}
+
+	/**
+	 * Same as {@link #isNewChange(ChangeEntry)}; asynchronous implementations allow many lookups in flight
+	 *
+	 * @param changeEntry entry to look up
+	 * @return future of true if the changeset has not been applied yet
+	 */
+	public CompletableFuture<Boolean> isNewChangeAsync(ChangeEntry changeEntry) {
+		CompletableFuture<Boolean> result = new CompletableFuture<>();
+		try {
+			result.complete(isNewChange(changeEntry));
+		} catch (Exception e) {
+			result.completeExceptionally(e);
+		}
+		return result;
+	}
+
+	protected GetItemRequest changeEntryRequest(ChangeEntry changeEntry) {
+    Map<String, AttributeValue> getKey = itemKey(changeEntry.getChangeId());
+
+    return GetItemRequest
+        .builder()
+        .tableName(dynamobeeTableName)
+        .key(getKey)
+        .consistentRead(true)
+        .build();
 	}
 
 	public void save(ChangeEntry changeEntry) throws DynamobeeConnectionException {
-    PutItemRequest request = PutItemRequest
+    client(MigrationPhase.SAVE).putItem(saveRequest(changeEntry));
+    saved(changeEntry);
+	}
+
+	protected PutItemRequest saveRequest(ChangeEntry changeEntry) {
+    return PutItemRequest
         .builder()
-        .item(changeEntry.buildFullDBObject())
+        .item(entryItem(changeEntry))
         .conditionExpression("attribute_not_exists(" + ChangeEntry.KEY_CHANGEID + ")")
         .tableName(dynamobeeTableName)
         .build();
-    this.dynamoDbClient.putItem(request);
+	}
+
+	protected void saved(ChangeEntry changeEntry) {
+		if (appliedChangeIds != null) {
+			appliedChangeIds.add(changeEntry.getChangeId());
+		}
+		if (appliedChecksums != null && changeEntry.getChecksum() != null) {
+			appliedChecksums.put(changeEntry.getChangeId(), changeEntry.getChecksum());
+		}
+	}
+
+	/**
+	 * Stores the new checksum of a runOnChange changeset that has been re-executed
+	 *
+	 * @param changeEntry entry of the changeset, holding its current checksum
+	 * @throws DynamobeeConnectionException exception
+	 */
+	public void saveChecksum(ChangeEntry changeEntry) throws DynamobeeConnectionException {
+		client(MigrationPhase.SAVE).updateItem(checksumRequest(changeEntry));
+		saved(changeEntry);
+	}
+
+	protected UpdateItemRequest checksumRequest(ChangeEntry changeEntry) {
+		Map<String, String> names = new HashMap<>();
+		names.put("#changeId", ChangeEntry.KEY_CHANGEID);
+		names.put("#checksum", ChangeEntry.KEY_CHECKSUM);
+		names.put("#timestamp", ChangeEntry.KEY_TIMESTAMP);
+
+		Map<String, AttributeValue> values = new HashMap<>();
+		values.put(":checksum", AttributeValue.builder().s(changeEntry.getChecksum()).build());
+		values.put(":timestamp", AttributeValue.builder().s(Long.toString(changeEntry.getTimestamp().getTime())).build());
+
+		return UpdateItemRequest
+				.builder()
+				.tableName(dynamobeeTableName)
+				.key(changeEntryRequest(changeEntry).key())
+				.updateExpression("SET #checksum = :checksum, #timestamp = :timestamp")
+				.conditionExpression("attribute_exists(#changeId)")
+				.expressionAttributeNames(names)
+				.expressionAttributeValues(values)
+				.build();
+	}
+
+	/**
+	 * @param changeEntry entry of an applied runEvery changeset
+	 * @param intervalMillis interval between runs
+	 * @return true if the last run of the changeset, or its first application if it has not been run since,
+	 * is older than the interval
+	 * @throws DynamobeeConnectionException exception
+	 */
+	public boolean isRunDue(ChangeEntry changeEntry, long intervalMillis) throws DynamobeeConnectionException {
+		EventScope event = MigrationEvents.historyLookup(dynamobeeTableName, changeEntry.getChangeId());
+		try {
+			GetItemResponse response = client(MigrationPhase.HISTORY, event).getItem(changeEntryRequest(changeEntry));
+			long lastRun = 0L;
+			if (response.hasItem() && response.item().containsKey(KEY_LAST_RUN)) {
+				lastRun = Long.parseLong(response.item().get(KEY_LAST_RUN).n());
+			} else if (response.hasItem() && response.item().containsKey(ChangeEntry.KEY_TIMESTAMP)) {
+				lastRun = Long.parseLong(response.item().get(ChangeEntry.KEY_TIMESTAMP).s());
+			}
+			boolean due = lastRun <= System.currentTimeMillis() - intervalMillis;
+			event.result(due ? "due" : "not due");
+			return due;
+		} finally {
+			event.commit();
+		}
+	}
+
+	/**
+	 * Records a run of a runEvery changeset, as long as no other process has recorded one within the interval,
+	 * so that only one process performs each due run
+	 *
+	 * @param changeEntry entry of the changeset
+	 * @param now start of the run
+	 * @param intervalMillis interval between runs
+	 * @return true if this process has to perform the run
+	 */
+	public boolean claimRun(ChangeEntry changeEntry, long now, long intervalMillis) {
+		Map<String, String> names = new HashMap<>();
+		names.put("#changeId", ChangeEntry.KEY_CHANGEID);
+		names.put("#lastRun", KEY_LAST_RUN);
+
+		Map<String, AttributeValue> values = new HashMap<>();
+		values.put(":now", AttributeValue.builder().n(Long.toString(now)).build());
+		values.put(":due", AttributeValue.builder().n(Long.toString(now - intervalMillis)).build());
+
+		try {
+			client(MigrationPhase.SAVE).updateItem(
+					UpdateItemRequest
+							.builder()
+							.tableName(dynamobeeTableName)
+							.key(changeEntryRequest(changeEntry).key())
+							.updateExpression("SET #lastRun = :now")
+							.conditionExpression("attribute_exists(#changeId) AND (attribute_not_exists(#lastRun) OR #lastRun <= :due)")
+							.expressionAttributeNames(names)
+							.expressionAttributeValues(values)
+							.build());
+			return true;
+		} catch (ConditionalCheckFailedException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Withdraws the run recorded by {@link #claimRun(ChangeEntry, long, long)} after a failure, so that the
+	 * changeset is due again even if it was first applied within the interval
+	 *
+	 * @param changeEntry entry of the changeset
+	 * @param claimedAt start of the failed run
+	 */
+	public void releaseRun(ChangeEntry changeEntry, long claimedAt) {
+		Map<String, AttributeValue> values = new HashMap<>();
+		values.put(":never", AttributeValue.builder().n("0").build());
+		values.put(":claimedAt", AttributeValue.builder().n(Long.toString(claimedAt)).build());
+
+		try {
+			client(MigrationPhase.SAVE).updateItem(
+					UpdateItemRequest
+							.builder()
+							.tableName(dynamobeeTableName)
+							.key(changeEntryRequest(changeEntry).key())
+							.updateExpression("SET #lastRun = :never")
+							.conditionExpression("#lastRun = :claimedAt")
+							.expressionAttributeNames(Collections.singletonMap("#lastRun", KEY_LAST_RUN))
+							.expressionAttributeValues(values)
+							.build());
+		} catch (ConditionalCheckFailedException e) {
+			logger.warn("Run of {} had already been recorded by another process.", changeEntry.getChangeId());
+		}
+	}
+
+	/**
+	 * Claims a changeset for this process by writing its entry with a RUNNING status, as long as no live process
+	 * holds it and it has not been applied. Claims are renewed in the background until they are completed or released.
+	 *
+	 * @param changeEntry entry of the changeset
+	 * @return true if the changeset has been claimed
+	 */
+	public boolean claimChangeSet(ChangeEntry changeEntry) {
+		long now = System.currentTimeMillis();
+		Map<String, AttributeValue> item = entryItem(changeEntry);
+		item.put(KEY_STATUS, AttributeValue.builder().s(STATUS_CHANGE_SET_RUNNING).build());
+		item.put(KEY_OWNER, AttributeValue.builder().s(lockOwner).build());
+		item.put(KEY_LEASE_EXPIRY, AttributeValue.builder().n(Long.toString(now + lockLeaseDuration * 1000)).build());
+
+		Map<String, String> names = new HashMap<>();
+		names.put("#changeId", ChangeEntry.KEY_CHANGEID);
+		names.put("#status", KEY_STATUS);
+		names.put("#leaseExpiry", KEY_LEASE_EXPIRY);
+
+		Map<String, AttributeValue> values = new HashMap<>();
+		values.put(":running", AttributeValue.builder().s(STATUS_CHANGE_SET_RUNNING).build());
+		values.put(":now", AttributeValue.builder().n(Long.toString(now)).build());
+
+		try {
+			client(MigrationPhase.LOCK).putItem(
+					PutItemRequest
+							.builder()
+							.tableName(dynamobeeTableName)
+							.item(item)
+							.conditionExpression("attribute_not_exists(#changeId) OR (#status = :running AND #leaseExpiry < :now)")
+							.expressionAttributeNames(names)
+							.expressionAttributeValues(values)
+							.build());
+		} catch (ConditionalCheckFailedException e) {
+			return false;
+		}
+		lostChangeIds.remove(changeEntry.getChangeId());
+		claimedChangeIds.add(changeEntry.getChangeId());
+		startClaimHeartbeat();
+		return true;
+	}
+
+	/**
+	 * Claims the re-execution of an applied runOnChange changeset by setting its entry to RUNNING, as long as the
+	 * stored checksum differs from the one of the entry and no live process holds the entry
+	 *
+	 * @param changeEntry entry of the changeset, holding its current checksum
+	 * @return true if the re-execution has been claimed
+	 */
+	public boolean claimReapplication(ChangeEntry changeEntry) {
+		long now = System.currentTimeMillis();
+		Map<String, String> names = new HashMap<>();
+		names.put("#changeId", ChangeEntry.KEY_CHANGEID);
+		names.put("#checksum", ChangeEntry.KEY_CHECKSUM);
+		names.put("#status", KEY_STATUS);
+		names.put("#owner", KEY_OWNER);
+		names.put("#leaseExpiry", KEY_LEASE_EXPIRY);
+
+		Map<String, AttributeValue> values = new HashMap<>();
+		values.put(":checksum", AttributeValue.builder().s(changeEntry.getChecksum()).build());
+		values.put(":running", AttributeValue.builder().s(STATUS_CHANGE_SET_RUNNING).build());
+		values.put(":owner", AttributeValue.builder().s(lockOwner).build());
+		values.put(":now", AttributeValue.builder().n(Long.toString(now)).build());
+		values.put(":expiry", AttributeValue.builder().n(Long.toString(now + lockLeaseDuration * 1000)).build());
+
+		try {
+			client(MigrationPhase.LOCK).updateItem(
+					UpdateItemRequest
+							.builder()
+							.tableName(dynamobeeTableName)
+							.key(changeEntryRequest(changeEntry).key())
+							.updateExpression("SET #status = :running, #owner = :owner, #leaseExpiry = :expiry")
+							.conditionExpression("attribute_exists(#changeId)"
+									+ " AND (attribute_not_exists(#checksum) OR #checksum <> :checksum)"
+									+ " AND (attribute_not_exists(#status) OR #status <> :running OR #leaseExpiry < :now)")
+							.expressionAttributeNames(names)
+							.expressionAttributeValues(values)
+							.build());
+		} catch (ConditionalCheckFailedException e) {
+			return false;
+		}
+		lostChangeIds.remove(changeEntry.getChangeId());
+		claimedChangeIds.add(changeEntry.getChangeId());
+		startClaimHeartbeat();
+		return true;
+	}
+
+	/**
+	 * Marks a claimed changeset as applied
+	 *
+	 * @param changeEntry entry of the changeset
+	 * @throws DynamobeeLockException if the claim has expired and been taken over by another process
+	 */
+	public void completeChangeSet(ChangeEntry changeEntry) throws DynamobeeLockException {
+		claimedChangeIds.remove(changeEntry.getChangeId());
+		try {
+			client(MigrationPhase.SAVE).updateItem(completeRequest(changeEntry));
+		} catch (ConditionalCheckFailedException e) {
+			throw new DynamobeeLockException("Claim of " + changeEntry.getChangeId() + " has been taken over by another process");
+		}
+		saved(changeEntry);
+	}
+
+	protected UpdateItemRequest completeRequest(ChangeEntry changeEntry) {
+		Map<String, AttributeValue> values = new HashMap<>();
+		values.put(":owner", AttributeValue.builder().s(lockOwner).build());
+		values.put(":applied", AttributeValue.builder().s(STATUS_CHANGE_SET_APPLIED).build());
+
+		Map<String, String> names = new HashMap<>();
+		names.put("#owner", KEY_OWNER);
+		names.put("#status", KEY_STATUS);
+		names.put("#leaseExpiry", KEY_LEASE_EXPIRY);
+
+		return UpdateItemRequest
+				.builder()
+				.tableName(dynamobeeTableName)
+				.key(changeEntryRequest(changeEntry).key())
+				.updateExpression("SET #status = :applied REMOVE #leaseExpiry")
+				.conditionExpression("#owner = :owner")
+				.expressionAttributeNames(names)
+				.expressionAttributeValues(values)
+				.build();
+	}
+
+	/**
+	 * Marks a claimed re-execution as applied and stores the new checksum
+	 *
+	 * @param changeEntry entry of the changeset, holding its current checksum
+	 * @throws DynamobeeLockException if the claim has expired and been taken over by another process
+	 */
+	public void completeReapplication(ChangeEntry changeEntry) throws DynamobeeLockException {
+		claimedChangeIds.remove(changeEntry.getChangeId());
+		try {
+			client(MigrationPhase.SAVE).updateItem(completeReapplicationRequest(changeEntry));
+		} catch (ConditionalCheckFailedException e) {
+			throw new DynamobeeLockException("Claim of " + changeEntry.getChangeId() + " has been taken over by another process");
+		}
+		saved(changeEntry);
+	}
+
+	protected UpdateItemRequest completeReapplicationRequest(ChangeEntry changeEntry) {
+		Map<String, AttributeValue> values = new HashMap<>();
+		values.put(":owner", AttributeValue.builder().s(lockOwner).build());
+		values.put(":running", AttributeValue.builder().s(STATUS_CHANGE_SET_RUNNING).build());
+		values.put(":applied", AttributeValue.builder().s(STATUS_CHANGE_SET_APPLIED).build());
+		values.put(":checksum", AttributeValue.builder().s(changeEntry.getChecksum()).build());
+		values.put(":timestamp", AttributeValue.builder().s(Long.toString(changeEntry.getTimestamp().getTime())).build());
+
+		Map<String, String> names = new HashMap<>();
+		names.put("#owner", KEY_OWNER);
+		names.put("#status", KEY_STATUS);
+		names.put("#leaseExpiry", KEY_LEASE_EXPIRY);
+		names.put("#checksum", ChangeEntry.KEY_CHECKSUM);
+		names.put("#timestamp", ChangeEntry.KEY_TIMESTAMP);
+
+		return UpdateItemRequest
+				.builder()
+				.tableName(dynamobeeTableName)
+				.key(changeEntryRequest(changeEntry).key())
+				.updateExpression("SET #status = :applied, #checksum = :checksum, #timestamp = :timestamp REMOVE #leaseExpiry")
+				.conditionExpression("#owner = :owner AND #status = :running")
+				.expressionAttributeNames(names)
+				.expressionAttributeValues(values)
+				.build();
+	}
+
+	/**
+	 * Commits the writes of a transactional changeset and the write recording the changeset in a single
+	 * TransactWriteItems request
+	 *
+	 * @param changeEntry entry of the changeset
+	 * @param writes writes collected by the changeset
+	 * @param entryWrite how the changeset is recorded
+	 * @throws DynamobeeLockException if the claim of the changeset has been taken over by another process
+	 * @throws DynamobeeException if the transaction has been cancelled
+	 */
+	public void commitChangeSet(ChangeEntry changeEntry, List<TransactWriteItem> writes, EntryWrite entryWrite)
+			throws DynamobeeException {
+		List<TransactWriteItem> items = new ArrayList<>(writes);
+		switch (entryWrite) {
+			case SAVE:
+				PutItemRequest save = saveRequest(changeEntry);
+				items.add(TransactWriteItem.builder().put(Put.builder()
+						.tableName(save.tableName())
+						.item(save.item())
+						.conditionExpression(save.conditionExpression())
+						.build()).build());
+				break;
+			case COMPLETE:
+				claimedChangeIds.remove(changeEntry.getChangeId());
+				items.add(TransactWriteItem.builder().update(update(completeRequest(changeEntry))).build());
+				break;
+			case COMPLETE_REAPPLICATION:
+				claimedChangeIds.remove(changeEntry.getChangeId());
+				items.add(TransactWriteItem.builder().update(update(completeReapplicationRequest(changeEntry))).build());
+				break;
+			case CHECKSUM:
+				items.add(TransactWriteItem.builder().update(update(checksumRequest(changeEntry))).build());
+				break;
+			default:
+		}
+
+		try {
+			client(MigrationPhase.SAVE).transactWriteItems(TransactWriteItemsRequest.builder().transactItems(items).build());
+		} catch (TransactionCanceledException e) {
+			List<String> codes = new ArrayList<>();
+			if (e.hasCancellationReasons()) {
+				for (CancellationReason reason : e.cancellationReasons()) {
+					codes.add(reason.code());
+				}
+			}
+			if ((entryWrite == EntryWrite.COMPLETE || entryWrite == EntryWrite.COMPLETE_REAPPLICATION) && codes.size() == items.size()
+					&& "ConditionalCheckFailed".equals(codes.get(items.size() - 1))) {
+				throw new DynamobeeLockException("Claim of " + changeEntry.getChangeId() + " has been taken over by another process");
+			}
+			throw new DynamobeeException("Transaction of " + changeEntry.getChangeId() + " has been cancelled: " + codes, e);
+		}
+		saved(changeEntry);
+	}
+
+	private static Update update(UpdateItemRequest request) {
+		return Update.builder()
+				.tableName(request.tableName())
+				.key(request.key())
+				.updateExpression(request.updateExpression())
+				.conditionExpression(request.conditionExpression())
+				.expressionAttributeNames(request.expressionAttributeNames())
+				.expressionAttributeValues(request.expressionAttributeValues())
+				.build();
+	}
+
+	/**
+	 * Gives up the claim of a changeset that failed, so that another process may apply it
+	 *
+	 * @param changeEntry entry of the changeset
+	 */
+	public void releaseChangeSet(ChangeEntry changeEntry) {
+		claimedChangeIds.remove(changeEntry.getChangeId());
+		Map<String, AttributeValue> values = new HashMap<>();
+		values.put(":owner", AttributeValue.builder().s(lockOwner).build());
+		values.put(":running", AttributeValue.builder().s(STATUS_CHANGE_SET_RUNNING).build());
+
+		Map<String, String> names = new HashMap<>();
+		names.put("#owner", KEY_OWNER);
+		names.put("#status", KEY_STATUS);
+
+		try {
+			client(MigrationPhase.LOCK).deleteItem(
+					DeleteItemRequest
+							.builder()
+							.tableName(dynamobeeTableName)
+							.key(changeEntryRequest(changeEntry).key())
+							.conditionExpression("#owner = :owner AND #status = :running")
+							.expressionAttributeNames(names)
+							.expressionAttributeValues(values)
+							.build());
+		} catch (ConditionalCheckFailedException e) {
+			logger.warn("Claim of {} had already been taken over.", changeEntry.getChangeId());
+		}
+	}
+
+	/**
+	 * Gives up the claim of a re-execution that failed, leaving the entry applied with its previous checksum
+	 *
+	 * @param changeEntry entry of the changeset
+	 */
+	public void releaseReapplication(ChangeEntry changeEntry) {
+		claimedChangeIds.remove(changeEntry.getChangeId());
+		Map<String, AttributeValue> values = new HashMap<>();
+		values.put(":owner", AttributeValue.builder().s(lockOwner).build());
+		values.put(":running", AttributeValue.builder().s(STATUS_CHANGE_SET_RUNNING).build());
+		values.put(":applied", AttributeValue.builder().s(STATUS_CHANGE_SET_APPLIED).build());
+
+		Map<String, String> names = new HashMap<>();
+		names.put("#owner", KEY_OWNER);
+		names.put("#status", KEY_STATUS);
+		names.put("#leaseExpiry", KEY_LEASE_EXPIRY);
+
+		try {
+			client(MigrationPhase.LOCK).updateItem(
+					UpdateItemRequest
+							.builder()
+							.tableName(dynamobeeTableName)
+							.key(changeEntryRequest(changeEntry).key())
+							.updateExpression("SET #status = :applied REMOVE #leaseExpiry")
+							.conditionExpression("#owner = :owner AND #status = :running")
+							.expressionAttributeNames(names)
+							.expressionAttributeValues(values)
+							.build());
+		} catch (ConditionalCheckFailedException e) {
+			logger.warn("Claim of {} had already been taken over.", changeEntry.getChangeId());
+		}
+	}
+
+	/**
+	 * Waits while another process applies a changeset
+	 *
+	 * @param changeEntry entry of the changeset
+	 * @return true once the changeset has been applied, false if it can be claimed again because its claim
+	 * was released or expired
+	 * @throws DynamobeeLockException if interrupted while waiting
+	 */
+	public boolean awaitChangeSet(ChangeEntry changeEntry) throws DynamobeeLockException {
+		return awaitChangeSet(changeEntry, false);
+	}
+
+	/**
+	 * Waits while another process applies or re-executes a changeset
+	 *
+	 * @param changeEntry entry of the changeset
+	 * @param matchChecksum whether the changeset only counts as applied with the checksum of the entry
+	 * @return true once the changeset has been applied, false if it can be claimed again because its claim
+	 * was released or expired, or it was applied with another checksum
+	 * @throws DynamobeeLockException if interrupted while waiting, or if the entry of a changeset expected with
+	 * another checksum has been removed
+	 */
+	public boolean awaitChangeSet(ChangeEntry changeEntry, boolean matchChecksum) throws DynamobeeLockException {
+		long backoff = MIN_COMPLETION_BACKOFF;
+		while (true) {
+			GetItemResponse response = client(MigrationPhase.LOCK).getItem(changeEntryRequest(changeEntry));
+			if (!response.hasItem() || response.item().isEmpty()) {
+				if (matchChecksum) {
+					throw new DynamobeeLockException("Entry of " + changeEntry.getChangeId() + " has been removed before it was reapplied");
+				}
+				return false;
+			}
+			if (isApplied(response.item())) {
+				AttributeValue checksum = response.item().get(ChangeEntry.KEY_CHECKSUM);
+				if (matchChecksum && (checksum == null || !changeEntry.getChecksum().equals(checksum.s()))) {
+					return false;
+				}
+				saved(changeEntry);
+				return true;
+			}
+			AttributeValue leaseExpiry = response.item().get(KEY_LEASE_EXPIRY);
+			if (leaseExpiry == null || Long.parseLong(leaseExpiry.n()) < System.currentTimeMillis()) {
+				return false;
+			}
+			try {
+				Thread.sleep(ThreadLocalRandom.current().nextLong(backoff / 2, backoff + 1));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new DynamobeeLockException("Interrupted while waiting for " + changeEntry.getChangeId());
+			}
+			backoff = Math.min(backoff * 2, changeLogLockPollRate * 1000);
+		}
+	}
+
+	/**
+	 * @throws DynamobeeLockException if the claim of the changeset has expired and been taken over by another process
+	 */
+	public void ensureChangeSetClaimHeld(ChangeEntry changeEntry) throws DynamobeeLockException {
+		if (lostChangeIds.contains(changeEntry.getChangeId())) {
+			throw new DynamobeeLockException("Claim of " + changeEntry.getChangeId() + " has been lost");
+		}
+	}
+
+	private synchronized void startClaimHeartbeat() {
+		if (claimHeartbeat != null) {
+			return;
+		}
+		long period = Math.max(1L, lockLeaseDuration * 1000 / 3);
+		claimHeartbeat = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "dynamobee-claim-heartbeat");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		claimHeartbeat.scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				for (String changeId : claimedChangeIds) {
+					renewClaim(changeId);
+				}
+			}
+		}, period, period, TimeUnit.MILLISECONDS);
+	}
+
+	private void renewClaim(String changeId) {
+		Map<String, AttributeValue> key = itemKey(changeId);
+
+		Map<String, AttributeValue> values = new HashMap<>();
+		values.put(":owner", AttributeValue.builder().s(lockOwner).build());
+		values.put(":running", AttributeValue.builder().s(STATUS_CHANGE_SET_RUNNING).build());
+		values.put(":expiry", AttributeValue.builder()
+				.n(Long.toString(System.currentTimeMillis() + lockLeaseDuration * 1000)).build());
+
+		Map<String, String> names = new HashMap<>();
+		names.put("#owner", KEY_OWNER);
+		names.put("#status", KEY_STATUS);
+		names.put("#leaseExpiry", KEY_LEASE_EXPIRY);
+
+		try {
+			client(MigrationPhase.LOCK).updateItem(
+					UpdateItemRequest
+							.builder()
+							.tableName(dynamobeeTableName)
+							.key(key)
+							.updateExpression("SET #leaseExpiry = :expiry")
+							.conditionExpression("#owner = :owner AND #status = :running")
+							.expressionAttributeNames(names)
+							.expressionAttributeValues(values)
+							.build());
+		} catch (ConditionalCheckFailedException e) {
+			if (claimedChangeIds.remove(changeId)) {
+				logger.error("Dynamobee lost its claim of {} to another process.", changeId);
+				lostChangeIds.add(changeId);
+			}
+		} catch (RuntimeException e) {
+			logger.warn("Dynamobee could not renew its claim of " + changeId + ", retrying.", e);
+		}
+	}
+
+	/**
+	 * Stops renewing changeset claims, once a migration in claim mode is over
+	 */
+	public synchronized void stopClaimHeartbeat() {
+		if (claimHeartbeat != null) {
+			claimHeartbeat.shutdownNow();
+			claimHeartbeat = null;
+		}
+		claimedChangeIds.clear();
+	}
+
+	/**
+	 * Checks the stored manifest with a single strongly consistent read. Entries removed by hand are not noticed,
+	 * the MANIFEST item has to be deleted with them.
+	 *
+	 * @param digest digest of the changesets known to this runner
+	 * @return true if the last successful migration ran exactly these changesets
+	 */
+	public boolean isManifestCurrent(String digest) {
+		Map<String, AttributeValue> getKey = itemKey(VALUE_MANIFEST);
+
+		try {
+			GetItemResponse response = client(MigrationPhase.MANIFEST).getItem(
+					GetItemRequest
+							.builder()
+							.tableName(dynamobeeTableName)
+							.key(getKey)
+							.consistentRead(true)
+							.build());
+			if (!response.hasItem() || !response.item().containsKey(KEY_DIGEST)) {
+				return false;
+			}
+			return digest.equals(response.item().get(KEY_DIGEST).s());
+		} catch (ResourceNotFoundException e) {
+			// reported properly once the table is looked up
+			return false;
+		} catch (DynamoDbException e) {
+			if (!isValidationError(e)) {
+				throw e;
+			}
+			// a key schema that does not match this runner is reported once the table is looked up
+			return false;
+		}
+	}
+
+	private static boolean isValidationError(DynamoDbException e) {
+		return e.awsErrorDetails() != null && "ValidationException".equals(e.awsErrorDetails().errorCode());
+	}
+
+	/**
+	 * Stores the manifest of a successful migration
+	 *
+	 * @param digest digest of the changesets that have been applied
+	 */
+	public void saveManifest(String digest) {
+		Map<String, AttributeValue> item = itemKey(VALUE_MANIFEST);
+		item.put(KEY_DIGEST, AttributeValue.builder().s(digest).build());
+		item.put(ChangeEntry.KEY_TIMESTAMP, AttributeValue.builder().n(Long.toString(new Date().getTime())).build());
+		item.put(ChangeEntry.KEY_AUTHOR, AttributeValue.builder().s(getHostName()).build());
+
+		client(MigrationPhase.MANIFEST).putItem(
+				PutItemRequest
+						.builder()
+						.tableName(dynamobeeTableName)
+						.item(item)
+						.build());
+	}
+
+	/**
+	 * @param changeId id of the changeset
+	 * @return progress last stored by the changeset, empty if it has none
+	 */
+	public Map<String, AttributeValue> loadCheckpoint(String changeId) {
+		GetItemResponse response = client(MigrationPhase.PROGRESS).getItem(
+				GetItemRequest
+						.builder()
+						.tableName(dynamobeeTableName)
+						.key(checkpointKey(changeId))
+						.consistentRead(true)
+						.build());
+		if (!response.hasItem() || !response.item().containsKey(KEY_PROGRESS)) {
+			return new HashMap<>();
+		}
+		return new HashMap<>(response.item().get(KEY_PROGRESS).m());
+	}
+
+	/**
+	 * Stores the progress of a changeset, as long as this process still holds the lock
+	 *
+	 * @param changeId id of the changeset
+	 * @param progress progress to resume from
+	 * @throws DynamobeeLockException if the lock has been lost
+	 */
+	public void saveCheckpoint(String changeId, Map<String, AttributeValue> progress) throws DynamobeeLockException {
+		ensureProcessLockHeld();
+		Map<String, AttributeValue> item = checkpointKey(changeId);
+		item.put(KEY_PROGRESS, AttributeValue.builder().m(progress).build());
+		item.put(ChangeEntry.KEY_TIMESTAMP, AttributeValue.builder().n(Long.toString(new Date().getTime())).build());
+		item.put(KEY_OWNER, AttributeValue.builder().s(lockOwner).build());
+
+		client(MigrationPhase.PROGRESS).putItem(
+				PutItemRequest
+						.builder()
+						.tableName(dynamobeeTableName)
+						.item(item)
+						.build());
+	}
+
+	/**
+	 * @param changeId id of the changeset that no longer needs its progress
+	 */
+	public void deleteCheckpoint(String changeId) {
+		client(MigrationPhase.PROGRESS).deleteItem(
+				DeleteItemRequest
+						.builder()
+						.tableName(dynamobeeTableName)
+						.key(checkpointKey(changeId))
+						.build());
+	}
+
+	private Map<String, AttributeValue> checkpointKey(String changeId) {
+		return itemKey(PREFIX_CHECKPOINT + changeId);
+	}
+
+	/**
+	 * Announces a cooperative changeset to the processes waiting for the lock. A run left over by a
+	 * crashed process for the same changeset is resumed, together with its segments.
+	 *
+	 * @param changeId id of the cooperative changeset
+	 * @return the run segments are leased in
+	 */
+	public CooperativeRun startCooperativeRun(String changeId) {
+		CooperativeRun run = getCooperativeRun();
+		if (run == null || !run.getChangeId().equals(changeId)) {
+			run = new CooperativeRun(changeId, UUID.randomUUID().toString());
+		}
+
+		Map<String, AttributeValue> item = itemKey(VALUE_COOPERATIVE);
+		item.put(KEY_CHANGE_SET_ID, AttributeValue.builder().s(run.getChangeId()).build());
+		item.put(KEY_RUN, AttributeValue.builder().s(run.getRunId()).build());
+		item.put(KEY_OWNER, AttributeValue.builder().s(lockOwner).build());
+
+		client(MigrationPhase.PROGRESS).putItem(
+				PutItemRequest
+						.builder()
+						.tableName(dynamobeeTableName)
+						.item(item)
+						.build());
+		return run;
+	}
+
+	/**
+	 * @return the cooperative run announced by the lock holder, null if there is none
+	 */
+	public CooperativeRun getCooperativeRun() {
+		Map<String, AttributeValue> getKey = itemKey(VALUE_COOPERATIVE);
+
+		GetItemResponse response = client(MigrationPhase.PROGRESS).getItem(
+				GetItemRequest
+						.builder()
+						.tableName(dynamobeeTableName)
+						.key(getKey)
+						.consistentRead(true)
+						.build());
+		if (!response.hasItem() || !response.item().containsKey(KEY_RUN)) {
+			return null;
+		}
+		return new CooperativeRun(response.item().get(KEY_CHANGE_SET_ID).s(), response.item().get(KEY_RUN).s());
+	}
+
+	/**
+	 * Waits for the lock holder to announce a cooperative run, backing off like the wait for a migration
+	 * to complete, so that joining processes do not keep reading the same items
+	 *
+	 * @param joinedRunIds runs this process has already joined
+	 * @return the next run to join, null once the lock is no longer held
+	 * @throws DynamobeeConnectionException exception
+	 * @throws DynamobeeLockException if interrupted while waiting
+	 */
+	public CooperativeRun awaitCooperativeRun(Set<String> joinedRunIds)
+			throws DynamobeeConnectionException, DynamobeeLockException {
+		long maxBackoff = Math.max(MIN_COMPLETION_BACKOFF, changeLogLockPollRate * 1000);
+		long backoff = MIN_COMPLETION_BACKOFF;
+		while (true) {
+			CooperativeRun run = getCooperativeRun();
+			if (run != null && !joinedRunIds.contains(run.getRunId())) {
+				return run;
+			}
+			if (run == null && !isProccessLockHeld()) {
+				return null;
+			}
+			try {
+				Thread.sleep(backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new DynamobeeLockException("Interrupted while waiting for cooperative changesets");
+			}
+			backoff = Math.min(backoff * 2, maxBackoff);
+		}
+	}
+
+	/**
+	 * Withdraws the announcement of a cooperative run
+	 *
+	 * @param run run that has been completed
+	 */
+	public void finishCooperativeRun(CooperativeRun run) {
+		Map<String, AttributeValue> deleteKey = itemKey(VALUE_COOPERATIVE);
+
+		try {
+			client(MigrationPhase.PROGRESS).deleteItem(
+					DeleteItemRequest
+							.builder()
+							.tableName(dynamobeeTableName)
+							.key(deleteKey)
+							.conditionExpression("#run = :run")
+							.expressionAttributeNames(Collections.singletonMap("#run", KEY_RUN))
+							.expressionAttributeValues(Collections.singletonMap(":run",
+									AttributeValue.builder().s(run.getRunId()).build()))
+							.build());
+		} catch (ConditionalCheckFailedException e) {
+			logger.warn("Cooperative run of {} has already been withdrawn.", run.getChangeId());
+		}
+	}
+
+	/**
+	 * Leases a segment of a cooperative run to this process, unless it is done or leased to a live process
+	 *
+	 * @param run cooperative run
+	 * @param position name of the segment
+	 * @return position the segment resumes from, empty to start from the beginning, null if it has not been leased
+	 */
+	public Map<String, AttributeValue> claimSegment(CooperativeRun run, String position) {
+		long now = System.currentTimeMillis();
+		Map<String, AttributeValue> values = new HashMap<>();
+		values.put(":owner", AttributeValue.builder().s(lockOwner).build());
+		values.put(":expiry", AttributeValue.builder().n(Long.toString(now + lockLeaseDuration * 1000)).build());
+		values.put(":now", AttributeValue.builder().n(Long.toString(now)).build());
+		values.put(":running", AttributeValue.builder().s(STATUS_RUNNING).build());
+		String updateExpression = "SET #owner = :owner, #leaseExpiry = :expiry, #status = :running";
+		String conditionExpression = "attribute_not_exists(#changeId) OR "
+				+ "(#status = :running AND (#leaseExpiry < :now OR #owner = :owner))";
+
+		try {
+			UpdateItemResponse response = client(MigrationPhase.PROGRESS).updateItem(
+					UpdateItemRequest
+							.builder()
+							.tableName(dynamobeeTableName)
+							.key(segmentKey(run, position))
+							.updateExpression(updateExpression)
+							.conditionExpression(conditionExpression)
+							.expressionAttributeNames(segmentAttributeNames(updateExpression, conditionExpression))
+							.expressionAttributeValues(values)
+							.returnValues(ReturnValue.ALL_NEW)
+							.build());
+			AttributeValue resumeFrom = response.attributes().get(KEY_POSITION);
+			return resumeFrom == null ? new HashMap<String, AttributeValue>() : resumeFrom.m();
+		} catch (ConditionalCheckFailedException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Extends the lease of a segment and stores the position it resumes from
+	 *
+	 * @return false if the segment has been leased to another process
+	 */
+	public boolean renewSegment(CooperativeRun run, String position, Map<String, AttributeValue> resumeFrom) {
+		Map<String, AttributeValue> values = new HashMap<>();
+		values.put(":owner", AttributeValue.builder().s(lockOwner).build());
+		values.put(":expiry", AttributeValue.builder()
+				.n(Long.toString(System.currentTimeMillis() + lockLeaseDuration * 1000)).build());
+		values.put(":position", AttributeValue.builder().m(resumeFrom).build());
+		values.put(":running", AttributeValue.builder().s(STATUS_RUNNING).build());
+
+		return updateSegment(run, position, "SET #leaseExpiry = :expiry, #position = :position", values);
+	}
+
+	/**
+	 * Extends the lease of a segment while a page of it is being handled
+	 *
+	 * @return false if the segment has been leased to another process
+	 */
+	public boolean extendSegment(CooperativeRun run, String position) {
+		Map<String, AttributeValue> values = new HashMap<>();
+		values.put(":owner", AttributeValue.builder().s(lockOwner).build());
+		values.put(":expiry", AttributeValue.builder()
+				.n(Long.toString(System.currentTimeMillis() + lockLeaseDuration * 1000)).build());
+		values.put(":running", AttributeValue.builder().s(STATUS_RUNNING).build());
+
+		return updateSegment(run, position, "SET #leaseExpiry = :expiry", values);
+	}
+
+	/**
+	 * @return false if the segment had been leased to another process, which will scan it again
+	 */
+	public boolean completeSegment(CooperativeRun run, String position) {
+		Map<String, AttributeValue> values = new HashMap<>();
+		values.put(":owner", AttributeValue.builder().s(lockOwner).build());
+		values.put(":running", AttributeValue.builder().s(STATUS_RUNNING).build());
+		values.put(":done", AttributeValue.builder().s(STATUS_DONE).build());
+
+		return updateSegment(run, position, "SET #status = :done REMOVE #position", values);
+	}
+
+	private boolean updateSegment(CooperativeRun run, String position, String updateExpression,
+			Map<String, AttributeValue> values) {
+		String conditionExpression = "#owner = :owner AND #status = :running";
+		try {
+			client(MigrationPhase.PROGRESS).updateItem(
+					UpdateItemRequest
+							.builder()
+							.tableName(dynamobeeTableName)
+							.key(segmentKey(run, position))
+							.updateExpression(updateExpression)
+							.conditionExpression(conditionExpression)
+							.expressionAttributeNames(segmentAttributeNames(updateExpression, conditionExpression))
+							.expressionAttributeValues(values)
+							.build());
+			return true;
+		} catch (ConditionalCheckFailedException e) {
+			logger.warn("Segment {} of {} has been leased to another process.", position, run.getChangeId());
+			return false;
+		}
+	}
+
+	public boolean isSegmentDone(CooperativeRun run, String position) {
+		GetItemResponse response = client(MigrationPhase.PROGRESS).getItem(
+				GetItemRequest
+						.builder()
+						.tableName(dynamobeeTableName)
+						.key(segmentKey(run, position))
+						.consistentRead(true)
+						.build());
+		return response.hasItem() && response.item().containsKey(KEY_STATUS)
+				&& STATUS_DONE.equals(response.item().get(KEY_STATUS).s());
+	}
+
+	public void deleteSegment(CooperativeRun run, String position) {
+		client(MigrationPhase.PROGRESS).deleteItem(
+				DeleteItemRequest
+						.builder()
+						.tableName(dynamobeeTableName)
+						.key(segmentKey(run, position))
+						.build());
+	}
+
+	private Map<String, AttributeValue> segmentKey(CooperativeRun run, String position) {
+		return itemKey(PREFIX_SEGMENT + run.getChangeId() + "#" + run.getRunId() + "#" + position);
+	}
+
+	/**
+	 * DynamoDB rejects attribute names that are not used by any of the expressions
+	 */
+	private static Map<String, String> segmentAttributeNames(String... expressions) {
+		Map<String, String> names = new HashMap<>();
+		names.put("#changeId", ChangeEntry.KEY_CHANGEID);
+		names.put("#owner", KEY_OWNER);
+		names.put("#leaseExpiry", KEY_LEASE_EXPIRY);
+		names.put("#status", KEY_STATUS);
+		names.put("#position", KEY_POSITION);
+
+		Map<String, String> used = new HashMap<>();
+		for (Map.Entry<String, String> name : names.entrySet()) {
+			for (String expression : expressions) {
+				if (expression.contains(name.getKey())) {
+					used.put(name.getKey(), name.getValue());
+				}
+			}
+		}
+		return used;
+	}
+
+	/**
+	 * @param changeId id of the changelog item
+	 * @return key of the item, within the namespace of this runner if it has one
+	 */
+	protected Map<String, AttributeValue> itemKey(String changeId) {
+		Map<String, AttributeValue> key = new HashMap<>();
+		key.put(ChangeEntry.KEY_CHANGEID, AttributeValue.builder().s(changeId).build());
+		if (isNamespaced()) {
+			key.put(KEY_NAMESPACE, AttributeValue.builder().s(partitionKey).build());
+		}
+		return key;
+	}
+
+	protected Map<String, AttributeValue> entryItem(ChangeEntry changeEntry) {
+		Map<String, AttributeValue> item = changeEntry.buildFullDBObject();
+		if (isNamespaced()) {
+			item.put(KEY_NAMESPACE, AttributeValue.builder().s(partitionKey).build());
+		}
+		return item;
+	}
+
+	/**
+	 * @return true if the changelog table is shared: items are partitioned by namespace and sorted by changeId
+	 */
+	protected boolean isNamespaced() {
+		return partitionKey != null;
+	}
+
+	private static boolean isReservedChangeId(String changeId) {
+		return VALUE_LOCK.equals(changeId) || VALUE_MANIFEST.equals(changeId) || VALUE_COOPERATIVE.equals(changeId)
+				|| changeId.startsWith(PREFIX_CHECKPOINT) || changeId.startsWith(PREFIX_SEGMENT);
+	}
+
+	public String getPartitionKey() {
+		return partitionKey;
+	}
+
+	public String getChangelogTableName() {
+		return dynamobeeTableName;
 	}
 
 	public void setChangelogTableName(String changelogCollectionName) {
@@ -193,6 +1598,14 @@ public class DynamobeeDao {
 		this.waitForLock = waitForLock;
 	}
 
+	public boolean isWaitForCompletion() {
+		return waitForCompletion;
+	}
+
+	public void setWaitForCompletion(boolean waitForCompletion) {
+		this.waitForCompletion = waitForCompletion;
+	}
+
 	public long getChangeLogLockWaitTime() {
 		return changeLogLockWaitTime;
 	}
@@ -209,6 +1622,22 @@ public class DynamobeeDao {
 		this.changeLogLockPollRate = changeLogLockPollRate;
 	}
 
+	public boolean isHistorySnapshot() {
+		return historySnapshot;
+	}
+
+	public void setHistorySnapshot(boolean historySnapshot) {
+		this.historySnapshot = historySnapshot;
+	}
+
+	public long getLockLeaseDuration() {
+		return lockLeaseDuration;
+	}
+
+	public void setLockLeaseDuration(long lockLeaseDuration) {
+		this.lockLeaseDuration = lockLeaseDuration;
+	}
+
 	public boolean isThrowExceptionIfCannotObtainLock() {
 		return throwExceptionIfCannotObtainLock;
 	}
@@ -217,4 +1646,40 @@ public class DynamobeeDao {
 		this.throwExceptionIfCannotObtainLock = throwExceptionIfCannotObtainLock;
 	}
 
+	/**
+	 * A cooperative changeset announced by the lock holder, and the run its segments are leased in
+	 */
+	public static class CooperativeRun {
+		private final String changeId;
+		private final String runId;
+
+		public CooperativeRun(String changeId, String runId) {
+			this.changeId = changeId;
+			this.runId = runId;
+		}
+
+		public String getChangeId() {
+			return changeId;
+		}
+
+		public String getRunId() {
+			return runId;
+		}
+	}
+
+	/**
+	 * Write recording a transactional changeset, committed with the changeset's own writes
+	 */
+	public enum EntryWrite {
+		/** entry of a new changeset */
+		SAVE,
+		/** completion of a claimed changeset */
+		COMPLETE,
+		/** completion of a claimed re-execution of a runOnChange changeset, with its checksum */
+		COMPLETE_REAPPLICATION,
+		/** checksum of a re-executed runOnChange changeset */
+		CHECKSUM,
+		/** nothing, the changeset is re-executed */
+		NONE
+	}
 }
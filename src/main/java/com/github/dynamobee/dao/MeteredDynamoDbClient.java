@@ -0,0 +1,182 @@
+package com.github.dynamobee.dao;
+
+import com.github.dynamobee.jfr.EventScope;
+import com.github.dynamobee.metrics.DynamoDbCallStats;
+import com.github.dynamobee.metrics.MigrationPhase;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableResponse;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbResponse;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsRequest;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsResponse;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+
+/**
+ * View of a {@link DynamoDbClient} counting the calls {@link DynamobeeDao} makes in one phase, and the capacity they consume.
+ * Ids of the requests are added to the flight recorder event of the phase.
+ */
+class MeteredDynamoDbClient implements DynamoDbClient {
+	private final DynamoDbClient delegate;
+	private final MigrationPhase phase;
+	private final DynamoDbCallStats callStats;
+	private final EventScope event;
+
+	MeteredDynamoDbClient(DynamoDbClient delegate, MigrationPhase phase, DynamoDbCallStats callStats, EventScope event) {
+		this.delegate = delegate;
+		this.phase = phase;
+		this.callStats = callStats;
+		this.event = event;
+	}
+
+	@Override
+	public String serviceName() {
+		return delegate.serviceName();
+	}
+
+	@Override
+	public void close() {
+		delegate.close();
+	}
+
+	@Override
+	public DescribeTableResponse describeTable(DescribeTableRequest request) {
+		callStats.called(phase);
+		try {
+			return requestId(delegate.describeTable(request));
+		} catch (AwsServiceException e) {
+			throw failed(e);
+		}
+	}
+
+	@Override
+	public GetItemResponse getItem(GetItemRequest request) {
+		callStats.called(phase);
+		GetItemResponse response;
+		try {
+			response = requestId(delegate.getItem(request.toBuilder()
+					.returnConsumedCapacity(ReturnConsumedCapacity.TOTAL).build()));
+		} catch (AwsServiceException e) {
+			throw failed(e);
+		}
+		callStats.consumed(phase, response.consumedCapacity());
+		return response;
+	}
+
+	@Override
+	public PutItemResponse putItem(PutItemRequest request) {
+		callStats.called(phase);
+		PutItemResponse response;
+		try {
+			response = requestId(delegate.putItem(request.toBuilder()
+					.returnConsumedCapacity(ReturnConsumedCapacity.TOTAL).build()));
+		} catch (AwsServiceException e) {
+			throw failed(e);
+		}
+		callStats.consumed(phase, response.consumedCapacity());
+		return response;
+	}
+
+	@Override
+	public UpdateItemResponse updateItem(UpdateItemRequest request) {
+		callStats.called(phase);
+		UpdateItemResponse response;
+		try {
+			response = requestId(delegate.updateItem(request.toBuilder()
+					.returnConsumedCapacity(ReturnConsumedCapacity.TOTAL).build()));
+		} catch (AwsServiceException e) {
+			throw failed(e);
+		}
+		callStats.consumed(phase, response.consumedCapacity());
+		return response;
+	}
+
+	@Override
+	public DeleteItemResponse deleteItem(DeleteItemRequest request) {
+		callStats.called(phase);
+		DeleteItemResponse response;
+		try {
+			response = requestId(delegate.deleteItem(request.toBuilder()
+					.returnConsumedCapacity(ReturnConsumedCapacity.TOTAL).build()));
+		} catch (AwsServiceException e) {
+			throw failed(e);
+		}
+		callStats.consumed(phase, response.consumedCapacity());
+		return response;
+	}
+
+	@Override
+	public QueryResponse query(QueryRequest request) {
+		callStats.called(phase);
+		QueryResponse response;
+		try {
+			response = requestId(delegate.query(request.toBuilder()
+					.returnConsumedCapacity(ReturnConsumedCapacity.TOTAL).build()));
+		} catch (AwsServiceException e) {
+			throw failed(e);
+		}
+		callStats.consumed(phase, response.consumedCapacity());
+		return response;
+	}
+
+	@Override
+	public ScanResponse scan(ScanRequest request) {
+		callStats.called(phase);
+		ScanResponse response;
+		try {
+			response = requestId(delegate.scan(request.toBuilder()
+					.returnConsumedCapacity(ReturnConsumedCapacity.TOTAL).build()));
+		} catch (AwsServiceException e) {
+			throw failed(e);
+		}
+		callStats.consumed(phase, response.consumedCapacity());
+		return response;
+	}
+
+	/**
+	 * Counts the capacity of every table written by the transaction
+	 */
+	@Override
+	public TransactWriteItemsResponse transactWriteItems(TransactWriteItemsRequest request) {
+		callStats.called(phase);
+		TransactWriteItemsResponse response;
+		try {
+			response = requestId(delegate.transactWriteItems(request.toBuilder()
+					.returnConsumedCapacity(ReturnConsumedCapacity.TOTAL).build()));
+		} catch (AwsServiceException e) {
+			throw failed(e);
+		}
+		if (response.hasConsumedCapacity()) {
+			for (ConsumedCapacity capacity : response.consumedCapacity()) {
+				callStats.consumed(phase, capacity);
+			}
+		}
+		return response;
+	}
+
+	private <T extends DynamoDbResponse> T requestId(T response) {
+		if (event.isRecording() && response.responseMetadata() != null) {
+			event.requestId(response.responseMetadata().requestId());
+		}
+		return response;
+	}
+
+	private AwsServiceException failed(AwsServiceException e) {
+		event.requestId(e.requestId());
+		return e;
+	}
+}
@@ -0,0 +1,290 @@
+package com.github.dynamobee.helpers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.dynamobee.exception.DynamobeeException;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.DeleteRequest;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+
+/**
+ * Buffers puts and deletes into BatchWriteItem requests of 25 writes, keeps several of them in flight and retries
+ * unprocessed items with exponential backoff. Injectable into @{@link com.github.dynamobee.changeset.ChangeSet}
+ * methods; the runner flushes it once the changeset returns, before the changeset is recorded as applied.
+ * BatchWriteItem rejects a batch writing the same key twice, so a write to a key that is already buffered first
+ * flushes the writes before it, which keeps the writes to a key in order.
+ */
+public class BatchWriter implements AutoCloseable {
+	private static final Logger logger = LoggerFactory.getLogger(BatchWriter.class);
+
+	private static final int MAX_BATCH_SIZE = 25;
+	private static final int DEFAULT_MAX_IN_FLIGHT = 4;
+	private static final int MAX_ATTEMPTS = 10;
+	private static final long BASE_BACKOFF = 50L;
+	private static final long MAX_BACKOFF = 5000L;
+
+	private final DynamoDbClient dynamoDbClient;
+	private final CapacityLimiter capacityLimiter;
+	private final int maxInFlight;
+	private final Semaphore inFlight;
+	private final ExecutorService executor;
+	private final AtomicLong writtenItems = new AtomicLong();
+
+	private final Map<String, List<String>> keyAttributes = new HashMap<>();
+	private Map<String, List<WriteRequest>> buffer = new HashMap<>();
+	private Map<String, Set<Map<String, AttributeValue>>> bufferedKeys = new HashMap<>();
+	private int buffered;
+	private volatile Throwable failure;
+	private long baseBackoff = BASE_BACKOFF;
+
+	public BatchWriter(DynamoDbClient dynamoDbClient) {
+		this(dynamoDbClient, new CapacityLimiter(dynamoDbClient), DEFAULT_MAX_IN_FLIGHT);
+	}
+
+	/**
+	 * @param dynamoDbClient client to write with
+	 * @param capacityLimiter limiter throttling the batches
+	 * @param maxInFlight number of batches written at the same time
+	 */
+	public BatchWriter(DynamoDbClient dynamoDbClient, CapacityLimiter capacityLimiter, int maxInFlight) {
+		this.dynamoDbClient = dynamoDbClient;
+		this.capacityLimiter = capacityLimiter;
+		this.maxInFlight = maxInFlight;
+		this.inFlight = new Semaphore(maxInFlight);
+		this.executor = Executors.newFixedThreadPool(maxInFlight, new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "dynamobee-batch-writer-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * @param tableName table to write to
+	 * @param item item to put
+	 * @throws DynamobeeException if an earlier batch failed
+	 */
+	public void put(String tableName, Map<String, AttributeValue> item) throws DynamobeeException {
+		add(tableName, WriteRequest.builder().putRequest(PutRequest.builder().item(item).build()).build());
+	}
+
+	/**
+	 * @param tableName table to delete from
+	 * @param key key of the item to delete
+	 * @throws DynamobeeException if an earlier batch failed
+	 */
+	public void delete(String tableName, Map<String, AttributeValue> key) throws DynamobeeException {
+		add(tableName, WriteRequest.builder().deleteRequest(DeleteRequest.builder().key(key).build()).build());
+	}
+
+	private synchronized void add(String tableName, WriteRequest writeRequest) throws DynamobeeException {
+		checkFailure();
+		Map<String, AttributeValue> key = key(tableName, writeRequest);
+		if (key != null) {
+			Set<Map<String, AttributeValue>> tableKeys = bufferedKeys.get(tableName);
+			if (tableKeys == null) {
+				tableKeys = new HashSet<>();
+				bufferedKeys.put(tableName, tableKeys);
+			}
+			if (!tableKeys.add(key)) {
+				flush();
+				bufferedKeys.put(tableName, new HashSet<>(Collections.singleton(key)));
+			}
+		}
+		List<WriteRequest> tableRequests = buffer.get(tableName);
+		if (tableRequests == null) {
+			tableRequests = new ArrayList<>();
+			buffer.put(tableName, tableRequests);
+		}
+		tableRequests.add(writeRequest);
+		if (++buffered == MAX_BATCH_SIZE) {
+			submitBuffer();
+		}
+	}
+
+	/**
+	 * @return key of the written item, null if the key schema of the table is not known
+	 */
+	private Map<String, AttributeValue> key(String tableName, WriteRequest writeRequest) {
+		if (writeRequest.deleteRequest() != null) {
+			return writeRequest.deleteRequest().key();
+		}
+		List<String> attributes = keyAttributes.get(tableName);
+		if (attributes == null) {
+			attributes = new ArrayList<>();
+			try {
+				for (KeySchemaElement element : dynamoDbClient.describeTable(
+						DescribeTableRequest.builder().tableName(tableName).build()).table().keySchema()) {
+					attributes.add(element.attributeName());
+				}
+			} catch (RuntimeException e) {
+				logger.warn("Could not describe table {}, writes to the same key may share a batch: {}", tableName,
+						e.getMessage());
+			}
+			keyAttributes.put(tableName, attributes);
+		}
+		if (attributes.isEmpty()) {
+			return null;
+		}
+		Map<String, AttributeValue> item = writeRequest.putRequest().item();
+		Map<String, AttributeValue> key = new HashMap<>();
+		for (String attribute : attributes) {
+			key.put(attribute, item.get(attribute));
+		}
+		return key;
+	}
+
+	private void submitBuffer() throws DynamobeeException {
+		final Map<String, List<WriteRequest>> batch = buffer;
+		final int batchSize = buffered;
+		buffer = new HashMap<>();
+		bufferedKeys = new HashMap<>();
+		buffered = 0;
+
+		try {
+			inFlight.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DynamobeeException("Interrupted while waiting for batch writes", e);
+		}
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					writeBatch(batch);
+					writtenItems.addAndGet(batchSize);
+				} catch (Throwable e) {
+					if (failure == null) {
+						failure = e;
+					}
+				} finally {
+					inFlight.release();
+				}
+			}
+		});
+	}
+
+	private void writeBatch(Map<String, List<WriteRequest>> batch) throws DynamobeeException, InterruptedException {
+		Map<String, List<WriteRequest>> remaining = batch;
+		for (int attempt = 1; ; attempt++) {
+			Map<String, CapacityLimiter.Permit> permits = new HashMap<>();
+			try {
+				for (Map.Entry<String, List<WriteRequest>> table : remaining.entrySet()) {
+					permits.put(table.getKey(), capacityLimiter.acquireWrite(table.getKey(), table.getValue().size()));
+				}
+				BatchWriteItemResponse response = dynamoDbClient.batchWriteItem(BatchWriteItemRequest.builder()
+						.requestItems(remaining)
+						.returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+						.build());
+				Map<String, List<WriteRequest>> unprocessed = response.unprocessedItems();
+				for (Map.Entry<String, CapacityLimiter.Permit> permit : permits.entrySet()) {
+					if (unprocessed != null && unprocessed.containsKey(permit.getKey())) {
+						permit.getValue().throttled();
+					}
+					permit.getValue().consumed(response.consumedCapacity(), permit.getKey());
+				}
+				remaining = unprocessed;
+			} catch (ProvisionedThroughputExceededException e) {
+				logger.debug("Batch write throttled, retrying", e);
+				for (CapacityLimiter.Permit permit : permits.values()) {
+					permit.throttled();
+				}
+			} finally {
+				for (CapacityLimiter.Permit permit : permits.values()) {
+					permit.release();
+				}
+			}
+			if (remaining == null || remaining.isEmpty()) {
+				return;
+			}
+			if (attempt == MAX_ATTEMPTS) {
+				throw new DynamobeeException("Batch write left unprocessed items after " + MAX_ATTEMPTS + " attempts");
+			}
+			Thread.sleep(backoff(attempt));
+		}
+	}
+
+	private long backoff(int attempt) {
+		long ceiling = Math.min(MAX_BACKOFF, baseBackoff << Math.min(attempt, 16));
+		return ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+	}
+
+	/**
+	 * @param baseBackoff backoff before the first retry in milliseconds, doubled on every further attempt
+	 */
+	void setBaseBackoff(long baseBackoff) {
+		this.baseBackoff = baseBackoff;
+	}
+
+	/**
+	 * Writes all buffered items and waits for every batch in flight
+	 *
+	 * @throws DynamobeeException if a batch failed
+	 */
+	public synchronized void flush() throws DynamobeeException {
+		if (buffered > 0) {
+			submitBuffer();
+		}
+		try {
+			inFlight.acquire(maxInFlight);
+			inFlight.release(maxInFlight);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DynamobeeException("Interrupted while waiting for batch writes", e);
+		}
+		checkFailure();
+	}
+
+	private void checkFailure() throws DynamobeeException {
+		Throwable cause = failure;
+		if (cause instanceof DynamobeeException) {
+			throw (DynamobeeException) cause;
+		} else if (cause != null) {
+			throw new DynamobeeException("Batch write failed: " + cause.getMessage(), cause);
+		}
+	}
+
+	/**
+	 * @return number of items written so far
+	 */
+	public long getWrittenItems() {
+		return writtenItems.get();
+	}
+
+	/**
+	 * Stops the writer threads; buffered items that have not been flushed are dropped
+	 */
+	@Override
+	public void close() {
+		executor.shutdownNow();
+	}
+}
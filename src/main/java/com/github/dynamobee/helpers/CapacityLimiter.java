@@ -0,0 +1,351 @@
+package com.github.dynamobee.helpers;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.dynamobee.exception.DynamobeeException;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.BillingMode;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputDescription;
+import software.amazon.awssdk.services.dynamodb.model.TableDescription;
+
+
+/**
+ * Throttles migration traffic so that it leaves room for the application. Every table gets a read and a write
+ * token bucket refilled at a fraction of its provisioned capacity, and a concurrency limit that grows by one
+ * per round of successful calls and is halved on every throttled call (AIMD). Tables billed on demand have no
+ * provisioned capacity, so their buckets derive a rate from the capacity consumed by the migration: unlimited until
+ * a call is throttled, then the same fraction of the rate observed at that moment, growing by a tenth per second
+ * without throttles.
+ * <p>
+ * Shared by {@link TableScanner} and {@link BatchWriter}; changesets may declare it as a parameter to throttle
+ * their own calls:
+ * <pre>
+ * CapacityLimiter.Permit permit = limiter.acquireWrite("users", 1);
+ * try {
+ *   permit.consumed(client.putItem(request.returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)).consumedCapacity());
+ * } catch (ProvisionedThroughputExceededException e) {
+ *   permit.throttled();
+ *   throw e;
+ * } finally {
+ *   permit.release();
+ * }
+ * </pre>
+ */
+public class CapacityLimiter {
+	private static final Logger logger = LoggerFactory.getLogger(CapacityLimiter.class);
+
+	public static final double DEFAULT_CAPACITY_FRACTION = 0.5;
+	public static final int DEFAULT_MAX_CONCURRENCY = 64;
+
+	private final DynamoDbClient dynamoDbClient;
+	private final double capacityFraction;
+	private final int maxConcurrency;
+	private final ConcurrentHashMap<String, TableLimit> tables = new ConcurrentHashMap<>();
+
+	public CapacityLimiter(DynamoDbClient dynamoDbClient) {
+		this(dynamoDbClient, DEFAULT_CAPACITY_FRACTION, DEFAULT_MAX_CONCURRENCY);
+	}
+
+	/**
+	 * @param dynamoDbClient client used to describe the tables
+	 * @param capacityFraction share of the provisioned capacity migrations may use, or of the observed rate once an
+	 *                         on-demand table throttles, 0 disables the token buckets
+	 * @param maxConcurrency upper bound of concurrent calls per table
+	 */
+	public CapacityLimiter(DynamoDbClient dynamoDbClient, double capacityFraction, int maxConcurrency) {
+		this.dynamoDbClient = dynamoDbClient;
+		this.capacityFraction = capacityFraction;
+		this.maxConcurrency = maxConcurrency;
+	}
+
+	/**
+	 * Waits until a read of the table is allowed
+	 *
+	 * @param tableName table to read
+	 * @param estimatedUnits read capacity units the call is expected to consume
+	 * @return permit to report the outcome on and to release once the call returned
+	 * @throws DynamobeeException if interrupted while waiting
+	 */
+	public Permit acquireRead(String tableName, double estimatedUnits) throws DynamobeeException {
+		TableLimit table = table(tableName);
+		return table.acquire(table.reads, estimatedUnits);
+	}
+
+	/**
+	 * Waits until a write to the table is allowed
+	 *
+	 * @param tableName table to write
+	 * @param estimatedUnits write capacity units the call is expected to consume
+	 * @return permit to report the outcome on and to release once the call returned
+	 * @throws DynamobeeException if interrupted while waiting
+	 */
+	public Permit acquireWrite(String tableName, double estimatedUnits) throws DynamobeeException {
+		TableLimit table = table(tableName);
+		return table.acquire(table.writes, estimatedUnits);
+	}
+
+	private TableLimit table(String tableName) {
+		TableLimit table = tables.get(tableName);
+		if (table == null) {
+			table = describe(tableName);
+			TableLimit existing = tables.putIfAbsent(tableName, table);
+			if (existing != null) {
+				table = existing;
+			}
+		}
+		return table;
+	}
+
+	private TableLimit describe(String tableName) {
+		double readRate = 0;
+		double writeRate = 0;
+		boolean onDemand = false;
+		if (capacityFraction > 0) {
+			try {
+				TableDescription description = dynamoDbClient.describeTable(
+						DescribeTableRequest.builder().tableName(tableName).build()).table();
+				ProvisionedThroughputDescription throughput = description.provisionedThroughput();
+				onDemand = description.billingModeSummary() != null
+						&& description.billingModeSummary().billingMode() == BillingMode.PAY_PER_REQUEST;
+				if (!onDemand && throughput != null) {
+					readRate = units(throughput.readCapacityUnits()) * capacityFraction;
+					writeRate = units(throughput.writeCapacityUnits()) * capacityFraction;
+				}
+			} catch (RuntimeException e) {
+				logger.warn("Could not describe table {}, limiting concurrency only: {}", tableName, e.getMessage());
+			}
+		}
+		if (onDemand) {
+			logger.info("Migration capacity for {}: derived from observed consumption", tableName);
+			return new TableLimit(TokenBucket.observing(capacityFraction), TokenBucket.observing(capacityFraction),
+					maxConcurrency);
+		}
+		logger.info("Migration capacity for {}: {} reads/s, {} writes/s", tableName,
+				readRate > 0 ? readRate : "unlimited", writeRate > 0 ? writeRate : "unlimited");
+		return new TableLimit(new TokenBucket(readRate), new TokenBucket(writeRate), maxConcurrency);
+	}
+
+	private static double units(Long capacityUnits) {
+		return capacityUnits == null ? 0 : capacityUnits;
+	}
+
+	/**
+	 * One call admitted by the limiter
+	 */
+	public static class Permit {
+		private final TableLimit table;
+		private final TokenBucket bucket;
+		private final double estimatedUnits;
+		private boolean throttled;
+		private boolean released;
+
+		private Permit(TableLimit table, TokenBucket bucket, double estimatedUnits) {
+			this.table = table;
+			this.bucket = bucket;
+			this.estimatedUnits = estimatedUnits;
+		}
+
+		/**
+		 * Corrects the estimate with the capacity actually consumed by the call
+		 */
+		public void consumed(ConsumedCapacity consumedCapacity) {
+			if (consumedCapacity != null && consumedCapacity.capacityUnits() != null) {
+				bucket.take(consumedCapacity.capacityUnits() - estimatedUnits);
+			}
+			if (!throttled) {
+				table.succeeded();
+			}
+		}
+
+		/**
+		 * Corrects the estimate with the capacity a batch call consumed on the permit's table
+		 */
+		public void consumed(List<ConsumedCapacity> consumedCapacities, String tableName) {
+			if (consumedCapacities != null) {
+				for (ConsumedCapacity consumedCapacity : consumedCapacities) {
+					if (tableName.equals(consumedCapacity.tableName())) {
+						consumed(consumedCapacity);
+						return;
+					}
+				}
+			}
+			consumed((ConsumedCapacity) null);
+		}
+
+		/**
+		 * Reports that the call, or part of it, was throttled
+		 */
+		public void throttled() {
+			throttled = true;
+			table.throttled();
+			bucket.throttled();
+		}
+
+		public void release() {
+			if (!released) {
+				released = true;
+				table.release();
+			}
+		}
+	}
+
+	private static class TableLimit {
+		private final TokenBucket reads;
+		private final TokenBucket writes;
+		private final int maxConcurrency;
+		private double concurrency;
+		private int inFlight;
+
+		private TableLimit(TokenBucket reads, TokenBucket writes, int maxConcurrency) {
+			this.reads = reads;
+			this.writes = writes;
+			this.maxConcurrency = maxConcurrency;
+			this.concurrency = maxConcurrency;
+		}
+
+		private Permit acquire(TokenBucket bucket, double estimatedUnits) throws DynamobeeException {
+			try {
+				synchronized (this) {
+					while (inFlight >= (int) concurrency) {
+						wait();
+					}
+					inFlight++;
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new DynamobeeException("Interrupted while waiting for migration capacity", e);
+			}
+			try {
+				bucket.acquire(estimatedUnits);
+			} catch (InterruptedException e) {
+				release();
+				Thread.currentThread().interrupt();
+				throw new DynamobeeException("Interrupted while waiting for migration capacity", e);
+			}
+			return new Permit(this, bucket, estimatedUnits);
+		}
+
+		private synchronized void succeeded() {
+			concurrency = Math.min(maxConcurrency, concurrency + 1 / concurrency);
+		}
+
+		private synchronized void throttled() {
+			concurrency = Math.max(1, concurrency / 2);
+		}
+
+		private synchronized void release() {
+			inFlight--;
+			notifyAll();
+		}
+	}
+
+	private static class TokenBucket {
+		private static final long WINDOW_NANOS = 1000000000L;
+		private static final double MIN_OBSERVED_RATE = 1;
+
+		private final double observedFraction;
+		private double rate;
+		private double tokens;
+		private long refilledAt = System.nanoTime();
+		private long windowStart = refilledAt;
+		private double windowUnits;
+		private double observedRate;
+		private boolean throttledInWindow;
+
+		/**
+		 * @param rate units per second, 0 for no limit
+		 */
+		private TokenBucket(double rate) {
+			this(rate, 0);
+		}
+
+		private TokenBucket(double rate, double observedFraction) {
+			this.rate = rate;
+			this.tokens = rate;
+			this.observedFraction = observedFraction;
+		}
+
+		/**
+		 * Bucket of a table billed on demand, limited once throttled to a fraction of the rate consumed
+		 */
+		private static TokenBucket observing(double fraction) {
+			return new TokenBucket(0, fraction);
+		}
+
+		/**
+		 * Takes the units, waiting while earlier calls have overdrawn the bucket
+		 */
+		private void acquire(double units) throws InterruptedException {
+			long wait;
+			synchronized (this) {
+				observe(units);
+				if (rate <= 0) {
+					return;
+				}
+				refill();
+				wait = tokens > 0 ? 0 : (long) (-tokens / rate * 1000) + 1;
+				tokens -= units;
+			}
+			if (wait > 0) {
+				Thread.sleep(wait);
+			}
+		}
+
+		private synchronized void take(double units) {
+			observe(units);
+			if (rate > 0) {
+				refill();
+				tokens -= units;
+			}
+		}
+
+		/**
+		 * Lowers the rate of an on-demand bucket to the fraction of the rate consumed when the call was throttled
+		 */
+		private synchronized void throttled() {
+			if (observedFraction <= 0) {
+				return;
+			}
+			long elapsed = Math.max(1, System.nanoTime() - windowStart);
+			double consumed = Math.max(observedRate, windowUnits * 1e9 / elapsed);
+			if (rate > 0) {
+				consumed = Math.min(consumed, rate);
+			}
+			refill();
+			rate = Math.max(MIN_OBSERVED_RATE, consumed * observedFraction);
+			tokens = Math.min(tokens, rate);
+			throttledInWindow = true;
+		}
+
+		/**
+		 * Accounts consumed units, and lets the rate of an on-demand bucket grow after a second without throttles
+		 */
+		private void observe(double units) {
+			windowUnits += units;
+			long now = System.nanoTime();
+			if (now - windowStart < WINDOW_NANOS) {
+				return;
+			}
+			observedRate = windowUnits * 1e9 / (now - windowStart);
+			if (observedFraction > 0 && rate > 0 && !throttledInWindow) {
+				refill();
+				rate += Math.max(MIN_OBSERVED_RATE, rate / 10);
+			}
+			windowStart = now;
+			windowUnits = 0;
+			throttledInWindow = false;
+		}
+
+		private void refill() {
+			long now = System.nanoTime();
+			tokens = Math.min(rate, tokens + (now - refilledAt) / 1e9 * rate);
+			refilledAt = now;
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package com.github.dynamobee.helpers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import com.github.dynamobee.exception.DynamobeeChangeSetException;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionCheck;
+import software.amazon.awssdk.services.dynamodb.model.Delete;
+import software.amazon.awssdk.services.dynamodb.model.Put;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItem;
+import software.amazon.awssdk.services.dynamodb.model.Update;
+
+
+/**
+ * Collects the writes of a transactional changeset. Injectable into @{@link com.github.dynamobee.changeset.ChangeSet}
+ * methods; once the changeset returns, the runner commits the collected writes and the changelog entry in a single
+ * TransactWriteItems request, so the changeset is applied and recorded exactly once, or not at all.
+ * Nothing is written while the changeset runs, and the writes of a transaction must target distinct items.
+ */
+public class ChangeSetTransaction {
+	/** TransactWriteItems limit, one of which is taken by the changelog entry */
+	public static final int MAX_TRANSACT_ITEMS = 25;
+	public static final int MAX_WRITES = MAX_TRANSACT_ITEMS - 1;
+
+	private final List<TransactWriteItem> writes = new ArrayList<>();
+
+	public ChangeSetTransaction put(String tableName, Map<String, AttributeValue> item) throws DynamobeeChangeSetException {
+		return put(Put.builder().tableName(tableName).item(item).build());
+	}
+
+	public ChangeSetTransaction put(Put put) throws DynamobeeChangeSetException {
+		return add(TransactWriteItem.builder().put(put).build());
+	}
+
+	public ChangeSetTransaction update(Update update) throws DynamobeeChangeSetException {
+		return add(TransactWriteItem.builder().update(update).build());
+	}
+
+	public ChangeSetTransaction delete(String tableName, Map<String, AttributeValue> key) throws DynamobeeChangeSetException {
+		return delete(Delete.builder().tableName(tableName).key(key).build());
+	}
+
+	public ChangeSetTransaction delete(Delete delete) throws DynamobeeChangeSetException {
+		return add(TransactWriteItem.builder().delete(delete).build());
+	}
+
+	/**
+	 * Makes the commit depend on a condition on an item that is not written
+	 */
+	public ChangeSetTransaction conditionCheck(ConditionCheck conditionCheck) throws DynamobeeChangeSetException {
+		return add(TransactWriteItem.builder().conditionCheck(conditionCheck).build());
+	}
+
+	/**
+	 * @param write write to commit with the changelog entry
+	 * @return this transaction
+	 * @throws DynamobeeChangeSetException if the transaction already holds {@link #MAX_WRITES} writes
+	 */
+	public synchronized ChangeSetTransaction add(TransactWriteItem write) throws DynamobeeChangeSetException {
+		if (writes.size() >= MAX_WRITES) {
+			throw new DynamobeeChangeSetException("A changeset transaction holds at most " + MAX_WRITES + " writes");
+		}
+		writes.add(write);
+		return this;
+	}
+
+	public synchronized List<TransactWriteItem> getWrites() {
+		return Collections.unmodifiableList(new ArrayList<>(writes));
+	}
+
+	public synchronized boolean isEmpty() {
+		return writes.isEmpty();
+	}
+}
@@ -0,0 +1,125 @@
+package com.github.dynamobee.helpers;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.dynamobee.dao.DynamobeeDao;
+import com.github.dynamobee.exception.DynamobeeException;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+
+/**
+ * Progress of a long running changeset, stored in the changelog table under the changeset's id.
+ * Injectable into @{@link com.github.dynamobee.changeset.ChangeSet} methods; a changeset that did not complete
+ * receives the positions it stored last when it runs again. The checkpoint is removed once the changeset is applied.
+ * <p>
+ * Positions are named, e.g. one per scan segment, and persisted at most once per interval. A {@link BatchWriter}
+ * of the same changeset is flushed before every persist, so stored positions never run ahead of the writes.
+ */
+public class Checkpoint {
+	private static final Logger logger = LoggerFactory.getLogger(Checkpoint.class);
+
+	public static final long DEFAULT_PERSIST_INTERVAL = 10000L;
+
+	private static final String DONE = "done";
+
+	private final DynamobeeDao dao;
+	private final String changeId;
+	private final BatchWriter batchWriter;
+	private final long persistInterval;
+	private final Map<String, AttributeValue> progress;
+	private long persistedAt = System.currentTimeMillis();
+	private boolean dirty;
+
+	/**
+	 * @param dao changelog the progress is stored in
+	 * @param changeId id of the changeset
+	 * @param batchWriter writer of the changeset flushed before persisting, may be null
+	 * @param persistInterval minimum time between two persists in milliseconds
+	 */
+	public Checkpoint(DynamobeeDao dao, String changeId, BatchWriter batchWriter, long persistInterval) {
+		this.dao = dao;
+		this.changeId = changeId;
+		this.batchWriter = batchWriter;
+		this.persistInterval = persistInterval;
+		this.progress = dao.loadCheckpoint(changeId);
+		if (!progress.isEmpty()) {
+			logger.info("Resuming changeset {} from {} stored positions", changeId, progress.size());
+		}
+	}
+
+	/**
+	 * @param name name of the position
+	 * @return last stored position, null if there is none or the work is done
+	 */
+	public synchronized Map<String, AttributeValue> get(String name) {
+		AttributeValue position = progress.get(name);
+		return position == null || position.m() == null || position.m().isEmpty() ? null : position.m();
+	}
+
+	/**
+	 * @param name name of the position
+	 * @return true if {@link #done(String)} has been called for the position
+	 */
+	public synchronized boolean isDone(String name) {
+		AttributeValue position = progress.get(name);
+		return position != null && DONE.equals(position.s());
+	}
+
+	/**
+	 * Records the position work can resume from and persists it if the interval has passed
+	 *
+	 * @param name name of the position
+	 * @param position e.g. the LastEvaluatedKey of a scan
+	 * @throws DynamobeeException if persisting failed
+	 */
+	public void update(String name, Map<String, AttributeValue> position) throws DynamobeeException {
+		record(name, AttributeValue.builder().m(new HashMap<>(position)).build());
+	}
+
+	/**
+	 * Records that the work named by the position is complete
+	 *
+	 * @param name name of the position
+	 * @throws DynamobeeException if persisting failed
+	 */
+	public void done(String name) throws DynamobeeException {
+		record(name, AttributeValue.builder().s(DONE).build());
+	}
+
+	private void record(String name, AttributeValue position) throws DynamobeeException {
+		synchronized (this) {
+			progress.put(name, position);
+			dirty = true;
+			if (System.currentTimeMillis() - persistedAt < persistInterval) {
+				return;
+			}
+			persistedAt = System.currentTimeMillis();
+		}
+		persist();
+	}
+
+	/**
+	 * Flushes the changeset's writes and stores all recorded positions
+	 *
+	 * @throws DynamobeeException if flushing or storing failed
+	 */
+	public void persist() throws DynamobeeException {
+		if (batchWriter != null) {
+			batchWriter.flush();
+		}
+		Map<String, AttributeValue> snapshot;
+		synchronized (this) {
+			if (!dirty) {
+				return;
+			}
+			snapshot = new HashMap<>(progress);
+			dirty = false;
+		}
+		dao.saveCheckpoint(changeId, snapshot);
+		logger.debug("Stored {} positions of changeset {}", snapshot.size(), changeId);
+	}
+}
@@ -0,0 +1,184 @@
+package com.github.dynamobee.helpers;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.dynamobee.exception.DynamobeeException;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+
+/**
+ * Streams the objects of a JSON data file into a table, injectable into
+ * @{@link com.github.dynamobee.changeset.ChangeSet} methods:
+ * <pre>
+ * &#64;ChangeSet(order = "001", id = "loadCountries", author = "me")
+ * public void loadCountries(JsonLoader loader) throws DynamobeeException {
+ *   loader.load("data/countries.ndjson").into("countries");
+ * }
+ * </pre>
+ * The file holds either a JSON array of objects or a sequence of objects, such as NDJSON. Files are memory-mapped
+ * and parsed one object at a time with a Jackson streaming parser, so memory use does not depend on the size of the
+ * file. Objects become items written through the changeset's {@link BatchWriter}; numbers keep their text, null
+ * becomes a NULL attribute, and of several objects with the same key the last one is written.
+ */
+public class JsonLoader {
+	private static final Logger logger = LoggerFactory.getLogger(JsonLoader.class);
+
+	private static final String KEY_OFFSET = "offset";
+	private static final String KEY_ARRAY = "array";
+
+	private final BatchWriter batchWriter;
+
+	/**
+	 * @param batchWriter writer the items are written through
+	 */
+	public JsonLoader(BatchWriter batchWriter) {
+		this.batchWriter = batchWriter;
+	}
+
+	/**
+	 * @param file data file, memory-mapped while it is read
+	 * @return load to configure and run
+	 */
+	public Load load(Path file) {
+		return new Load(file.toString(), file, null);
+	}
+
+	/**
+	 * @param resource classpath resource; resources on the file system are memory-mapped, others are streamed
+	 * @return load to configure and run
+	 * @throws DynamobeeException if the resource does not exist
+	 */
+	public Load load(String resource) throws DynamobeeException {
+		ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+		URL url = (classLoader != null ? classLoader : JsonLoader.class.getClassLoader()).getResource(resource);
+		if (url == null) {
+			throw new DynamobeeException("Resource " + resource + " not found");
+		}
+		if ("file".equals(url.getProtocol())) {
+			try {
+				return new Load(resource, Paths.get(url.toURI()), null);
+			} catch (URISyntaxException e) {
+				// streamed instead
+			}
+		}
+		return new Load(resource, null, url);
+	}
+
+	/**
+	 * Callback turning a parsed object into the item to write
+	 */
+	public interface ItemTransformer {
+		/**
+		 * @param item parsed object
+		 * @return item to write, null to skip the object
+		 */
+		Map<String, AttributeValue> transform(Map<String, AttributeValue> item) throws Exception;
+	}
+
+	/**
+	 * A configured load of one data file
+	 */
+	public class Load {
+		private final String name;
+		private final Path file;
+		private final URL url;
+		private ItemTransformer transformer;
+		private Checkpoint checkpoint;
+		private long windowSize = JsonRecordReader.DEFAULT_WINDOW_SIZE;
+
+		private Load(String name, Path file, URL url) {
+			this.name = name;
+			this.file = file;
+			this.url = url;
+		}
+
+		/**
+		 * @param transformer callback applied to every object before it is written, e.g. to add keys
+		 * @return this load
+		 */
+		public Load transform(ItemTransformer transformer) {
+			this.transformer = transformer;
+			return this;
+		}
+
+		/**
+		 * @param checkpoint checkpoint of the changeset; the load then resumes after the last stored object, and
+		 *                   objects written after the last persist are written again
+		 * @return this load
+		 */
+		public Load checkpoint(Checkpoint checkpoint) {
+			this.checkpoint = checkpoint;
+			return this;
+		}
+
+		/**
+		 * @param windowSize size in bytes of the regions of the file mapped at a time
+		 * @return this load
+		 */
+		public Load windowSize(long windowSize) {
+			this.windowSize = windowSize;
+			return this;
+		}
+
+		/**
+		 * Writes every object of the file to the table and flushes the writes
+		 *
+		 * @param tableName table to write to
+		 * @return number of objects read by this load
+		 * @throws DynamobeeException if the file cannot be read or parsed, or a write failed
+		 */
+		public long into(String tableName) throws DynamobeeException {
+			String position = "json:" + name;
+			if (checkpoint != null && checkpoint.isDone(position)) {
+				return 0;
+			}
+			Map<String, AttributeValue> resumeFrom = checkpoint != null ? checkpoint.get(position) : null;
+			long offset = resumeFrom != null ? Long.parseLong(resumeFrom.get(KEY_OFFSET).n()) : 0;
+			Boolean array = resumeFrom != null ? resumeFrom.get(KEY_ARRAY).bool() : null;
+			long items = 0;
+
+			try (JsonRecordReader reader = file != null
+					? JsonRecordReader.open(file, offset, array, windowSize)
+					: JsonRecordReader.open(url.openStream(), offset, array)) {
+				Map<String, AttributeValue> item;
+				while ((item = reader.next()) != null) {
+					if (transformer != null) {
+						item = transformer.transform(item);
+					}
+					if (item != null) {
+						batchWriter.put(tableName, item);
+					}
+					items++;
+					if (checkpoint != null) {
+						Map<String, AttributeValue> resumeAt = new HashMap<>();
+						resumeAt.put(KEY_OFFSET, AttributeValue.builder().n(Long.toString(reader.position())).build());
+						resumeAt.put(KEY_ARRAY, AttributeValue.builder().bool(reader.isArray()).build());
+						checkpoint.update(position, resumeAt);
+					}
+				}
+			} catch (DynamobeeException e) {
+				throw e;
+			} catch (IOException e) {
+				throw new DynamobeeException("Could not read " + name + ": " + e.getMessage(), e);
+			} catch (Exception e) {
+				throw new DynamobeeException("Could not load " + name + ": " + e.getMessage(), e);
+			}
+
+			batchWriter.flush();
+			if (checkpoint != null) {
+				checkpoint.done(position);
+			}
+			logger.info("Loaded {} objects of {} into {}", items, name, tableName);
+			return items;
+		}
+	}
+}
@@ -0,0 +1,274 @@
+package com.github.dynamobee.helpers;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.io.SequenceInputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+
+/**
+ * Reads one JSON object at a time from a JSON array or from a sequence of objects, such as NDJSON, with a Jackson
+ * streaming parser. Only the record being parsed is held in memory. Objects become maps, arrays lists, numbers keep
+ * their text, and null becomes a NULL attribute. Strings holding unpaired surrogates are rejected.
+ */
+final class JsonRecordReader implements Closeable {
+	/** Size of the regions of a file mapped at a time */
+	static final long DEFAULT_WINDOW_SIZE = 64L * 1024 * 1024;
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	private final JsonParser parser;
+	private final long base;
+	private Boolean array;
+	private boolean ended;
+	private long position;
+
+	/**
+	 * @param in bytes to read, positioned at the start of the content or after a record
+	 * @param offset offset of the first byte of the stream in the content
+	 * @param array whether the records are the elements of an array, null to detect it at the start of the content
+	 */
+	private JsonRecordReader(InputStream in, long offset, Boolean array) throws IOException {
+		this.array = array;
+		this.position = offset;
+		if (Boolean.TRUE.equals(array)) {
+			// resuming inside an array: drop the separator and let the parser open an array of the remaining records
+			PushbackInputStream content = new PushbackInputStream(in, 1);
+			long start = offset;
+			int c = content.read();
+			while (c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+				start++;
+				c = content.read();
+			}
+			if (c == ',') {
+				start++;
+			} else if (c >= 0) {
+				content.unread(c);
+			}
+			this.base = start - 1;
+			this.parser = JSON_FACTORY.createParser(
+					new SequenceInputStream(new ByteArrayInputStream(new byte[]{'['}), content));
+			parser.nextToken();
+		} else {
+			this.base = offset;
+			this.parser = JSON_FACTORY.createParser(in);
+		}
+	}
+
+	/**
+	 * @param offset position to resume from, as returned by {@link #position()}, 0 to start at the beginning
+	 */
+	static JsonRecordReader open(Path file, long offset, Boolean array, long windowSize) throws IOException {
+		return new JsonRecordReader(new MappedInputStream(FileChannel.open(file, StandardOpenOption.READ), offset, windowSize),
+				offset, array);
+	}
+
+	/**
+	 * @param offset position to resume from, as returned by {@link #position()}, 0 to start at the beginning
+	 */
+	static JsonRecordReader open(InputStream in, long offset, Boolean array) throws IOException {
+		long skipped = 0;
+		while (skipped < offset) {
+			long n = in.skip(offset - skipped);
+			if (n <= 0) {
+				in.close();
+				throw new EOFException("Content ends before offset " + offset);
+			}
+			skipped += n;
+		}
+		return new JsonRecordReader(in, offset, array);
+	}
+
+	/**
+	 * @return the next record, null once all records have been read
+	 * @throws IOException if the content cannot be read or is not valid JSON
+	 */
+	Map<String, AttributeValue> next() throws IOException {
+		if (ended) {
+			return null;
+		}
+		JsonToken token = parser.nextToken();
+		if (array == null) {
+			array = token == JsonToken.START_ARRAY;
+			if (array) {
+				token = parser.nextToken();
+			}
+		}
+
+		if (array && token == JsonToken.END_ARRAY) {
+			if (parser.nextToken() != null) {
+				throw error("Unexpected content after the array");
+			}
+			ended = true;
+			return null;
+		}
+		if (token == null) {
+			if (array) {
+				throw error("Unexpected end of content");
+			}
+			ended = true;
+			return null;
+		}
+		if (token != JsonToken.START_OBJECT) {
+			throw error("Expected a JSON object");
+		}
+		Map<String, AttributeValue> record = readObject();
+		// right after the closing brace
+		position = base + parser.getTokenLocation().getByteOffset() + 1;
+		return record;
+	}
+
+	/**
+	 * @return offset right after the last record returned by {@link #next()}
+	 */
+	long position() {
+		return position;
+	}
+
+	/**
+	 * @return whether the records are the elements of an array, null if not known yet
+	 */
+	Boolean isArray() {
+		return array;
+	}
+
+	private Map<String, AttributeValue> readObject() throws IOException {
+		Map<String, AttributeValue> object = new LinkedHashMap<>();
+		JsonToken token;
+		while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+			String name = checkSurrogates(parser.getCurrentName());
+			object.put(name, readValue(parser.nextToken()));
+		}
+		if (token != JsonToken.END_OBJECT) {
+			throw error("Unexpected end of content");
+		}
+		return object;
+	}
+
+	private AttributeValue readValue(JsonToken token) throws IOException {
+		if (token == null) {
+			throw error("Unexpected end of content");
+		}
+		switch (token) {
+			case START_OBJECT:
+				return AttributeValue.builder().m(readObject()).build();
+			case START_ARRAY:
+				List<AttributeValue> list = new ArrayList<>();
+				while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+					list.add(readValue(token));
+				}
+				return AttributeValue.builder().l(list).build();
+			case VALUE_STRING:
+				return AttributeValue.builder().s(checkSurrogates(parser.getText())).build();
+			case VALUE_NUMBER_INT:
+			case VALUE_NUMBER_FLOAT:
+				return AttributeValue.builder().n(parser.getText()).build();
+			case VALUE_TRUE:
+				return AttributeValue.builder().bool(true).build();
+			case VALUE_FALSE:
+				return AttributeValue.builder().bool(false).build();
+			case VALUE_NULL:
+				return AttributeValue.builder().nul(true).build();
+			default:
+				throw error("Unexpected " + token);
+		}
+	}
+
+	/**
+	 * Jackson decodes an escaped surrogate without its pair into a string DynamoDB cannot encode
+	 */
+	private String checkSurrogates(String text) throws IOException {
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (Character.isHighSurrogate(c) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1))) {
+				i++;
+			} else if (Character.isSurrogate(c)) {
+				throw error("Unpaired surrogate in string");
+			}
+		}
+		return text;
+	}
+
+	private IOException error(String message) {
+		return new IOException(message + " at offset " + (base + parser.getTokenLocation().getByteOffset()));
+	}
+
+	@Override
+	public void close() throws IOException {
+		parser.close();
+	}
+
+	/**
+	 * File mapped one window at a time, so that neither the heap nor the address space has to hold all of it
+	 */
+	private static final class MappedInputStream extends InputStream {
+		private final FileChannel channel;
+		private final long size;
+		private final long windowSize;
+		private long windowStart;
+		private MappedByteBuffer window;
+
+		MappedInputStream(FileChannel channel, long offset, long windowSize) throws IOException {
+			this.channel = channel;
+			this.size = channel.size();
+			this.windowSize = windowSize;
+			this.windowStart = offset;
+			map();
+		}
+
+		private void map() throws IOException {
+			window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.max(0, Math.min(windowSize, size - windowStart)));
+		}
+
+		private boolean hasRemaining() throws IOException {
+			if (window.hasRemaining()) {
+				return true;
+			}
+			if (windowStart + window.limit() >= size) {
+				return false;
+			}
+			windowStart += window.limit();
+			map();
+			return true;
+		}
+
+		@Override
+		public int read() throws IOException {
+			return hasRemaining() ? window.get() & 0xff : -1;
+		}
+
+		@Override
+		public int read(byte[] bytes, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			if (!hasRemaining()) {
+				return -1;
+			}
+			int n = Math.min(len, window.remaining());
+			window.get(bytes, off, n);
+			return n;
+		}
+
+		@Override
+		public void close() throws IOException {
+			channel.close();
+		}
+	}
+}
@@ -0,0 +1,157 @@
+package com.github.dynamobee.helpers;
+
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import com.github.dynamobee.dao.DynamobeeDao;
+import com.github.dynamobee.exception.DynamobeeException;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+
+/**
+ * Scan segments of a cooperative changeset, leased in the changelog table to the processes running it.
+ * The lock holder is the leader: it waits for every segment to be done and removes the leases afterwards.
+ * A {@link BatchWriter} of the same changeset is flushed before a segment's progress is stored. Leases are extended
+ * by a heartbeat while pages are handled, so a page taking longer than the lease is not scanned twice.
+ */
+public class SegmentLeases {
+	private final DynamobeeDao dao;
+	private final DynamobeeDao.CooperativeRun run;
+	private final BatchWriter batchWriter;
+	private final boolean leader;
+	private final long renewInterval;
+	private final Map<String, Long> renewedAt = new ConcurrentHashMap<>();
+	private final Set<String> positions = new LinkedHashSet<>();
+	private final Set<String> lostPositions = ConcurrentHashMap.newKeySet();
+	private ScheduledExecutorService heartbeat;
+
+	public SegmentLeases(DynamobeeDao dao, DynamobeeDao.CooperativeRun run, BatchWriter batchWriter, boolean leader) {
+		this.dao = dao;
+		this.run = run;
+		this.batchWriter = batchWriter;
+		this.leader = leader;
+		this.renewInterval = dao.getLockLeaseDuration() * 1000 / 3;
+	}
+
+	public boolean isLeader() {
+		return leader;
+	}
+
+	/**
+	 * @param position name of the segment
+	 * @return position to resume the segment from, empty to start at the beginning, null if it is not leased
+	 * to this process
+	 */
+	public Map<String, AttributeValue> claim(String position) {
+		synchronized (positions) {
+			positions.add(position);
+		}
+		if (!leader) {
+			DynamobeeDao.CooperativeRun current = dao.getCooperativeRun();
+			if (current == null || !current.getRunId().equals(run.getRunId())) {
+				return null;
+			}
+		}
+		Map<String, AttributeValue> resumeFrom = dao.claimSegment(run, position);
+		if (resumeFrom != null) {
+			lostPositions.remove(position);
+			renewedAt.put(position, System.currentTimeMillis());
+			startHeartbeat();
+		}
+		return resumeFrom;
+	}
+
+	/**
+	 * Extends the lease once a third of it has passed, storing the position the segment resumes from
+	 *
+	 * @return false if the segment has been leased to another process
+	 * @throws DynamobeeException if flushing the writes failed
+	 */
+	public boolean progress(String position, Map<String, AttributeValue> resumeFrom) throws DynamobeeException {
+		if (lostPositions.contains(position)) {
+			return false;
+		}
+		Long renewed = renewedAt.get(position);
+		if (renewed != null && System.currentTimeMillis() - renewed < renewInterval) {
+			return true;
+		}
+		if (batchWriter != null) {
+			batchWriter.flush();
+		}
+		renewedAt.put(position, System.currentTimeMillis());
+		return dao.renewSegment(run, position, resumeFrom);
+	}
+
+	/**
+	 * @throws DynamobeeException if flushing the writes failed
+	 */
+	public void complete(String position) throws DynamobeeException {
+		if (batchWriter != null) {
+			batchWriter.flush();
+		}
+		renewedAt.remove(position);
+		dao.completeSegment(run, position);
+	}
+
+	private synchronized void startHeartbeat() {
+		if (heartbeat != null) {
+			return;
+		}
+		long period = Math.max(1L, renewInterval);
+		heartbeat = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "dynamobee-segment-heartbeat");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		heartbeat.scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				for (String position : renewedAt.keySet()) {
+					try {
+						if (!dao.extendSegment(run, position) && renewedAt.remove(position) != null) {
+							lostPositions.add(position);
+						}
+					} catch (RuntimeException e) {
+						// retried on the next beat, the lease outlives two missed beats
+					}
+				}
+			}
+		}, period, period, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops extending leases, once the changeset returned
+	 */
+	public synchronized void stop() {
+		if (heartbeat != null) {
+			heartbeat.shutdownNow();
+			heartbeat = null;
+		}
+		renewedAt.clear();
+	}
+
+	public boolean isDone(String position) {
+		return dao.isSegmentDone(run, position);
+	}
+
+	/**
+	 * Removes the leases of all segments this process has seen
+	 */
+	public void clear() {
+		synchronized (positions) {
+			for (String position : positions) {
+				dao.deleteSegment(run, position);
+			}
+			positions.clear();
+		}
+	}
+}
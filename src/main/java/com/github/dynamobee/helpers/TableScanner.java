@@ -0,0 +1,320 @@
+package com.github.dynamobee.helpers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.dynamobee.exception.DynamobeeException;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+
+
+/**
+ * Segmented parallel scan, injectable into @{@link com.github.dynamobee.changeset.ChangeSet} methods:
+ * <pre>
+ * &#64;ChangeSet(order = "001", id = "backfill", author = "me")
+ * public void backfill(TableScanner scanner) throws DynamobeeException {
+ *   scanner.scan("users").totalSegments(16).projection("id, email").forEach(item -&gt; ...);
+ * }
+ * </pre>
+ */
+public class TableScanner {
+	private static final Logger logger = LoggerFactory.getLogger(TableScanner.class);
+
+	private static final int DEFAULT_TOTAL_SEGMENTS = 8;
+	private static final long THROTTLE_BACKOFF = 100L;
+	private static final long SEGMENT_POLL_INTERVAL = 1000L;
+
+	private final DynamoDbClient dynamoDbClient;
+	private final CapacityLimiter capacityLimiter;
+	private final SegmentLeases segmentLeases;
+
+	public TableScanner(DynamoDbClient dynamoDbClient) {
+		this(dynamoDbClient, new CapacityLimiter(dynamoDbClient));
+	}
+
+	public TableScanner(DynamoDbClient dynamoDbClient, CapacityLimiter capacityLimiter) {
+		this(dynamoDbClient, capacityLimiter, null);
+	}
+
+	/**
+	 * Scanner of a cooperative changeset: segments are leased, so that several processes share the scan
+	 *
+	 * @param segmentLeases leases of the changeset's run
+	 */
+	public TableScanner(DynamoDbClient dynamoDbClient, CapacityLimiter capacityLimiter, SegmentLeases segmentLeases) {
+		this.dynamoDbClient = dynamoDbClient;
+		this.capacityLimiter = capacityLimiter;
+		this.segmentLeases = segmentLeases;
+	}
+
+	/**
+	 * @param tableName table to scan
+	 * @return scan to configure and run
+	 */
+	public Scan scan(String tableName) {
+		return new Scan(ScanRequest.builder().tableName(tableName).build());
+	}
+
+	/**
+	 * @param template request holding the table name and any expressions; segment settings are overwritten
+	 * @return scan to configure and run
+	 */
+	public Scan scan(ScanRequest template) {
+		return new Scan(template);
+	}
+
+	/**
+	 * Callback invoked for every scanned item, from several threads at the same time
+	 */
+	public interface ItemHandler {
+		void handle(Map<String, AttributeValue> item) throws Exception;
+	}
+
+	/**
+	 * A configured scan of one table
+	 */
+	public class Scan {
+		private final ScanRequest.Builder request;
+		private int totalSegments = DEFAULT_TOTAL_SEGMENTS;
+		private int parallelism = -1;
+		private Checkpoint checkpoint;
+
+		private Scan(ScanRequest template) {
+			this.request = template.toBuilder();
+		}
+
+		/**
+		 * @param totalSegments number of segments the table is split into
+		 * @return this scan
+		 */
+		public Scan totalSegments(int totalSegments) {
+			this.totalSegments = totalSegments;
+			return this;
+		}
+
+		/**
+		 * @param parallelism number of segments scanned at the same time, defaults to the number of segments
+		 * @return this scan
+		 */
+		public Scan parallelism(int parallelism) {
+			this.parallelism = parallelism;
+			return this;
+		}
+
+		public Scan projection(String projectionExpression) {
+			this.request.projectionExpression(projectionExpression);
+			return this;
+		}
+
+		public Scan filter(String filterExpression) {
+			this.request.filterExpression(filterExpression);
+			return this;
+		}
+
+		public Scan attributeNames(Map<String, String> expressionAttributeNames) {
+			this.request.expressionAttributeNames(expressionAttributeNames);
+			return this;
+		}
+
+		public Scan attributeValues(Map<String, AttributeValue> expressionAttributeValues) {
+			this.request.expressionAttributeValues(expressionAttributeValues);
+			return this;
+		}
+
+		/**
+		 * @param pageSize maximum number of items evaluated per request
+		 * @return this scan
+		 */
+		public Scan pageSize(int pageSize) {
+			this.request.limit(pageSize);
+			return this;
+		}
+
+		/**
+		 * @param checkpoint checkpoint of the changeset; segments then resume from their last stored
+		 *                   LastEvaluatedKey, and items of the page being handled at a crash are handled again
+		 * @return this scan
+		 */
+		public Scan checkpoint(Checkpoint checkpoint) {
+			this.checkpoint = checkpoint;
+			return this;
+		}
+
+		/**
+		 * Scans all segments on a bounded pool and hands every item to the handler.
+		 * The first failure stops the scan.
+		 * <p>
+		 * In a cooperative changeset only the segments leased to this process are scanned, and the lock holder
+		 * returns once every segment has been scanned by one of the processes.
+		 *
+		 * @param handler callback for every item
+		 * @return number of items handled by this process
+		 * @throws DynamobeeException first failure of a segment
+		 */
+		public long forEach(final ItemHandler handler) throws DynamobeeException {
+			final ScanRequest template = request.build();
+			int threads = parallelism > 0 ? Math.min(parallelism, totalSegments) : totalSegments;
+			ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+				private final AtomicInteger count = new AtomicInteger();
+
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "dynamobee-scan-" + count.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			List<Integer> segments = new ArrayList<>();
+			for (int segment = 0; segment < totalSegments; segment++) {
+				segments.add(segment);
+			}
+			long items = 0;
+
+			try {
+				items += scanSegments(executor, template, segments, handler);
+				while (segmentLeases != null && segmentLeases.isLeader()) {
+					// segments of processes that died are leased again once their lease expired
+					List<Integer> pending = new ArrayList<>();
+					for (int segment : segments) {
+						if (!segmentLeases.isDone(position(template, segment))) {
+							pending.add(segment);
+						}
+					}
+					if (pending.isEmpty()) {
+						break;
+					}
+					Thread.sleep(SEGMENT_POLL_INTERVAL);
+					items += scanSegments(executor, template, pending, handler);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new DynamobeeException("Interrupted while scanning " + template.tableName(), e);
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				throw new DynamobeeException("Scan of " + template.tableName() + " failed: " + cause.getMessage(), cause);
+			} finally {
+				executor.shutdownNow();
+			}
+
+			logger.info("Scanned {} items of {} in {} segments", items, template.tableName(), totalSegments);
+			return items;
+		}
+
+		private long scanSegments(ExecutorService executor, final ScanRequest template, List<Integer> segments,
+				final ItemHandler handler) throws InterruptedException, ExecutionException {
+			CompletionService<Long> completionService = new ExecutorCompletionService<>(executor);
+			List<Future<Long>> futures = new ArrayList<>();
+			for (final int segment : segments) {
+				futures.add(completionService.submit(new Callable<Long>() {
+					@Override
+					public Long call() throws Exception {
+						return segmentLeases != null
+								? scanLeasedSegment(template, segment, handler)
+								: scanSegment(template, segment, handler);
+					}
+				}));
+			}
+			long items = 0;
+			for (int i = 0; i < futures.size(); i++) {
+				items += completionService.take().get();
+			}
+			return items;
+		}
+
+		private String position(ScanRequest template, int segment) {
+			return template.tableName() + (template.indexName() != null ? "." + template.indexName() : "")
+					+ "/" + segment + "/" + totalSegments;
+		}
+
+		private long scanSegment(ScanRequest template, int segment, ItemHandler handler) throws Exception {
+			String position = position(template, segment);
+			if (checkpoint != null && checkpoint.isDone(position)) {
+				return 0;
+			}
+			Map<String, AttributeValue> lastEvaluatedKey = checkpoint != null ? checkpoint.get(position) : null;
+			long items = 0;
+			while (!Thread.currentThread().isInterrupted()) {
+				ScanResponse response = scanPage(template, segment, lastEvaluatedKey);
+				for (Map<String, AttributeValue> item : response.items()) {
+					handler.handle(item);
+					items++;
+				}
+				lastEvaluatedKey = response.lastEvaluatedKey();
+				if (lastEvaluatedKey == null || lastEvaluatedKey.isEmpty()) {
+					if (checkpoint != null) {
+						checkpoint.done(position);
+					}
+					break;
+				}
+				if (checkpoint != null) {
+					checkpoint.update(position, lastEvaluatedKey);
+				}
+			}
+			return items;
+		}
+
+		private long scanLeasedSegment(ScanRequest template, int segment, ItemHandler handler) throws Exception {
+			String position = position(template, segment);
+			Map<String, AttributeValue> lastEvaluatedKey = segmentLeases.claim(position);
+			if (lastEvaluatedKey == null) {
+				return 0;
+			}
+			long items = 0;
+			while (!Thread.currentThread().isInterrupted()) {
+				ScanResponse response = scanPage(template, segment, lastEvaluatedKey.isEmpty() ? null : lastEvaluatedKey);
+				for (Map<String, AttributeValue> item : response.items()) {
+					handler.handle(item);
+					items++;
+				}
+				lastEvaluatedKey = response.lastEvaluatedKey();
+				if (lastEvaluatedKey == null || lastEvaluatedKey.isEmpty()) {
+					segmentLeases.complete(position);
+					break;
+				}
+				if (!segmentLeases.progress(position, lastEvaluatedKey)) {
+					break;
+				}
+			}
+			return items;
+		}
+
+		private ScanResponse scanPage(ScanRequest template, int segment, Map<String, AttributeValue> exclusiveStartKey)
+				throws DynamobeeException, InterruptedException {
+			for (int throttles = 1; ; throttles++) {
+				CapacityLimiter.Permit permit = capacityLimiter.acquireRead(template.tableName(), 1);
+				try {
+					ScanResponse response = dynamoDbClient.scan(template.toBuilder()
+							.segment(segment)
+							.totalSegments(totalSegments)
+							.exclusiveStartKey(exclusiveStartKey)
+							.returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+							.build());
+					permit.consumed(response.consumedCapacity());
+					return response;
+				} catch (ProvisionedThroughputExceededException e) {
+					permit.throttled();
+				} finally {
+					permit.release();
+				}
+				Thread.sleep(THROTTLE_BACKOFF << Math.min(throttles, 6));
+			}
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package com.github.dynamobee.jfr;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * One phase of a migration being recorded as a Java Flight Recorder event, see {@link MigrationEvents}.
+ * Collects what the phase did until {@link #commit()}; does nothing if the event is not recorded.
+ * Not thread safe, a scope belongs to the thread running the phase.
+ */
+public class EventScope {
+	private static final int MAX_REQUEST_IDS = 32;
+
+	/**
+	 * Scope of an event that is not recorded
+	 */
+	public static final EventScope NONE = new EventScope(null);
+
+	private final Object event;
+	private int attempts;
+	private long count;
+	private String result;
+	private List<String> requestIds;
+
+	EventScope(Object event) {
+		this.event = event;
+	}
+
+	public boolean isRecording() {
+		return event != null;
+	}
+
+	/**
+	 * Counts one more attempt of the phase, e.g. of acquiring the lock
+	 */
+	public EventScope attempt() {
+		if (event != null) {
+			attempts++;
+		}
+		return this;
+	}
+
+	/**
+	 * @param requestId id of a DynamoDB request made by the phase, null is ignored
+	 */
+	public EventScope requestId(String requestId) {
+		if (event != null && requestId != null) {
+			if (requestIds == null) {
+				requestIds = new ArrayList<>();
+			}
+			if (requestIds.size() < MAX_REQUEST_IDS) {
+				requestIds.add(requestId);
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * @param count number of items produced by the phase, e.g. changelogs found or applied changesets read
+	 */
+	public EventScope count(long count) {
+		this.count = count;
+		return this;
+	}
+
+	/**
+	 * @param result outcome of the phase
+	 */
+	public EventScope result(String result) {
+		this.result = result;
+		return this;
+	}
+
+	/**
+	 * Ends the phase and emits the event
+	 */
+	public void commit() {
+		if (event != null) {
+			FlightRecorderEvents.commit(event, this);
+		}
+	}
+
+	int getAttempts() {
+		return attempts;
+	}
+
+	long getCount() {
+		return count;
+	}
+
+	String getResult() {
+		return result;
+	}
+
+	String getRequestIds() {
+		if (requestIds == null) {
+			return null;
+		}
+		StringBuilder joined = new StringBuilder();
+		for (String requestId : requestIds) {
+			if (joined.length() > 0) {
+				joined.append(',');
+			}
+			joined.append(requestId);
+		}
+		return joined.toString();
+	}
+}
@@ -0,0 +1,148 @@
+package com.github.dynamobee.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+
+/**
+ * The jdk.jfr events behind {@link EventScope}; only loaded once {@link MigrationEvents} found jdk.jfr.
+ */
+final class FlightRecorderEvents {
+
+	private FlightRecorderEvents() {
+	}
+
+	static Object changeLogScan(String scanPackage) {
+		ChangeLogScanEvent event = new ChangeLogScanEvent();
+		if (!event.isEnabled()) {
+			return null;
+		}
+		event.scanPackage = scanPackage;
+		event.begin();
+		return event;
+	}
+
+	static Object lockAcquisition(String changelogTable) {
+		LockAcquisitionEvent event = new LockAcquisitionEvent();
+		if (!event.isEnabled()) {
+			return null;
+		}
+		event.changelogTable = changelogTable;
+		event.begin();
+		return event;
+	}
+
+	static Object historyLookup(String changelogTable, String changeId) {
+		HistoryLookupEvent event = new HistoryLookupEvent();
+		if (!event.isEnabled()) {
+			return null;
+		}
+		event.changelogTable = changelogTable;
+		event.changeId = changeId;
+		event.begin();
+		return event;
+	}
+
+	static Object changeSetExecution(String changeId, String author, String changeLogClass, String changeSetMethod) {
+		ChangeSetExecutionEvent event = new ChangeSetExecutionEvent();
+		if (!event.isEnabled()) {
+			return null;
+		}
+		event.changeId = changeId;
+		event.author = author;
+		event.changeLogClass = changeLogClass;
+		event.changeSetMethod = changeSetMethod;
+		event.begin();
+		return event;
+	}
+
+	static void commit(Object recorded, EventScope scope) {
+		MigrationEvent event = (MigrationEvent) recorded;
+		event.end();
+		if (!event.shouldCommit()) {
+			return;
+		}
+		event.result = scope.getResult();
+		event.requestIds = scope.getRequestIds();
+		if (event instanceof ChangeLogScanEvent) {
+			((ChangeLogScanEvent) event).changeLogs = (int) scope.getCount();
+		} else if (event instanceof LockAcquisitionEvent) {
+			((LockAcquisitionEvent) event).attempts = scope.getAttempts();
+		} else if (event instanceof HistoryLookupEvent) {
+			((HistoryLookupEvent) event).appliedChangeSets = scope.getCount();
+		} else if (event instanceof ChangeSetExecutionEvent) {
+			((ChangeSetExecutionEvent) event).attempts = scope.getAttempts();
+		}
+		event.commit();
+	}
+
+	@Category("Dynamobee")
+	abstract static class MigrationEvent extends Event {
+		@Label("Result")
+		String result;
+
+		@Label("Request Ids")
+		@Description("Ids of the DynamoDB requests made on the changelog table")
+		String requestIds;
+	}
+
+	@Name("com.github.dynamobee.ChangeLogScan")
+	@Label("Changelog Scan")
+	@Description("Changelog classes found on the classpath")
+	static class ChangeLogScanEvent extends MigrationEvent {
+		@Label("Scan Package")
+		String scanPackage;
+
+		@Label("Changelogs")
+		int changeLogs;
+	}
+
+	@Name("com.github.dynamobee.LockAcquisition")
+	@Label("Lock Acquisition")
+	@Description("Acquiring the process lock, including polling and waiting for another process to complete")
+	static class LockAcquisitionEvent extends MigrationEvent {
+		@Label("Changelog Table")
+		String changelogTable;
+
+		@Label("Attempts")
+		int attempts;
+	}
+
+	@Name("com.github.dynamobee.HistoryLookup")
+	@Label("History Lookup")
+	@Description("Reading whether a changeset, or every changeset when the id is missing, has been applied")
+	static class HistoryLookupEvent extends MigrationEvent {
+		@Label("Changelog Table")
+		String changelogTable;
+
+		@Label("Change Id")
+		String changeId;
+
+		@Label("Applied Changesets")
+		long appliedChangeSets;
+	}
+
+	@Name("com.github.dynamobee.ChangeSetExecution")
+	@Label("Changeset Execution")
+	@Description("Running a changeset and recording it in the changelog table")
+	static class ChangeSetExecutionEvent extends MigrationEvent {
+		@Label("Change Id")
+		String changeId;
+
+		@Label("Author")
+		String author;
+
+		@Label("Changelog Class")
+		String changeLogClass;
+
+		@Label("Changeset Method")
+		String changeSetMethod;
+
+		@Label("Attempts")
+		@Description("Claims written before the changeset could run, in lockless mode")
+		int attempts;
+	}
+}
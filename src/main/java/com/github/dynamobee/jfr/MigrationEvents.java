@@ -0,0 +1,61 @@
+package com.github.dynamobee.jfr;
+
+import com.github.dynamobee.changeset.ChangeEntry;
+
+
+/**
+ * Java Flight Recorder events around the phases of a migration: changelog scanning, lock acquisition,
+ * history lookups and changeset execution. Events are in the "Dynamobee" category and cost next to nothing
+ * unless a recording enables them. On JVMs without jdk.jfr every scope is {@link EventScope#NONE}.
+ */
+public final class MigrationEvents {
+	private static final boolean AVAILABLE = isAvailable();
+
+	private MigrationEvents() {
+	}
+
+	private static boolean isAvailable() {
+		try {
+			Class.forName("jdk.jfr.Event", false, MigrationEvents.class.getClassLoader());
+			return true;
+		} catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+
+	/**
+	 * @param scanPackage package scanned for changelogs
+	 */
+	public static EventScope changeLogScan(String scanPackage) {
+		return AVAILABLE ? scope(FlightRecorderEvents.changeLogScan(scanPackage)) : EventScope.NONE;
+	}
+
+	/**
+	 * @param changelogTable table holding the lock
+	 */
+	public static EventScope lockAcquisition(String changelogTable) {
+		return AVAILABLE ? scope(FlightRecorderEvents.lockAcquisition(changelogTable)) : EventScope.NONE;
+	}
+
+	/**
+	 * @param changelogTable table holding the history
+	 * @param changeId changeset looked up, null when the whole history is read
+	 */
+	public static EventScope historyLookup(String changelogTable, String changeId) {
+		return AVAILABLE ? scope(FlightRecorderEvents.historyLookup(changelogTable, changeId)) : EventScope.NONE;
+	}
+
+	/**
+	 * @param changeEntry changeset being executed
+	 */
+	public static EventScope changeSetExecution(ChangeEntry changeEntry) {
+		return AVAILABLE
+				? scope(FlightRecorderEvents.changeSetExecution(changeEntry.getChangeId(), changeEntry.getAuthor(),
+						changeEntry.getChangeLogClass(), changeEntry.getChangeSetMethodName()))
+				: EventScope.NONE;
+	}
+
+	private static EventScope scope(Object event) {
+		return event == null ? EventScope.NONE : new EventScope(event);
+	}
+}
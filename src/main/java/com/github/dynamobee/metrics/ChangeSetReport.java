@@ -0,0 +1,50 @@
+package com.github.dynamobee.metrics;
+
+/**
+ * Outcome of one changeset in a migration
+ */
+public class ChangeSetReport {
+
+	public enum Outcome {
+		/** applied and recorded by this process */
+		APPLIED,
+		/** runAlways changeset, or runOnChange changeset that has changed, applied again */
+		REAPPLIED,
+		/** applied by another process while this one waited for its claim */
+		APPLIED_ELSEWHERE,
+		/** already applied, passed over */
+		SKIPPED,
+		/** failed, not recorded */
+		FAILED
+	}
+
+	private final String changeId;
+	private final Outcome outcome;
+	private final long durationMillis;
+
+	public ChangeSetReport(String changeId, Outcome outcome, long durationMillis) {
+		this.changeId = changeId;
+		this.outcome = outcome;
+		this.durationMillis = durationMillis;
+	}
+
+	public String getChangeId() {
+		return changeId;
+	}
+
+	public Outcome getOutcome() {
+		return outcome;
+	}
+
+	/**
+	 * @return wall time of the changeset, including recording it
+	 */
+	public long getDurationMillis() {
+		return durationMillis;
+	}
+
+	@Override
+	public String toString() {
+		return "[ChangeSetReport: id=" + changeId + ", outcome=" + outcome + ", durationMillis=" + durationMillis + "]";
+	}
+}
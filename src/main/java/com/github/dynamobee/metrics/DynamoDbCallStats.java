@@ -0,0 +1,66 @@
+package com.github.dynamobee.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+
+
+/**
+ * Number of DynamoDB calls made on the changelog table and capacity they consumed, per phase
+ */
+public class DynamoDbCallStats {
+	private final Map<MigrationPhase, AtomicLong> calls = new EnumMap<>(MigrationPhase.class);
+	private final Map<MigrationPhase, DoubleAdder> consumedCapacity = new EnumMap<>(MigrationPhase.class);
+
+	public DynamoDbCallStats() {
+		for (MigrationPhase phase : MigrationPhase.values()) {
+			calls.put(phase, new AtomicLong());
+			consumedCapacity.put(phase, new DoubleAdder());
+		}
+	}
+
+	/**
+	 * Counts a call, whether it succeeds or not
+	 *
+	 * @param phase phase the call belongs to
+	 */
+	public void called(MigrationPhase phase) {
+		calls.get(phase).incrementAndGet();
+	}
+
+	/**
+	 * @param phase phase the call belongs to
+	 * @param capacity capacity consumed by the call, may be null
+	 */
+	public void consumed(MigrationPhase phase, ConsumedCapacity capacity) {
+		if (capacity != null && capacity.capacityUnits() != null) {
+			consumedCapacity.get(phase).add(capacity.capacityUnits());
+		}
+	}
+
+	public void reset() {
+		for (MigrationPhase phase : MigrationPhase.values()) {
+			calls.get(phase).set(0);
+			consumedCapacity.get(phase).reset();
+		}
+	}
+
+	public Map<MigrationPhase, Long> getCalls() {
+		Map<MigrationPhase, Long> snapshot = new EnumMap<>(MigrationPhase.class);
+		for (Map.Entry<MigrationPhase, AtomicLong> entry : calls.entrySet()) {
+			snapshot.put(entry.getKey(), entry.getValue().get());
+		}
+		return snapshot;
+	}
+
+	public Map<MigrationPhase, Double> getConsumedCapacity() {
+		Map<MigrationPhase, Double> snapshot = new EnumMap<>(MigrationPhase.class);
+		for (Map.Entry<MigrationPhase, DoubleAdder> entry : consumedCapacity.entrySet()) {
+			snapshot.put(entry.getKey(), entry.getValue().sum());
+		}
+		return snapshot;
+	}
+}
@@ -0,0 +1,84 @@
+package com.github.dynamobee.metrics;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+
+/**
+ * Publishes migrations to a Micrometer registry. micrometer-core is an optional dependency of dynamobee
+ * and has to be on the classpath to use this class.
+ * <ul>
+ * <li>{@code dynamobee.changeset} timer, tagged with {@code outcome}, and with {@code changeId} only if enabled, as
+ * every changeset then adds a time series</li>
+ * <li>{@code dynamobee.migration} timer, tagged with {@code status}</li>
+ * <li>{@code dynamobee.lock.wait} timer</li>
+ * <li>{@code dynamobee.dynamodb.calls} and {@code dynamobee.dynamodb.capacity} counters, tagged with {@code phase}</li>
+ * </ul>
+ */
+public class MicrometerMigrationMetrics implements MigrationMetrics {
+	private final MeterRegistry registry;
+	private final boolean tagChangeId;
+
+	public MicrometerMigrationMetrics(MeterRegistry registry) {
+		this(registry, false);
+	}
+
+	/**
+	 * @param registry    registry to publish to
+	 * @param tagChangeId whether to tag changeset timers with the changeId, one time series per changeset
+	 */
+	public MicrometerMigrationMetrics(MeterRegistry registry, boolean tagChangeId) {
+		this.registry = registry;
+		this.tagChangeId = tagChangeId;
+	}
+
+	@Override
+	public void changeSetCompleted(ChangeSetReport report) {
+		Timer.Builder timer = Timer.builder("dynamobee.changeset")
+				.description("Wall time of changesets")
+				.tag("outcome", report.getOutcome().name());
+		if (tagChangeId) {
+			timer.tag("changeId", report.getChangeId());
+		}
+		timer.register(registry).record(report.getDurationMillis(), TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public void migrationCompleted(MigrationReport report) {
+		Timer.builder("dynamobee.migration")
+				.description("Wall time of migration runs")
+				.tag("status", report.getStatus().name())
+				.register(registry)
+				.record(report.getDurationMillis(), TimeUnit.MILLISECONDS);
+		Timer.builder("dynamobee.lock.wait")
+				.description("Time spent acquiring the process lock")
+				.register(registry)
+				.record(report.getLockWaitMillis(), TimeUnit.MILLISECONDS);
+		if (report.getReadyMillis() >= 0) {
+			Timer.builder("dynamobee.ready")
+					.description("Time until the changesets needed before readiness were applied")
+					.register(registry)
+					.record(report.getReadyMillis(), TimeUnit.MILLISECONDS);
+		}
+
+		for (Map.Entry<MigrationPhase, Long> calls : report.getCalls().entrySet()) {
+			Counter.builder("dynamobee.dynamodb.calls")
+					.description("DynamoDB calls on the changelog table")
+					.tag("phase", calls.getKey().name())
+					.register(registry)
+					.increment(calls.getValue());
+		}
+		for (Map.Entry<MigrationPhase, Double> capacity : report.getConsumedCapacity().entrySet()) {
+			Counter.builder("dynamobee.dynamodb.capacity")
+					.description("Capacity units consumed on the changelog table")
+					.baseUnit("capacity units")
+					.tag("phase", capacity.getKey().name())
+					.register(registry)
+					.increment(capacity.getValue());
+		}
+	}
+}
@@ -0,0 +1,22 @@
+package com.github.dynamobee.metrics;
+
+/**
+ * Receives the outcome of every changeset and the report of every migration run,
+ * see {@link MicrometerMigrationMetrics} for a Micrometer binding
+ */
+public interface MigrationMetrics {
+
+	/**
+	 * Called for every changeset once its outcome is known, possibly from several threads at the same time
+	 *
+	 * @param report outcome of the changeset
+	 */
+	void changeSetCompleted(ChangeSetReport report);
+
+	/**
+	 * Called at the end of every run, including runs that failed or had nothing to do
+	 *
+	 * @param report report of the run
+	 */
+	void migrationCompleted(MigrationReport report);
+}
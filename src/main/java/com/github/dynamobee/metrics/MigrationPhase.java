@@ -0,0 +1,19 @@
+package com.github.dynamobee.metrics;
+
+/**
+ * Phases of a migration the DynamoDB calls of the changelog are counted in
+ */
+public enum MigrationPhase {
+	/** looking up the changelog table */
+	DESCRIBE,
+	/** taking, renewing and releasing the process lock or changeset claims */
+	LOCK,
+	/** reading which changesets have been applied */
+	HISTORY,
+	/** recording applied changesets */
+	SAVE,
+	/** reading and writing the manifest */
+	MANIFEST,
+	/** checkpoints and segment leases of long running changesets */
+	PROGRESS
+}
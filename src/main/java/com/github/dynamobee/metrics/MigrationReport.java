@@ -0,0 +1,149 @@
+package com.github.dynamobee.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Report of one migration run, returned by {@link com.github.dynamobee.Dynamobee#execute()}
+ */
+public class MigrationReport {
+
+	public enum Status {
+		/** dynamobee is disabled */
+		DISABLED,
+		/** the manifest showed every changeset applied */
+		UP_TO_DATE,
+		/** another process held the lock */
+		LOCK_NOT_ACQUIRED,
+		/** every pending changeset has been applied */
+		COMPLETED,
+		/** some changesets have been skipped because of errors */
+		INCOMPLETE,
+		/** the migration has been aborted by an exception */
+		FAILED
+	}
+
+	private final long startTime = System.currentTimeMillis();
+	private final List<ChangeSetReport> changeSets = Collections.synchronizedList(new ArrayList<ChangeSetReport>());
+	private Status status;
+	private long durationMillis;
+	private long lockWaitMillis;
+	private volatile long readyMillis = -1;
+	private Map<MigrationPhase, Long> calls = new EnumMap<>(MigrationPhase.class);
+	private Map<MigrationPhase, Double> consumedCapacity = new EnumMap<>(MigrationPhase.class);
+
+	public void addChangeSet(ChangeSetReport changeSet) {
+		changeSets.add(changeSet);
+	}
+
+	public void setLockWaitMillis(long lockWaitMillis) {
+		this.lockWaitMillis = lockWaitMillis;
+	}
+
+	/**
+	 * Records the time to readiness, the first time it is called
+	 */
+	public void ready() {
+		if (readyMillis < 0) {
+			readyMillis = System.currentTimeMillis() - startTime;
+		}
+	}
+
+	/**
+	 * Closes the report
+	 *
+	 * @param status outcome of the run
+	 * @param callStats calls made on the changelog table during the run
+	 */
+	public void complete(Status status, DynamoDbCallStats callStats) {
+		this.status = status;
+		this.durationMillis = System.currentTimeMillis() - startTime;
+		this.calls = callStats.getCalls();
+		this.consumedCapacity = callStats.getConsumedCapacity();
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public long getStartTime() {
+		return startTime;
+	}
+
+	public long getDurationMillis() {
+		return durationMillis;
+	}
+
+	/**
+	 * @return time spent acquiring the process lock, including waiting for other processes
+	 */
+	public long getLockWaitMillis() {
+		return lockWaitMillis;
+	}
+
+	/**
+	 * @return time until the changesets needed before readiness were applied, -1 if the run failed before
+	 */
+	public long getReadyMillis() {
+		return readyMillis;
+	}
+
+	public List<ChangeSetReport> getChangeSets() {
+		synchronized (changeSets) {
+			return new ArrayList<>(changeSets);
+		}
+	}
+
+	public int count(ChangeSetReport.Outcome outcome) {
+		int count = 0;
+		for (ChangeSetReport changeSet : getChangeSets()) {
+			if (changeSet.getOutcome() == outcome) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	public int getApplied() {
+		return count(ChangeSetReport.Outcome.APPLIED);
+	}
+
+	public int getSkipped() {
+		return count(ChangeSetReport.Outcome.SKIPPED);
+	}
+
+	public int getFailed() {
+		return count(ChangeSetReport.Outcome.FAILED);
+	}
+
+	/**
+	 * @return DynamoDB calls made on the changelog table, per phase
+	 */
+	public Map<MigrationPhase, Long> getCalls() {
+		return calls;
+	}
+
+	/**
+	 * @return capacity units consumed on the changelog table, per phase
+	 */
+	public Map<MigrationPhase, Double> getConsumedCapacity() {
+		return consumedCapacity;
+	}
+
+	@Override
+	public String toString() {
+		return "[MigrationReport: status=" + status +
+				", durationMillis=" + durationMillis +
+				", lockWaitMillis=" + lockWaitMillis +
+				", readyMillis=" + readyMillis +
+				", applied=" + getApplied() +
+				", reapplied=" + count(ChangeSetReport.Outcome.REAPPLIED) +
+				", skipped=" + getSkipped() +
+				", failed=" + getFailed() +
+				", calls=" + calls + "]";
+	}
+}
@@ -0,0 +1,185 @@
+package com.github.dynamobee.processor;
+
+import static com.github.dynamobee.utils.ChangeLogIndex.escape;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+import com.github.dynamobee.changeset.ChangeLog;
+import com.github.dynamobee.utils.ChangeLogIndex;
+
+
+/**
+ * Annotation processor writing the {@link ChangeLogIndex} of all @{@link ChangeLog} classes of a compilation,
+ * so that {@link com.github.dynamobee.utils.ChangeService} does not have to scan the classpath at runtime.
+ * <p>
+ * Incremental builds recompiling a subset of the changelogs keep the entries of the index already in the output
+ * directory whose classes are still changelogs.
+ */
+@SupportedAnnotationTypes("com.github.dynamobee.changeset.ChangeLog")
+public class ChangeLogIndexProcessor extends AbstractProcessor {
+	private static final String PROFILE_ANNOTATION = "org.springframework.context.annotation.Profile";
+
+	private final Map<String, IndexedType> changeLogs = new LinkedHashMap<>();
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		for (Element element : roundEnv.getElementsAnnotatedWith(ChangeLog.class)) {
+			if (element.getKind() == ElementKind.CLASS) {
+				IndexedType changeLog = index((TypeElement) element);
+				changeLogs.put(changeLog.className, changeLog);
+			}
+		}
+		if (roundEnv.processingOver() && !changeLogs.isEmpty()) {
+			writeIndex();
+		}
+		return false;
+	}
+
+	private IndexedType index(TypeElement changeLog) {
+		return new IndexedType(binaryName(changeLog), changeLogOrder(changeLog), new String[]{
+				ChangeLogIndex.RECORD_CHANGELOG, binaryName(changeLog), changeLog.getAnnotation(ChangeLog.class).order(),
+				profiles(changeLog)});
+	}
+
+	private void writeIndex() {
+		mergePreviousIndex();
+		List<IndexedType> sortedChangeLogs = new ArrayList<>(changeLogs.values());
+		Collections.sort(sortedChangeLogs, new Comparator<IndexedType>() {
+			@Override
+			public int compare(IndexedType o1, IndexedType o2) {
+				return o1.sortKey.compareTo(o2.sortKey);
+			}
+		});
+
+		try {
+			FileObject resource = processingEnv.getFiler()
+					.createResource(StandardLocation.CLASS_OUTPUT, "", ChangeLogIndex.INDEX_LOCATION);
+			try (Writer writer = new OutputStreamWriter(resource.openOutputStream(), StandardCharsets.UTF_8)) {
+				writer.write("# generated by " + getClass().getName() + "\n");
+				for (IndexedType changeLog : sortedChangeLogs) {
+					writeRecord(writer, changeLog.record);
+				}
+			}
+		} catch (IOException e) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+					"Could not write " + ChangeLogIndex.INDEX_LOCATION + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Adds the changelogs of the index written by an earlier compilation that were not compiled this time
+	 */
+	private void mergePreviousIndex() {
+		Map<String, ChangeLogIndex.IndexedChangeLog> previous = new LinkedHashMap<>();
+		try {
+			FileObject resource = processingEnv.getFiler()
+					.getResource(StandardLocation.CLASS_OUTPUT, "", ChangeLogIndex.INDEX_LOCATION);
+			try (InputStream in = resource.openInputStream()) {
+				ChangeLogIndex.read(in, previous);
+			}
+		} catch (IOException | IllegalArgumentException e) {
+			// no earlier index
+			return;
+		}
+		for (ChangeLogIndex.IndexedChangeLog changeLog : previous.values()) {
+			if (changeLogs.containsKey(changeLog.getClassName())) {
+				continue;
+			}
+			TypeElement type = processingEnv.getElementUtils()
+					.getTypeElement(changeLog.getClassName().replace('$', '.'));
+			if (type != null && type.getAnnotation(ChangeLog.class) != null) {
+				changeLogs.put(changeLog.getClassName(), index(type));
+			}
+		}
+	}
+
+	private String changeLogOrder(TypeElement changeLog) {
+		String order = changeLog.getAnnotation(ChangeLog.class).order();
+		return order.trim().isEmpty() ? changeLog.getQualifiedName().toString() : order;
+	}
+
+	private String binaryName(TypeElement type) {
+		return processingEnv.getElementUtils().getBinaryName(type).toString();
+	}
+
+	private String profiles(Element element) {
+		for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+			TypeElement annotationType = (TypeElement) annotation.getAnnotationType().asElement();
+			if (!annotationType.getQualifiedName().contentEquals(PROFILE_ANNOTATION)) {
+				continue;
+			}
+			StringBuilder profiles = new StringBuilder();
+			for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+					: annotation.getElementValues().entrySet()) {
+				if (!entry.getKey().getSimpleName().contentEquals("value")) {
+					continue;
+				}
+				Object value = entry.getValue().getValue();
+				if (value instanceof List) {
+					for (Object profile : (List<?>) value) {
+						if (profiles.length() > 0) {
+							profiles.append(',');
+						}
+						profiles.append(((AnnotationValue) profile).getValue());
+					}
+				} else {
+					profiles.append(value);
+				}
+			}
+			return profiles.toString();
+		}
+		return "";
+	}
+
+	private static void writeRecord(Writer writer, String... fields) throws IOException {
+		for (int i = 0; i < fields.length; i++) {
+			if (i > 0) {
+				writer.write('\t');
+			}
+			writer.write(escape(fields[i]));
+		}
+		writer.write('\n');
+	}
+
+	private static class IndexedType {
+		private final String className;
+		private final String sortKey;
+		private final String[] record;
+
+		IndexedType(String className, String sortKey, String[] record) {
+			this.className = className;
+			this.sortKey = sortKey;
+			this.record = record;
+		}
+	}
+}
@@ -0,0 +1,198 @@
+package com.github.dynamobee.utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Build-time index of @{@link com.github.dynamobee.changeset.ChangeLog} classes, written by
+ * {@link com.github.dynamobee.processor.ChangeLogIndexProcessor} into every jar it compiles.
+ * An index describes the changelogs of the classpath root it is found in; roots without an index are scanned.
+ * <p>
+ * The index only replaces classpath scanning: changesets are still read from the loaded changelog classes by
+ * reflection. Each line of the index is a tab separated record {@code changelog <class> <order> <profiles>}.
+ */
+public class ChangeLogIndex {
+	private static final Logger logger = LoggerFactory.getLogger(ChangeLogIndex.class);
+
+	public static final String INDEX_LOCATION = "META-INF/dynamobee/changelogs.idx";
+	public static final String RECORD_CHANGELOG = "changelog";
+
+	private final Map<String, IndexedChangeLog> changeLogs;
+	private final Set<String> roots;
+
+	private ChangeLogIndex(Map<String, IndexedChangeLog> changeLogs, Set<String> roots) {
+		this.changeLogs = changeLogs;
+		this.roots = roots;
+	}
+
+	/**
+	 * Reads and merges all index resources visible to the given class loader
+	 *
+	 * @param classLoader class loader to search, the context class loader if null
+	 * @return the merged index or null if no index resource is present
+	 */
+	public static ChangeLogIndex load(ClassLoader classLoader) {
+		ClassLoader loader = classLoader != null ? classLoader : Thread.currentThread().getContextClassLoader();
+		if (loader == null) {
+			loader = ChangeLogIndex.class.getClassLoader();
+		}
+		try {
+			Enumeration<URL> resources = loader.getResources(INDEX_LOCATION);
+			if (!resources.hasMoreElements()) {
+				return null;
+			}
+			Map<String, IndexedChangeLog> changeLogs = new LinkedHashMap<>();
+			Set<String> roots = new HashSet<>();
+			while (resources.hasMoreElements()) {
+				URL resource = resources.nextElement();
+				try (InputStream in = resource.openStream()) {
+					read(in, changeLogs);
+				}
+				String location = resource.toExternalForm();
+				roots.add(location.substring(0, location.length() - INDEX_LOCATION.length()));
+			}
+			return new ChangeLogIndex(changeLogs, roots);
+		} catch (IOException e) {
+			logger.warn("Could not read changelog index, falling back to classpath scanning", e);
+			return null;
+		}
+	}
+
+	/**
+	 * @param in index resource
+	 * @param changeLogs changelogs read so far, by class name, to add the records of the resource to
+	 * @throws IOException if the resource cannot be read
+	 */
+	public static void read(InputStream in, Map<String, IndexedChangeLog> changeLogs) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+		String line;
+		while ((line = reader.readLine()) != null) {
+			if (line.isEmpty() || line.charAt(0) == '#') {
+				continue;
+			}
+			String[] fields = line.split("\t", -1);
+			for (int i = 0; i < fields.length; i++) {
+				fields[i] = unescape(fields[i]);
+			}
+			if (RECORD_CHANGELOG.equals(fields[0]) && fields.length >= 4) {
+				if (!changeLogs.containsKey(fields[1])) {
+					changeLogs.put(fields[1], new IndexedChangeLog(fields[1], fields[2], splitProfiles(fields[3])));
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param basePackage package to look in, including its sub-packages
+	 * @return indexed changelogs declared in the given package, in index order
+	 */
+	public List<IndexedChangeLog> findChangeLogs(String basePackage) {
+		List<IndexedChangeLog> found = new ArrayList<>();
+		for (IndexedChangeLog changeLog : changeLogs.values()) {
+			if (changeLog.getClassName().startsWith(basePackage + ".")) {
+				found.add(changeLog);
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * @param root classpath root, as a URL ending with '/'
+	 * @return true if the root holds an index, which then lists all of its changelogs
+	 */
+	public boolean covers(URL root) {
+		return roots.contains(root.toExternalForm());
+	}
+
+	/**
+	 * Loads the indexed changelog classes of a package
+	 *
+	 * @param basePackage package to look in, including its sub-packages
+	 * @param classLoader class loader used to load the classes
+	 * @return loaded classes, empty if the index knows nothing about the package
+	 * @throws ClassNotFoundException if the index refers to a class that is not on the classpath
+	 */
+	public Set<Class<?>> loadChangeLogClasses(String basePackage, ClassLoader classLoader) throws ClassNotFoundException {
+		Set<Class<?>> classes = new LinkedHashSet<>();
+		for (IndexedChangeLog changeLog : findChangeLogs(basePackage)) {
+			classes.add(Class.forName(changeLog.getClassName(), false, classLoader));
+		}
+		return classes;
+	}
+
+	public static String escape(String value) {
+		if (value == null) {
+			return "";
+		}
+		return value.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+	}
+
+	static String unescape(String value) {
+		if (value.indexOf('\\') < 0) {
+			return value;
+		}
+		StringBuilder sb = new StringBuilder(value.length());
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '\\' && i + 1 < value.length()) {
+				char next = value.charAt(++i);
+				sb.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+			} else {
+				sb.append(c);
+			}
+		}
+		return sb.toString();
+	}
+
+	private static List<String> splitProfiles(String profiles) {
+		if (profiles.isEmpty()) {
+			return Collections.emptyList();
+		}
+		return Arrays.asList(profiles.split(","));
+	}
+
+	/**
+	 * Indexed @ChangeLog class
+	 */
+	public static class IndexedChangeLog {
+		private final String className;
+		private final String order;
+		private final List<String> profiles;
+
+		IndexedChangeLog(String className, String order, List<String> profiles) {
+			this.className = className;
+			this.order = order;
+			this.profiles = profiles;
+		}
+
+		public String getClassName() {
+			return className;
+		}
+
+		public String getOrder() {
+			return order;
+		}
+
+		public List<String> getProfiles() {
+			return profiles;
+		}
+	}
+}
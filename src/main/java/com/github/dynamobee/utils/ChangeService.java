@@ -4,32 +4,51 @@ import static java.util.Arrays.asList;
 
 import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.Method;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.reflections.Reflections;
+import org.reflections.util.ClasspathHelper;
+import org.reflections.util.ConfigurationBuilder;
+import org.reflections.util.FilterBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Profile;
 import org.springframework.core.env.Environment;
 
 import com.github.dynamobee.changeset.ChangeEntry;
 import com.github.dynamobee.changeset.ChangeLog;
+import com.github.dynamobee.changeset.ChangeManifest;
 import com.github.dynamobee.changeset.ChangeSet;
 import com.github.dynamobee.exception.DynamobeeChangeSetException;
+import com.github.dynamobee.jfr.EventScope;
+import com.github.dynamobee.jfr.MigrationEvents;
 
 
 /**
  * Utilities to deal with reflections and annotations
  */
 public class ChangeService {
+	private static final Logger logger = LoggerFactory.getLogger(ChangeService.class);
 	private static final String DEFAULT_PROFILE = "default";
 
 	private final String changeLogsBasePackage;
 	private final List<String> activeProfiles;
+	private final Map<Method, String> checksums = new HashMap<>();
 
 	public ChangeService(String changeLogsBasePackage) {
 		this(changeLogsBasePackage, null);
@@ -45,14 +64,54 @@ public class ChangeService {
 		}
 	}
 
+	/**
+	 * Changelogs of classpath roots holding a build-time {@link ChangeLogIndex} are read from the index, the other
+	 * roots containing the package are scanned, so changelogs compiled without the index processor are still found.
+	 *
+	 * @return active changelogs of the package, in execution order
+	 */
 	public List<Class<?>> fetchChangeLogs() {
-		Reflections reflections = new Reflections(changeLogsBasePackage);
-		Set<Class<?>> changeLogs = reflections.getTypesAnnotatedWith(ChangeLog.class); // TODO remove dependency, do own method
-		List<Class<?>> filteredChangeLogs = (List<Class<?>>) filterByActiveProfiles(changeLogs);
+		EventScope event = MigrationEvents.changeLogScan(changeLogsBasePackage);
+		try {
+			ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+			if (classLoader == null) {
+				classLoader = ChangeService.class.getClassLoader();
+			}
+			Set<Class<?>> changeLogs = new LinkedHashSet<>();
+			ChangeLogIndex index = ChangeLogIndex.load(classLoader);
+			if (index != null) {
+				try {
+					changeLogs.addAll(index.loadChangeLogClasses(changeLogsBasePackage, classLoader));
+				} catch (ClassNotFoundException e) {
+					logger.warn("Changelog index is out of date, falling back to classpath scanning: " + e.getMessage());
+					index = null;
+				}
+			}
+
+			List<URL> unindexedRoots = new ArrayList<>();
+			for (URL root : ClasspathHelper.forPackage(changeLogsBasePackage, classLoader)) {
+				if (index == null || !index.covers(root)) {
+					unindexedRoots.add(root);
+				}
+			}
+			if (!unindexedRoots.isEmpty()) {
+				Reflections reflections = new Reflections(new ConfigurationBuilder()
+						.setUrls(unindexedRoots)
+						.filterInputsBy(new FilterBuilder().includePackage(changeLogsBasePackage))
+						.addClassLoader(classLoader));
+				changeLogs.addAll(reflections.getTypesAnnotatedWith(ChangeLog.class));
+			}
+			event.result(index == null ? "classpath scan" : unindexedRoots.isEmpty() ? "index" : "index and classpath scan");
+
+			List<Class<?>> filteredChangeLogs = (List<Class<?>>) filterByActiveProfiles(changeLogs);
 
-		Collections.sort(filteredChangeLogs, new ChangeLogComparator());
+			Collections.sort(filteredChangeLogs, new ChangeLogComparator());
 
-		return filteredChangeLogs;
+			event.count(filteredChangeLogs.size());
+			return filteredChangeLogs;
+		} finally {
+			event.commit();
+		}
 	}
 
 	public List<Method> fetchChangeSets(final Class<?> type) throws DynamobeeChangeSetException {
@@ -73,7 +132,31 @@ public class ChangeService {
 		}
 	}
 
-	public ChangeEntry createChangeEntry(Method changesetMethod) {
+	/**
+	 * @param changesetMethod changeset method
+	 * @return interval of a runEvery changeset, null for other changesets
+	 * @throws DynamobeeChangeSetException if the interval is not a positive ISO-8601 duration
+	 */
+	public Duration getRunEvery(Method changesetMethod) throws DynamobeeChangeSetException {
+		ChangeSet annotation = changesetMethod.getAnnotation(ChangeSet.class);
+		if (annotation == null || annotation.runEvery().isEmpty()) {
+			return null;
+		}
+		try {
+			Duration interval = Duration.parse(annotation.runEvery());
+			if (interval.isNegative() || interval.isZero()) {
+				throw new DynamobeeChangeSetException(String.format(
+						"ChangeSet '%s' has a runEvery interval which is not positive: '%s'", annotation.id(), annotation.runEvery()));
+			}
+			return interval;
+		} catch (DateTimeParseException e) {
+			throw new DynamobeeChangeSetException(String.format(
+					"ChangeSet '%s' has a runEvery interval which is not an ISO-8601 duration: '%s'", annotation.id(),
+					annotation.runEvery()));
+		}
+	}
+
+	public ChangeEntry createChangeEntry(Method changesetMethod) throws DynamobeeChangeSetException {
 		if (changesetMethod.isAnnotationPresent(ChangeSet.class)) {
 			ChangeSet annotation = changesetMethod.getAnnotation(ChangeSet.class);
 
@@ -82,12 +165,73 @@ public class ChangeService {
 					annotation.author(),
 					new Date(),
 					changesetMethod.getDeclaringClass().getName(),
-					changesetMethod.getName());
+					changesetMethod.getName(),
+					annotation.runOnChange() ? getChecksum(changesetMethod) : null);
 		} else {
 			return null;
 		}
 	}
 
+	/**
+	 * @param changesetMethod a runOnChange changeset
+	 * @return checksum of the changeset, computed once per method
+	 * @throws DynamobeeChangeSetException if its bytecode or resources cannot be read
+	 */
+	public String getChecksum(Method changesetMethod) throws DynamobeeChangeSetException {
+		String checksum = checksums.get(changesetMethod);
+		if (checksum == null) {
+			checksum = ChangeSetChecksum.compute(changesetMethod,
+					changesetMethod.getAnnotation(ChangeSet.class).checksumResources());
+			checksums.put(changesetMethod, checksum);
+		}
+		return checksum;
+	}
+
+	/**
+	 * Computes the manifest of the given changelogs: a SHA-256 digest over the ids of their active changesets,
+	 * in execution order, with runAlways and runEvery changesets marked and the checksums of runOnChange changesets.
+	 *
+	 * @param changeLogs changelog classes as returned by {@link #fetchChangeLogs()}
+	 * @return the manifest
+	 * @throws DynamobeeChangeSetException if changeset ids are duplicated
+	 */
+	public ChangeManifest createManifest(List<Class<?>> changeLogs) throws DynamobeeChangeSetException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+
+		boolean runAlways = false;
+		for (Class<?> changeLog : changeLogs) {
+			for (Method changeSetMethod : fetchChangeSets(changeLog)) {
+				ChangeSet annotation = changeSetMethod.getAnnotation(ChangeSet.class);
+				digest.update(annotation.id().getBytes(StandardCharsets.UTF_8));
+				if (annotation.runAlways()) {
+					digest.update((byte) 0);
+					runAlways = true;
+				}
+				if (getRunEvery(changeSetMethod) != null) {
+					digest.update((byte) 2);
+					digest.update(annotation.runEvery().getBytes(StandardCharsets.UTF_8));
+					runAlways = true;
+				}
+				if (annotation.runOnChange()) {
+					digest.update((byte) 1);
+					digest.update(getChecksum(changeSetMethod).getBytes(StandardCharsets.UTF_8));
+				}
+				digest.update((byte) '\n');
+			}
+		}
+
+		StringBuilder hex = new StringBuilder();
+		for (byte b : digest.digest()) {
+			hex.append(String.format("%02x", b));
+		}
+		return new ChangeManifest(hex.toString(), runAlways);
+	}
+
 	private boolean matchesActiveSpringProfile(AnnotatedElement element) {
 		if (!ClassUtils.isPresent("org.springframework.context.annotation.Profile", null)) {
 			return true;
@@ -0,0 +1,44 @@
+package com.github.dynamobee.utils;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * Values that can be injected into @{@link com.github.dynamobee.changeset.ChangeSet} methods, keyed by parameter type
+ */
+public class ChangeSetArguments {
+	private final Map<Class<?>, Object> values = new LinkedHashMap<>();
+
+	public <T> ChangeSetArguments bind(Class<T> type, T value) {
+		values.put(type, value);
+		return this;
+	}
+
+	/**
+	 * Declares a type whose value is bound separately for each changeset, see {@link #copy()}
+	 */
+	public ChangeSetArguments declare(Class<?> type) {
+		values.put(type, null);
+		return this;
+	}
+
+	/**
+	 * @return arguments holding the same values, to bind changeset specific values on
+	 */
+	public ChangeSetArguments copy() {
+		ChangeSetArguments copy = new ChangeSetArguments();
+		copy.values.putAll(values);
+		return copy;
+	}
+
+	public Object get(Class<?> type) {
+		return values.get(type);
+	}
+
+	public Set<Class<?>> types() {
+		return Collections.unmodifiableSet(values.keySet());
+	}
+}
@@ -0,0 +1,354 @@
+package com.github.dynamobee.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import com.github.dynamobee.exception.DynamobeeChangeSetException;
+
+
+/**
+ * SHA-256 checksum of a changeset for {@link com.github.dynamobee.changeset.ChangeSet#runOnChange()}: the bytecode
+ * of the changeset method, read from its class file, and the content of the resources it declares.
+ * <p>
+ * Constant pool references are hashed by the constants they resolve to, and debug attributes such as line numbers
+ * are left out, so editing other methods of the changelog does not change the checksum. Code of lambdas and of
+ * the methods the changeset calls is not part of it.
+ */
+public class ChangeSetChecksum {
+	private static final int CONSTANT_UTF8 = 1;
+	private static final int CONSTANT_INTEGER = 3;
+	private static final int CONSTANT_FLOAT = 4;
+	private static final int CONSTANT_LONG = 5;
+	private static final int CONSTANT_DOUBLE = 6;
+	private static final int CONSTANT_CLASS = 7;
+	private static final int CONSTANT_STRING = 8;
+	private static final int CONSTANT_METHOD_HANDLE = 15;
+	private static final int CONSTANT_METHOD_TYPE = 16;
+	private static final int CONSTANT_DYNAMIC = 17;
+	private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+	private static final int CONSTANT_MODULE = 19;
+	private static final int CONSTANT_PACKAGE = 20;
+
+	private static final int LDC = 0x12;
+	private static final int TABLESWITCH = 0xaa;
+	private static final int LOOKUPSWITCH = 0xab;
+	private static final int IINC = 0x84;
+	private static final int WIDE = 0xc4;
+
+	/**
+	 * Operand bytes of every opcode: -1 for a two byte constant pool index followed by {@code extra} bytes,
+	 * encoded as {@code -1 - extra}; -10 for the variable-length switches.
+	 */
+	private static final int[] OPERANDS = new int[256];
+
+	static {
+		setOperands(0x10, 0x10, 1);     // bipush
+		setOperands(0x11, 0x11, 2);     // sipush
+		setOperands(0x13, 0x14, -1);    // ldc_w, ldc2_w
+		setOperands(0x15, 0x19, 1);     // loads
+		setOperands(0x36, 0x3a, 1);     // stores
+		setOperands(IINC, IINC, 2);
+		setOperands(0x99, 0xa8, 2);     // conditional branches, goto, jsr
+		setOperands(0xa9, 0xa9, 1);     // ret
+		setOperands(TABLESWITCH, LOOKUPSWITCH, -10);
+		setOperands(0xb2, 0xb8, -1);    // field access, invokevirtual, invokespecial, invokestatic
+		setOperands(0xb9, 0xba, -3);    // invokeinterface, invokedynamic
+		setOperands(0xbb, 0xbb, -1);    // new
+		setOperands(0xbc, 0xbc, 1);     // newarray
+		setOperands(0xbd, 0xbd, -1);    // anewarray
+		setOperands(0xc0, 0xc1, -1);    // checkcast, instanceof
+		setOperands(0xc5, 0xc5, -2);    // multianewarray
+		setOperands(0xc6, 0xc7, 2);     // ifnull, ifnonnull
+		setOperands(0xc8, 0xc9, 4);     // goto_w, jsr_w
+	}
+
+	private static void setOperands(int from, int to, int operands) {
+		for (int opcode = from; opcode <= to; opcode++) {
+			OPERANDS[opcode] = operands;
+		}
+	}
+
+	private final Object[] constants;
+	private final int[] tags;
+	private final MessageDigest digest;
+
+	private ChangeSetChecksum(Object[] constants, int[] tags) {
+		this.constants = constants;
+		this.tags = tags;
+		try {
+			this.digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * @param method changeset method
+	 * @param resources classpath resources whose content is part of the checksum, resolved by the class loader of
+	 * the changelog
+	 * @return hex encoded checksum
+	 * @throws DynamobeeChangeSetException if the class file or a resource cannot be read
+	 */
+	public static String compute(Method method, String... resources) throws DynamobeeChangeSetException {
+		Class<?> type = method.getDeclaringClass();
+		String className = type.getName();
+		String classFile = className.substring(className.lastIndexOf('.') + 1) + ".class";
+		ChangeSetChecksum checksum;
+		try (InputStream in = type.getResourceAsStream(classFile)) {
+			if (in == null) {
+				throw new DynamobeeChangeSetException("Could not find the class file of " + className);
+			}
+			DataInputStream data = new DataInputStream(in);
+			if (data.readInt() != 0xCAFEBABE) {
+				throw new DynamobeeChangeSetException("Not a class file: " + className);
+			}
+			data.readUnsignedShort();
+			data.readUnsignedShort();
+			checksum = readConstantPool(data);
+			if (!checksum.digestMethod(data, method.getName(), descriptor(method))) {
+				throw new DynamobeeChangeSetException(String.format("Could not find the bytecode of %s.%s",
+						className, method.getName()));
+			}
+		} catch (IOException e) {
+			throw new DynamobeeChangeSetException(String.format("Could not read the bytecode of %s.%s: %s",
+					className, method.getName(), e.getMessage()));
+		}
+
+		ClassLoader classLoader = type.getClassLoader() != null ? type.getClassLoader() : ClassLoader.getSystemClassLoader();
+		for (String resource : resources) {
+			try (InputStream in = classLoader.getResourceAsStream(resource)) {
+				if (in == null) {
+					throw new DynamobeeChangeSetException(String.format("Resource '%s' of changeset %s.%s not found",
+							resource, className, method.getName()));
+				}
+				checksum.update(resource);
+				byte[] buffer = new byte[8192];
+				for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+					checksum.digest.update(buffer, 0, read);
+				}
+			} catch (IOException e) {
+				throw new DynamobeeChangeSetException(String.format("Could not read resource '%s': %s",
+						resource, e.getMessage()));
+			}
+		}
+		return checksum.hex();
+	}
+
+	private static ChangeSetChecksum readConstantPool(DataInputStream data) throws IOException {
+		int count = data.readUnsignedShort();
+		Object[] constants = new Object[count];
+		int[] tags = new int[count];
+		for (int index = 1; index < count; index++) {
+			int tag = data.readUnsignedByte();
+			tags[index] = tag;
+			switch (tag) {
+				case CONSTANT_UTF8:
+					constants[index] = data.readUTF();
+					break;
+				case CONSTANT_INTEGER:
+					constants[index] = data.readInt();
+					break;
+				case CONSTANT_FLOAT:
+					constants[index] = data.readFloat();
+					break;
+				case CONSTANT_LONG:
+					constants[index++] = data.readLong();
+					break;
+				case CONSTANT_DOUBLE:
+					constants[index++] = data.readDouble();
+					break;
+				case CONSTANT_CLASS:
+				case CONSTANT_STRING:
+				case CONSTANT_METHOD_TYPE:
+				case CONSTANT_MODULE:
+				case CONSTANT_PACKAGE:
+					constants[index] = new int[]{data.readUnsignedShort()};
+					break;
+				case CONSTANT_METHOD_HANDLE:
+					constants[index] = new int[]{data.readUnsignedByte(), data.readUnsignedShort()};
+					break;
+				default:
+					// field, method and interface method references, name and type, dynamic, invokedynamic
+					constants[index] = new int[]{data.readUnsignedShort(), data.readUnsignedShort()};
+			}
+		}
+		return new ChangeSetChecksum(constants, tags);
+	}
+
+	/**
+	 * Skips to the methods of the class and digests the code of the one with the given name and descriptor
+	 *
+	 * @return false if the class has no such method
+	 */
+	private boolean digestMethod(DataInputStream data, String name, String descriptor) throws IOException {
+		data.readUnsignedShort();
+		data.readUnsignedShort();
+		data.readUnsignedShort();
+		skipFully(data, 2 * data.readUnsignedShort());
+		int fields = data.readUnsignedShort();
+		for (int i = 0; i < fields; i++) {
+			skipFully(data, 6);
+			skipAttributes(data);
+		}
+
+		int methods = data.readUnsignedShort();
+		for (int i = 0; i < methods; i++) {
+			data.readUnsignedShort();
+			Object methodName = constants[data.readUnsignedShort()];
+			Object methodDescriptor = constants[data.readUnsignedShort()];
+			boolean found = name.equals(methodName) && descriptor.equals(methodDescriptor);
+			int attributes = data.readUnsignedShort();
+			for (int j = 0; j < attributes; j++) {
+				String attribute = (String) constants[data.readUnsignedShort()];
+				int length = data.readInt();
+				if (found && "Code".equals(attribute)) {
+					byte[] code = new byte[length];
+					data.readFully(code);
+					digestCode(new DataInputStream(new ByteArrayInputStream(code)));
+					return true;
+				}
+				skipFully(data, length);
+			}
+			if (found) {
+				// abstract or native: nothing to run
+				return false;
+			}
+		}
+		return false;
+	}
+
+	private void digestCode(DataInputStream data) throws IOException {
+		data.readUnsignedShort();
+		data.readUnsignedShort();
+		byte[] code = new byte[data.readInt()];
+		data.readFully(code);
+
+		int pc = 0;
+		while (pc < code.length) {
+			int opcode = code[pc] & 0xff;
+			int start = pc++;
+			int length = OPERANDS[opcode];
+			digest.update((byte) opcode);
+			if (opcode == LDC) {
+				updateConstant(code[pc++] & 0xff);
+			} else if (length <= -10) {
+				pc += 3 - (start & 3);
+				int entries = opcode == TABLESWITCH
+						? readInt(code, pc + 8) - readInt(code, pc + 4) + 1
+						: readInt(code, pc + 4);
+				int size = opcode == TABLESWITCH ? 12 + 4 * entries : 8 + 8 * entries;
+				digest.update(code, pc, size);
+				pc += size;
+			} else if (length < 0) {
+				updateConstant(((code[pc] & 0xff) << 8) | (code[pc + 1] & 0xff));
+				digest.update(code, pc + 2, -1 - length);
+				pc += 1 - length;
+			} else if (opcode == WIDE) {
+				int size = (code[pc] & 0xff) == IINC ? 5 : 3;
+				digest.update(code, pc, size);
+				pc += size;
+			} else {
+				digest.update(code, pc, length);
+				pc += length;
+			}
+		}
+
+		int handlers = data.readUnsignedShort();
+		for (int i = 0; i < handlers; i++) {
+			byte[] range = new byte[6];
+			data.readFully(range);
+			digest.update(range);
+			int catchType = data.readUnsignedShort();
+			if (catchType != 0) {
+				updateConstant(catchType);
+			} else {
+				digest.update((byte) 0);
+			}
+		}
+	}
+
+	private void updateConstant(int index) {
+		update(resolve(index));
+	}
+
+	private void update(String text) {
+		digest.update(text.getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+	}
+
+	/**
+	 * @return textual form of a constant, independent of its position in the constant pool
+	 */
+	private String resolve(int index) {
+		Object constant = constants[index];
+		if (!(constant instanceof int[])) {
+			return tags[index] + ":" + constant;
+		}
+		int[] references = (int[]) constant;
+		StringBuilder resolved = new StringBuilder().append(tags[index]);
+		for (int i = 0; i < references.length; i++) {
+			boolean kind = tags[index] == CONSTANT_METHOD_HANDLE && i == 0;
+			boolean bootstrapMethod = (tags[index] == CONSTANT_DYNAMIC || tags[index] == CONSTANT_INVOKE_DYNAMIC) && i == 0;
+			resolved.append(':').append(kind || bootstrapMethod ? String.valueOf(references[i]) : resolve(references[i]));
+		}
+		return resolved.toString();
+	}
+
+	private String hex() {
+		StringBuilder hex = new StringBuilder();
+		for (byte b : digest.digest()) {
+			hex.append(String.format("%02x", b));
+		}
+		return hex.toString();
+	}
+
+	private static int readInt(byte[] code, int offset) {
+		return ((code[offset] & 0xff) << 24) | ((code[offset + 1] & 0xff) << 16)
+				| ((code[offset + 2] & 0xff) << 8) | (code[offset + 3] & 0xff);
+	}
+
+	private static void skipAttributes(DataInputStream data) throws IOException {
+		int attributes = data.readUnsignedShort();
+		for (int i = 0; i < attributes; i++) {
+			data.readUnsignedShort();
+			skipFully(data, data.readInt());
+		}
+	}
+
+	private static void skipFully(DataInputStream data, int length) throws IOException {
+		int skipped = 0;
+		while (skipped < length) {
+			int n = data.skipBytes(length - skipped);
+			if (n <= 0) {
+				throw new IOException("Truncated class file");
+			}
+			skipped += n;
+		}
+	}
+
+	private static String descriptor(Method method) {
+		StringBuilder descriptor = new StringBuilder("(");
+		for (Class<?> parameter : method.getParameterTypes()) {
+			descriptor.append(descriptor(parameter));
+		}
+		return descriptor.append(')').append(descriptor(method.getReturnType())).toString();
+	}
+
+	private static String descriptor(Class<?> type) {
+		if (type.isArray()) {
+			return type.getName().replace('.', '/');
+		}
+		if (type.isPrimitive()) {
+			return type == void.class ? "V" : type == boolean.class ? "Z" : type == byte.class ? "B"
+					: type == char.class ? "C" : type == short.class ? "S" : type == int.class ? "I"
+					: type == long.class ? "J" : type == float.class ? "F" : "D";
+		}
+		return "L" + type.getName().replace('.', '/') + ";";
+	}
+}
@@ -0,0 +1,231 @@
+package com.github.dynamobee.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.github.dynamobee.changeset.ChangeSet;
+import com.github.dynamobee.exception.DynamobeeChangeSetException;
+import com.github.dynamobee.exception.DynamobeeException;
+
+
+/**
+ * Dependency graph of pending changesets, built from {@link ChangeSet#dependsOn()} and {@link ChangeSet#tables()}.
+ * Dependencies always point to changesets ordered earlier, so executing the changesets in order satisfies the graph.
+ */
+public class ChangeSetGraph {
+	private final List<PendingChangeSet> changeSets;
+	private final Map<PendingChangeSet, Set<PendingChangeSet>> dependencies;
+	private final Map<PendingChangeSet, List<PendingChangeSet>> dependents;
+
+	private ChangeSetGraph(List<PendingChangeSet> changeSets, Map<PendingChangeSet, Set<PendingChangeSet>> dependencies) {
+		this.changeSets = changeSets;
+		this.dependencies = dependencies;
+		this.dependents = new IdentityHashMap<>();
+		for (PendingChangeSet changeSet : changeSets) {
+			dependents.put(changeSet, new ArrayList<PendingChangeSet>());
+		}
+		for (PendingChangeSet changeSet : changeSets) {
+			for (PendingChangeSet dependency : dependencies.get(changeSet)) {
+				dependents.get(dependency).add(changeSet);
+			}
+		}
+	}
+
+	/**
+	 * @param pendingChangeSets changesets to execute, in execution order
+	 * @param knownChangeIds ids of all changesets known to the runner, including the already applied ones
+	 * @return the graph
+	 * @throws DynamobeeChangeSetException if a dependency is unknown or not ordered before its dependent
+	 */
+	public static ChangeSetGraph build(List<PendingChangeSet> pendingChangeSets, Set<String> knownChangeIds)
+			throws DynamobeeChangeSetException {
+		Set<String> pendingIds = new HashSet<>();
+		for (PendingChangeSet changeSet : pendingChangeSets) {
+			pendingIds.add(changeSet.getChangeEntry().getChangeId());
+		}
+
+		Map<PendingChangeSet, Set<PendingChangeSet>> dependencies = new IdentityHashMap<>();
+		Map<String, PendingChangeSet> byId = new HashMap<>();
+		Map<String, PendingChangeSet> lastByTable = new HashMap<>();
+		List<PendingChangeSet> sinceBarrier = new ArrayList<>();
+		PendingChangeSet barrier = null;
+
+		for (PendingChangeSet changeSet : pendingChangeSets) {
+			ChangeSet annotation = changeSet.getAnnotation();
+			String changeId = changeSet.getChangeEntry().getChangeId();
+			Set<PendingChangeSet> changeSetDependencies = new LinkedHashSet<>();
+			if (barrier != null) {
+				changeSetDependencies.add(barrier);
+			}
+
+			if (annotation.dependsOn().length == 0 && annotation.tables().length == 0) {
+				changeSetDependencies.addAll(sinceBarrier);
+				sinceBarrier.clear();
+				barrier = changeSet;
+			} else {
+				for (String dependsOn : annotation.dependsOn()) {
+					PendingChangeSet dependency = byId.get(dependsOn);
+					if (dependency != null) {
+						changeSetDependencies.add(dependency);
+					} else if (pendingIds.contains(dependsOn)) {
+						throw new DynamobeeChangeSetException(String.format(
+								"ChangeSet '%s' depends on '%s' which is ordered after it", changeId, dependsOn));
+					} else if (!knownChangeIds.contains(dependsOn)) {
+						throw new DynamobeeChangeSetException(String.format(
+								"ChangeSet '%s' depends on unknown changeset '%s'", changeId, dependsOn));
+					}
+				}
+				for (String table : annotation.tables()) {
+					PendingChangeSet previous = lastByTable.put(table, changeSet);
+					if (previous != null) {
+						changeSetDependencies.add(previous);
+					}
+				}
+				sinceBarrier.add(changeSet);
+			}
+
+			byId.put(changeId, changeSet);
+			dependencies.put(changeSet, changeSetDependencies);
+		}
+		return new ChangeSetGraph(new ArrayList<>(pendingChangeSets), dependencies);
+	}
+
+	public List<PendingChangeSet> getChangeSets() {
+		return Collections.unmodifiableList(changeSets);
+	}
+
+	public Set<PendingChangeSet> getDependencies(PendingChangeSet changeSet) {
+		return Collections.unmodifiableSet(dependencies.get(changeSet));
+	}
+
+	/**
+	 * @return changesets not marked {@link ChangeSet#afterReady()} and everything they transitively depend on,
+	 * in execution order
+	 */
+	public List<PendingChangeSet> getBeforeReady() {
+		Set<PendingChangeSet> required = Collections.newSetFromMap(new IdentityHashMap<PendingChangeSet, Boolean>());
+		// dependencies point to earlier changesets, so every dependent has been seen when walking backwards
+		for (int i = changeSets.size() - 1; i >= 0; i--) {
+			PendingChangeSet changeSet = changeSets.get(i);
+			if (!changeSet.getAnnotation().afterReady() || required.contains(changeSet)) {
+				required.add(changeSet);
+				required.addAll(dependencies.get(changeSet));
+			}
+		}
+		List<PendingChangeSet> beforeReady = new ArrayList<>();
+		for (PendingChangeSet changeSet : changeSets) {
+			if (required.contains(changeSet)) {
+				beforeReady.add(changeSet);
+			}
+		}
+		return beforeReady;
+	}
+
+	/**
+	 * Applies every changeset once all of its dependencies have been applied, running independent changesets
+	 * in parallel. No further changesets are started after a failure; the first failure is rethrown once the
+	 * running ones have finished.
+	 *
+	 * @param parallelism maximum number of changesets applied at the same time
+	 * @param task applies a single changeset and returns false if it has been skipped
+	 * @return true if no changeset has been skipped
+	 * @throws DynamobeeException first failure of a changeset
+	 */
+	public boolean execute(int parallelism, final ChangeSetTask task) throws DynamobeeException {
+		ExecutorService executor = Executors.newFixedThreadPool(parallelism, new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "dynamobee-changeset-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		CompletionService<Boolean> completionService = new ExecutorCompletionService<>(executor);
+		Map<Future<Boolean>, PendingChangeSet> running = new HashMap<>();
+		Map<PendingChangeSet, Integer> waitingFor = new IdentityHashMap<>();
+		boolean complete = true;
+		Throwable failure = null;
+
+		try {
+			for (PendingChangeSet changeSet : changeSets) {
+				waitingFor.put(changeSet, dependencies.get(changeSet).size());
+				if (dependencies.get(changeSet).isEmpty()) {
+					running.put(completionService.submit(call(task, changeSet)), changeSet);
+				}
+			}
+
+			while (!running.isEmpty()) {
+				Future<Boolean> done = completionService.take();
+				PendingChangeSet changeSet = running.remove(done);
+				try {
+					complete &= done.get();
+				} catch (ExecutionException e) {
+					if (failure == null) {
+						failure = e.getCause();
+					}
+				}
+				if (failure != null) {
+					continue;
+				}
+				for (PendingChangeSet dependent : dependents.get(changeSet)) {
+					int remaining = waitingFor.get(dependent) - 1;
+					waitingFor.put(dependent, remaining);
+					if (remaining == 0) {
+						running.put(completionService.submit(call(task, dependent)), dependent);
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DynamobeeException("Interrupted while applying changesets", e);
+		} finally {
+			executor.shutdownNow();
+		}
+
+		if (failure instanceof DynamobeeException) {
+			throw (DynamobeeException) failure;
+		} else if (failure != null) {
+			throw new DynamobeeException(failure.getMessage(), failure);
+		}
+		return complete;
+	}
+
+	private static Callable<Boolean> call(final ChangeSetTask task, final PendingChangeSet changeSet) {
+		return new Callable<Boolean>() {
+			@Override
+			public Boolean call() throws Exception {
+				return task.apply(changeSet);
+			}
+		};
+	}
+
+	/**
+	 * Applies a single changeset
+	 */
+	public interface ChangeSetTask {
+		/**
+		 * @param changeSet changeset to apply
+		 * @return true if applied, false if skipped
+		 * @throws DynamobeeException exception
+		 */
+		boolean apply(PendingChangeSet changeSet) throws DynamobeeException;
+	}
+}
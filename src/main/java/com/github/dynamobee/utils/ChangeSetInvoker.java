@@ -0,0 +1,88 @@
+package com.github.dynamobee.utils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Collection;
+
+import com.github.dynamobee.exception.DynamobeeChangeSetException;
+
+
+/**
+ * Invoker of a single @{@link com.github.dynamobee.changeset.ChangeSet} method, compiled once into a
+ * {@link MethodHandle} with its parameter binding resolved up front.
+ */
+public class ChangeSetInvoker {
+	private final Method method;
+	private final MethodHandle handle;
+	private final Class<?>[] argumentTypes;
+
+	private ChangeSetInvoker(Method method, MethodHandle handle, Class<?>[] argumentTypes) {
+		this.method = method;
+		this.handle = handle;
+		this.argumentTypes = argumentTypes;
+	}
+
+	/**
+	 * @param changeSetMethod method to compile
+	 * @param injectableTypes parameter types the runner is able to provide
+	 * @return invoker of the method
+	 * @throws DynamobeeChangeSetException if the method declares a parameter that can not be injected
+	 * @throws IllegalAccessException if the method is not accessible
+	 */
+	public static ChangeSetInvoker compile(Method changeSetMethod, Collection<Class<?>> injectableTypes)
+			throws DynamobeeChangeSetException, IllegalAccessException {
+		Class<?>[] argumentTypes = changeSetMethod.getParameterTypes();
+		for (Class<?> argumentType : argumentTypes) {
+			if (!injectableTypes.contains(argumentType)) {
+				throw new DynamobeeChangeSetException("ChangeSet method " + changeSetMethod.getName() +
+						" has wrong arguments list. Please see docs for more info!");
+			}
+		}
+
+		MethodHandle handle = MethodHandles.lookup().unreflect(changeSetMethod);
+		if (Modifier.isStatic(changeSetMethod.getModifiers())) {
+			handle = MethodHandles.dropArguments(handle, 0, Object.class);
+		}
+		handle = handle.asType(handle.type().generic()).asSpreader(Object[].class, argumentTypes.length);
+
+		return new ChangeSetInvoker(changeSetMethod, handle, argumentTypes);
+	}
+
+	/**
+	 * @param changeLogInstance instance of the changelog declaring the method
+	 * @param arguments values to inject
+	 * @return result of the method
+	 * @throws InvocationTargetException if the method throws
+	 */
+	public Object invoke(Object changeLogInstance, ChangeSetArguments arguments) throws InvocationTargetException {
+		Object[] args = new Object[argumentTypes.length];
+		for (int i = 0; i < argumentTypes.length; i++) {
+			args[i] = arguments.get(argumentTypes[i]);
+		}
+		try {
+			return (Object) handle.invokeExact(changeLogInstance, args);
+		} catch (Throwable e) {
+			throw new InvocationTargetException(e);
+		}
+	}
+
+	/**
+	 * @param type parameter type
+	 * @return true if the method declares a parameter of the given type
+	 */
+	public boolean accepts(Class<?> type) {
+		for (Class<?> argumentType : argumentTypes) {
+			if (argumentType.equals(type)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public Method getMethod() {
+		return method;
+	}
+}
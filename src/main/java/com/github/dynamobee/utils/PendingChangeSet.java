@@ -0,0 +1,69 @@
+package com.github.dynamobee.utils;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+
+import com.github.dynamobee.changeset.ChangeEntry;
+import com.github.dynamobee.changeset.ChangeSet;
+
+
+/**
+ * Changeset that is going to be executed by the runner: either a new one, a runAlways one, a runEvery one that is
+ * due or a runOnChange one that has changed
+ */
+public class PendingChangeSet {
+	private final Method method;
+	private final ChangeEntry changeEntry;
+	private final boolean newChange;
+	private final Duration runEvery;
+
+	public PendingChangeSet(Method method, ChangeEntry changeEntry, boolean newChange) {
+		this(method, changeEntry, newChange, null);
+	}
+
+	/**
+	 * @param runEvery interval of a runEvery changeset that is due, null otherwise
+	 */
+	public PendingChangeSet(Method method, ChangeEntry changeEntry, boolean newChange, Duration runEvery) {
+		this.method = method;
+		this.changeEntry = changeEntry;
+		this.newChange = newChange;
+		this.runEvery = runEvery;
+	}
+
+	public Method getMethod() {
+		return method;
+	}
+
+	public ChangeSet getAnnotation() {
+		return method.getAnnotation(ChangeSet.class);
+	}
+
+	public Class<?> getChangeLogClass() {
+		return method.getDeclaringClass();
+	}
+
+	public ChangeEntry getChangeEntry() {
+		return changeEntry;
+	}
+
+	/**
+	 * @return true if the changeset has never been applied, false if it is re-executed because of runAlways,
+	 * runEvery or runOnChange
+	 */
+	public boolean isNewChange() {
+		return newChange;
+	}
+
+	/**
+	 * @return interval of a runEvery changeset re-executed because it is due, null otherwise
+	 */
+	public Duration getRunEvery() {
+		return runEvery;
+	}
+
+	@Override
+	public String toString() {
+		return changeEntry.toString();
+	}
+}
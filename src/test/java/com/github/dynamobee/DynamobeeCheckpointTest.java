@@ -0,0 +1,99 @@
+package com.github.dynamobee;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.dynamobee.changelogs.checkpoint.CheckpointChangeLog;
+import com.github.dynamobee.changeset.ChangeEntry;
+import com.github.dynamobee.dao.DynamobeeDao;
+import com.github.dynamobee.exception.DynamobeeException;
+import com.github.dynamobee.helpers.Checkpoint;
+import com.github.dynamobee.metrics.MigrationReport;
+import com.github.dynamobee.test.InMemoryDynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+
+
+public class DynamobeeCheckpointTest {
+	private static final String TABLE = "dynamobeelog";
+	private static final int ITEMS = 50;
+
+	private InMemoryDynamoDbClient client;
+
+	@Before
+	public void setUp() {
+		client = new InMemoryDynamoDbClient()
+				.withTable(TABLE, ChangeEntry.KEY_CHANGEID)
+				.withTable("source", "id")
+				.withTable("target", "id");
+		for (int i = 0; i < ITEMS; i++) {
+			client.putItem(PutItemRequest.builder()
+					.tableName("source")
+					.item(Collections.singletonMap("id", AttributeValue.builder().s("item" + i).build()))
+					.build());
+		}
+		CheckpointChangeLog.reset();
+	}
+
+	@Test
+	public void shouldResumeFromLastStoredPosition() throws Exception {
+		CheckpointChangeLog.failAt = 25;
+		try {
+			createRunner().execute();
+			fail("Expected the changeset to fail");
+		} catch (DynamobeeException e) {
+			// expected
+		}
+		assertTrue(hasCheckpoint());
+
+		CheckpointChangeLog.reset();
+		MigrationReport report = createRunner().execute();
+
+		assertEquals(MigrationReport.Status.COMPLETED, report.getStatus());
+		// the first run stored the position after its second page of ten
+		assertEquals(ITEMS - 20, CheckpointChangeLog.handled.get());
+		assertEquals(ITEMS, client.scan(ScanRequest.builder().tableName("target").build()).items().size());
+		assertFalse(hasCheckpoint());
+	}
+
+	@Test
+	public void shouldRestoreStoredPositions() throws Exception {
+		DynamobeeDao dao = new DynamobeeDao(TABLE, false, 1, 1, false);
+		dao.connectDynamoDB(client);
+		Map<String, AttributeValue> position = Collections.singletonMap("id", AttributeValue.builder().s("item7").build());
+
+		Checkpoint checkpoint = new Checkpoint(dao, "changeSet", null, 0);
+		checkpoint.update("source/0/2", position);
+		checkpoint.done("source/1/2");
+
+		Checkpoint restored = new Checkpoint(dao, "changeSet", null, Checkpoint.DEFAULT_PERSIST_INTERVAL);
+		assertEquals(position, restored.get("source/0/2"));
+		assertFalse(restored.isDone("source/0/2"));
+		assertTrue(restored.isDone("source/1/2"));
+		assertNull(restored.get("source/1/2"));
+	}
+
+	private Dynamobee createRunner() {
+		return new Dynamobee(client, TABLE)
+				.setChangeLogsScanPackage(CheckpointChangeLog.class.getPackage().getName());
+	}
+
+	private boolean hasCheckpoint() {
+		return client.getItem(GetItemRequest.builder()
+				.tableName(TABLE)
+				.key(Collections.singletonMap(ChangeEntry.KEY_CHANGEID, AttributeValue.builder().s("CHECKPOINT#backfill").build()))
+				.consistentRead(true)
+				.build()).hasItem();
+	}
+}
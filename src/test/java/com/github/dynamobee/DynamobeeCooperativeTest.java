@@ -0,0 +1,184 @@
+package com.github.dynamobee;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.dynamobee.changelogs.cooperative.UnsupportedParamsChangeLog;
+import com.github.dynamobee.changeset.ChangeEntry;
+import com.github.dynamobee.dao.DynamobeeDao;
+import com.github.dynamobee.exception.DynamobeeChangeSetException;
+import com.github.dynamobee.helpers.CapacityLimiter;
+import com.github.dynamobee.helpers.SegmentLeases;
+import com.github.dynamobee.helpers.TableScanner;
+import com.github.dynamobee.test.InMemoryDynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+
+
+public class DynamobeeCooperativeTest {
+	private static final String TABLE = "dynamobeelog";
+	private static final String SOURCE = "users";
+	private static final String POSITION = SOURCE + "/0/1";
+
+	private InMemoryDynamoDbClient client;
+	private DynamobeeDao dao;
+	private DynamobeeDao otherDao;
+	private ExecutorService executor;
+
+	@Before
+	public void setUp() throws Exception {
+		client = new InMemoryDynamoDbClient().withTable(TABLE, ChangeEntry.KEY_CHANGEID).withTable(SOURCE, "id");
+		dao = createDao();
+		otherDao = createDao();
+		executor = Executors.newSingleThreadExecutor();
+		UnsupportedParamsChangeLog.reset();
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void shouldTakeOverSegmentAfterLeaseExpiry() throws Exception {
+		DynamobeeDao.CooperativeRun run = dao.startCooperativeRun("backfill");
+
+		assertTrue(dao.claimSegment(run, POSITION).isEmpty());
+		assertNull(otherDao.claimSegment(run, POSITION));
+		assertTrue(dao.renewSegment(run, POSITION, key("id", "7")));
+
+		Thread.sleep(1200);
+
+		Map<String, AttributeValue> resumeFrom = otherDao.claimSegment(run, POSITION);
+		assertEquals("7", resumeFrom.get("id").s());
+		assertFalse(dao.renewSegment(run, POSITION, key("id", "9")));
+		assertFalse(dao.completeSegment(run, POSITION));
+		assertTrue(otherDao.completeSegment(run, POSITION));
+		assertTrue(dao.isSegmentDone(run, POSITION));
+		assertNull(dao.claimSegment(run, POSITION));
+	}
+
+	@Test
+	public void shouldKeepSegmentLeasedWhileAPageOutlastsTheLease() throws Exception {
+		for (int i = 0; i < 4; i++) {
+			putSource(Integer.toString(i));
+		}
+		DynamobeeDao.CooperativeRun run = dao.startCooperativeRun("backfill");
+		final SegmentLeases leaderLeases = new SegmentLeases(dao, run, null, true);
+		final AtomicInteger leaderItems = new AtomicInteger();
+		final CountDownLatch scanning = new CountDownLatch(1);
+
+		Future<Long> leader = executor.submit(new Callable<Long>() {
+			@Override
+			public Long call() throws Exception {
+				try {
+					return scan(leaderLeases, new TableScanner.ItemHandler() {
+						@Override
+						public void handle(Map<String, AttributeValue> item) throws Exception {
+							scanning.countDown();
+							leaderItems.incrementAndGet();
+							// a page of two items takes longer than the one second lease
+							Thread.sleep(800);
+						}
+					});
+				} finally {
+					leaderLeases.stop();
+				}
+			}
+		});
+		assertTrue(scanning.await(5, TimeUnit.SECONDS));
+		Thread.sleep(1300);
+
+		final AtomicInteger joinerItems = new AtomicInteger();
+		SegmentLeases joinerLeases = new SegmentLeases(otherDao, run, null, false);
+		long joined = scan(joinerLeases, new TableScanner.ItemHandler() {
+			@Override
+			public void handle(Map<String, AttributeValue> item) {
+				joinerItems.incrementAndGet();
+			}
+		});
+		joinerLeases.stop();
+
+		assertEquals(0L, joined);
+		assertEquals(0, joinerItems.get());
+		assertEquals(4L, leader.get(10, TimeUnit.SECONDS).longValue());
+		assertEquals(4, leaderItems.get());
+		assertTrue(dao.isSegmentDone(run, POSITION));
+	}
+
+	@Test
+	public void shouldRejectUnsupportedParamsBeforeJoining() throws Exception {
+		putLockOfOtherProcess();
+
+		try {
+			new Dynamobee(client, TABLE)
+					.setChangeLogsScanPackage(UnsupportedParamsChangeLog.class.getPackage().getName())
+					.setCooperative(true)
+					.execute();
+			fail("Expected the cooperative changeset to be rejected");
+		} catch (DynamobeeChangeSetException e) {
+			assertTrue(e.getMessage().contains("DynamoDbClient"));
+		}
+		assertEquals(0, UnsupportedParamsChangeLog.runs.get());
+		assertEquals("other", getItem("LOCK").get("owner").s());
+	}
+
+	private long scan(SegmentLeases segmentLeases, TableScanner.ItemHandler handler) throws Exception {
+		return new TableScanner(client, new CapacityLimiter(client), segmentLeases)
+				.scan(SOURCE)
+				.totalSegments(1)
+				.pageSize(2)
+				.forEach(handler);
+	}
+
+	private DynamobeeDao createDao() throws Exception {
+		DynamobeeDao dao = new DynamobeeDao(TABLE, false, 1, 1, false);
+		dao.setLockLeaseDuration(1);
+		dao.connectDynamoDB(client);
+		return dao;
+	}
+
+	private void putSource(String id) {
+		client.putItem(PutItemRequest.builder().tableName(SOURCE).item(key("id", id)).build());
+	}
+
+	private void putLockOfOtherProcess() {
+		Map<String, AttributeValue> item = key(ChangeEntry.KEY_CHANGEID, "LOCK");
+		item.put("owner", AttributeValue.builder().s("other").build());
+		item.put("leaseExpiry", AttributeValue.builder().n(Long.toString(System.currentTimeMillis() + 60000)).build());
+		client.putItem(PutItemRequest.builder().tableName(TABLE).item(item).build());
+	}
+
+	private Map<String, AttributeValue> getItem(String changeId) {
+		return client.getItem(GetItemRequest.builder()
+				.tableName(TABLE)
+				.key(Collections.singletonMap(ChangeEntry.KEY_CHANGEID, AttributeValue.builder().s(changeId).build()))
+				.consistentRead(true)
+				.build()).item();
+	}
+
+	private static Map<String, AttributeValue> key(String name, String value) {
+		Map<String, AttributeValue> key = new HashMap<>();
+		key.put(name, AttributeValue.builder().s(value).build());
+		return key;
+	}
+}
@@ -0,0 +1,142 @@
+package com.github.dynamobee;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.dynamobee.changelogs.lockless.LocklessChangeLog;
+import com.github.dynamobee.changeset.ChangeEntry;
+import com.github.dynamobee.exception.DynamobeeException;
+import com.github.dynamobee.metrics.ChangeSetReport;
+import com.github.dynamobee.metrics.MigrationReport;
+import com.github.dynamobee.test.InMemoryDynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+
+public class DynamobeeLocklessTest {
+	private static final String TABLE = "dynamobeelog";
+	private static final int RUNNERS = 3;
+
+	private InMemoryDynamoDbClient client;
+
+	@Before
+	public void setUp() {
+		client = new InMemoryDynamoDbClient().withTable(TABLE, ChangeEntry.KEY_CHANGEID);
+		LocklessChangeLog.reset();
+	}
+
+	@Test
+	public void shouldApplyEveryChangeSetOnceAcrossRunners() throws Exception {
+		List<MigrationReport> reports = executeConcurrently();
+
+		for (String changeId : new String[]{"first", "second", "onChange"}) {
+			assertEquals(changeId, 1, LocklessChangeLog.runs(changeId));
+		}
+		assertEquals(3, count(reports, ChangeSetReport.Outcome.APPLIED));
+		assertEquals(3 * (RUNNERS - 1), count(reports, ChangeSetReport.Outcome.APPLIED_ELSEWHERE));
+		for (MigrationReport report : reports) {
+			assertEquals(MigrationReport.Status.COMPLETED, report.getStatus());
+		}
+		assertEquals("APPLIED", getEntry("first").get("status").s());
+	}
+
+	@Test
+	public void shouldReapplyChangedChangeSetOnce() throws Exception {
+		createRunner().execute();
+		String checksum = getEntry("onChange").get("checksum").s();
+		changeChecksum("onChange");
+		LocklessChangeLog.reset();
+
+		List<MigrationReport> reports = executeConcurrently();
+
+		assertEquals(1, LocklessChangeLog.runs("onChange"));
+		assertEquals(0, LocklessChangeLog.runs("first"));
+		assertEquals(1, count(reports, ChangeSetReport.Outcome.REAPPLIED));
+		assertEquals(RUNNERS - 1, count(reports, ChangeSetReport.Outcome.APPLIED_ELSEWHERE));
+		assertEquals(checksum, getEntry("onChange").get("checksum").s());
+	}
+
+	@Test
+	public void shouldReleaseReapplicationOnFailure() throws Exception {
+		createRunner().execute();
+		changeChecksum("onChange");
+		LocklessChangeLog.failing = true;
+
+		try {
+			createRunner().execute();
+			fail("Expected the changeset to fail");
+		} catch (DynamobeeException e) {
+			// expected
+		}
+		Map<String, AttributeValue> entry = getEntry("onChange");
+		assertEquals("APPLIED", entry.get("status").s());
+		assertEquals("changed", entry.get("checksum").s());
+
+		LocklessChangeLog.reset();
+		createRunner().execute();
+		assertEquals(1, LocklessChangeLog.runs("onChange"));
+	}
+
+	private Dynamobee createRunner() {
+		return new Dynamobee(client, TABLE)
+				.setChangeLogsScanPackage(LocklessChangeLog.class.getPackage().getName())
+				.setLockless(true);
+	}
+
+	private List<MigrationReport> executeConcurrently() throws Exception {
+		List<CompletableFuture<MigrationReport>> runs = new ArrayList<>();
+		for (int i = 0; i < RUNNERS; i++) {
+			runs.add(createRunner().executeAsync());
+		}
+		List<MigrationReport> reports = new ArrayList<>();
+		for (CompletableFuture<MigrationReport> run : runs) {
+			reports.add(run.get(10, TimeUnit.SECONDS));
+		}
+		return reports;
+	}
+
+	private static int count(List<MigrationReport> reports, ChangeSetReport.Outcome outcome) {
+		int count = 0;
+		for (MigrationReport report : reports) {
+			count += report.count(outcome);
+		}
+		return count;
+	}
+
+	/**
+	 * Stores another checksum for the changeset and drops the manifest, as if the changeset had been edited
+	 */
+	private void changeChecksum(String changeId) {
+		client.updateItem(UpdateItemRequest.builder()
+				.tableName(TABLE)
+				.key(key(changeId))
+				.updateExpression("SET #checksum = :checksum")
+				.expressionAttributeNames(Collections.singletonMap("#checksum", "checksum"))
+				.expressionAttributeValues(Collections.singletonMap(":checksum", AttributeValue.builder().s("changed").build()))
+				.build());
+		client.deleteItem(DeleteItemRequest.builder().tableName(TABLE).key(key("MANIFEST")).build());
+	}
+
+	private Map<String, AttributeValue> getEntry(String changeId) {
+		return client.getItem(GetItemRequest.builder().tableName(TABLE).key(key(changeId)).consistentRead(true).build()).item();
+	}
+
+	private static Map<String, AttributeValue> key(String changeId) {
+		Map<String, AttributeValue> key = new HashMap<>();
+		key.put(ChangeEntry.KEY_CHANGEID, AttributeValue.builder().s(changeId).build());
+		return key;
+	}
+}
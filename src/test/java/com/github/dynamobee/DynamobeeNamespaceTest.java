@@ -0,0 +1,143 @@
+package com.github.dynamobee;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.dynamobee.changelogs.namespace.NamespaceChangeLog;
+import com.github.dynamobee.changeset.ChangeEntry;
+import com.github.dynamobee.dao.DynamobeeDao;
+import com.github.dynamobee.exception.DynamobeeConfigurationException;
+import com.github.dynamobee.metrics.MigrationReport;
+import com.github.dynamobee.test.InMemoryDynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+
+
+public class DynamobeeNamespaceTest {
+	private static final String TABLE = "dynamobeelog";
+	private static final String ORDERS = "orders-service";
+	private static final String BILLING = "billing-service";
+
+	private InMemoryDynamoDbClient client;
+
+	@Before
+	public void setUp() {
+		client = new InMemoryDynamoDbClient().withTable(TABLE, DynamobeeDao.KEY_NAMESPACE, ChangeEntry.KEY_CHANGEID);
+		NamespaceChangeLog.reset();
+	}
+
+	@Test
+	public void shouldRunNamespacesSideBySide() throws Exception {
+		NamespaceChangeLog.lockHolders = new CountDownLatch(2);
+
+		CompletableFuture<MigrationReport> orders = createRunner(ORDERS).executeAsync();
+		CompletableFuture<MigrationReport> billing = createRunner(BILLING).executeAsync();
+
+		assertEquals(MigrationReport.Status.COMPLETED, orders.get(10, TimeUnit.SECONDS).getStatus());
+		assertEquals(MigrationReport.Status.COMPLETED, billing.get(10, TimeUnit.SECONDS).getStatus());
+		assertEquals(2, NamespaceChangeLog.firstRuns.get());
+		assertEquals(2, NamespaceChangeLog.secondRuns.get());
+		for (String namespace : new String[]{ORDERS, BILLING}) {
+			assertNotNull(getItem(namespace, "first"));
+			assertNotNull(getItem(namespace, "second"));
+			assertNotNull(getItem(namespace, "MANIFEST"));
+			assertNull(getItem(namespace, "LOCK"));
+		}
+	}
+
+	@Test
+	public void shouldKeepHistoryAndManifestPerNamespace() throws Exception {
+		createRunner(ORDERS).execute();
+		createRunner(BILLING).execute();
+		NamespaceChangeLog.reset();
+
+		deleteItem(ORDERS, "second");
+		deleteItem(ORDERS, "MANIFEST");
+
+		assertEquals(MigrationReport.Status.UP_TO_DATE, createRunner(BILLING).execute().getStatus());
+		assertEquals(MigrationReport.Status.COMPLETED, createRunner(ORDERS).execute().getStatus());
+		assertEquals(0, NamespaceChangeLog.firstRuns.get());
+		assertEquals(1, NamespaceChangeLog.secondRuns.get());
+		assertNotNull(getItem(ORDERS, "second"));
+	}
+
+	@Test
+	public void shouldNotSeeLockOfOtherNamespace() throws Exception {
+		DynamobeeDao billingDao = new DynamobeeDao(TABLE, false, 1, 1, false, BILLING);
+		billingDao.connectDynamoDB(client);
+		billingDao.acquireProcessLock();
+		try {
+			assertEquals(MigrationReport.Status.COMPLETED, createRunner(ORDERS).execute().getStatus());
+			assertNotNull(getItem(BILLING, "LOCK"));
+			assertNull(getItem(BILLING, "first"));
+		} finally {
+			billingDao.releaseProcessLock();
+		}
+	}
+
+	@Test
+	public void shouldRejectTableWithoutNamespaceKey() throws Exception {
+		InMemoryDynamoDbClient unshared = new InMemoryDynamoDbClient().withTable(TABLE, ChangeEntry.KEY_CHANGEID);
+
+		try {
+			new Dynamobee(unshared, TABLE, ORDERS)
+					.setChangeLogsScanPackage(NamespaceChangeLog.class.getPackage().getName())
+					.execute();
+			fail("Expected the key schema to be rejected");
+		} catch (DynamobeeConfigurationException e) {
+			// expected
+		}
+		assertEquals(0, NamespaceChangeLog.firstRuns.get());
+	}
+
+	@Test
+	public void shouldRejectSharedTableWithoutNamespace() throws Exception {
+		try {
+			new Dynamobee(client, TABLE)
+					.setChangeLogsScanPackage(NamespaceChangeLog.class.getPackage().getName())
+					.execute();
+			fail("Expected the key schema to be rejected");
+		} catch (DynamobeeConfigurationException e) {
+			// expected
+		}
+		assertEquals(0, NamespaceChangeLog.firstRuns.get());
+	}
+
+	private Dynamobee createRunner(String namespace) {
+		return new Dynamobee(client, TABLE, namespace)
+				.setChangeLogsScanPackage(NamespaceChangeLog.class.getPackage().getName());
+	}
+
+	private Map<String, AttributeValue> getItem(String namespace, String changeId) {
+		Map<String, AttributeValue> item = client.getItem(GetItemRequest.builder()
+				.tableName(TABLE)
+				.key(key(namespace, changeId))
+				.consistentRead(true)
+				.build()).item();
+		return item == null || item.isEmpty() ? null : item;
+	}
+
+	private void deleteItem(String namespace, String changeId) {
+		client.deleteItem(DeleteItemRequest.builder().tableName(TABLE).key(key(namespace, changeId)).build());
+	}
+
+	private static Map<String, AttributeValue> key(String namespace, String changeId) {
+		Map<String, AttributeValue> key = new HashMap<>();
+		key.put(DynamobeeDao.KEY_NAMESPACE, AttributeValue.builder().s(namespace).build());
+		key.put(ChangeEntry.KEY_CHANGEID, AttributeValue.builder().s(changeId).build());
+		return key;
+	}
+}
@@ -0,0 +1,86 @@
+package com.github.dynamobee;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CyclicBarrier;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.dynamobee.changelogs.parallel.ParallelChangeLog;
+import com.github.dynamobee.changeset.ChangeEntry;
+import com.github.dynamobee.exception.DynamobeeException;
+import com.github.dynamobee.metrics.MigrationReport;
+import com.github.dynamobee.test.InMemoryDynamoDbClient;
+
+
+public class DynamobeeParallelTest {
+	private static final String TABLE = "dynamobeelog";
+
+	private InMemoryDynamoDbClient client;
+
+	@Before
+	public void setUp() {
+		client = new InMemoryDynamoDbClient().withTable(TABLE, ChangeEntry.KEY_CHANGEID);
+		ParallelChangeLog.reset();
+	}
+
+	@Test
+	public void shouldApplyIndependentChangeSetsInParallel() throws Exception {
+		MigrationReport report = createRunner().execute();
+
+		assertEquals(MigrationReport.Status.COMPLETED, report.getStatus());
+		assertEquals(5, report.getApplied());
+		assertEquals(5, ParallelChangeLog.finished.size());
+	}
+
+	@Test
+	public void shouldHonourDependenciesAndTables() throws Exception {
+		createRunner().execute();
+
+		assertRanAfter("seedUsers", "createUsers");
+		assertRanAfter("indexUsers", "createUsers");
+		for (String changeId : new String[]{"createUsers", "createOrders", "seedUsers", "indexUsers"}) {
+			assertRanAfter("cleanup", changeId);
+		}
+	}
+
+	@Test
+	public void shouldNotStartDependentsOfFailedChangeSet() throws Exception {
+		ParallelChangeLog.failing = "createUsers";
+
+		try {
+			createRunner().execute();
+			fail("Expected the migration to fail");
+		} catch (DynamobeeException e) {
+			// expected
+		}
+		assertTrue(ParallelChangeLog.finished.containsKey("createOrders"));
+		assertFalse(ParallelChangeLog.started.containsKey("seedUsers"));
+		assertFalse(ParallelChangeLog.started.containsKey("indexUsers"));
+		assertFalse(ParallelChangeLog.started.containsKey("cleanup"));
+
+		ParallelChangeLog.reset();
+		// createOrders is applied already, createUsers runs alone
+		ParallelChangeLog.independent = new CyclicBarrier(1);
+		MigrationReport report = createRunner().execute();
+
+		assertEquals(MigrationReport.Status.COMPLETED, report.getStatus());
+		assertEquals(4, report.getApplied());
+		assertFalse(ParallelChangeLog.started.containsKey("createOrders"));
+	}
+
+	private Dynamobee createRunner() {
+		return new Dynamobee(client, TABLE)
+				.setChangeLogsScanPackage(ParallelChangeLog.class.getPackage().getName())
+				.setParallelism(4);
+	}
+
+	private static void assertRanAfter(String changeId, String dependency) {
+		assertTrue(changeId + " started before " + dependency + " finished",
+				ParallelChangeLog.started.get(changeId) > ParallelChangeLog.finished.get(dependency));
+	}
+}
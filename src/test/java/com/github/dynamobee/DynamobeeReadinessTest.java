@@ -0,0 +1,113 @@
+package com.github.dynamobee;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.dynamobee.changelogs.readiness.ReadinessChangeLog;
+import com.github.dynamobee.changeset.ChangeEntry;
+import com.github.dynamobee.exception.DynamobeeException;
+import com.github.dynamobee.metrics.MigrationReport;
+import com.github.dynamobee.test.InMemoryDynamoDbClient;
+
+
+public class DynamobeeReadinessTest {
+	private static final String TABLE = "dynamobeelog";
+
+	private InMemoryDynamoDbClient client;
+
+	@Before
+	public void setUp() {
+		client = new InMemoryDynamoDbClient().withTable(TABLE, ChangeEntry.KEY_CHANGEID);
+		ReadinessChangeLog.reset();
+	}
+
+	@Test
+	public void shouldBecomeReadyBeforeAfterReadyChangeSets() throws Exception {
+		ReadinessChangeLog.release = new CountDownLatch(1);
+		Dynamobee runner = createRunner();
+		assertFalse(runner.isReady());
+
+		CompletableFuture<MigrationReport> run = runner.executeAsync();
+		runner.getReadiness().get(5, TimeUnit.SECONDS);
+
+		assertTrue(runner.isReady());
+		assertFalse(run.isDone());
+		assertTrue(ReadinessChangeLog.applied.contains("schema"));
+		// needed by a changeset applied before readiness
+		assertTrue(ReadinessChangeLog.applied.contains("accounts"));
+		assertTrue(ReadinessChangeLog.applied.contains("accountIndex"));
+		assertFalse(ReadinessChangeLog.applied.contains("backfill"));
+
+		ReadinessChangeLog.release.countDown();
+		MigrationReport report = run.get(5, TimeUnit.SECONDS);
+		assertEquals(MigrationReport.Status.COMPLETED, report.getStatus());
+		assertTrue(ReadinessChangeLog.applied.contains("backfill"));
+		assertTrue(report.getReadyMillis() >= 0);
+		assertTrue(report.getReadyMillis() <= report.getDurationMillis());
+	}
+
+	@Test
+	public void shouldNotBlockAfterPropertiesSetWithAsyncStartup() throws Exception {
+		ReadinessChangeLog.release = new CountDownLatch(1);
+		Dynamobee runner = createRunner().setAsyncStartup(true);
+
+		runner.afterPropertiesSet();
+		runner.getReadiness().get(5, TimeUnit.SECONDS);
+
+		assertFalse(ReadinessChangeLog.applied.contains("backfill"));
+		ReadinessChangeLog.release.countDown();
+	}
+
+	@Test
+	public void shouldFailReadinessIfRunFailsBeforeReady() throws Exception {
+		ReadinessChangeLog.failing = true;
+		Dynamobee runner = createRunner();
+
+		try {
+			runner.execute();
+			fail("Expected the migration to fail");
+		} catch (DynamobeeException e) {
+			// expected
+		}
+		assertFalse(runner.isReady());
+		try {
+			runner.getReadiness().get(1, TimeUnit.SECONDS);
+			fail("Expected the readiness gate to fail");
+		} catch (ExecutionException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void shouldBeReadyWhenNothingIsPending() throws Exception {
+		createRunner().execute();
+
+		Dynamobee runner = createRunner();
+		assertEquals(MigrationReport.Status.UP_TO_DATE, runner.execute().getStatus());
+		assertTrue(runner.isReady());
+	}
+
+	@Test
+	public void shouldBeReadyWhenDisabled() throws Exception {
+		Dynamobee runner = createRunner().setEnabled(false);
+
+		assertEquals(MigrationReport.Status.DISABLED, runner.execute().getStatus());
+		assertTrue(runner.isReady());
+	}
+
+	private Dynamobee createRunner() {
+		return new Dynamobee(client, TABLE)
+				.setChangeLogsScanPackage(ReadinessChangeLog.class.getPackage().getName())
+				.setParallelism(2);
+	}
+}
@@ -0,0 +1,130 @@
+package com.github.dynamobee;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.dynamobee.changelogs.runevery.RunEveryChangeLog;
+import com.github.dynamobee.changeset.ChangeEntry;
+import com.github.dynamobee.exception.DynamobeeException;
+import com.github.dynamobee.metrics.ChangeSetReport;
+import com.github.dynamobee.metrics.MigrationReport;
+import com.github.dynamobee.test.InMemoryDynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+
+public class DynamobeeRunEveryTest {
+	private static final String TABLE = "dynamobeelog";
+	private static final long HOUR = 3600000L;
+
+	private InMemoryDynamoDbClient client;
+
+	@Before
+	public void setUp() {
+		client = new InMemoryDynamoDbClient().withTable(TABLE, ChangeEntry.KEY_CHANGEID);
+		RunEveryChangeLog.reset();
+	}
+
+	@Test
+	public void shouldNotRunAgainBeforeInterval() throws Exception {
+		createRunner().execute();
+
+		MigrationReport report = createRunner().execute();
+
+		assertEquals(1, RunEveryChangeLog.runs.get());
+		assertEquals(1, report.getSkipped());
+	}
+
+	@Test
+	public void shouldRunAgainOnceIntervalElapsed() throws Exception {
+		createRunner().execute();
+		setLastRun(System.currentTimeMillis() - 2 * HOUR);
+
+		long startedAt = System.currentTimeMillis();
+		MigrationReport report = createRunner().execute();
+
+		assertEquals(2, RunEveryChangeLog.runs.get());
+		assertEquals(1, report.count(ChangeSetReport.Outcome.REAPPLIED));
+		assertTrue(getLastRun() >= startedAt);
+	}
+
+	@Test
+	public void shouldRunDueChangeSetOnceAcrossRunners() throws Exception {
+		createRunner().execute();
+		setLastRun(System.currentTimeMillis() - 2 * HOUR);
+		RunEveryChangeLog.reset();
+
+		List<CompletableFuture<MigrationReport>> runs = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			runs.add(createRunner().setLockless(true).executeAsync());
+		}
+		int reapplied = 0;
+		for (CompletableFuture<MigrationReport> run : runs) {
+			reapplied += run.get(10, TimeUnit.SECONDS).count(ChangeSetReport.Outcome.REAPPLIED);
+		}
+
+		assertEquals(1, RunEveryChangeLog.runs.get());
+		assertEquals(1, reapplied);
+	}
+
+	@Test
+	public void shouldBeDueAgainAfterFailedRun() throws Exception {
+		createRunner().execute();
+		long lastRun = System.currentTimeMillis() - 2 * HOUR;
+		setLastRun(lastRun);
+		RunEveryChangeLog.failing = true;
+
+		try {
+			createRunner().execute();
+			fail("Expected the changeset to fail");
+		} catch (DynamobeeException e) {
+			// expected
+		}
+		assertEquals(0L, getLastRun());
+
+		RunEveryChangeLog.failing = false;
+		createRunner().execute();
+		assertEquals(3, RunEveryChangeLog.runs.get());
+		assertTrue(getLastRun() > lastRun);
+	}
+
+	private Dynamobee createRunner() {
+		return new Dynamobee(client, TABLE)
+				.setChangeLogsScanPackage(RunEveryChangeLog.class.getPackage().getName());
+	}
+
+	private void setLastRun(long lastRun) {
+		client.updateItem(UpdateItemRequest.builder()
+				.tableName(TABLE)
+				.key(key())
+				.updateExpression("SET #lastRun = :lastRun")
+				.expressionAttributeNames(Collections.singletonMap("#lastRun", "lastRun"))
+				.expressionAttributeValues(Collections.singletonMap(":lastRun",
+						AttributeValue.builder().n(Long.toString(lastRun)).build()))
+				.build());
+	}
+
+	private long getLastRun() {
+		return Long.parseLong(getEntry().get("lastRun").n());
+	}
+
+	private Map<String, AttributeValue> getEntry() {
+		return client.getItem(GetItemRequest.builder().tableName(TABLE).key(key()).consistentRead(true).build()).item();
+	}
+
+	private static Map<String, AttributeValue> key() {
+		return Collections.singletonMap(ChangeEntry.KEY_CHANGEID, AttributeValue.builder().s("hourly").build());
+	}
+}
@@ -0,0 +1,115 @@
+package com.github.dynamobee;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.dynamobee.changelogs.transaction.TransactionChangeLog;
+import com.github.dynamobee.changeset.ChangeEntry;
+import com.github.dynamobee.exception.DynamobeeException;
+import com.github.dynamobee.metrics.MigrationReport;
+import com.github.dynamobee.test.InMemoryDynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+
+
+public class DynamobeeTransactionTest {
+	private static final String TABLE = "dynamobeelog";
+
+	private InMemoryDynamoDbClient client;
+
+	@Before
+	public void setUp() {
+		client = new InMemoryDynamoDbClient()
+				.withTable(TABLE, ChangeEntry.KEY_CHANGEID)
+				.withTable("accounts", "id")
+				.withTable("settings", "id");
+	}
+
+	@Test
+	public void shouldCommitWritesWithChangeEntry() throws Exception {
+		enableAccounts();
+
+		MigrationReport report = createRunner().execute();
+
+		assertEquals(MigrationReport.Status.COMPLETED, report.getStatus());
+		assertEquals(2, countAccounts());
+		assertTrue(isRecorded());
+	}
+
+	@Test
+	public void shouldRollBackWhenConditionFails() throws Exception {
+		executeAndExpectFailure(createRunner());
+
+		assertEquals(0, countAccounts());
+		assertFalse(isRecorded());
+
+		enableAccounts();
+		assertEquals(MigrationReport.Status.COMPLETED, createRunner().execute().getStatus());
+		assertEquals(2, countAccounts());
+		assertTrue(isRecorded());
+	}
+
+	@Test
+	public void shouldReleaseClaimWhenConditionFails() throws Exception {
+		executeAndExpectFailure(createRunner().setLockless(true));
+
+		assertEquals(0, countAccounts());
+		assertFalse(isRecorded());
+
+		enableAccounts();
+		assertEquals(MigrationReport.Status.COMPLETED, createRunner().setLockless(true).execute().getStatus());
+		assertEquals(2, countAccounts());
+		assertTrue(isRecorded());
+	}
+
+	private Dynamobee createRunner() {
+		return new Dynamobee(client, TABLE)
+				.setChangeLogsScanPackage(TransactionChangeLog.class.getPackage().getName());
+	}
+
+	private static void executeAndExpectFailure(Dynamobee runner) {
+		try {
+			runner.execute();
+			fail("Expected the transaction to be cancelled");
+		} catch (DynamobeeException e) {
+			// expected
+		}
+	}
+
+	private void enableAccounts() {
+		client.putItem(PutItemRequest.builder()
+				.tableName("settings")
+				.item(Collections.singletonMap("id", AttributeValue.builder().s("accountsEnabled").build()))
+				.build());
+	}
+
+	private int countAccounts() {
+		return client.scan(ScanRequest.builder().tableName("accounts").build()).items().size();
+	}
+
+	/**
+	 * @return true if the changeset has been recorded as applied
+	 */
+	private boolean isRecorded() {
+		GetItemResponse response = client.getItem(GetItemRequest.builder()
+				.tableName(TABLE)
+				.key(Collections.singletonMap(ChangeEntry.KEY_CHANGEID, AttributeValue.builder().s("openAccounts").build()))
+				.consistentRead(true)
+				.build());
+		if (!response.hasItem()) {
+			return false;
+		}
+		AttributeValue status = response.item().get("status");
+		return status == null || "APPLIED".equals(status.s());
+	}
+}
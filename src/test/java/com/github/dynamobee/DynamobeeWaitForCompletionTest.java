@@ -0,0 +1,99 @@
+package com.github.dynamobee;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.dynamobee.changelogs.follower.FollowerChangeLog;
+import com.github.dynamobee.changeset.ChangeEntry;
+import com.github.dynamobee.metrics.MigrationReport;
+import com.github.dynamobee.test.InMemoryDynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+
+
+public class DynamobeeWaitForCompletionTest {
+	private static final String TABLE = "dynamobeelog";
+
+	private final AtomicInteger manifestReads = new AtomicInteger();
+	private InMemoryDynamoDbClient client;
+
+	@Before
+	public void setUp() {
+		client = new InMemoryDynamoDbClient() {
+			@Override
+			public GetItemResponse getItem(GetItemRequest request) {
+				if ("MANIFEST".equals(request.key().get(ChangeEntry.KEY_CHANGEID).s())) {
+					manifestReads.incrementAndGet();
+				}
+				return super.getItem(request);
+			}
+		}.withTable(TABLE, ChangeEntry.KEY_CHANGEID);
+		FollowerChangeLog.reset();
+	}
+
+	@Test
+	public void shouldReturnOnceLockHolderHasUpdatedManifest() throws Exception {
+		FollowerChangeLog.release = new CountDownLatch(1);
+		CompletableFuture<MigrationReport> leader = createRunner().executeAsync();
+		assertTrue(FollowerChangeLog.started.await(5, TimeUnit.SECONDS));
+
+		CompletableFuture<MigrationReport> follower = createRunner().executeAsync();
+		Thread.sleep(1500);
+		assertFalse(follower.isDone());
+		// the manifest is read on startup only, the wait polls the lock
+		assertEquals(2, manifestReads.get());
+
+		FollowerChangeLog.release.countDown();
+
+		assertEquals(MigrationReport.Status.COMPLETED, leader.get(5, TimeUnit.SECONDS).getStatus());
+		assertEquals(MigrationReport.Status.LOCK_NOT_ACQUIRED, follower.get(5, TimeUnit.SECONDS).getStatus());
+		assertEquals(1, FollowerChangeLog.runs.get());
+	}
+
+	@Test
+	public void shouldTakeOverWhenLockHolderFails() throws Exception {
+		FollowerChangeLog.release = new CountDownLatch(1);
+		FollowerChangeLog.failures.set(1);
+		CompletableFuture<MigrationReport> leader = createRunner().executeAsync();
+		assertTrue(FollowerChangeLog.started.await(5, TimeUnit.SECONDS));
+
+		CompletableFuture<MigrationReport> follower = createRunner().executeAsync();
+		Thread.sleep(500);
+		FollowerChangeLog.release.countDown();
+
+		try {
+			leader.get(5, TimeUnit.SECONDS);
+			fail("Expected the lock holder to fail");
+		} catch (ExecutionException e) {
+			// expected
+		}
+		assertEquals(MigrationReport.Status.COMPLETED, follower.get(5, TimeUnit.SECONDS).getStatus());
+		assertEquals(2, FollowerChangeLog.runs.get());
+	}
+
+	@Test
+	public void shouldReturnUpToDateOnceManifestIsStored() throws Exception {
+		assertEquals(MigrationReport.Status.COMPLETED, createRunner().execute().getStatus());
+
+		assertEquals(MigrationReport.Status.UP_TO_DATE, createRunner().execute().getStatus());
+		assertEquals(1, FollowerChangeLog.runs.get());
+	}
+
+	private Dynamobee createRunner() {
+		return new Dynamobee(client, TABLE)
+				.setChangeLogsScanPackage(FollowerChangeLog.class.getPackage().getName())
+				.setWaitForCompletion(true)
+				.setChangeLogLockPollRate(1);
+	}
+}
@@ -0,0 +1,40 @@
+package com.github.dynamobee.changelogs.checkpoint;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.github.dynamobee.changeset.ChangeLog;
+import com.github.dynamobee.changeset.ChangeSet;
+import com.github.dynamobee.exception.DynamobeeException;
+import com.github.dynamobee.helpers.BatchWriter;
+import com.github.dynamobee.helpers.Checkpoint;
+import com.github.dynamobee.helpers.TableScanner;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+
+@ChangeLog
+public class CheckpointChangeLog {
+	public static final AtomicInteger handled = new AtomicInteger();
+	public static volatile int failAt;
+
+	public static void reset() {
+		handled.set(0);
+		failAt = 0;
+	}
+
+	@ChangeSet(author = "testuser", id = "backfill", order = "01")
+	public void backfill(TableScanner scanner, final BatchWriter batchWriter, final Checkpoint checkpoint)
+			throws DynamobeeException {
+		scanner.scan("source").totalSegments(1).pageSize(10).checkpoint(checkpoint).forEach(new TableScanner.ItemHandler() {
+			@Override
+			public void handle(Map<String, AttributeValue> item) throws Exception {
+				batchWriter.put("target", item);
+				if (handled.incrementAndGet() == failAt) {
+					// as if the persist interval had passed right before a crash
+					checkpoint.persist();
+					throw new IllegalStateException("Failing on purpose");
+				}
+			}
+		});
+	}
+}
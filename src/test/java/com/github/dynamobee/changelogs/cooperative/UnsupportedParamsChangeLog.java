@@ -0,0 +1,23 @@
+package com.github.dynamobee.changelogs.cooperative;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.github.dynamobee.changeset.ChangeLog;
+import com.github.dynamobee.changeset.ChangeSet;
+import com.github.dynamobee.helpers.TableScanner;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+
+@ChangeLog
+public class UnsupportedParamsChangeLog {
+	public static final AtomicInteger runs = new AtomicInteger();
+
+	public static void reset() {
+		runs.set(0);
+	}
+
+	@ChangeSet(author = "testuser", id = "backfill", order = "01", cooperative = true)
+	public void backfill(TableScanner scanner, DynamoDbClient dynamoDbClient) {
+		runs.incrementAndGet();
+	}
+}
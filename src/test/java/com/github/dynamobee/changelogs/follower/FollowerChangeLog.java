@@ -0,0 +1,36 @@
+package com.github.dynamobee.changelogs.follower;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.github.dynamobee.changeset.ChangeLog;
+import com.github.dynamobee.changeset.ChangeSet;
+
+
+@ChangeLog
+public class FollowerChangeLog {
+	public static final AtomicInteger runs = new AtomicInteger();
+	public static final AtomicInteger failures = new AtomicInteger();
+	public static volatile CountDownLatch started;
+	public static volatile CountDownLatch release;
+
+	public static void reset() {
+		runs.set(0);
+		failures.set(0);
+		started = new CountDownLatch(1);
+		release = new CountDownLatch(0);
+	}
+
+	@ChangeSet(author = "testuser", id = "slow", order = "01")
+	public void slow() throws Exception {
+		runs.incrementAndGet();
+		started.countDown();
+		if (!release.await(10, TimeUnit.SECONDS)) {
+			throw new IllegalStateException("Not released");
+		}
+		if (failures.getAndDecrement() > 0) {
+			throw new IllegalStateException("Failing on purpose");
+		}
+	}
+}
@@ -0,0 +1,53 @@
+package com.github.dynamobee.changelogs.lockless;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.github.dynamobee.changeset.ChangeLog;
+import com.github.dynamobee.changeset.ChangeSet;
+
+
+@ChangeLog
+public class LocklessChangeLog {
+	public static final Map<String, AtomicInteger> runs = new ConcurrentHashMap<>();
+	public static volatile boolean failing;
+
+	public static void reset() {
+		runs.clear();
+		failing = false;
+	}
+
+	public static int runs(String changeId) {
+		AtomicInteger count = runs.get(changeId);
+		return count != null ? count.get() : 0;
+	}
+
+	@ChangeSet(author = "testuser", id = "first", order = "01")
+	public void first() throws Exception {
+		run("first");
+	}
+
+	@ChangeSet(author = "testuser", id = "second", order = "02")
+	public void second() throws Exception {
+		run("second");
+	}
+
+	@ChangeSet(author = "testuser", id = "onChange", order = "03", runOnChange = true)
+	public void onChange() throws Exception {
+		run("onChange");
+		if (failing) {
+			throw new IllegalStateException("Failing on purpose");
+		}
+	}
+
+	private static void run(String changeId) throws InterruptedException {
+		AtomicInteger count = runs.get(changeId);
+		if (count == null) {
+			runs.putIfAbsent(changeId, new AtomicInteger());
+			count = runs.get(changeId);
+		}
+		count.incrementAndGet();
+		Thread.sleep(200);
+	}
+}
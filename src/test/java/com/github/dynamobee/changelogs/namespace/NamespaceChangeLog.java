@@ -0,0 +1,37 @@
+package com.github.dynamobee.changelogs.namespace;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.github.dynamobee.changeset.ChangeLog;
+import com.github.dynamobee.changeset.ChangeSet;
+
+
+@ChangeLog
+public class NamespaceChangeLog {
+	public static final AtomicInteger firstRuns = new AtomicInteger();
+	public static final AtomicInteger secondRuns = new AtomicInteger();
+	public static volatile CountDownLatch lockHolders = new CountDownLatch(0);
+
+	public static void reset() {
+		firstRuns.set(0);
+		secondRuns.set(0);
+		lockHolders = new CountDownLatch(0);
+	}
+
+	@ChangeSet(author = "testuser", id = "first", order = "01")
+	public void first() throws InterruptedException {
+		firstRuns.incrementAndGet();
+		// every runner holds its lock until the others hold theirs too
+		lockHolders.countDown();
+		if (!lockHolders.await(5, TimeUnit.SECONDS)) {
+			throw new IllegalStateException("Runners of other namespaces were blocked");
+		}
+	}
+
+	@ChangeSet(author = "testuser", id = "second", order = "02")
+	public void second() {
+		secondRuns.incrementAndGet();
+	}
+}
@@ -0,0 +1,67 @@
+package com.github.dynamobee.changelogs.parallel;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.github.dynamobee.changeset.ChangeLog;
+import com.github.dynamobee.changeset.ChangeSet;
+
+
+@ChangeLog
+public class ParallelChangeLog {
+	private static final AtomicInteger clock = new AtomicInteger();
+	public static final Map<String, Integer> started = new ConcurrentHashMap<>();
+	public static final Map<String, Integer> finished = new ConcurrentHashMap<>();
+	public static volatile CyclicBarrier independent;
+	public static volatile String failing;
+
+	public static void reset() {
+		clock.set(0);
+		started.clear();
+		finished.clear();
+		independent = new CyclicBarrier(2);
+		failing = null;
+	}
+
+	@ChangeSet(author = "testuser", id = "createUsers", order = "01", tables = "users")
+	public void createUsers() throws Exception {
+		run("createUsers", true);
+	}
+
+	@ChangeSet(author = "testuser", id = "createOrders", order = "02", tables = "orders")
+	public void createOrders() throws Exception {
+		run("createOrders", true);
+	}
+
+	@ChangeSet(author = "testuser", id = "seedUsers", order = "03", dependsOn = "createUsers")
+	public void seedUsers() throws Exception {
+		run("seedUsers", false);
+	}
+
+	@ChangeSet(author = "testuser", id = "indexUsers", order = "04", tables = "users")
+	public void indexUsers() throws Exception {
+		run("indexUsers", false);
+	}
+
+	@ChangeSet(author = "testuser", id = "cleanup", order = "05")
+	public void cleanup() throws Exception {
+		run("cleanup", false);
+	}
+
+	private static void run(String changeId, boolean awaitIndependent) throws Exception {
+		started.put(changeId, clock.incrementAndGet());
+		if (awaitIndependent) {
+			// only passes if both independent changesets run at the same time
+			independent.await(5, TimeUnit.SECONDS);
+		} else {
+			Thread.sleep(50);
+		}
+		if (changeId.equals(failing)) {
+			throw new IllegalStateException("Failing on purpose");
+		}
+		finished.put(changeId, clock.incrementAndGet());
+	}
+}
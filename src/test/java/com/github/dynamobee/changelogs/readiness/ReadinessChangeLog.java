@@ -0,0 +1,49 @@
+package com.github.dynamobee.changelogs.readiness;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.github.dynamobee.changeset.ChangeLog;
+import com.github.dynamobee.changeset.ChangeSet;
+
+
+@ChangeLog
+public class ReadinessChangeLog {
+	public static final Set<String> applied = ConcurrentHashMap.newKeySet();
+	public static volatile CountDownLatch release;
+	public static volatile boolean failing;
+
+	public static void reset() {
+		applied.clear();
+		release = new CountDownLatch(0);
+		failing = false;
+	}
+
+	@ChangeSet(author = "testuser", id = "backfill", order = "01", tables = "orders", afterReady = true)
+	public void backfill() throws Exception {
+		if (!release.await(10, TimeUnit.SECONDS)) {
+			throw new IllegalStateException("Not released");
+		}
+		applied.add("backfill");
+	}
+
+	@ChangeSet(author = "testuser", id = "schema", order = "02", tables = "users")
+	public void schema() {
+		if (failing) {
+			throw new IllegalStateException("Failing on purpose");
+		}
+		applied.add("schema");
+	}
+
+	@ChangeSet(author = "testuser", id = "accounts", order = "03", tables = "accounts", afterReady = true)
+	public void accounts() {
+		applied.add("accounts");
+	}
+
+	@ChangeSet(author = "testuser", id = "accountIndex", order = "04", dependsOn = "accounts")
+	public void accountIndex() {
+		applied.add("accountIndex");
+	}
+}
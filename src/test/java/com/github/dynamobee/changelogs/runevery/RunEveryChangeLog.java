@@ -0,0 +1,27 @@
+package com.github.dynamobee.changelogs.runevery;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.github.dynamobee.changeset.ChangeLog;
+import com.github.dynamobee.changeset.ChangeSet;
+
+
+@ChangeLog
+public class RunEveryChangeLog {
+	public static final AtomicInteger runs = new AtomicInteger();
+	public static volatile boolean failing;
+
+	public static void reset() {
+		runs.set(0);
+		failing = false;
+	}
+
+	@ChangeSet(author = "testuser", id = "hourly", order = "01", runEvery = "PT1H")
+	public void hourly() throws Exception {
+		runs.incrementAndGet();
+		Thread.sleep(200);
+		if (failing) {
+			throw new IllegalStateException("Failing on purpose");
+		}
+	}
+}
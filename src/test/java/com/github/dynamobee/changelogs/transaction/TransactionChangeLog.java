@@ -0,0 +1,35 @@
+package com.github.dynamobee.changelogs.transaction;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.github.dynamobee.changeset.ChangeLog;
+import com.github.dynamobee.changeset.ChangeSet;
+import com.github.dynamobee.exception.DynamobeeChangeSetException;
+import com.github.dynamobee.helpers.ChangeSetTransaction;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionCheck;
+
+
+@ChangeLog
+public class TransactionChangeLog {
+
+	@ChangeSet(author = "testuser", id = "openAccounts", order = "01")
+	public void openAccounts(ChangeSetTransaction transaction) throws DynamobeeChangeSetException {
+		transaction.put("accounts", account("alice"));
+		transaction.put("accounts", account("bob"));
+		transaction.conditionCheck(ConditionCheck.builder()
+				.tableName("settings")
+				.key(Collections.singletonMap("id", AttributeValue.builder().s("accountsEnabled").build()))
+				.conditionExpression("attribute_exists(id)")
+				.build());
+	}
+
+	private static Map<String, AttributeValue> account(String id) {
+		Map<String, AttributeValue> account = new HashMap<>();
+		account.put("id", AttributeValue.builder().s(id).build());
+		account.put("balance", AttributeValue.builder().n("0").build());
+		return account;
+	}
+}
@@ -0,0 +1,136 @@
+package com.github.dynamobee.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.dynamobee.changeset.ChangeEntry;
+import com.github.dynamobee.exception.DynamobeeLockException;
+import com.github.dynamobee.test.InMemoryDynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+
+
+public class DynamobeeDaoTest {
+	private static final String TABLE = "dynamobeelog";
+
+	private InMemoryDynamoDbClient client;
+	private DynamobeeDao dao;
+	private DynamobeeDao otherDao;
+
+	@Before
+	public void setUp() throws Exception {
+		client = new InMemoryDynamoDbClient().withTable(TABLE, ChangeEntry.KEY_CHANGEID);
+		dao = createDao();
+		otherDao = createDao();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		dao.releaseProcessLock();
+		otherDao.releaseProcessLock();
+	}
+
+	@Test
+	public void shouldTakeOverLockAfterLeaseExpiry() throws Exception {
+		putLock("crashed", System.currentTimeMillis() - 1);
+
+		assertFalse(dao.isProccessLockHeld());
+		assertTrue(dao.acquireProcessLock());
+		assertFalse("crashed".equals(getLock().get("owner").s()));
+		assertTrue(dao.isProccessLockHeld());
+	}
+
+	@Test
+	public void shouldNotTakeOverLiveLease() throws Exception {
+		assertTrue(dao.acquireProcessLock());
+
+		assertFalse(otherDao.acquireProcessLock());
+		dao.ensureProcessLockHeld();
+	}
+
+	@Test
+	public void shouldThrowIfLockCannotBeObtainedAndConfiguredTo() throws Exception {
+		putLock("other", System.currentTimeMillis() + 60000);
+		dao.setThrowExceptionIfCannotObtainLock(true);
+
+		try {
+			dao.acquireProcessLock();
+			fail("Expected the lock acquisition to fail");
+		} catch (DynamobeeLockException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void shouldRenewLeaseWhileHeld() throws Exception {
+		dao.setLockLeaseDuration(3);
+		assertTrue(dao.acquireProcessLock());
+		long leaseExpiry = Long.parseLong(getLock().get("leaseExpiry").n());
+
+		Thread.sleep(1500);
+
+		assertTrue(Long.parseLong(getLock().get("leaseExpiry").n()) > leaseExpiry);
+		dao.ensureProcessLockHeld();
+	}
+
+	@Test
+	public void shouldDetectLeaseTakenOver() throws Exception {
+		dao.setLockLeaseDuration(3);
+		assertTrue(dao.acquireProcessLock());
+		putLock("other", System.currentTimeMillis() + 60000);
+
+		Thread.sleep(1500);
+
+		try {
+			dao.ensureProcessLockHeld();
+			fail("Expected the lease to be lost");
+		} catch (DynamobeeLockException e) {
+			// expected
+		}
+		dao.releaseProcessLock();
+		assertEquals("other", getLock().get("owner").s());
+	}
+
+	@Test
+	public void shouldDeleteLockOnRelease() throws Exception {
+		assertTrue(dao.acquireProcessLock());
+
+		dao.releaseProcessLock();
+
+		assertFalse(dao.isProccessLockHeld());
+		assertTrue(otherDao.acquireProcessLock());
+	}
+
+	private DynamobeeDao createDao() throws Exception {
+		DynamobeeDao dao = new DynamobeeDao(TABLE, false, 1, 1, false);
+		dao.connectDynamoDB(client);
+		return dao;
+	}
+
+	private void putLock(String owner, long leaseExpiry) {
+		Map<String, AttributeValue> item = new HashMap<>();
+		item.put(ChangeEntry.KEY_CHANGEID, AttributeValue.builder().s("LOCK").build());
+		item.put("owner", AttributeValue.builder().s(owner).build());
+		item.put("leaseExpiry", AttributeValue.builder().n(Long.toString(leaseExpiry)).build());
+		client.putItem(PutItemRequest.builder().tableName(TABLE).item(item).build());
+	}
+
+	private Map<String, AttributeValue> getLock() {
+		return client.getItem(GetItemRequest.builder()
+				.tableName(TABLE)
+				.key(Collections.singletonMap(ChangeEntry.KEY_CHANGEID, AttributeValue.builder().s("LOCK").build()))
+				.consistentRead(true)
+				.build()).item();
+	}
+}
@@ -0,0 +1,167 @@
+package com.github.dynamobee.helpers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.dynamobee.exception.DynamobeeException;
+import com.github.dynamobee.test.InMemoryDynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+
+public class BatchWriterTest {
+	private static final String TABLE = "users";
+
+	private final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<Integer>());
+	private final AtomicInteger calls = new AtomicInteger();
+	private volatile boolean oneItemPerCall;
+	private InMemoryDynamoDbClient client;
+	private BatchWriter batchWriter;
+
+	@Before
+	public void setUp() {
+		client = new InMemoryDynamoDbClient() {
+			/**
+			 * Records the calls, and leaves all but the first write of a table unprocessed if told to
+			 */
+			@Override
+			public BatchWriteItemResponse batchWriteItem(BatchWriteItemRequest request) {
+				calls.incrementAndGet();
+				int size = 0;
+				for (List<WriteRequest> writeRequests : request.requestItems().values()) {
+					size += writeRequests.size();
+				}
+				batchSizes.add(size);
+				if (!oneItemPerCall) {
+					return super.batchWriteItem(request);
+				}
+				Map<String, List<WriteRequest>> processed = new HashMap<>();
+				Map<String, List<WriteRequest>> unprocessed = new HashMap<>();
+				for (Map.Entry<String, List<WriteRequest>> table : request.requestItems().entrySet()) {
+					List<WriteRequest> writeRequests = table.getValue();
+					processed.put(table.getKey(), writeRequests.subList(0, 1));
+					if (writeRequests.size() > 1) {
+						unprocessed.put(table.getKey(), new ArrayList<>(writeRequests.subList(1, writeRequests.size())));
+					}
+				}
+				super.batchWriteItem(request.toBuilder().requestItems(processed).build());
+				return BatchWriteItemResponse.builder().unprocessedItems(unprocessed).build();
+			}
+		}.withTable(TABLE, "id");
+		batchWriter = new BatchWriter(client, new CapacityLimiter(client, 0, 8), 4);
+		batchWriter.setBaseBackoff(1);
+	}
+
+	@After
+	public void tearDown() {
+		batchWriter.close();
+	}
+
+	@Test
+	public void shouldWriteFullBatches() throws Exception {
+		for (int i = 0; i < 60; i++) {
+			batchWriter.put(TABLE, item(Integer.toString(i), "v"));
+		}
+		batchWriter.flush();
+
+		assertEquals(60, countItems());
+		assertEquals(60, batchWriter.getWrittenItems());
+		Collections.sort(batchSizes);
+		assertEquals(Arrays.asList(10, 25, 25), batchSizes);
+	}
+
+	@Test
+	public void shouldFlushWhenKeyRepeats() throws Exception {
+		batchWriter.put(TABLE, item("1", "first"));
+		batchWriter.put(TABLE, item("2", "first"));
+		batchWriter.put(TABLE, item("1", "second"));
+		batchWriter.delete(TABLE, key("2"));
+		batchWriter.put(TABLE, item("3", "first"));
+		batchWriter.flush();
+
+		assertEquals(Arrays.asList(2, 3), batchSizes);
+		assertEquals("second", getItem("1").get("value").s());
+		assertNull(getItem("2"));
+		assertEquals(2, countItems());
+	}
+
+	@Test
+	public void shouldRetryUnprocessedItems() throws Exception {
+		oneItemPerCall = true;
+		// one write per attempt, the last one is written by the last attempt
+		for (int i = 0; i < 10; i++) {
+			batchWriter.put(TABLE, item(Integer.toString(i), "v"));
+		}
+		batchWriter.flush();
+
+		assertEquals(10, calls.get());
+		assertEquals(10, countItems());
+		assertEquals(10, batchWriter.getWrittenItems());
+	}
+
+	@Test
+	public void shouldFailOnceAttemptsRunOut() throws Exception {
+		oneItemPerCall = true;
+		for (int i = 0; i < 11; i++) {
+			batchWriter.put(TABLE, item(Integer.toString(i), "v"));
+		}
+
+		try {
+			batchWriter.flush();
+			fail("Expected the batch to fail");
+		} catch (DynamobeeException e) {
+			assertTrue(e.getMessage().contains("unprocessed items after 10 attempts"));
+		}
+		assertEquals(10, calls.get());
+		assertEquals(10, countItems());
+		try {
+			batchWriter.put(TABLE, item("11", "v"));
+			fail("Expected the writer to report the failed batch");
+		} catch (DynamobeeException e) {
+			// expected
+		}
+	}
+
+	private int countItems() {
+		return client.scan(ScanRequest.builder().tableName(TABLE).build()).count();
+	}
+
+	private Map<String, AttributeValue> getItem(String id) {
+		Map<String, AttributeValue> item = client.getItem(GetItemRequest.builder()
+				.tableName(TABLE)
+				.key(key(id))
+				.consistentRead(true)
+				.build()).item();
+		return item == null || item.isEmpty() ? null : item;
+	}
+
+	private static Map<String, AttributeValue> item(String id, String value) {
+		Map<String, AttributeValue> item = key(id);
+		item.put("value", AttributeValue.builder().s(value).build());
+		return item;
+	}
+
+	private static Map<String, AttributeValue> key(String id) {
+		Map<String, AttributeValue> key = new HashMap<>();
+		key.put("id", AttributeValue.builder().s(id).build());
+		return key;
+	}
+}
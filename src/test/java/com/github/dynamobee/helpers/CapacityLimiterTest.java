@@ -0,0 +1,177 @@
+package com.github.dynamobee.helpers;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.dynamobee.exception.DynamobeeException;
+import com.github.dynamobee.test.InMemoryDynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeDefinition;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.CreateTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughput;
+import software.amazon.awssdk.services.dynamodb.model.ScalarAttributeType;
+
+
+public class CapacityLimiterTest {
+	private static final String ON_DEMAND = "users";
+	private static final String PROVISIONED = "orders";
+
+	private InMemoryDynamoDbClient client;
+
+	@Before
+	public void setUp() {
+		client = new InMemoryDynamoDbClient().withTable(ON_DEMAND, "id");
+		client.createTable(CreateTableRequest.builder()
+				.tableName(PROVISIONED)
+				.keySchema(KeySchemaElement.builder().attributeName("id").keyType(KeyType.HASH).build())
+				.attributeDefinitions(AttributeDefinition.builder().attributeName("id").attributeType(ScalarAttributeType.S).build())
+				.provisionedThroughput(ProvisionedThroughput.builder().readCapacityUnits(20L).writeCapacityUnits(4L).build())
+				.build());
+	}
+
+	@Test
+	public void shouldHalveConcurrencyWhenThrottled() throws Exception {
+		CapacityLimiter limiter = new CapacityLimiter(client, 0, 8);
+		List<CapacityLimiter.Permit> permits = acquire(limiter, 8);
+		assertNull(tryAcquire(limiter));
+
+		permits.get(0).throttled();
+		release(permits);
+
+		permits = acquire(limiter, 4);
+		assertNull(tryAcquire(limiter));
+		release(permits);
+	}
+
+	@Test
+	public void shouldGrowConcurrencyByOnePerRoundOfSuccesses() throws Exception {
+		CapacityLimiter limiter = new CapacityLimiter(client, 0, 8);
+		List<CapacityLimiter.Permit> permits = acquire(limiter, 1);
+		permits.get(0).throttled();
+		permits.get(0).throttled();
+		permits.get(0).throttled();
+		release(permits);
+
+		// one call at a time after three halvings, each success adds 1 / concurrency
+		permits = acquire(limiter, 1);
+		assertNull(tryAcquire(limiter));
+		succeed(permits);
+
+		permits = acquire(limiter, 2);
+		assertNull(tryAcquire(limiter));
+		succeed(permits);
+		succeed(acquire(limiter, 2));
+
+		permits = acquire(limiter, 3);
+		assertNull(tryAcquire(limiter));
+		release(permits);
+	}
+
+	@Test
+	public void shouldLimitProvisionedTableToFractionOfItsCapacity() throws Exception {
+		CapacityLimiter limiter = new CapacityLimiter(client, 0.5, 8);
+
+		// 20 read units at a fraction of 0.5 refill 10 units per second, the second read waits for the first
+		long start = System.currentTimeMillis();
+		limiter.acquireRead(PROVISIONED, 20).release();
+		limiter.acquireRead(PROVISIONED, 1).release();
+		long elapsed = System.currentTimeMillis() - start;
+
+		assertTrue("Waited " + elapsed + "ms", elapsed >= 900 && elapsed < 1600);
+	}
+
+	@Test
+	public void shouldNotLimitRateWithoutFraction() throws Exception {
+		CapacityLimiter limiter = new CapacityLimiter(client, 0, 8);
+
+		long start = System.currentTimeMillis();
+		limiter.acquireRead(PROVISIONED, 1000).release();
+		limiter.acquireRead(PROVISIONED, 1000).release();
+
+		assertTrue(System.currentTimeMillis() - start < 500);
+	}
+
+	@Test
+	public void shouldLimitOnDemandTableOnceThrottled() throws Exception {
+		CapacityLimiter limiter = new CapacityLimiter(client, 0.5, 8);
+
+		long start = System.currentTimeMillis();
+		for (int i = 0; i < 3; i++) {
+			limiter.acquireRead(ON_DEMAND, 10).release();
+		}
+		assertTrue(System.currentTimeMillis() - start < 500);
+
+		// 40 units in the last second, throttled at a fraction of 0.5 leaves 20 units per second
+		Thread.sleep(1000 - (System.currentTimeMillis() - start));
+		CapacityLimiter.Permit permit = limiter.acquireRead(ON_DEMAND, 10);
+		permit.throttled();
+		permit.release();
+
+		start = System.currentTimeMillis();
+		limiter.acquireRead(ON_DEMAND, 20).release();
+		limiter.acquireRead(ON_DEMAND, 1).release();
+		long elapsed = System.currentTimeMillis() - start;
+
+		assertTrue("Waited " + elapsed + "ms", elapsed >= 900 && elapsed < 1600);
+	}
+
+	private static List<CapacityLimiter.Permit> acquire(CapacityLimiter limiter, int count) throws Exception {
+		List<CapacityLimiter.Permit> permits = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			CapacityLimiter.Permit permit = tryAcquire(limiter);
+			assertNotNull("Permit " + (i + 1) + " of " + count + " was not granted", permit);
+			permits.add(permit);
+		}
+		return permits;
+	}
+
+	/**
+	 * @return the permit, null if the call is not admitted within 200ms
+	 */
+	private static CapacityLimiter.Permit tryAcquire(final CapacityLimiter limiter) throws Exception {
+		final AtomicReference<CapacityLimiter.Permit> permit = new AtomicReference<>();
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					permit.set(limiter.acquireWrite(ON_DEMAND, 1));
+				} catch (DynamobeeException e) {
+					// interrupted while waiting
+				}
+			}
+		});
+		thread.start();
+		thread.join(200);
+		if (!thread.isAlive()) {
+			return permit.get();
+		}
+		// stop waiting before anything is released, so that the call cannot be admitted later on
+		thread.interrupt();
+		thread.join();
+		assertNull(permit.get());
+		return null;
+	}
+
+	private static void succeed(List<CapacityLimiter.Permit> permits) {
+		for (CapacityLimiter.Permit permit : permits) {
+			permit.consumed((ConsumedCapacity) null);
+		}
+		release(permits);
+	}
+
+	private static void release(List<CapacityLimiter.Permit> permits) {
+		for (CapacityLimiter.Permit permit : permits) {
+			permit.release();
+		}
+	}
+}
@@ -0,0 +1,169 @@
+package com.github.dynamobee.helpers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Test;
+
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+
+public class JsonRecordReaderTest {
+	private static final String ARRAY = "[\n"
+			+ "  {\"id\": \"a\", \"n\": 1.50, \"tags\": [\"x\", null], \"ok\": true},\n"
+			+ "  {\"id\": \"b\", \"nested\": {\"name\": \"caf\\u00e9\"}},\n"
+			+ "  {\"id\": \"c\"}\n"
+			+ "]\n";
+	private static final String NDJSON = "{\"id\": \"a\"}\n{\"id\": \"b\"}\r\n\n{\"id\": \"c\"}\n";
+
+	private final List<Path> files = new ArrayList<>();
+
+	@After
+	public void tearDown() throws IOException {
+		for (Path file : files) {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	@Test
+	public void shouldReadObjectsOfArray() throws Exception {
+		try (JsonRecordReader reader = JsonRecordReader.open(file(ARRAY), 0, null, JsonRecordReader.DEFAULT_WINDOW_SIZE)) {
+			Map<String, AttributeValue> first = reader.next();
+			assertTrue(reader.isArray());
+			assertEquals("a", first.get("id").s());
+			assertEquals("1.50", first.get("n").n());
+			assertEquals("x", first.get("tags").l().get(0).s());
+			assertTrue(first.get("tags").l().get(1).nul());
+			assertTrue(first.get("ok").bool());
+			assertEquals("caf\u00e9", reader.next().get("nested").m().get("name").s());
+			assertEquals("c", reader.next().get("id").s());
+			assertNull(reader.next());
+		}
+	}
+
+	@Test
+	public void shouldReadSequenceOfObjects() throws Exception {
+		assertEquals(ids("a", "b", "c"), readIds(JsonRecordReader.open(file(NDJSON), 0, null, JsonRecordReader.DEFAULT_WINDOW_SIZE)));
+	}
+
+	@Test
+	public void shouldReportOffsetAfterEachObject() throws Exception {
+		try (JsonRecordReader reader = JsonRecordReader.open(file(NDJSON), 0, null, JsonRecordReader.DEFAULT_WINDOW_SIZE)) {
+			reader.next();
+			assertEquals(NDJSON.indexOf('}') + 1, reader.position());
+			assertFalse(reader.isArray());
+		}
+	}
+
+	@Test
+	public void shouldResumeArrayAcrossWindowBoundary() throws Exception {
+		assertResumesAfterEveryObject(ARRAY);
+	}
+
+	@Test
+	public void shouldResumeSequenceAcrossWindowBoundary() throws Exception {
+		assertResumesAfterEveryObject(NDJSON);
+	}
+
+	@Test
+	public void shouldResumeStreamFromOffset() throws Exception {
+		long offset;
+		try (JsonRecordReader reader = JsonRecordReader.open(stream(ARRAY), 0, null)) {
+			reader.next();
+			offset = reader.position();
+		}
+
+		assertEquals(ids("b", "c"), readIds(JsonRecordReader.open(stream(ARRAY), offset, true)));
+	}
+
+	@Test
+	public void shouldSkipByteOrderMark() throws Exception {
+		assertEquals(ids("a", "b", "c"), readIds(JsonRecordReader.open(file("\ufeff" + NDJSON), 0, null, 8)));
+	}
+
+	@Test
+	public void shouldRejectUnpairedSurrogate() throws Exception {
+		try (JsonRecordReader reader = JsonRecordReader.open(stream("{\"id\": \"\\ud800\"}"), 0, null)) {
+			reader.next();
+			fail("Expected the unpaired surrogate to be rejected");
+		} catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("surrogate"));
+		}
+	}
+
+	@Test
+	public void shouldRejectTruncatedArray() throws Exception {
+		try (JsonRecordReader reader = JsonRecordReader.open(stream("[{\"id\": \"a\"}, {\"id\": "), 0, null)) {
+			assertEquals("a", reader.next().get("id").s());
+			reader.next();
+			fail("Expected the truncated content to be rejected");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * Reads the content with windows smaller than an object, resuming from the position after every object
+	 */
+	private void assertResumesAfterEveryObject(String content) throws Exception {
+		Path file = file(content);
+		List<String> expected = readIds(JsonRecordReader.open(file, 0, null, JsonRecordReader.DEFAULT_WINDOW_SIZE));
+		long offset = 0;
+		Boolean array = null;
+		for (int i = 0; i < expected.size(); i++) {
+			try (JsonRecordReader reader = JsonRecordReader.open(file, offset, array, 7)) {
+				assertEquals(expected.get(i), reader.next().get("id").s());
+				offset = reader.position();
+				array = reader.isArray();
+			}
+			try (JsonRecordReader reader = JsonRecordReader.open(file, offset, array, 7)) {
+				assertEquals(expected.subList(i + 1, expected.size()), readIds(reader));
+			}
+		}
+	}
+
+	private static List<String> readIds(JsonRecordReader reader) throws IOException {
+		List<String> ids = new ArrayList<>();
+		try {
+			Map<String, AttributeValue> record;
+			while ((record = reader.next()) != null) {
+				ids.add(record.get("id").s());
+			}
+		} finally {
+			reader.close();
+		}
+		return ids;
+	}
+
+	private static List<String> ids(String... ids) {
+		List<String> list = new ArrayList<>();
+		for (String id : ids) {
+			list.add(id);
+		}
+		return list;
+	}
+
+	private Path file(String content) throws IOException {
+		Path file = Files.createTempFile("dynamobee", ".json");
+		files.add(file);
+		Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+
+	private static ByteArrayInputStream stream(String content) {
+		return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+	}
+}
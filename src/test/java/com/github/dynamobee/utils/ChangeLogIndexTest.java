@@ -0,0 +1,123 @@
+package com.github.dynamobee.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+import com.github.dynamobee.changeset.ChangeLog;
+import com.github.dynamobee.processor.ChangeLogIndexProcessor;
+
+
+public class ChangeLogIndexTest {
+	private static final String PACKAGE = "indexed";
+
+	private Path classes;
+
+	@Before
+	public void setUp() throws Exception {
+		classes = Files.createTempDirectory("changelogs");
+		compile(
+				source("indexed", "SecondChangeLog", "@ChangeLog(order = \"2\")"),
+				source("indexed", "FirstChangeLog", "@ChangeLog(order = \"1\")"),
+				source("indexed.nested", "NestedChangeLog", "@ChangeLog(order = \"3\")"),
+				source("indexed", "Helper", ""),
+				source("indexedother", "OtherChangeLog", "@ChangeLog(order = \"0\")"));
+	}
+
+	@Test
+	public void shouldWriteAnIndexOfTheChangeLogs() throws Exception {
+		assertTrue(Files.exists(classes.resolve(ChangeLogIndex.INDEX_LOCATION)));
+
+		try (URLClassLoader classLoader = classLoader()) {
+			ChangeLogIndex index = ChangeLogIndex.load(classLoader);
+
+			assertNotNull(index);
+			assertTrue(index.covers(classes.toUri().toURL()));
+			List<String> classNames = new ArrayList<>();
+			for (ChangeLogIndex.IndexedChangeLog changeLog : index.findChangeLogs(PACKAGE)) {
+				classNames.add(changeLog.getClassName());
+			}
+			assertEquals(3, classNames.size());
+			assertTrue(classNames.containsAll(Arrays.asList(
+					"indexed.FirstChangeLog", "indexed.SecondChangeLog", "indexed.nested.NestedChangeLog")));
+		}
+	}
+
+	@Test
+	public void shouldFindTheSameChangeLogsAsClasspathScanning() throws Exception {
+		List<String> indexed = fetchChangeLogs();
+		Files.delete(classes.resolve(ChangeLogIndex.INDEX_LOCATION));
+		List<String> scanned = fetchChangeLogs();
+
+		assertEquals(Arrays.asList("indexed.FirstChangeLog", "indexed.SecondChangeLog", "indexed.nested.NestedChangeLog"),
+				indexed);
+		assertEquals(scanned, indexed);
+	}
+
+	private List<String> fetchChangeLogs() throws IOException {
+		Thread thread = Thread.currentThread();
+		ClassLoader contextClassLoader = thread.getContextClassLoader();
+		try (URLClassLoader classLoader = classLoader()) {
+			thread.setContextClassLoader(classLoader);
+			List<String> classNames = new ArrayList<>();
+			for (Class<?> changeLog : new ChangeService(PACKAGE).fetchChangeLogs()) {
+				classNames.add(changeLog.getName());
+			}
+			return classNames;
+		} finally {
+			thread.setContextClassLoader(contextClassLoader);
+		}
+	}
+
+	private URLClassLoader classLoader() throws IOException {
+		return new URLClassLoader(new URL[] { classes.toUri().toURL() }, ChangeLogIndexTest.class.getClassLoader());
+	}
+
+	private static String[] source(String packageName, String className, String annotation) {
+		return new String[] { packageName, className, "package " + packageName + ";\n\n"
+				+ "import com.github.dynamobee.changeset.ChangeLog;\n\n"
+				+ annotation + "\n"
+				+ "public class " + className + " {\n"
+				+ "}\n" };
+	}
+
+	private void compile(String[]... sources) throws Exception {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		assertNotNull("Tests have to run on a JDK", compiler);
+		Path sourceDir = Files.createTempDirectory("changelog-sources");
+		List<String> arguments = new ArrayList<>(Arrays.asList(
+				"-processor", ChangeLogIndexProcessor.class.getName(),
+				"-classpath", location(ChangeLog.class) + File.pathSeparator + location(LoggerFactory.class),
+				"-d", classes.toString()));
+		for (String[] source : sources) {
+			Path file = sourceDir.resolve(source[0].replace('.', '/')).resolve(source[1] + ".java");
+			Files.createDirectories(file.getParent());
+			Files.write(file, source[2].getBytes(StandardCharsets.UTF_8));
+			arguments.add(file.toString());
+		}
+		int status = compiler.run(null, null, null, arguments.toArray(new String[0]));
+		assertEquals("Could not compile the changelogs", 0, status);
+	}
+
+	private static String location(Class<?> type) throws Exception {
+		return new File(type.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+	}
+}
@@ -0,0 +1,130 @@
+package com.github.dynamobee.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class ChangeSetChecksumTest {
+	private static final String BODY = "\t\tString name = \"users\";\n"
+			+ "\t\tint count = LIMIT;\n"
+			+ "\t\tSystem.out.println(name + count);\n";
+
+	private String original;
+
+	@Before
+	public void setUp() throws Exception {
+		original = checksum(fixture("", BODY, ""));
+	}
+
+	@Test
+	public void shouldBeStableWhenOnlyLineNumbersChange() throws Exception {
+		assertEquals(original, checksum(fixture("\n\n\n", BODY, "")));
+	}
+
+	@Test
+	public void shouldBeStableWhenOnlyLocalNamesChange() throws Exception {
+		assertEquals(original, checksum(fixture("", BODY.replace("name", "table").replace("count", "limit"), "")));
+	}
+
+	@Test
+	public void shouldBeStableWhenAnotherMethodChanges() throws Exception {
+		String other = "\tpublic void other() {\n\t\tSystem.out.println(\"unrelated\" + LIMIT * 2);\n\t}\n";
+		assertEquals(original, checksum(fixture("", BODY, other)));
+	}
+
+	@Test
+	public void shouldChangeWhenTheBodyChanges() throws Exception {
+		assertFalse(original.equals(checksum(fixture("", BODY.replace("name + count", "count + name"), ""))));
+	}
+
+	@Test
+	public void shouldChangeWhenAReferencedConstantChanges() throws Exception {
+		assertFalse(original.equals(checksum(fixture("", BODY.replace("\"users\"", "\"accounts\""), ""))));
+	}
+
+	@Test
+	public void shouldChangeWhenAStaticFinalConstantChanges() throws Exception {
+		String source = source("", BODY, "").replace("LIMIT = 25", "LIMIT = 50");
+		assertFalse(original.equals(checksum(compile(source))));
+	}
+
+	@Test
+	public void shouldHandleSwitchesAndLambdas() throws Exception {
+		String body = "\t\tint count = LIMIT;\n"
+				+ "\t\tswitch (count) {\n"
+				+ "\t\t\tcase 1: count++; break;\n"
+				+ "\t\t\tcase 2: count--; break;\n"
+				+ "\t\t\tcase 3: count *= 2; break;\n"
+				+ "\t\t\tdefault: break;\n"
+				+ "\t\t}\n"
+				+ "\t\tswitch (count) {\n"
+				+ "\t\t\tcase 10: count = 0; break;\n"
+				+ "\t\t\tcase 1000: count = 1; break;\n"
+				+ "\t\t}\n"
+				+ "\t\tswitch (String.valueOf(count)) {\n"
+				+ "\t\t\tcase \"users\": count = 7; break;\n"
+				+ "\t\t}\n"
+				+ "\t\tfinal int result = count;\n"
+				+ "\t\tRunnable print = () -> System.out.println(result);\n"
+				+ "\t\tprint.run();\n";
+
+		String checksum = checksum(fixture("", body, ""));
+
+		assertNotNull(checksum);
+		assertEquals(checksum, checksum(fixture("\n\n", body, "")));
+		assertFalse(checksum.equals(checksum(fixture("", body.replace("case 1000", "case 2000"), ""))));
+	}
+
+	private static String checksum(Path classes) throws Exception {
+		try (URLClassLoader classLoader = new URLClassLoader(new URL[] { classes.toUri().toURL() },
+				ChangeSetChecksumTest.class.getClassLoader())) {
+			Class<?> type = classLoader.loadClass("checksum.Fixture");
+			return ChangeSetChecksum.compute(type.getMethod("change"));
+		}
+	}
+
+	private static Path fixture(String padding, String body, String otherMethod) throws IOException {
+		return compile(source(padding, body, otherMethod));
+	}
+
+	private static String source(String padding, String body, String otherMethod) {
+		return "package checksum;\n\n"
+				+ "public class Fixture {\n"
+				+ "\tstatic final int LIMIT = 25;\n"
+				+ padding
+				+ otherMethod
+				+ "\tpublic void change() {\n"
+				+ body
+				+ "\t}\n"
+				+ "}\n";
+	}
+
+	private static Path compile(String source) throws IOException {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		assertNotNull("Tests have to run on a JDK", compiler);
+		Path dir = Files.createTempDirectory("checksum");
+		Path file = dir.resolve("checksum").resolve("Fixture.java");
+		Files.createDirectories(file.getParent());
+		Files.write(file, source.getBytes(StandardCharsets.UTF_8));
+		// debug attributes are written on purpose, the checksum has to skip them
+		int status = compiler.run(null, null, null, "-g", "-d", dir.toString(), file.toString());
+		assertTrue("Could not compile " + file, status == 0);
+		Files.delete(file);
+		return dir;
+	}
+}